@@ -5,13 +5,22 @@ import cn.iocoder.yudao.framework.common.pojo.CommonResult;
 import cn.iocoder.yudao.framework.common.pojo.PageParam;
 import cn.iocoder.yudao.framework.common.pojo.PageResult;
 import cn.iocoder.yudao.framework.common.util.object.BeanUtils;
+import cn.iocoder.yudao.framework.common.util.http.HttpUtils;
 import cn.iocoder.yudao.framework.excel.core.util.ExcelUtils;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.*;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportErrorRowDO;
 import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDO;
 import cn.iocoder.yudao.module.drug.enums.RetryTypeEnum;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
 import cn.iocoder.yudao.module.drug.service.batch.DrugBatchImportService;
 import cn.iocoder.yudao.module.drug.service.batch.DrugStatisticsService;
 import cn.iocoder.yudao.module.drug.service.batch.DrugTemplateService;
+import cn.iocoder.yudao.module.drug.service.batch.ImportErrorRowService;
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.converters.longconverter.LongStringConverter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import com.alibaba.excel.write.style.column.LongestMatchColumnWidthStyleStrategy;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,6 +33,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.net.URLEncoder;
@@ -62,6 +72,9 @@ public class DrugBatchImportController {
     @Resource
     private DrugStatisticsService drugStatisticsService;
 
+    @Resource
+    private ImportErrorRowService importErrorRowService;
+
     /**
      * 创建批量导入任务
      * <p>
@@ -74,7 +87,8 @@ public class DrugBatchImportController {
             @RequestPart("file") MultipartFile file,
             @RequestParam("taskName") String taskName,
             @RequestParam(value = "description", required = false) String description,
-            @RequestParam(value = "dataSource", required = false) String dataSource) {
+            @RequestParam(value = "dataSource", required = false) String dataSource,
+            @RequestParam(value = "loadMode", required = false) String loadMode) {
 
         log.info("创建导入任务: taskName={}, dataSource={}, fileName={}, fileSize={}",
                 taskName, dataSource, file.getOriginalFilename(), file.getSize());
@@ -84,6 +98,7 @@ public class DrugBatchImportController {
                 .taskName(taskName)
                 .description(description)
                 .dataSource(dataSource)
+                .loadMode(loadMode)
                 .build();
 
         ImportTaskCreateResult result = drugBatchImportService.createImportTask(file, params);
@@ -133,6 +148,22 @@ public class DrugBatchImportController {
         return success(progress);
     }
 
+    /**
+     * 订阅任务进度事件流（SSE）
+     * <p>
+     * 供无法使用 WebSocket 的客户端使用（如脚本、经过代理的看板），进度变化时推送，定期发送心跳；
+     * 断线后浏览器会自动带上 Last-Event-ID 重连，服务端只补发之后的事件
+     */
+    @GetMapping(value = "/task-progress/{taskId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅导入任务进度事件流",
+            description = "SSE 事件：task 任务进度、detail 表进度、finished 任务结束；支持 Last-Event-ID 断线续传")
+    @Parameter(name = "taskId", description = "任务ID", required = true)
+    @PreAuthorize("@ss.hasPermission('drug:batch-import:query')")
+    public SseEmitter streamTaskProgress(@PathVariable("taskId") Long taskId,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return drugBatchImportService.streamTaskProgress(taskId, lastEventId);
+    }
+
     /**
      * 重试失败任务
      * <p>
@@ -161,21 +192,44 @@ public class DrugBatchImportController {
     /**
      * 取消正在进行的任务
      * <p>
-     * 安全地取消任务并清理相关资源
+     * 安全地取消任务并清理相关资源，执行中的任务会停止并清理已导入的数据，返回取消耗时
      */
     @PostMapping("/cancel-task/{taskId}")
     @Operation(summary = "取消正在进行的导入任务")
     @Parameter(name = "taskId", description = "任务ID", required = true)
     @PreAuthorize("@ss.hasPermission('drug:batch-import:cancel')")
     @ApiAccessLog(operateType = OTHER)
-    public CommonResult<Boolean> cancelTask(@PathVariable("taskId") Long taskId) {
+    public CommonResult<ImportCancelResultVO> cancelTask(@PathVariable("taskId") Long taskId) {
 
         log.info("收到任务取消请求: taskId={}", taskId);
 
-        drugBatchImportService.cancelTask(taskId);
+        ImportCancelResultVO result = drugBatchImportService.cancelTask(taskId);
 
-        log.info("任务已成功取消: taskId={}", taskId);
-        return success(true);
+        log.info("任务已取消: taskId={}, 耗时={}ms", taskId, result.getElapsedMillis());
+        return success(result);
+    }
+
+    /**
+     * 获取导入调度队列状态
+     * <p>
+     * 供管理员查看当前节点的运行数、排队数以及各租户的占用情况
+     */
+    @GetMapping("/queue-status")
+    @Operation(summary = "获取导入调度队列状态")
+    @PreAuthorize("@ss.hasPermission('drug:batch-import:queue')")
+    public CommonResult<ImportQueueStatusVO> getQueueStatus() {
+        return success(drugBatchImportService.getQueueStatus());
+    }
+
+    /**
+     * 获取任务的排队位置
+     */
+    @GetMapping("/queue-position/{taskId}")
+    @Operation(summary = "获取导入任务的排队位置")
+    @Parameter(name = "taskId", description = "任务ID", required = true)
+    @PreAuthorize("@ss.hasPermission('drug:batch-import:query')")
+    public CommonResult<ImportQueuePositionVO> getQueuePosition(@PathVariable("taskId") Long taskId) {
+        return success(drugBatchImportService.getQueuePosition(taskId));
     }
 
     /**
@@ -269,6 +323,53 @@ public class DrugBatchImportController {
                 BeanUtils.toBean(list, ImportTaskRespVO.class));
     }
 
+    /**
+     * 分页查询导入错误行
+     * <p>
+     * 按 Excel 行序返回某张表导入失败的行，完整错误行不随任务明细返回
+     */
+    @GetMapping("/error-rows/page")
+    @Operation(summary = "分页查询导入错误行")
+    @PreAuthorize("@ss.hasPermission('drug:batch-import:query')")
+    public CommonResult<PageResult<ImportErrorRowRespVO>> getErrorRowPage(@Valid ImportErrorRowPageReqVO pageReqVO) {
+        PageResult<ImportErrorRowDO> pageResult = importErrorRowService.getErrorRowPage(pageReqVO);
+        return success(BeanUtils.toBean(pageResult, ImportErrorRowRespVO.class));
+    }
+
+    /**
+     * 导出导入错误行
+     * <p>
+     * 错误行可能有上百万条，按页从数据库读取后逐页写入响应，不在内存中汇总
+     */
+    @GetMapping("/error-rows/export-excel")
+    @Operation(summary = "导出导入错误行 Excel")
+    @PreAuthorize("@ss.hasPermission('drug:batch-import:export')")
+    @ApiAccessLog(operateType = EXPORT)
+    public void exportErrorRows(@Valid ImportErrorRowPageReqVO pageReqVO, HttpServletResponse response) throws IOException {
+        // 写响应头之前校验，否则错误信息会被当作 Excel 下载
+        importErrorRowService.validateTaskExists(pageReqVO.getTaskId());
+        TableTypeEnum tableType = TableTypeEnum.getByType(pageReqVO.getTableType());
+        String filename = String.format("导入错误行_%d_%s.xlsx", pageReqVO.getTaskId(),
+                tableType != null ? tableType.getDescription() : pageReqVO.getTableType());
+        // 边查边写，响应头必须在写入第一页之前设置
+        response.addHeader("Content-Disposition", "attachment;filename=" + HttpUtils.encodeUtf8(filename));
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=UTF-8");
+        ExcelWriter excelWriter = EasyExcel.write(response.getOutputStream(), ImportErrorRowRespVO.class)
+                .autoCloseStream(false) // 不要自动关闭，交给 Servlet 自己处理
+                .registerWriteHandler(new LongestMatchColumnWidthStyleStrategy())
+                .registerConverter(new LongStringConverter())
+                .build();
+        try {
+            WriteSheet sheet = EasyExcel.writerSheet("错误行").build();
+            // 没有错误行时也输出表头
+            excelWriter.write(List.of(), sheet);
+            importErrorRowService.scanErrorRows(pageReqVO,
+                    page -> excelWriter.write(BeanUtils.toBean(page, ImportErrorRowRespVO.class), sheet));
+        } finally {
+            excelWriter.finish();
+        }
+    }
+
     /**
      * 获取任务日志
      * <p>
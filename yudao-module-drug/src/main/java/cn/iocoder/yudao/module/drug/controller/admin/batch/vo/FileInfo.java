@@ -34,6 +34,17 @@ public class FileInfo {
      */
     private String filePath;
 
+    /**
+     * 所在压缩包的路径，直接从压缩包读取时有值
+     */
+    private String archivePath;
+
+    /**
+     * 压缩包内的条目名，不为空时从压缩包中直接读取该条目，filePath 仅用于展示
+     * 例如："2024年数据/机构基本情况.xlsx"
+     */
+    private String entryName;
+
     /**
      * 文件大小（字节）
      */
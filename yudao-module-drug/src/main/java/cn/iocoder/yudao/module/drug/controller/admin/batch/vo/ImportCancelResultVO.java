@@ -0,0 +1,39 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 导入任务取消结果
+ *
+ * @author hyh
+ */
+@Schema(description = "管理后台 - 导入任务取消结果 Response VO")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCancelResultVO {
+
+    @Schema(description = "任务ID", example = "1024")
+    private Long taskId;
+
+    @Schema(description = "取消前任务是否正在执行", example = "true")
+    private Boolean running;
+
+    @Schema(description = "执行中的工作是否已经停止并完成清理；等待超时为 false，清理在后台继续", example = "true")
+    private Boolean stopped;
+
+    @Schema(description = "取消耗时（毫秒）：从发起取消到工作停止，未停止时为已等待的时长", example = "850")
+    private Long elapsedMillis;
+
+    @Schema(description = "清理的已导入行数", example = "120000")
+    private Long purgedRows;
+
+    @Schema(description = "结果说明", example = "任务已停止，已清理120000条已导入数据")
+    private String message;
+
+}
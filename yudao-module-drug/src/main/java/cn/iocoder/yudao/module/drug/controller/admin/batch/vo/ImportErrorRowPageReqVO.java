@@ -0,0 +1,23 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import cn.iocoder.yudao.framework.common.pojo.PageParam;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Schema(description = "管理后台 - 药品数据导入错误行分页 Request VO")
+@Data
+public class ImportErrorRowPageReqVO extends PageParam {
+
+    @Schema(description = "任务ID", requiredMode = Schema.RequiredMode.REQUIRED, example = "11474")
+    @NotNull(message = "任务ID不能为空")
+    private Long taskId;
+
+    @Schema(description = "表类型:1-机构信息,2-药品目录,3-入库情况,4-出库情况,5-使用情况", requiredMode = Schema.RequiredMode.REQUIRED, example = "2")
+    @NotNull(message = "表类型不能为空")
+    private Integer tableType;
+
+    @Schema(description = "错误类型", example = "VALIDATION_ERROR")
+    private String errorType;
+
+}
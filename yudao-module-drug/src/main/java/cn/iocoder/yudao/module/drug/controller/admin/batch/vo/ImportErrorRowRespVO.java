@@ -0,0 +1,32 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import com.alibaba.excel.annotation.ExcelIgnoreUnannotated;
+import com.alibaba.excel.annotation.ExcelProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Schema(description = "管理后台 - 药品数据导入错误行 Response VO")
+@Data
+@ExcelIgnoreUnannotated
+public class ImportErrorRowRespVO {
+
+    @Schema(description = "编号", requiredMode = Schema.RequiredMode.REQUIRED, example = "1024")
+    private Long id;
+
+    @Schema(description = "Excel 行号", example = "128")
+    @ExcelProperty("Excel行号")
+    private Integer rowIndex;
+
+    @Schema(description = "错误类型", requiredMode = Schema.RequiredMode.REQUIRED, example = "VALIDATION_ERROR")
+    @ExcelProperty("错误类型")
+    private String errorType;
+
+    @Schema(description = "错误描述", requiredMode = Schema.RequiredMode.REQUIRED)
+    @ExcelProperty("错误描述")
+    private String errorMessage;
+
+    @Schema(description = "详细错误信息")
+    @ExcelProperty("详细错误信息")
+    private String errorDetail;
+
+}
@@ -0,0 +1,63 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 导入内存配额状态
+ *
+ * @author hyh
+ */
+@Schema(description = "管理后台 - 导入内存配额状态 Response VO")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportMemoryStatusVO {
+
+    @Schema(description = "是否启用内存配额", example = "true")
+    private Boolean enabled;
+
+    @Schema(description = "导入可使用的堆内存总量（字节）", example = "2147483648")
+    private Long budgetBytes;
+
+    @Schema(description = "已预留的堆内存（字节）", example = "536870912")
+    private Long reservedBytes;
+
+    @Schema(description = "当前已使用的堆内存（字节），仅供参考", example = "1073741824")
+    private Long heapUsedBytes;
+
+    @Schema(description = "等待配额的任务数", example = "1")
+    private Integer waitingCount;
+
+    @Schema(description = "各任务的预留情况，包括正在等待的任务")
+    private List<Reservation> reservations;
+
+    @Schema(description = "任务预留")
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reservation {
+
+        @Schema(description = "任务ID", example = "1024")
+        private Long taskId;
+
+        @Schema(description = "预留（或申请）的字节数", example = "268435456")
+        private Long bytes;
+
+        @Schema(description = "是否已获得配额，false 表示正在等待", example = "true")
+        private Boolean granted;
+
+        @Schema(description = "申请时间")
+        private LocalDateTime requestTime;
+
+    }
+
+}
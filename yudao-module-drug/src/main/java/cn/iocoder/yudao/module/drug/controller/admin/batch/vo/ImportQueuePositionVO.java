@@ -0,0 +1,46 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 导入任务在调度队列中的位置
+ *
+ * @author hyh
+ */
+@Schema(description = "管理后台 - 导入任务排队位置 Response VO")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportQueuePositionVO {
+
+    /**
+     * 排队中
+     */
+    public static final String STATE_QUEUED = "QUEUED";
+    /**
+     * 正在运行
+     */
+    public static final String STATE_RUNNING = "RUNNING";
+    /**
+     * 不在本节点的调度队列中（已结束或尚未提交）
+     */
+    public static final String STATE_NOT_QUEUED = "NOT_QUEUED";
+
+    @Schema(description = "任务ID", example = "1024")
+    private Long taskId;
+
+    @Schema(description = "调度状态：QUEUED / RUNNING / NOT_QUEUED", example = "QUEUED")
+    private String state;
+
+    @Schema(description = "按公平轮转推算的出队顺序，从 1 开始；非排队状态为空", example = "3")
+    private Integer position;
+
+    @Schema(description = "排队中的任务总数", example = "7")
+    private Integer queuedCount;
+
+}
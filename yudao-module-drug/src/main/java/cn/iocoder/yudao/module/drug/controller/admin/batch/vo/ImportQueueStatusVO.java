@@ -0,0 +1,62 @@
+package cn.iocoder.yudao.module.drug.controller.admin.batch.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 导入调度队列状态
+ *
+ * @author hyh
+ */
+@Schema(description = "管理后台 - 导入调度队列状态 Response VO")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportQueueStatusVO {
+
+    @Schema(description = "同时运行的任务数上限", example = "4")
+    private Integer maxRunningTasks;
+
+    @Schema(description = "单个租户同时运行的任务数上限", example = "2")
+    private Integer maxRunningPerTenant;
+
+    @Schema(description = "正在运行的任务数", example = "3")
+    private Integer runningCount;
+
+    @Schema(description = "排队中的任务数", example = "7")
+    private Integer queuedCount;
+
+    @Schema(description = "各租户的队列情况")
+    private List<TenantQueue> tenants;
+
+    @Schema(description = "导入内存配额")
+    private ImportMemoryStatusVO memory;
+
+    @Schema(description = "租户队列")
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TenantQueue {
+
+        @Schema(description = "租户编号", example = "1")
+        private Long tenantId;
+
+        @Schema(description = "正在运行的任务数", example = "1")
+        private Integer runningCount;
+
+        @Schema(description = "排队中的任务数", example = "2")
+        private Integer queuedCount;
+
+        @Schema(description = "有任务排队的上传人数", example = "2")
+        private Integer ownerCount;
+
+    }
+
+}
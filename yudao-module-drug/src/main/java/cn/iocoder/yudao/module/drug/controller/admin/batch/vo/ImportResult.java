@@ -31,12 +31,13 @@ public class ImportResult {
     private LocalDateTime endTime;        // 结束时间
     private Long processingTimeMs;        // 处理耗时（毫秒）
     
-    private List<ImportError> importErrors; // 导入错误列表
+    private List<ImportError> importErrors; // 导入错误样例（前 N 条，完整的错误行见错误行表）
     
     @Data
     @Builder
     public static class ImportError {
         private Integer batchIndex;       // 批次索引
+        private Integer rowIndex;         // Excel行号（如果有）
         private Long recordId;           // 记录ID（如果有）
         private String errorType;        // 错误类型
         private String errorMessage;     // 错误描述
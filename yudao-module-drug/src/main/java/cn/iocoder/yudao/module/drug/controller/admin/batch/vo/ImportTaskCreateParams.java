@@ -22,4 +22,7 @@ public class ImportTaskCreateParams {
     
     @Length(max = 50, message = "数据来源不能超过 50 个字符")
     private String dataSource;
+    
+    @Length(max = 20, message = "写入模式不能超过 20 个字符")
+    private String loadMode;
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package cn.iocoder.yudao.module.drug.dal.dataobject.batch;
+
+import cn.iocoder.yudao.framework.mybatis.core.dataobject.BaseDO;
+import com.baomidou.mybatisplus.annotation.KeySequence;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.*;
+
+/**
+ * 药品数据导入错误行 DO
+ * <p>
+ * 每个导入失败的行一条记录，按任务和表类型查询；同一张表重新导入时先清空旧的错误行
+ *
+ * @author hyh
+ */
+@TableName("drug_import_error_row")
+@KeySequence("drug_import_error_row_seq") // 用于 Oracle、PostgreSQL、Kingbase、DB2、H2 数据库的主键自增。如果是 MySQL 等数据库，可不写。
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportErrorRowDO extends BaseDO {
+
+    /**
+     * 编号
+     */
+    @TableId
+    private Long id;
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+    /**
+     * 表类型:1-机构信息,2-药品目录,3-入库情况,4-出库情况,5-使用情况
+     */
+    private Integer tableType;
+    /**
+     * 导入批次号
+     */
+    private String importBatchNo;
+    /**
+     * Excel 行号
+     */
+    private Integer rowIndex;
+    /**
+     * 错误类型
+     */
+    private String errorType;
+    /**
+     * 错误描述
+     */
+    private String errorMessage;
+    /**
+     * 详细错误信息
+     */
+    private String errorDetail;
+
+}
@@ -136,5 +136,9 @@ public class ImportTaskDO extends BaseDO {
      * 备注说明
      */
     private String description;
+    /**
+     * 数据写入模式:INSERT-批量INSERT,LOAD_DATA-批量装载
+     */
+    private String loadMode;
 
 }
\ No newline at end of file
@@ -128,6 +128,14 @@ public class ImportTaskDetailDO extends BaseDO {
      * 导入批次号
      */
     private String importBatchNo;
+    /**
+     * 断点:最后一个已提交分块的Excel行号
+     */
+    private Integer checkpointRowIndex;
+    /**
+     * 断点:已提交的分块数
+     */
+    private Integer checkpointChunkNo;
     /**
      * 重试次数
      */
@@ -0,0 +1,84 @@
+package cn.iocoder.yudao.module.drug.dal.mysql.batch;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 药品业务表批量写入 Mapper
+ * <p>
+ * 五张业务表没有对应的 DO，表名和字段名都来自 {@link cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema}，
+ * 不接受外部输入，因此可以安全地使用 ${} 拼接
+ *
+ * @author hyh
+ */
+@Mapper
+public interface DrugTableWriteMapper {
+
+    /**
+     * 多行插入：INSERT INTO table (c1, c2, ...) VALUES (...), (...), ...
+     *
+     * @param tableName 表名
+     * @param columns   字段名
+     * @param rows      每行的字段值，顺序与 columns 一致
+     * @return 插入的行数
+     */
+    int insertBatch(@Param("tableName") String tableName,
+                    @Param("columns") List<String> columns,
+                    @Param("rows") List<Object[]> rows);
+
+    /**
+     * 按导入批次删除：DELETE FROM table WHERE task_id = ? AND import_batch_no = ? LIMIT ?
+     *
+     * @param tableName     表名
+     * @param taskId        任务ID
+     * @param importBatchNo 导入批次号
+     * @param limit         单次最多删除的行数
+     * @return 删除的行数
+     */
+    int deleteByImportBatchNo(@Param("tableName") String tableName,
+                              @Param("taskId") Long taskId,
+                              @Param("importBatchNo") String importBatchNo,
+                              @Param("limit") int limit);
+
+    /**
+     * 删除导入批次中 Excel 行号大于 afterRowIndex 的行，用于断点续传前清理断点之后已经写入的分块
+     *
+     * @return 删除的行数
+     */
+    int deleteByImportBatchNoAfterRow(@Param("tableName") String tableName,
+                                      @Param("taskId") Long taskId,
+                                      @Param("importBatchNo") String importBatchNo,
+                                      @Param("afterRowIndex") int afterRowIndex,
+                                      @Param("limit") int limit);
+
+    /**
+     * 统计药品目录行数，条件同 {@link #selectCatalogCodes}
+     */
+    long countCatalogCodes(@Param("tableName") String tableName,
+                           @Param("taskId") Long taskId,
+                           @Param("hospitalCodes") Collection<String> hospitalCodes,
+                           @Param("excludeTaskId") Long excludeTaskId);
+
+    /**
+     * 流式读取药品目录的编码：SELECT hos_drug_id, ypid, hospital_code FROM table WHERE ...
+     * <p>
+     * 结果逐行交给 handler，不在内存中汇总，用于构建引用校验索引
+     *
+     * @param tableName     表名
+     * @param taskId        只读取该任务的目录，为空时不限
+     * @param hospitalCodes 只读取这些医疗机构的目录，为空时不限
+     * @param excludeTaskId 排除该任务的目录，为空时不限
+     * @param handler       行处理器，每行为 字段名 -> 值
+     */
+    void selectCatalogCodes(@Param("tableName") String tableName,
+                            @Param("taskId") Long taskId,
+                            @Param("hospitalCodes") Collection<String> hospitalCodes,
+                            @Param("excludeTaskId") Long excludeTaskId,
+                            ResultHandler<Map<String, Object>> handler);
+
+}
@@ -0,0 +1,65 @@
+package cn.iocoder.yudao.module.drug.dal.mysql.batch;
+
+import cn.iocoder.yudao.framework.common.pojo.PageResult;
+import cn.iocoder.yudao.framework.mybatis.core.mapper.BaseMapperX;
+import cn.iocoder.yudao.framework.mybatis.core.query.LambdaQueryWrapperX;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportErrorRowPageReqVO;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportErrorRowDO;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 药品数据导入错误行 Mapper
+ *
+ * @author hyh
+ */
+@Mapper
+public interface ImportErrorRowMapper extends BaseMapperX<ImportErrorRowDO> {
+
+    default PageResult<ImportErrorRowDO> selectPage(ImportErrorRowPageReqVO reqVO) {
+        return selectPage(reqVO, new LambdaQueryWrapperX<ImportErrorRowDO>()
+                .eq(ImportErrorRowDO::getTaskId, reqVO.getTaskId())
+                .eq(ImportErrorRowDO::getTableType, reqVO.getTableType())
+                .eqIfPresent(ImportErrorRowDO::getErrorType, reqVO.getErrorType())
+                .orderByAsc(ImportErrorRowDO::getId));
+    }
+
+    /**
+     * 按编号游标读取下一页，用于流式导出
+     */
+    default List<ImportErrorRowDO> selectListAfterId(Long taskId, Integer tableType, String errorType,
+                                                     Long lastId, int limit) {
+        return selectList(new LambdaQueryWrapperX<ImportErrorRowDO>()
+                .eq(ImportErrorRowDO::getTaskId, taskId)
+                .eq(ImportErrorRowDO::getTableType, tableType)
+                .eqIfPresent(ImportErrorRowDO::getErrorType, errorType)
+                .gt(ImportErrorRowDO::getId, lastId)
+                .orderByAsc(ImportErrorRowDO::getId)
+                .last("LIMIT " + limit));
+    }
+
+    /**
+     * 物理删除一张表的错误行，单次最多删除 limit 行
+     * <p>
+     * 错误行只是导入过程的中间结果，逻辑删除会让表无限增长，因此不走 deleted 字段
+     *
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM drug_import_error_row WHERE task_id = #{taskId} AND table_type = #{tableType} LIMIT #{limit}")
+    int deleteByTaskIdAndTableType(@Param("taskId") Long taskId, @Param("tableType") Integer tableType,
+                                   @Param("limit") int limit);
+
+    /**
+     * 物理删除一张表 Excel 行号大于 afterRowIndex 的错误行，单次最多删除 limit 行
+     *
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM drug_import_error_row WHERE task_id = #{taskId} AND table_type = #{tableType}"
+            + " AND row_index > #{afterRowIndex} LIMIT #{limit}")
+    int deleteByTaskIdAndTableTypeAfterRow(@Param("taskId") Long taskId, @Param("tableType") Integer tableType,
+                                           @Param("afterRowIndex") int afterRowIndex, @Param("limit") int limit);
+
+}
@@ -7,6 +7,8 @@ import cn.iocoder.yudao.module.drug.controller.admin.rule.vo.QcRulePageReqVO;
 import cn.iocoder.yudao.module.drug.dal.dataobject.rule.QcRuleDO;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 /**
  * 质控规则 Mapper
  *
@@ -34,4 +36,15 @@ public interface QcRuleMapper extends BaseMapperX<QcRuleDO> {
                 .orderByDesc(QcRuleDO::getId));
     }
 
+    /**
+     * 查询适用于指定表的已启用规则（包括适用全部表的规则），按优先级排序
+     */
+    default List<QcRuleDO> selectEnabledListByTableType(Integer tableType) {
+        return selectList(new LambdaQueryWrapperX<QcRuleDO>()
+                .eq(QcRuleDO::getEnabled, true)
+                .and(wrapper -> wrapper.eq(QcRuleDO::getTableType, tableType).or().isNull(QcRuleDO::getTableType))
+                .orderByAsc(QcRuleDO::getPriority)
+                .orderByAsc(QcRuleDO::getId));
+    }
+
 }
\ No newline at end of file
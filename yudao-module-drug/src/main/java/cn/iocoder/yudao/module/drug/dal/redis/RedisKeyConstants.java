@@ -12,22 +12,15 @@ public interface RedisKeyConstants {
     /**
      * 药品导入任务进度的缓存
      * <p>
-     * KEY 格式：drug:task:progress:{taskId}
-     * VALUE 数据类型：String 任务进度信息 {@link TaskProgressInfo}
+     * KEY 格式：drug:task:progress-hash:{taskId}
+     * VALUE 数据类型：HASH
+     * - task：任务进度信息 {@link TaskProgressInfo} 的 JSON
+     * - detail:{tableType}：表进度信息 {@link TaskDetailProgressInfo} 的 JSON
+     * - processed:{tableType} / success:{tableType} / failed:{tableType}：表的行数计数，HINCRBY 累加
      * <p>
-     * 过期时间：30分钟，用于实时进度跟踪
+     * 过期时间：30分钟，每次写入续期，用于实时进度跟踪
      */
-    String DRUG_TASK_PROGRESS = "drug:task:progress:%s";
-
-    /**
-     * 药品导入任务详细状态的缓存
-     * <p>
-     * KEY 格式：drug:task:detail:{taskId}:{tableType}
-     * VALUE 数据类型：String 任务明细状态信息 {@link TaskDetailProgressInfo}
-     * <p>
-     * 过期时间：30分钟，用于表级别进度跟踪
-     */
-    String DRUG_TASK_DETAIL_PROGRESS = "drug:task:detail:%s:%s";
+    String DRUG_TASK_PROGRESS = "drug:task:progress-hash:%s";
 
     /**
      * 药品导入任务锁的缓存
@@ -39,6 +32,51 @@ public interface RedisKeyConstants {
      */
     String DRUG_TASK_LOCK = "drug:task:lock:%s";
 
+    /**
+     * 药品导入表级作业租约的缓存
+     * <p>
+     * KEY 格式：drug:task:lock:{taskId}:{tableType}
+     * VALUE 数据类型：String 持有租约的执行节点
+     * <p>
+     * 过期时间：租约时长，执行期间定期续期；节点宕机后过期，作业可被其他节点接管
+     */
+    String DRUG_TASK_TABLE_LOCK = "drug:task:lock:%s:%s";
+
+    /**
+     * 药品导入表级作业的执行状态
+     * <p>
+     * KEY 格式：drug:task:table-job:{taskId}
+     * VALUE 数据类型：HASH
+     * - run：当前执行批次编号，旧批次遗留的作业消息据此丢弃
+     * - result:{tableType}：表作业结果 {@link ImportTableJobResult} 的 JSON
+     * <p>
+     * 过期时间：1天
+     */
+    String DRUG_TASK_TABLE_JOB = "drug:task:table-job:%s";
+
+    /**
+     * 药品导入任务的取消状态
+     * <p>
+     * KEY 格式：drug:task:cancel:{taskId}
+     * VALUE 数据类型：HASH
+     * - requestTime：发起取消的时间戳（毫秒），存在即表示任务已被取消，各执行节点定期检查
+     * - stopTime：执行中的工作停止、已导入数据清理完成的时间戳（毫秒）
+     * - purgedRows：清理的已导入行数
+     * <p>
+     * 过期时间：1天
+     */
+    String DRUG_TASK_CANCEL = "drug:task:cancel:%s";
+
+    /**
+     * 药品导入任务在某个节点的调度队列中（排队或运行）的标记
+     * <p>
+     * KEY 格式：drug:task:queued:{taskId}
+     * VALUE 数据类型：String 持有该任务的节点
+     * <p>
+     * 过期时间：2分钟，持有节点定期续期；节点宕机后过期，仍处于待处理的任务可以通过重试重新入队
+     */
+    String DRUG_TASK_QUEUED = "drug:task:queued:%s";
+
     /**
      * 药品导入会话状态的缓存
      * <p>
@@ -49,4 +87,55 @@ public interface RedisKeyConstants {
      */
     String DRUG_IMPORT_SESSION = "drug:import:session:%s";
 
+    /**
+     * 订阅药品导入任务进度的 WebSocket 会话
+     * <p>
+     * KEY 格式：drug:task:progress:subscriber:{taskId}
+     * VALUE 数据类型：SET WebSocket Session 编号
+     * <p>
+     * 过期时间：2小时，每次订阅时续期；会话可能在任意节点上，推送时由 WebSocket 发送器负责路由
+     */
+    String DRUG_TASK_PROGRESS_SUBSCRIBER = "drug:task:progress:subscriber:%s";
+
+    /**
+     * 药品导入任务进度事件的编号
+     * <p>
+     * KEY 格式：drug:task:progress:event-seq:{taskId}
+     * VALUE 数据类型：String 最后分配的事件编号，INCRBY 分配；作为 SSE 的 id，各节点一致，客户端可以重连到任意节点
+     * <p>
+     * 过期时间：1天，每次分配时续期
+     */
+    String DRUG_TASK_PROGRESS_EVENT_SEQ = "drug:task:progress:event-seq:%s";
+
+    /**
+     * 质控规则的版本号
+     * <p>
+     * KEY 格式：drug:qc-rule:version
+     * VALUE 数据类型：HASH
+     * - {tableType}：该表规则的版本号，规则新增、修改、删除时递增，各节点据此判断本地编译的规则是否过期
+     * <p>
+     * 不过期
+     */
+    String DRUG_QC_RULE_VERSION = "drug:qc-rule:version";
+
+    /**
+     * 导入任务详情快照
+     * <p>
+     * KEY 格式：drug:task:detail-snapshot:{taskId}
+     * VALUE 数据类型：String 任务详情快照 {@link cn.iocoder.yudao.module.drug.dal.redis.batch.TaskDetailSnapshotRedisDAO.TaskDetailSnapshot}
+     * <p>
+     * 过期时间：已结束的任务 1 天，进行中的任务几秒
+     */
+    String DRUG_TASK_DETAIL_SNAPSHOT = "drug:task:detail-snapshot:%s";
+
+    /**
+     * 导入任务详情快照的版本号
+     * <p>
+     * KEY 格式：drug:task:detail-version:{taskId}
+     * VALUE 数据类型：String 版本号，任务或明细的状态变化时递增，与之不一致的快照（包括各节点本地缓存的）作废
+     * <p>
+     * 过期时间：与已结束任务的快照相同，每次递增时续期
+     */
+    String DRUG_TASK_DETAIL_VERSION = "drug:task:detail-version:%s";
+
 }
\ No newline at end of file
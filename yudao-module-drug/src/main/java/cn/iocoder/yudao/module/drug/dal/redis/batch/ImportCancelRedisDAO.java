@@ -0,0 +1,106 @@
+package cn.iocoder.yudao.module.drug.dal.redis.batch;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_CANCEL;
+
+/**
+ * 导入任务取消状态的 Redis 数据访问层
+ * <p>
+ * 取消标记存放在 Redis 中，集群中执行该任务的所有节点（协调节点和表作业节点）都能看到
+ *
+ * @author hyh
+ */
+@Repository
+public class ImportCancelRedisDAO {
+
+    private static final String FIELD_REQUEST_TIME = "requestTime";
+    private static final String FIELD_STOP_TIME = "stopTime";
+    private static final String FIELD_PURGED_ROWS = "purgedRows";
+    private static final Duration CANCEL_TIMEOUT = Duration.ofDays(1);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 写入取消标记，重复取消时保留第一次的时间
+     *
+     * @param taskId 任务ID
+     * @return 发起取消的时间戳（毫秒）
+     */
+    public long requestCancel(Long taskId) {
+        String redisKey = formatKey(taskId);
+        HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+        hashOps.putIfAbsent(redisKey, FIELD_REQUEST_TIME, String.valueOf(System.currentTimeMillis()));
+        stringRedisTemplate.expire(redisKey, CANCEL_TIMEOUT);
+        return Long.parseLong(hashOps.get(redisKey, FIELD_REQUEST_TIME));
+    }
+
+    /**
+     * 任务是否已被取消
+     */
+    public boolean isCancelRequested(Long taskId) {
+        return stringRedisTemplate.opsForHash().hasKey(formatKey(taskId), FIELD_REQUEST_TIME);
+    }
+
+    /**
+     * 累加清理的行数
+     */
+    public void addPurgedRows(Long taskId, long purgedRows) {
+        if (purgedRows > 0) {
+            stringRedisTemplate.opsForHash().increment(formatKey(taskId), FIELD_PURGED_ROWS, purgedRows);
+        }
+    }
+
+    /**
+     * 记录执行中的工作已经停止
+     */
+    public void markStopped(Long taskId) {
+        stringRedisTemplate.opsForHash().put(formatKey(taskId), FIELD_STOP_TIME, String.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * 获取取消状态
+     *
+     * @return 未取消时返回 null
+     */
+    public CancelState getCancelState(Long taskId) {
+        HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+        List<String> values = hashOps.multiGet(formatKey(taskId),
+                List.of(FIELD_REQUEST_TIME, FIELD_STOP_TIME, FIELD_PURGED_ROWS));
+        if (values.get(0) == null) {
+            return null;
+        }
+        return new CancelState(Long.parseLong(values.get(0)),
+                values.get(1) != null ? Long.parseLong(values.get(1)) : null,
+                values.get(2) != null ? Long.parseLong(values.get(2)) : 0L);
+    }
+
+    /**
+     * 删除取消状态
+     */
+    public void delete(Long taskId) {
+        stringRedisTemplate.delete(formatKey(taskId));
+    }
+
+    private static String formatKey(Long taskId) {
+        return String.format(DRUG_TASK_CANCEL, taskId);
+    }
+
+    /**
+     * 取消状态
+     *
+     * @param requestTime 发起取消的时间戳（毫秒）
+     * @param stopTime    工作停止的时间戳（毫秒），尚未停止时为 null
+     * @param purgedRows  已清理的行数
+     */
+    public record CancelState(long requestTime, Long stopTime, long purgedRows) {
+    }
+
+}
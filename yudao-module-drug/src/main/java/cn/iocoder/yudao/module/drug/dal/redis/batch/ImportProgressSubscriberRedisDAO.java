@@ -0,0 +1,67 @@
+package cn.iocoder.yudao.module.drug.dal.redis.batch;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_PROGRESS_SUBSCRIBER;
+
+/**
+ * 导入进度订阅关系的 Redis 数据访问层
+ * <p>
+ * 订阅关系存放在 Redis 而不是节点内存中：执行任务的节点与持有 WebSocket 会话的节点可能不同，
+ * 执行节点按这里的会话编号推送，再由配置的发送器（local / redis 等）路由到会话所在节点
+ *
+ * @author hyh
+ */
+@Repository
+public class ImportProgressSubscriberRedisDAO {
+
+    private static final Duration SUBSCRIBER_TIMEOUT = Duration.ofHours(2);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 添加订阅
+     *
+     * @param taskId    任务ID
+     * @param sessionId WebSocket 会话编号
+     */
+    public void addSubscriber(Long taskId, String sessionId) {
+        String redisKey = formatKey(taskId);
+        stringRedisTemplate.opsForSet().add(redisKey, sessionId);
+        stringRedisTemplate.expire(redisKey, SUBSCRIBER_TIMEOUT);
+    }
+
+    /**
+     * 取消订阅
+     */
+    public void removeSubscriber(Long taskId, String sessionId) {
+        stringRedisTemplate.opsForSet().remove(formatKey(taskId), sessionId);
+    }
+
+    /**
+     * 获取任务的全部订阅会话
+     */
+    public Set<String> getSubscribers(Long taskId) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(formatKey(taskId));
+        return members != null ? members : Collections.emptySet();
+    }
+
+    /**
+     * 删除任务的全部订阅
+     */
+    public void deleteSubscribers(Long taskId) {
+        stringRedisTemplate.delete(formatKey(taskId));
+    }
+
+    private static String formatKey(Long taskId) {
+        return String.format(DRUG_TASK_PROGRESS_SUBSCRIBER, taskId);
+    }
+
+}
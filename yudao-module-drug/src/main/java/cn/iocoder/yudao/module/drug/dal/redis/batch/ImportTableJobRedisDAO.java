@@ -0,0 +1,98 @@
+package cn.iocoder.yudao.module.drug.dal.redis.batch;
+
+import cn.iocoder.yudao.framework.common.util.json.JsonUtils;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJobResult;
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_TABLE_JOB;
+
+/**
+ * 表级导入作业状态的 Redis 数据访问层
+ * <p>
+ * 协调节点开始一次导入时登记执行批次，执行节点完成表作业后写入结果，协调节点轮询汇总
+ *
+ * @author hyh
+ */
+@Repository
+public class ImportTableJobRedisDAO {
+
+    private static final String FIELD_RUN = "run";
+    private static final String FIELD_RESULT_PREFIX = "result:";
+    private static final Duration TABLE_JOB_TIMEOUT = Duration.ofDays(1);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 开始新的执行批次，清除上一批次的结果
+     *
+     * @param taskId 任务ID
+     * @param runId  执行批次编号
+     */
+    public void startRun(Long taskId, String runId) {
+        String redisKey = formatKey(taskId);
+        stringRedisTemplate.delete(redisKey);
+        stringRedisTemplate.opsForHash().put(redisKey, FIELD_RUN, runId);
+        stringRedisTemplate.expire(redisKey, TABLE_JOB_TIMEOUT);
+    }
+
+    /**
+     * 获取任务当前的执行批次编号
+     */
+    public String getCurrentRun(Long taskId) {
+        Object runId = stringRedisTemplate.opsForHash().get(formatKey(taskId), FIELD_RUN);
+        return runId != null ? runId.toString() : null;
+    }
+
+    /**
+     * 写入表作业结果
+     */
+    public void setResult(Long taskId, ImportTableJobResult result) {
+        stringRedisTemplate.opsForHash().put(formatKey(taskId),
+                FIELD_RESULT_PREFIX + result.getTableType(), JsonUtils.toJsonString(result));
+    }
+
+    /**
+     * 获取表作业结果
+     */
+    public ImportTableJobResult getResult(Long taskId, String tableType) {
+        Object value = stringRedisTemplate.opsForHash().get(formatKey(taskId), FIELD_RESULT_PREFIX + tableType);
+        return value != null ? JsonUtils.parseObject(value.toString(), ImportTableJobResult.class) : null;
+    }
+
+    /**
+     * 获取任务当前批次的全部表作业结果
+     *
+     * @return key 为表类型
+     */
+    public Map<String, ImportTableJobResult> getResults(Long taskId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(formatKey(taskId));
+        Map<String, ImportTableJobResult> results = new HashMap<>();
+        entries.forEach((field, value) -> {
+            String name = field.toString();
+            if (name.startsWith(FIELD_RESULT_PREFIX)) {
+                results.put(name.substring(FIELD_RESULT_PREFIX.length()),
+                        JsonUtils.parseObject(value.toString(), ImportTableJobResult.class));
+            }
+        });
+        return results;
+    }
+
+    /**
+     * 删除任务的表作业状态
+     */
+    public void delete(Long taskId) {
+        stringRedisTemplate.delete(formatKey(taskId));
+    }
+
+    private static String formatKey(Long taskId) {
+        return String.format(DRUG_TASK_TABLE_JOB, taskId);
+    }
+
+}
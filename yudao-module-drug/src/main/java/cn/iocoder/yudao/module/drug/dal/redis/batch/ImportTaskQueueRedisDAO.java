@@ -0,0 +1,69 @@
+package cn.iocoder.yudao.module.drug.dal.redis.batch;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_QUEUED;
+
+/**
+ * 导入任务调度队列标记的 Redis 数据访问层
+ * <p>
+ * 调度队列在各节点内存中，这里记录任务被哪个节点持有，节点重启后据此判断待处理的任务是否已经无人负责
+ *
+ * @author hyh
+ */
+@Repository
+public class ImportTaskQueueRedisDAO {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 标记任务被本节点持有，已有标记时覆盖并续期
+     */
+    public void markQueued(Long taskId, String node, Duration timeout) {
+        stringRedisTemplate.opsForValue().set(formatKey(taskId), node, timeout);
+    }
+
+    /**
+     * 批量续期本节点持有的任务
+     */
+    public void renewQueued(Collection<Long> taskIds, String node, Duration timeout) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                taskIds.forEach(taskId -> operations.opsForValue().set(formatKey(taskId), node, timeout));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 任务是否被某个节点持有
+     */
+    public boolean isQueued(Long taskId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(formatKey(taskId)));
+    }
+
+    /**
+     * 移除标记
+     */
+    public void removeQueued(Long taskId) {
+        stringRedisTemplate.delete(formatKey(taskId));
+    }
+
+    private static String formatKey(Long taskId) {
+        return String.format(DRUG_TASK_QUEUED, taskId);
+    }
+
+}
@@ -0,0 +1,89 @@
+package cn.iocoder.yudao.module.drug.dal.redis.batch;
+
+import cn.iocoder.yudao.framework.common.util.json.JsonUtils;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportTaskDetailVO;
+import jakarta.annotation.Resource;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_DETAIL_SNAPSHOT;
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_TASK_DETAIL_VERSION;
+
+/**
+ * 导入任务详情快照的 Redis 数据访问层
+ *
+ * @author hyh
+ */
+@Repository
+public class TaskDetailSnapshotRedisDAO {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取任务详情的当前版本号，没有记录时为 0
+     */
+    public long getVersion(Long taskId) {
+        String version = stringRedisTemplate.opsForValue().get(formatVersionKey(taskId));
+        return version != null ? Long.parseLong(version) : 0L;
+    }
+
+    /**
+     * 递增版本号并删除已有的快照
+     *
+     * @param timeout 版本号的过期时间，不能短于快照的过期时间
+     */
+    public void invalidate(Long taskId, Duration timeout) {
+        String versionKey = formatVersionKey(taskId);
+        stringRedisTemplate.opsForValue().increment(versionKey);
+        stringRedisTemplate.expire(versionKey, timeout);
+        stringRedisTemplate.delete(formatSnapshotKey(taskId));
+    }
+
+    public TaskDetailSnapshot getSnapshot(Long taskId) {
+        String value = stringRedisTemplate.opsForValue().get(formatSnapshotKey(taskId));
+        return value != null ? JsonUtils.parseObject(value, TaskDetailSnapshot.class) : null;
+    }
+
+    public void setSnapshot(Long taskId, TaskDetailSnapshot snapshot, Duration timeout) {
+        stringRedisTemplate.opsForValue().set(formatSnapshotKey(taskId), JsonUtils.toJsonString(snapshot), timeout);
+    }
+
+    private static String formatSnapshotKey(Long taskId) {
+        return String.format(DRUG_TASK_DETAIL_SNAPSHOT, taskId);
+    }
+
+    private static String formatVersionKey(Long taskId) {
+        return String.format(DRUG_TASK_DETAIL_VERSION, taskId);
+    }
+
+    /**
+     * 任务详情快照
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TaskDetailSnapshot {
+
+        /**
+         * 生成快照时的版本号
+         */
+        private long version;
+        /**
+         * 生成快照时任务是否已经结束
+         */
+        private boolean terminal;
+        /**
+         * 进行中任务的快照失效时间戳（毫秒），已结束的任务不按时间失效
+         */
+        private long expireTime;
+        private ImportTaskDetailVO detail;
+
+    }
+
+}
@@ -6,15 +6,18 @@ import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportSessionInfo;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
 import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Repository;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -35,6 +38,26 @@ import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.*;
 @Repository
 public class TaskProgressRedisDAO {
 
+    private static final String FIELD_TASK = "task";
+    private static final String FIELD_DETAIL_PREFIX = "detail:";
+    private static final String FIELD_PROCESSED_PREFIX = "processed:";
+    private static final String FIELD_SUCCESS_PREFIX = "success:";
+    private static final String FIELD_FAILED_PREFIX = "failed:";
+    private static final Duration PROGRESS_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * 持有者一致时才续期，比较与续期在同一个脚本中完成，避免续到别人刚拿到的租约
+     */
+    private static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+    /**
+     * 持有者一致时才删除，比较与删除在同一个脚本中完成，避免删掉别人刚拿到的锁
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
     @Resource
     private StringRedisTemplate stringRedisTemplate;
 
@@ -87,7 +110,11 @@ public class TaskProgressRedisDAO {
         return String.format("RETRY_%d_%s_%s_%04d", taskId, retryType, dateStr, sequence);
     }
 
-    // ==================== 任务总体进度相关操作 ====================
+    // ==================== 任务进度相关操作 ====================
+    //
+    // 每个任务一个 Hash：task 字段存任务进度 JSON，detail:{tableType} 存各表进度 JSON，
+    // processed:/success:/failed:{tableType} 是各表的行数计数，通过 HINCRBY 原子累加，
+    // 并行写入的分块之间不需要先读后写。读取时一次 HGETALL 拿到任务的全部进度
 
     /**
      * 获取任务进度信息
@@ -98,9 +125,37 @@ public class TaskProgressRedisDAO {
      * @return 任务进度信息，如果不存在则返回null
      */
     public TaskProgressInfo getTaskProgress(Long taskId) {
-        String redisKey = formatTaskProgressKey(taskId);
-        String jsonValue = stringRedisTemplate.opsForValue().get(redisKey);
-        return JsonUtils.parseObject(jsonValue, TaskProgressInfo.class);
+        Object jsonValue = stringRedisTemplate.opsForHash().get(formatTaskProgressKey(taskId), FIELD_TASK);
+        return JsonUtils.parseObject((String) jsonValue, TaskProgressInfo.class);
+    }
+
+    /**
+     * 批量获取任务进度信息，所有 HGET 放在同一个管道中，用于任务列表页
+     *
+     * @param taskIds 任务ID集合
+     * @return 任务ID -> 进度信息，没有进度的任务不在结果中
+     */
+    public Map<Long, TaskProgressInfo> getTaskProgressBatch(Collection<Long> taskIds) {
+        if (CollectionUtils.isAnyEmpty(taskIds)) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(taskIds);
+        List<Object> values = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                ids.forEach(taskId -> operations.opsForHash().get(formatTaskProgressKey(taskId), FIELD_TASK));
+                return null;
+            }
+        });
+        Map<Long, TaskProgressInfo> result = new HashMap<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            TaskProgressInfo progressInfo = JsonUtils.parseObject((String) values.get(i), TaskProgressInfo.class);
+            if (progressInfo != null) {
+                result.put(ids.get(i), progressInfo);
+            }
+        }
+        return result;
     }
 
     /**
@@ -114,38 +169,18 @@ public class TaskProgressRedisDAO {
      * @param progressInfo 任务进度信息
      */
     public void setTaskProgress(TaskProgressInfo progressInfo) {
-        String redisKey = formatTaskProgressKey(progressInfo.getTaskId());
-
-        // 构建优化后的进度信息，只保留必要字段
-        TaskProgressInfo cleanedInfo = TaskProgressInfo.builder()
-                .taskId(progressInfo.getTaskId())
-                .progress(progressInfo.getProgress())
-                .message(progressInfo.getMessage())
-                .currentStage(progressInfo.getCurrentStage())
-                .estimatedRemainingSeconds(progressInfo.getEstimatedRemainingSeconds())
-                .updateTime(LocalDateTime.now()) // 强制更新为当前时间
-                .extraInfo(progressInfo.getExtraInfo())
-                .build();
-
-        // 设置30分钟过期时间，足够支持大部分导入任务
-        stringRedisTemplate.opsForValue().set(
-                redisKey,
-                JsonUtils.toJsonString(cleanedInfo),
-                30,
-                TimeUnit.MINUTES
-        );
+        setProgressBatch(Collections.singletonList(progressInfo), Collections.emptyList(), Collections.emptyList());
     }
 
     /**
-     * 删除任务进度信息
+     * 删除任务进度信息，包括各表的进度和计数
      * <p>
      * 通常在任务完成或被取消时调用
      *
      * @param taskId 任务ID
      */
     public void deleteTaskProgress(Long taskId) {
-        String redisKey = formatTaskProgressKey(taskId);
-        stringRedisTemplate.delete(redisKey);
+        stringRedisTemplate.delete(formatTaskProgressKey(taskId));
     }
 
     /**
@@ -167,8 +202,6 @@ public class TaskProgressRedisDAO {
         stringRedisTemplate.delete(redisKeys);
     }
 
-    // ==================== 任务明细进度相关操作 ====================
-
     /**
      * 获取任务明细进度信息
      * <p>
@@ -179,9 +212,14 @@ public class TaskProgressRedisDAO {
      * @return 明细进度信息
      */
     public TaskDetailProgressInfo getTaskDetailProgress(Long taskId, String tableType) {
-        String redisKey = formatTaskDetailProgressKey(taskId, tableType);
-        String jsonValue = stringRedisTemplate.opsForValue().get(redisKey);
-        return JsonUtils.parseObject(jsonValue, TaskDetailProgressInfo.class);
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(formatTaskProgressKey(taskId),
+                List.of(FIELD_DETAIL_PREFIX + tableType, FIELD_PROCESSED_PREFIX + tableType,
+                        FIELD_SUCCESS_PREFIX + tableType, FIELD_FAILED_PREFIX + tableType));
+        TaskDetailProgressInfo detail = JsonUtils.parseObject((String) values.get(0), TaskDetailProgressInfo.class);
+        if (detail != null) {
+            applyCounters(detail, (String) values.get(1), (String) values.get(2), (String) values.get(3));
+        }
+        return detail;
     }
 
     /**
@@ -190,55 +228,173 @@ public class TaskProgressRedisDAO {
      * @param detailProgressInfo 明细进度信息
      */
     public void setTaskDetailProgress(TaskDetailProgressInfo detailProgressInfo) {
-        String redisKey = formatTaskDetailProgressKey(
-                detailProgressInfo.getTaskId(),
-                detailProgressInfo.getTableType()
-        );
-
-        // 更新时间标记
-        detailProgressInfo.setUpdateTime(LocalDateTime.now());
-
-        // 明细进度信息也设置30分钟过期
-        stringRedisTemplate.opsForValue().set(
-                redisKey,
-                JsonUtils.toJsonString(detailProgressInfo),
-                30,
-                TimeUnit.MINUTES
-        );
+        setProgressBatch(Collections.emptyList(), Collections.singletonList(detailProgressInfo), Collections.emptyList());
     }
 
     /**
      * 获取任务的所有明细进度信息
-     * <p>
-     * 性能注意事项：
-     * - 使用SCAN代替KEYS避免阻塞Redis
-     * - 在生产环境中建议改用Hash结构存储明细进度
      *
      * @param taskId 任务ID
      * @return 所有明细进度信息的Map，key为tableType
      */
     public Map<String, TaskDetailProgressInfo> getAllTaskDetailProgress(Long taskId) {
-        String pattern = formatTaskDetailProgressKey(taskId, "*");
+        return getProgressSnapshot(taskId).details();
+    }
+
+    /**
+     * 一次读取任务的全部进度：任务进度、各表进度和计数
+     *
+     * @param taskId 任务ID
+     * @return 进度快照，任务进度不存在时 task 为 null
+     */
+    public ProgressSnapshot getProgressSnapshot(Long taskId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(formatTaskProgressKey(taskId));
+        TaskProgressInfo task = JsonUtils.parseObject((String) entries.get(FIELD_TASK), TaskProgressInfo.class);
+        Map<String, TaskDetailProgressInfo> details = new LinkedHashMap<>();
+        entries.forEach((field, value) -> {
+            String name = (String) field;
+            if (!name.startsWith(FIELD_DETAIL_PREFIX)) {
+                return;
+            }
+            String tableType = name.substring(FIELD_DETAIL_PREFIX.length());
+            TaskDetailProgressInfo detail = JsonUtils.parseObject((String) value, TaskDetailProgressInfo.class);
+            if (detail != null) {
+                applyCounters(detail, (String) entries.get(FIELD_PROCESSED_PREFIX + tableType),
+                        (String) entries.get(FIELD_SUCCESS_PREFIX + tableType),
+                        (String) entries.get(FIELD_FAILED_PREFIX + tableType));
+                details.put(tableType, detail);
+            }
+        });
+        return new ProgressSnapshot(task, details);
+    }
 
-        // TODO: 生产环境建议使用SCAN替代keys，避免Redis阻塞
-        return stringRedisTemplate.keys(pattern).stream()
-                .collect(Collectors.toMap(
-                        this::extractTableTypeFromKey,
-                        key -> {
-                            String jsonValue = stringRedisTemplate.opsForValue().get(key);
-                            return JsonUtils.parseObject(jsonValue, TaskDetailProgressInfo.class);
-                        }
-                ));
+    /**
+     * 批量写入任务进度、明细进度，并累加各表的行数计数
+     * <p>
+     * 所有命令放在同一个管道中发送，只有一次网络往返，用于合并后的进度刷新。
+     * 计数使用 HINCRBY，多个节点、多个分块同时累加也不会互相覆盖
+     *
+     * @param taskProgresses   任务进度
+     * @param detailProgresses 明细进度
+     * @param counterDeltas    各表的计数增量
+     */
+    public void setProgressBatch(Collection<TaskProgressInfo> taskProgresses,
+                                 Collection<TaskDetailProgressInfo> detailProgresses,
+                                 Collection<DetailCounterDelta> counterDeltas) {
+        if (CollectionUtils.isAnyEmpty(taskProgresses) && CollectionUtils.isAnyEmpty(detailProgresses)
+                && CollectionUtils.isAnyEmpty(counterDeltas)) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Map<String, String>> hashValues = new LinkedHashMap<>();
+        taskProgresses.forEach(info -> {
+            info.setUpdateTime(now);
+            hashValues.computeIfAbsent(formatTaskProgressKey(info.getTaskId()), key -> new LinkedHashMap<>())
+                    .put(FIELD_TASK, JsonUtils.toJsonString(info));
+        });
+        detailProgresses.forEach(info -> {
+            info.setUpdateTime(now);
+            hashValues.computeIfAbsent(formatTaskProgressKey(info.getTaskId()), key -> new LinkedHashMap<>())
+                    .put(FIELD_DETAIL_PREFIX + info.getTableType(), JsonUtils.toJsonString(info));
+        });
+        Set<String> keys = new LinkedHashSet<>(hashValues.keySet());
+        counterDeltas.forEach(delta -> keys.add(formatTaskProgressKey(delta.taskId())));
+
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                HashOperations<String, String, String> hashOps = operations.opsForHash();
+                hashValues.forEach(hashOps::putAll);
+                counterDeltas.forEach(delta -> {
+                    String key = formatTaskProgressKey(delta.taskId());
+                    incrementIfNotZero(hashOps, key, FIELD_PROCESSED_PREFIX + delta.tableType(), delta.processed());
+                    incrementIfNotZero(hashOps, key, FIELD_SUCCESS_PREFIX + delta.tableType(), delta.success());
+                    incrementIfNotZero(hashOps, key, FIELD_FAILED_PREFIX + delta.tableType(), delta.failed());
+                });
+                // 30分钟过期时间，足够支持大部分导入任务，每次写入都会续期
+                keys.forEach(key -> operations.expire(key, PROGRESS_TIMEOUT));
+                return null;
+            }
+        });
     }
 
     /**
-     * 删除任务的所有明细进度信息
+     * 重置表的行数计数，用于表开始导入（或从断点续传）时设定计数的起点
+     *
+     * @param taskId    任务ID
+     * @param tableType 表类型
+     * @param success   成功行数起点
+     * @param failed    失败行数起点
+     */
+    public void resetDetailCounters(Long taskId, String tableType, long success, long failed) {
+        String key = formatTaskProgressKey(taskId);
+        stringRedisTemplate.opsForHash().putAll(key, Map.of(
+                FIELD_PROCESSED_PREFIX + tableType, String.valueOf(success + failed),
+                FIELD_SUCCESS_PREFIX + tableType, String.valueOf(success),
+                FIELD_FAILED_PREFIX + tableType, String.valueOf(failed)));
+        stringRedisTemplate.expire(key, PROGRESS_TIMEOUT);
+    }
+
+    private static void incrementIfNotZero(HashOperations<String, String, String> hashOps,
+                                           String key, String field, long delta) {
+        if (delta != 0) {
+            hashOps.increment(key, field, delta);
+        }
+    }
+
+    /**
+     * 计数字段优先于 JSON 中的计数：JSON 是某次刷新时的快照，计数字段是原子累加的结果
+     */
+    private static void applyCounters(TaskDetailProgressInfo detail, String processed, String success, String failed) {
+        if (processed != null) {
+            detail.setProcessedRecords(Integer.valueOf(processed));
+        }
+        if (success != null) {
+            detail.setSuccessRecords(Integer.valueOf(success));
+        }
+        if (failed != null) {
+            detail.setFailedRecords(Integer.valueOf(failed));
+        }
+    }
+
+    /**
+     * 任务的全部进度
+     *
+     * @param task    任务进度
+     * @param details 各表进度，key 为表类型
+     */
+    public record ProgressSnapshot(TaskProgressInfo task, Map<String, TaskDetailProgressInfo> details) {
+    }
+
+    /**
+     * 表的行数计数增量
+     */
+    public record DetailCounterDelta(Long taskId, String tableType, long processed, long success, long failed) {
+    }
+
+    // ==================== 进度事件编号 ====================
+
+    /**
+     * 为任务分配连续的进度事件编号
      *
      * @param taskId 任务ID
+     * @param count  分配的个数
+     * @return 分配到的最后一个编号，分配到的编号为 (返回值 - count, 返回值]
      */
-    public void deleteAllTaskDetailProgress(Long taskId) {
-        String pattern = formatTaskDetailProgressKey(taskId, "*");
-        stringRedisTemplate.delete(stringRedisTemplate.keys(pattern));
+    public long allocateEventIds(Long taskId, int count) {
+        String redisKey = String.format(DRUG_TASK_PROGRESS_EVENT_SEQ, taskId);
+        Long last = stringRedisTemplate.opsForValue().increment(redisKey, count);
+        stringRedisTemplate.expire(redisKey, Duration.ofDays(1));
+        return last != null ? last : 0;
+    }
+
+    /**
+     * 获取任务最后分配的进度事件编号，没有分配过时返回 0
+     */
+    public long getEventSequence(Long taskId) {
+        String value = stringRedisTemplate.opsForValue().get(String.format(DRUG_TASK_PROGRESS_EVENT_SEQ, taskId));
+        return value != null ? Long.parseLong(value) : 0;
     }
 
     // ==================== 任务锁相关操作 ====================
@@ -275,16 +431,57 @@ public class TaskProgressRedisDAO {
      * @return 是否成功释放
      */
     public boolean unlockTask(Long taskId, Long userId) {
-        String redisKey = formatTaskLockKey(taskId);
-        String currentLockOwner = stringRedisTemplate.opsForValue().get(redisKey);
-
         // 只有锁的所有者才能释放锁，防止误释放
-        if (userId.toString().equals(currentLockOwner)) {
-            stringRedisTemplate.delete(redisKey);
-            return true;
-        }
+        return compareAndDelete(formatTaskLockKey(taskId), userId.toString());
+    }
+
+    /**
+     * 尝试获取表级作业租约
+     * <p>
+     * 与任务锁相同的 setIfAbsent 实现，粒度细化到表：集群执行时同一张表只允许一个节点执行，
+     * 执行节点按租约时长定期续期，节点宕机后租约自然过期，作业可被其他节点接管
+     *
+     * @param taskId    任务ID
+     * @param tableType 表类型
+     * @param owner     持有者（执行节点标识）
+     * @param leaseTime 租约时长
+     * @return 是否成功获取租约
+     */
+    public boolean tryLockTask(Long taskId, String tableType, String owner, Duration leaseTime) {
+        Boolean success = stringRedisTemplate.opsForValue()
+                .setIfAbsent(formatTableLockKey(taskId, tableType), owner, leaseTime);
+        return Boolean.TRUE.equals(success);
+    }
+
+    /**
+     * 续期表级作业租约
+     *
+     * @return 租约仍由该持有者持有时返回 true
+     */
+    public boolean renewTaskLock(Long taskId, String tableType, String owner, Duration leaseTime) {
+        Long renewed = stringRedisTemplate.execute(RENEW_LOCK_SCRIPT,
+                Collections.singletonList(formatTableLockKey(taskId, tableType)),
+                owner, String.valueOf(leaseTime.toMillis()));
+        return renewed != null && renewed > 0;
+    }
+
+    /**
+     * 表级作业租约是否被某个节点持有
+     */
+    public boolean isTaskLocked(Long taskId, String tableType) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(formatTableLockKey(taskId, tableType)));
+    }
 
-        return false;
+    /**
+     * 释放表级作业租约，只有持有者才能释放
+     */
+    public boolean unlockTask(Long taskId, String tableType, String owner) {
+        return compareAndDelete(formatTableLockKey(taskId, tableType), owner);
+    }
+
+    private boolean compareAndDelete(String redisKey, String owner) {
+        Long deleted = stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(redisKey), owner);
+        return deleted != null && deleted > 0;
     }
 
     // ==================== 导入会话相关操作 ====================
@@ -342,17 +539,17 @@ public class TaskProgressRedisDAO {
     }
 
     /**
-     * 格式化任务明细进度的Redis键
+     * 格式化任务锁的Redis键
      */
-    private String formatTaskDetailProgressKey(Long taskId, String tableType) {
-        return String.format(DRUG_TASK_DETAIL_PROGRESS, taskId, tableType);
+    private String formatTaskLockKey(Long taskId) {
+        return String.format(DRUG_TASK_LOCK, taskId);
     }
 
     /**
-     * 格式化任务锁的Redis键
+     * 格式化表级作业租约的Redis键
      */
-    private String formatTaskLockKey(Long taskId) {
-        return String.format(DRUG_TASK_LOCK, taskId);
+    private String formatTableLockKey(Long taskId, String tableType) {
+        return String.format(DRUG_TASK_TABLE_LOCK, taskId, tableType);
     }
 
     /**
@@ -362,14 +559,4 @@ public class TaskProgressRedisDAO {
         return String.format(DRUG_IMPORT_SESSION, sessionId);
     }
 
-    /**
-     * 从Redis键中提取表类型
-     * <p>
-     * 这是一个辅助方法，用于从Redis键名中解析出tableType
-     * 键格式假设为: "drug:task:detail:{taskId}:{tableType}"
-     */
-    private String extractTableTypeFromKey(String redisKey) {
-        String[] parts = redisKey.split(":");
-        return parts.length > 4 ? parts[4] : "";
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package cn.iocoder.yudao.module.drug.dal.redis.rule;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+import static cn.iocoder.yudao.module.drug.dal.redis.RedisKeyConstants.DRUG_QC_RULE_VERSION;
+
+/**
+ * 质控规则版本号的 Redis 数据访问层
+ *
+ * @author hyh
+ */
+@Repository
+public class QcRuleVersionRedisDAO {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取表规则的版本号，从未修改过时为 0
+     */
+    public long getVersion(Integer tableType) {
+        Object version = stringRedisTemplate.opsForHash().get(DRUG_QC_RULE_VERSION, String.valueOf(tableType));
+        return version != null ? Long.parseLong(version.toString()) : 0;
+    }
+
+    /**
+     * 递增表规则的版本号
+     */
+    public void incrementVersions(Collection<Integer> tableTypes) {
+        tableTypes.forEach(tableType ->
+                stringRedisTemplate.opsForHash().increment(DRUG_QC_RULE_VERSION, String.valueOf(tableType), 1));
+    }
+
+}
@@ -54,6 +54,10 @@ public interface DrugErrorCodeConstants {
     ErrorCode IMPORT_RETRY_NOT_SUPPORTED = new ErrorCode(1_003_002_010, "当前任务状态不支持重试");
     ErrorCode IMPORT_TASK_LOCKED = new ErrorCode(1_003_002_011, "任务正在被其他用户操作，请稍后重试");
     ErrorCode IMPORT_RETRY_TYPE_UNSUPPORTED = new ErrorCode(1_003_002_012, "不支持的重试类型：{}");
+    ErrorCode IMPORT_LOAD_MODE_UNSUPPORTED = new ErrorCode(1_003_002_013, "不支持的写入模式：{}");
+    ErrorCode IMPORT_QUEUE_FULL = new ErrorCode(1_003_002_014, "导入队列已满（最多{}个排队任务），请稍后再试");
+    ErrorCode IMPORT_MEMORY_UNAVAILABLE = new ErrorCode(1_003_002_015, "等待导入内存配额失败（需要{}MB）：{}");
+    ErrorCode IMPORT_TASK_CANCELLED = new ErrorCode(1_003_002_017, "导入任务已取消");
 
     // ========== 质控模块 1-003-003-000 ==========
     ErrorCode QC_RULE_EXECUTE_FAILED = new ErrorCode(1_003_003_000, "质控规则执行失败：{}");
@@ -92,6 +96,7 @@ public interface DrugErrorCodeConstants {
     ErrorCode FILE_WRITE_ERROR = new ErrorCode(1_003_006_005, "文件写入失败：{}");
     ErrorCode FILE_DELETE_ERROR = new ErrorCode(1_003_006_006, "文件删除失败：{}");
     ErrorCode FILE_TEMPLATE_NOT_FOUND = new ErrorCode(1_003_006_007, "模板文件不存在");
+    ErrorCode FILE_VALIDATE_BUSY = new ErrorCode(1_003_006_008, "文件校验线程繁忙，请稍后重试");
 
     // ========== 系统配置模块 1-003-007-000 ==========
     ErrorCode CONFIG_RULE_DUPLICATE = new ErrorCode(1_003_007_000, "质控规则编码重复：{}");
@@ -0,0 +1,33 @@
+package cn.iocoder.yudao.module.drug.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 数据写入模式枚举
+ * 设计理念：默认使用多行 INSERT，超大表可按任务选择 LOAD DATA 批量装载
+ */
+@Getter
+@AllArgsConstructor
+public enum ImportLoadModeEnum {
+
+    INSERT("INSERT", "批量INSERT", "多行 INSERT 写入，失败时二分定位坏行"),
+    LOAD_DATA("LOAD_DATA", "批量装载", "LOAD DATA LOCAL INFILE 装载，服务端不允许时自动退回批量INSERT");
+
+    private final String code;
+    private final String displayName;
+    private final String description;
+
+    /**
+     * 根据代码获取枚举
+     */
+    public static ImportLoadModeEnum getByCode(String code) {
+        for (ImportLoadModeEnum loadMode : values()) {
+            if (loadMode.getCode().equals(code)) {
+                return loadMode;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,111 @@
+package cn.iocoder.yudao.module.drug.framework.batch.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 药品数据批量导入配置类，包括导入相关的线程池
+ *
+ * @author hyh
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(DrugImportProperties.class)
+public class DrugImportConfiguration {
+
+    /**
+     * 导入任务线程池
+     * <p>
+     * 由 ImportTaskScheduler 按公平轮转提交，同时运行的任务数不超过线程数，
+     * 与应用公共的异步线程池隔离，批量上传不会影响其他 @Async 任务
+     */
+    @Bean(name = "drugImportTaskExecutor")
+    public ThreadPoolTaskExecutor drugImportTaskExecutor(DrugImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getScheduler().getMaxRunningTasks());
+        executor.setMaxPoolSize(properties.getScheduler().getMaxRunningTasks());
+        executor.setThreadNamePrefix("drug-import-task-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 表级导入线程池
+     * <p>
+     * 调度器把同一优先级的表提交到这里并行执行，任务线程只负责等待每一层完成
+     */
+    @Bean(name = "drugImportTableExecutor")
+    public ThreadPoolTaskExecutor drugImportTableExecutor(DrugImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getTableThreads());
+        executor.setMaxPoolSize(properties.getTableThreads());
+        executor.setThreadNamePrefix("drug-import-table-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 分块写入线程池
+     * <p>
+     * 每个线程同一时刻只占用一个数据库连接，单表的并发由分块并发数控制
+     */
+    @Bean(name = "drugImportWriteExecutor")
+    public ThreadPoolTaskExecutor drugImportWriteExecutor(DrugImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getChunk().getThreads());
+        executor.setMaxPoolSize(properties.getChunk().getThreads());
+        executor.setThreadNamePrefix("drug-import-write-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 流式管道的解析线程池
+     * <p>
+     * 每个正在导入的表占用一个解析线程，质控和入库由调用方线程完成。
+     * 线程用满时新的解析任务排队，对应的入库线程会一直等待到解析开始
+     */
+    @Bean(name = "drugImportParseExecutor")
+    public ThreadPoolTaskExecutor drugImportParseExecutor(DrugImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getStreaming().getParseThreads());
+        executor.setMaxPoolSize(properties.getStreaming().getParseThreads());
+        executor.setThreadNamePrefix("drug-import-parse-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 文件校验线程池
+     * <p>
+     * 解压后的文件在这里并行校验，与流式解析线程池隔离，避免排在长时间运行的解析任务之后超时；
+     * 排队容量有界，排满时拒绝提交，由调用方按繁忙处理
+     */
+    @Bean(name = "drugImportValidateExecutor")
+    public ThreadPoolTaskExecutor drugImportValidateExecutor(DrugImportProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getExtract().getValidateThreads());
+        executor.setMaxPoolSize(properties.getExtract().getValidateThreads());
+        executor.setQueueCapacity(properties.getExtract().getValidateQueueCapacity());
+        executor.setThreadNamePrefix("drug-import-validate-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 进度刷新调度线程
+     * <p>
+     * 单线程定时把合并后的进度批量写入 Redis，刷新本身很轻，一个线程足够
+     */
+    @Bean(name = "drugImportProgressScheduler")
+    public ThreadPoolTaskScheduler drugImportProgressScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("drug-import-progress-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+}
@@ -0,0 +1,503 @@
+package cn.iocoder.yudao.module.drug.framework.batch.config;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.dedup.DuplicateDetector;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 药品数据批量导入配置项
+ *
+ * @author hyh
+ */
+@ConfigurationProperties(prefix = "yudao.drug-import")
+@Validated
+@Data
+public class DrugImportProperties {
+
+    /**
+     * 单批次写库的行数
+     */
+    @NotNull(message = "批次大小不能为空")
+    @Min(value = 1, message = "批次大小必须大于 0")
+    private Integer batchSize = 1000;
+
+    /**
+     * 表级导入线程池大小
+     * <p>
+     * 同一优先级的表并行导入，一个任务最多同时占用 3 个线程（入库 / 出库 / 使用），
+     * 多个任务同时导入时共享该线程池
+     */
+    @NotNull(message = "表级导入线程数不能为空")
+    @Min(value = 1, message = "表级导入线程数必须大于 0")
+    private Integer tableThreads = 6;
+
+    /**
+     * 流式管道配置
+     */
+    @NotNull(message = "流式管道配置不能为空")
+    private Streaming streaming = new Streaming();
+
+    /**
+     * LOAD DATA 批量装载配置
+     */
+    @NotNull(message = "批量装载配置不能为空")
+    private LoadData loadData = new LoadData();
+
+    /**
+     * 分块并行写入配置
+     */
+    @NotNull(message = "分块写入配置不能为空")
+    private Chunk chunk = new Chunk();
+
+    /**
+     * 任务调度配置
+     */
+    @NotNull(message = "任务调度配置不能为空")
+    private Scheduler scheduler = new Scheduler();
+
+    /**
+     * 压缩包读取配置
+     */
+    @NotNull(message = "压缩包读取配置不能为空")
+    private Extract extract = new Extract();
+
+    /**
+     * 重复行检测配置
+     */
+    @NotNull(message = "重复行检测配置不能为空")
+    private Dedup dedup = new Dedup();
+
+    /**
+     * 导入内存配额配置
+     */
+    @NotNull(message = "内存配额配置不能为空")
+    private Memory memory = new Memory();
+
+    /**
+     * 进度上报配置
+     */
+    @NotNull(message = "进度上报配置不能为空")
+    private Progress progress = new Progress();
+
+    /**
+     * 集群分布式执行配置
+     */
+    @NotNull(message = "分布式执行配置不能为空")
+    private Distributed distributed = new Distributed();
+
+    /**
+     * 任务取消配置
+     */
+    @NotNull(message = "任务取消配置不能为空")
+    private Cancel cancel = new Cancel();
+
+    /**
+     * 跨表引用校验配置
+     */
+    @NotNull(message = "跨表引用校验配置不能为空")
+    private Reference reference = new Reference();
+
+    /**
+     * 列式暂存配置
+     */
+    @NotNull(message = "列式暂存配置不能为空")
+    private Columnar columnar = new Columnar();
+
+    /**
+     * 溢写配置
+     */
+    @NotNull(message = "溢写配置不能为空")
+    private Spill spill = new Spill();
+
+    /**
+     * 错误行配置
+     */
+    @NotNull(message = "错误行配置不能为空")
+    private ErrorRow errorRow = new ErrorRow();
+
+    /**
+     * 任务详情快照配置
+     */
+    @NotNull(message = "任务详情快照配置不能为空")
+    private DetailSnapshot detailSnapshot = new DetailSnapshot();
+
+    @Data
+    public static class Streaming {
+
+        /**
+         * 是否启用流式管道（解析 -> 质控 -> 入库 边读边写）
+         * <p>
+         * 关闭后退回到整表解析后再分批导入的模式
+         */
+        private Boolean enabled = true;
+        /**
+         * 解析线程与入库线程之间的有界队列容量（行）
+         * <p>
+         * 队列写满后解析线程阻塞等待，保证堆内存占用与文件大小无关
+         */
+        @Min(value = 1, message = "队列容量必须大于 0")
+        private Integer queueCapacity = 5000;
+        /**
+         * 解析线程池大小
+         */
+        @Min(value = 1, message = "解析线程数必须大于 0")
+        private Integer parseThreads = 4;
+
+    }
+
+    @Data
+    public static class LoadData {
+
+        /**
+         * 单次 LOAD DATA 装载的行数
+         * <p>
+         * 仅对选择了 LOAD_DATA 写入模式的任务生效，数据在内存中编码后一次性发送
+         */
+        @Min(value = 1, message = "批量装载行数必须大于 0")
+        private Integer batchSize = 20000;
+
+    }
+
+    @Data
+    public static class Chunk {
+
+        /**
+         * 写入线程池大小，所有任务、所有表共享
+         * <p>
+         * 建议不超过数据库连接池的最大连接数减去留给查询的余量
+         */
+        @Min(value = 1, message = "写入线程数必须大于 0")
+        private Integer threads = 8;
+        /**
+         * 未单独配置的表，同时在途的分块数
+         */
+        @Min(value = 1, message = "分块并发数必须大于 0")
+        private Integer defaultConcurrency = 1;
+        /**
+         * 各表类型同时在途的分块数，key 为 {@link TableTypeEnum} 的名字
+         */
+        private Map<TableTypeEnum, Integer> concurrency = new EnumMap<>(TableTypeEnum.class);
+
+        /**
+         * 获取表类型的分块并发数
+         */
+        public int getConcurrency(TableTypeEnum tableType) {
+            Integer value = concurrency.get(tableType);
+            return value != null && value > 0 ? value : defaultConcurrency;
+        }
+
+    }
+
+    @Data
+    public static class Scheduler {
+
+        /**
+         * 同时运行的导入任务数上限，也是导入任务线程池的大小
+         */
+        @Min(value = 1, message = "同时运行的任务数必须大于 0")
+        private Integer maxRunningTasks = 4;
+        /**
+         * 单个租户同时运行的任务数上限，0 表示不限制
+         */
+        @Min(value = 0, message = "单租户运行任务数不能小于 0")
+        private Integer maxRunningPerTenant = 2;
+        /**
+         * 排队任务数上限，超过后拒绝创建新任务
+         */
+        @Min(value = 1, message = "排队任务数上限必须大于 0")
+        private Integer maxQueuedTasks = 100;
+
+    }
+
+    @Data
+    public static class Extract {
+
+        /**
+         * 是否直接从 ZIP 中读取 Excel，不解压到工作目录
+         * <p>
+         * 关闭后退回到先整包解压、再扫描工作目录的模式
+         */
+        private Boolean directRead = true;
+        /**
+         * 单个文件的校验超时时间
+         * <p>
+         * 各文件并行校验，从该文件真正开始校验时计时，超时的文件会被中断并记为无效
+         */
+        @NotNull(message = "文件校验超时时间不能为空")
+        private Duration fileTimeout = Duration.ofMinutes(2);
+        /**
+         * 文件校验线程池大小
+         * <p>
+         * 与流式解析线程池隔离，长时间运行的导入不会占满校验线程
+         */
+        @Min(value = 1, message = "文件校验线程数必须大于 0")
+        private Integer validateThreads = 4;
+        /**
+         * 文件校验线程池的排队容量，排满后新的校验直接拒绝
+         */
+        @Min(value = 1, message = "文件校验排队容量必须大于 0")
+        private Integer validateQueueCapacity = 64;
+        /**
+         * 文件排队等待校验线程的最长时间，超过后整次校验按线程池繁忙失败，不计入文件超时
+         */
+        @NotNull(message = "文件校验排队超时时间不能为空")
+        private Duration queueTimeout = Duration.ofMinutes(1);
+
+    }
+
+    @Data
+    public static class Dedup {
+
+        /**
+         * 检测模式，默认先精确计数，指纹过多时降级为 HyperLogLog 估算
+         */
+        @NotNull(message = "重复行检测模式不能为空")
+        private DuplicateDetector.Mode mode = DuplicateDetector.Mode.AUTO;
+        /**
+         * 自动模式下精确计数的指纹个数上限
+         * <p>
+         * 每个指纹约占 16 字节，默认 200 万个约 32MB
+         */
+        @Min(value = 1, message = "精确计数上限必须大于 0")
+        private Integer exactLimit = 2_000_000;
+
+    }
+
+    @Data
+    public static class Memory {
+
+        /**
+         * 是否启用内存配额，关闭后任务不做内存预估，直接开始导入
+         */
+        private Boolean enabled = true;
+        /**
+         * 导入可使用的堆内存总量
+         * <p>
+         * 为空时取最大堆内存乘以 {@link #heapRatio}
+         */
+        private DataSize heapBudget;
+        /**
+         * 未配置 {@link #heapBudget} 时，导入可使用的最大堆内存比例
+         */
+        @DecimalMin(value = "0.05", message = "堆内存比例不能小于 0.05")
+        @DecimalMax(value = "0.9", message = "堆内存比例不能大于 0.9")
+        private Double heapRatio = 0.5;
+        /**
+         * 预估每个单元格在堆中占用的字节数（字符串对象 + 转换后的值）
+         */
+        @Min(value = 1, message = "单元格字节数必须大于 0")
+        private Integer bytesPerCell = 64;
+        /**
+         * 预估每行除单元格之外的固定开销（行对象、集合、数据对象头）
+         */
+        @Min(value = 0, message = "行开销字节数不能小于 0")
+        private Integer rowOverhead = 128;
+        /**
+         * 等待内存配额的最长时间，超时后任务失败，可通过重试从断点继续
+         */
+        @NotNull(message = "等待内存配额超时时间不能为空")
+        private Duration waitTimeout = Duration.ofMinutes(30);
+
+    }
+
+    @Data
+    public static class Progress {
+
+        /**
+         * 进度合并刷新的间隔
+         * <p>
+         * 间隔内同一任务的多次进度更新只保留最后一次，到期后通过一次 Redis 管道批量写入；
+         * 阶段切换和任务结束时立即刷新，不受间隔限制
+         */
+        @NotNull(message = "进度刷新间隔不能为空")
+        private Duration flushInterval = Duration.ofMillis(500);
+        /**
+         * SSE 进度流的心跳间隔，用于保持经过代理的长连接不被断开
+         */
+        @NotNull(message = "SSE 心跳间隔不能为空")
+        private Duration sseHeartbeat = Duration.ofSeconds(15);
+        /**
+         * SSE 进度流的连接超时时间，超时后客户端带上 Last-Event-ID 重连即可续上
+         */
+        @NotNull(message = "SSE 连接超时时间不能为空")
+        private Duration sseTimeout = Duration.ofMinutes(30);
+        /**
+         * 每个任务保留的最近事件数，用于 Last-Event-ID 断线续传；超出范围时重新推送完整快照
+         */
+        @Min(value = 1, message = "SSE 事件保留数必须大于 0")
+        private Integer sseReplaySize = 256;
+
+    }
+
+    @Data
+    public static class Distributed {
+
+        /**
+         * 是否把表级导入作业投递到 Redis Stream，由集群中任意节点消费执行
+         * <p>
+         * 开启后所有节点必须能访问同一份上传目录（共享存储）；关闭时在本节点的表级线程池中执行
+         */
+        @NotNull(message = "是否启用分布式执行不能为空")
+        private Boolean enabled = false;
+        /**
+         * 表作业租约时长，执行节点按租约的三分之一续期；节点宕机后租约到期，作业可被其他节点接管
+         */
+        @NotNull(message = "表作业租约时长不能为空")
+        private Duration leaseTime = Duration.ofMinutes(2);
+        /**
+         * 协调节点查询表作业结果的间隔
+         */
+        @NotNull(message = "作业结果查询间隔不能为空")
+        private Duration pollInterval = Duration.ofSeconds(1);
+        /**
+         * 单层表作业的最长等待时间，超时未完成的表记为失败，可通过重试从断点继续
+         */
+        @NotNull(message = "表作业超时时间不能为空")
+        private Duration jobTimeout = Duration.ofHours(6);
+
+    }
+
+    @Data
+    public static class Cancel {
+
+        /**
+         * 执行中检查 Redis 取消标记的最小间隔；同一节点发起的取消不受该间隔限制，立即生效
+         */
+        @NotNull(message = "取消检查间隔不能为空")
+        private Duration checkInterval = Duration.ofSeconds(1);
+        /**
+         * 取消接口等待执行中的工作停止的最长时间，超时后接口先返回，清理在后台继续
+         */
+        @NotNull(message = "取消等待时间不能为空")
+        private Duration waitTimeout = Duration.ofSeconds(30);
+        /**
+         * 清理已导入数据时单条 DELETE 删除的行数，分多次删除避免长事务
+         */
+        @Min(value = 1, message = "清理批大小必须大于 0")
+        private Integer purgeBatchSize = 5000;
+
+    }
+
+    @Data
+    public static class Reference {
+
+        /**
+         * 是否校验入库、出库、使用表引用的院内药品唯一码和国家药品编码在药品目录中存在
+         */
+        @NotNull(message = "是否启用跨表引用校验不能为空")
+        private Boolean enabled = true;
+        /**
+         * 往期药品目录布隆过滤器的误判率，误判会让不存在的编码通过校验
+         */
+        @DecimalMin(value = "0.0001", message = "布隆过滤器误判率不能小于 0.0001")
+        @DecimalMax(value = "0.5", message = "布隆过滤器误判率不能大于 0.5")
+        private Double bloomFpp = 0.01;
+        /**
+         * 任务的药品目录索引闲置多久后释放，用于执行表作业的其他节点
+         */
+        @NotNull(message = "目录索引闲置时间不能为空")
+        private Duration idleTimeout = Duration.ofMinutes(30);
+
+    }
+
+    @Data
+    public static class Columnar {
+
+        /**
+         * 是否在导入时把可以入库的行暂存为列式结构，用于表级统计和聚合规则
+         */
+        @NotNull(message = "是否启用列式暂存不能为空")
+        private Boolean enabled = true;
+        /**
+         * 单表在内存中暂存的最大行数，超过后转存到磁盘（未开启溢写时放弃暂存，跳过聚合规则）
+         */
+        @Min(value = 1, message = "列式暂存最大行数必须大于 0")
+        private Integer maxRows = 1_000_000;
+        /**
+         * 单表在内存中暂存的最大字节数（估算值），超过后同上
+         */
+        @NotNull(message = "列式暂存最大内存不能为空")
+        private DataSize maxMemory = DataSize.ofMegabytes(256);
+
+    }
+
+    @Data
+    public static class Spill {
+
+        /**
+         * 是否允许把超过内存阈值的暂存数据溢写到任务工作目录
+         */
+        @NotNull(message = "是否启用溢写不能为空")
+        private Boolean enabled = true;
+        /**
+         * 单个内存映射段文件的大小，不超过 2GB
+         */
+        @NotNull(message = "溢写段文件大小不能为空")
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        /**
+         * 单表溢写文件的总大小上限，超过后放弃暂存
+         */
+        @NotNull(message = "溢写文件大小上限不能为空")
+        private DataSize maxDiskSize = DataSize.ofGigabytes(4);
+
+    }
+
+    @Data
+    public static class ErrorRow {
+
+        /**
+         * 导入结果和任务明细中保留的错误行样例数，完整的错误行写入 drug_import_error_row 表
+         */
+        @Min(value = 0, message = "错误行样例数不能小于 0")
+        private Integer sampleSize = 50;
+        /**
+         * 写入错误行时单条 INSERT 的行数
+         */
+        @Min(value = 1, message = "错误行写入批大小必须大于 0")
+        private Integer insertBatchSize = 1000;
+        /**
+         * 导出错误行时每次从数据库读取的行数
+         */
+        @Min(value = 1, message = "错误行导出分页大小必须大于 0")
+        private Integer exportPageSize = 2000;
+
+    }
+
+    @Data
+    public static class DetailSnapshot {
+
+        /**
+         * 是否缓存任务详情快照
+         */
+        @NotNull(message = "是否启用任务详情快照不能为空")
+        private Boolean enabled = true;
+        /**
+         * 进行中任务的快照有效期，两次状态变化之间的进度最多延迟这么久
+         */
+        @NotNull(message = "进行中任务的快照有效期不能为空")
+        private Duration runningTtl = Duration.ofSeconds(3);
+        /**
+         * 已结束任务的快照有效期
+         */
+        @NotNull(message = "已结束任务的快照有效期不能为空")
+        private Duration terminalTtl = Duration.ofDays(1);
+        /**
+         * 每个节点本地缓存的快照数
+         */
+        @Min(value = 1, message = "本地缓存的快照数必须大于 0")
+        private Integer localMaxSize = 1000;
+
+    }
+
+}
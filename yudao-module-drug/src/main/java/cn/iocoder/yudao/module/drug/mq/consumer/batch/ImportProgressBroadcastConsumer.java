@@ -0,0 +1,25 @@
+package cn.iocoder.yudao.module.drug.mq.consumer.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.pubsub.AbstractRedisChannelMessageListener;
+import cn.iocoder.yudao.module.drug.mq.message.batch.ImportProgressBroadcastMessage;
+import cn.iocoder.yudao.module.drug.service.batch.progress.ImportProgressEventBus;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 针对 {@link ImportProgressBroadcastMessage} 的消费者，推送给本节点的 SSE 连接
+ *
+ * @author hyh
+ */
+@Component
+public class ImportProgressBroadcastConsumer extends AbstractRedisChannelMessageListener<ImportProgressBroadcastMessage> {
+
+    @Resource
+    private ImportProgressEventBus progressEventBus;
+
+    @Override
+    public void onMessage(ImportProgressBroadcastMessage message) {
+        progressEventBus.dispatch(message.getEvents());
+    }
+
+}
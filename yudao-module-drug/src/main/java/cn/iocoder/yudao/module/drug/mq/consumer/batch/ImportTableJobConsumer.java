@@ -0,0 +1,38 @@
+package cn.iocoder.yudao.module.drug.mq.consumer.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.stream.AbstractRedisStreamMessageListener;
+import cn.iocoder.yudao.module.drug.mq.message.batch.ImportTableJobMessage;
+import cn.iocoder.yudao.module.drug.service.batch.DrugBatchImportService;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJob;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 针对 {@link ImportTableJobMessage} 的消费者
+ * <p>
+ * 拿到表级租约后作业交给表级线程池执行，本方法立即返回并 ack，
+ * 避免长时间执行的作业留在 pending 列表中被 RedisPendingMessageResendJob 重复投递。
+ * 执行中的节点宕机后租约过期，由协调节点重新投递，其他节点从断点继续执行
+ *
+ * @author hyh
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "yudao.drug-import.distributed", value = "enabled", havingValue = "true")
+public class ImportTableJobConsumer extends AbstractRedisStreamMessageListener<ImportTableJobMessage> {
+
+    @Resource
+    private DrugBatchImportService drugBatchImportService;
+
+    @Override
+    public void onMessage(ImportTableJobMessage message) {
+        ImportTableJob job = message.getJob();
+        log.info("[onMessage][表作业({}/{}) 开始消费，runId({})]", job.getTaskId(), job.getTableType(), job.getRunId());
+        if (!drugBatchImportService.acceptTableJob(job)) {
+            log.info("[onMessage][表作业({}/{}) 未领取，runId({})]", job.getTaskId(), job.getTableType(), job.getRunId());
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package cn.iocoder.yudao.module.drug.mq.consumer.rule;
+
+import cn.iocoder.yudao.framework.mq.redis.core.pubsub.AbstractRedisChannelMessageListener;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.mq.message.rule.QcRuleRefreshMessage;
+import cn.iocoder.yudao.module.drug.service.batch.qc.QcRuleSetCache;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 针对 {@link QcRuleRefreshMessage} 的消费者，移除本节点已编译的规则
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class QcRuleRefreshConsumer extends AbstractRedisChannelMessageListener<QcRuleRefreshMessage> {
+
+    @Resource
+    private QcRuleSetCache qcRuleSetCache;
+
+    @Override
+    public void onMessage(QcRuleRefreshMessage message) {
+        log.info("[onMessage][收到 QcRule 刷新消息，tableTypes({})]", message.getTableTypes());
+        qcRuleSetCache.invalidate(message.getTableTypes().stream()
+                .map(TableTypeEnum::getByType)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+}
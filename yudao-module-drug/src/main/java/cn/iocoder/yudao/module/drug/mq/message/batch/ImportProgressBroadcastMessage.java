@@ -0,0 +1,53 @@
+package cn.iocoder.yudao.module.drug.mq.message.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.pubsub.AbstractRedisChannelMessage;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 导入进度事件消息，基于 Redis Pub/Sub 广播到所有节点，由各节点推送给本节点的 SSE 连接
+ *
+ * @author hyh
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ImportProgressBroadcastMessage extends AbstractRedisChannelMessage {
+
+    /**
+     * 进度事件，同一任务的事件编号递增
+     */
+    private List<Event> events;
+
+    /**
+     * 进度事件
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Event {
+
+        private Long taskId;
+        /**
+         * 事件编号，按任务在 Redis 中分配，作为 SSE 的 id
+         */
+        private Long id;
+        /**
+         * 事件类型：task、detail、finished
+         */
+        private String name;
+        /**
+         * 任务进度，事件类型为 task 时有值
+         */
+        private TaskProgressInfo task;
+        /**
+         * 表进度，事件类型为 detail 时有值
+         */
+        private TaskDetailProgressInfo detail;
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package cn.iocoder.yudao.module.drug.mq.message.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.stream.AbstractRedisStreamMessage;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJob;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 表级导入作业消息，基于 Redis Stream 集群消费
+ *
+ * @author hyh
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ImportTableJobMessage extends AbstractRedisStreamMessage {
+
+    /**
+     * 表作业
+     */
+    @NotNull(message = "表作业不能为空")
+    private ImportTableJob job;
+
+}
@@ -0,0 +1,23 @@
+package cn.iocoder.yudao.module.drug.mq.message.rule;
+
+import cn.iocoder.yudao.framework.mq.redis.core.pubsub.AbstractRedisChannelMessage;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * 质控规则刷新消息，基于 Redis Pub/Sub 广播到所有节点
+ *
+ * @author hyh
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class QcRuleRefreshMessage extends AbstractRedisChannelMessage {
+
+    /**
+     * 规则发生变化的表类型
+     */
+    private List<Integer> tableTypes;
+
+}
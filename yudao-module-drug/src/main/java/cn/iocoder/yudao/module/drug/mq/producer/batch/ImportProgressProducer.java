@@ -0,0 +1,32 @@
+package cn.iocoder.yudao.module.drug.mq.producer.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.RedisMQTemplate;
+import cn.iocoder.yudao.module.drug.mq.message.batch.ImportProgressBroadcastMessage;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 导入进度相关消息的 Producer
+ *
+ * @author hyh
+ */
+@Component
+public class ImportProgressProducer {
+
+    @Resource
+    private RedisMQTemplate redisMQTemplate;
+
+    /**
+     * 发送 {@link ImportProgressBroadcastMessage} 消息
+     *
+     * @param events 进度事件
+     */
+    public void sendProgressBroadcastMessage(List<ImportProgressBroadcastMessage.Event> events) {
+        ImportProgressBroadcastMessage message = new ImportProgressBroadcastMessage();
+        message.setEvents(events);
+        redisMQTemplate.send(message);
+    }
+
+}
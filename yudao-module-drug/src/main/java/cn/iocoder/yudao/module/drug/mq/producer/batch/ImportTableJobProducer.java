@@ -0,0 +1,35 @@
+package cn.iocoder.yudao.module.drug.mq.producer.batch;
+
+import cn.iocoder.yudao.framework.mq.redis.core.RedisMQTemplate;
+import cn.iocoder.yudao.module.drug.mq.message.batch.ImportTableJobMessage;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJob;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJobDispatcher;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.stereotype.Component;
+
+/**
+ * 表级导入作业的 Producer，投递到 Redis Stream
+ *
+ * @author hyh
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "yudao.drug-import.distributed", value = "enabled", havingValue = "true")
+public class ImportTableJobProducer implements ImportTableJobDispatcher {
+
+    @Resource
+    private RedisMQTemplate redisMQTemplate;
+
+    @Override
+    public void dispatch(ImportTableJob job) {
+        ImportTableJobMessage message = new ImportTableJobMessage();
+        message.setJob(job);
+        RecordId recordId = redisMQTemplate.send(message);
+        log.info("表作业已投递: taskId={}, tableType={}, runId={}, recordId={}",
+                job.getTaskId(), job.getTableType(), job.getRunId(), recordId);
+    }
+
+}
@@ -0,0 +1,35 @@
+package cn.iocoder.yudao.module.drug.mq.producer.rule;
+
+import cn.iocoder.yudao.framework.mq.redis.core.RedisMQTemplate;
+import cn.iocoder.yudao.module.drug.mq.message.rule.QcRuleRefreshMessage;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * 质控规则相关消息的 Producer
+ *
+ * @author hyh
+ */
+@Slf4j
+@Component
+public class QcRuleProducer {
+
+    @Resource
+    private RedisMQTemplate redisMQTemplate;
+
+    /**
+     * 发送 {@link QcRuleRefreshMessage} 消息
+     *
+     * @param tableTypes 规则发生变化的表类型
+     */
+    public void sendQcRuleRefreshMessage(Collection<Integer> tableTypes) {
+        QcRuleRefreshMessage message = new QcRuleRefreshMessage();
+        message.setTableTypes(new ArrayList<>(tableTypes));
+        redisMQTemplate.send(message);
+    }
+
+}
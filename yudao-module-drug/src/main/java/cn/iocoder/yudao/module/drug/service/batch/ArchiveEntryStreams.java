@@ -0,0 +1,163 @@
+package cn.iocoder.yudao.module.drug.service.batch;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
+import org.springframework.util.StringUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 压缩包条目读取工具
+ * <p>
+ * 直接从 ZIP 的中央目录定位条目并解压为输入流，不落地到工作目录。
+ * 解压字节数按实际读取量计数，超过上限立即中止，不信任条目头中声明的大小
+ *
+ * @author hyh
+ */
+public final class ArchiveEntryStreams {
+
+    /**
+     * 解压后文件总大小上限
+     */
+    public static final long MAX_TOTAL_SIZE = 500 * 1024 * 1024L; // 500MB
+    /**
+     * 压缩包中的文件个数上限
+     */
+    public static final int MAX_FILE_COUNT = 100;
+    /**
+     * 国内常见的压缩工具默认使用 GBK 编码文件名
+     */
+    public static final Charset ENTRY_NAME_CHARSET = Charset.forName("GBK");
+
+    private ArchiveEntryStreams() {
+    }
+
+    /**
+     * 打开压缩包，并校验文件个数
+     */
+    public static ZipFile openArchive(Path archiveFile) throws IOException {
+        ZipFile zipFile = new ZipFile(archiveFile.toFile(), ENTRY_NAME_CHARSET);
+        if (zipFile.size() > MAX_FILE_COUNT) {
+            zipFile.close();
+            throw new IOException("压缩文件包含过多文件，最多支持 " + MAX_FILE_COUNT + " 个文件");
+        }
+        return zipFile;
+    }
+
+    /**
+     * 安全检查：防止路径遍历攻击
+     */
+    public static boolean isSafeEntryName(String entryName) {
+        return !entryName.contains("..") && !entryName.startsWith("/") && !entryName.startsWith("\\");
+    }
+
+    /**
+     * 条目名中的文件名部分
+     */
+    public static String simpleName(String entryName) {
+        int index = Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\'));
+        return index >= 0 ? entryName.substring(index + 1) : entryName;
+    }
+
+    /**
+     * 打开已打开压缩包中的一个条目
+     *
+     * @param totalBytes 同一压缩包所有条目共享的解压字节计数
+     */
+    public static InputStream openEntry(ZipFile zipFile, ZipEntry entry, AtomicLong totalBytes) throws IOException {
+        return new LimitedInputStream(zipFile.getInputStream(entry), totalBytes, null);
+    }
+
+    /**
+     * 打开 {@link FileInfo} 对应的数据流：压缩包条目直接从压缩包读取，否则读取磁盘文件。
+     * 关闭返回的流时一并关闭压缩包
+     */
+    public static InputStream open(FileInfo fileInfo) throws IOException {
+        if (!StringUtils.hasText(fileInfo.getEntryName())) {
+            return Files.newInputStream(Paths.get(fileInfo.getFilePath()));
+        }
+        if (!isSafeEntryName(fileInfo.getEntryName())) {
+            throw new IOException("可疑的压缩包条目路径: " + fileInfo.getEntryName());
+        }
+        ZipFile zipFile = new ZipFile(Paths.get(fileInfo.getArchivePath()).toFile(), ENTRY_NAME_CHARSET);
+        try {
+            ZipEntry entry = zipFile.getEntry(fileInfo.getEntryName());
+            if (entry == null || entry.isDirectory()) {
+                throw new IOException("压缩包中不存在文件: " + fileInfo.getEntryName());
+            }
+            return new LimitedInputStream(zipFile.getInputStream(entry), new AtomicLong(), zipFile);
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 统计解压字节数的输入流
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final AtomicLong totalBytes;
+        private final ZipFile owner;
+
+        private LimitedInputStream(InputStream in, AtomicLong totalBytes, ZipFile owner) {
+            super(in);
+            this.totalBytes = totalBytes;
+            this.owner = owner;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                count(skipped);
+            }
+            return skipped;
+        }
+
+        private void count(long bytes) throws IOException {
+            if (totalBytes.addAndGet(bytes) > MAX_TOTAL_SIZE) {
+                throw new IOException("解压后文件总大小超过限制");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (owner != null) {
+                    owner.close();
+                }
+            }
+        }
+
+    }
+
+}
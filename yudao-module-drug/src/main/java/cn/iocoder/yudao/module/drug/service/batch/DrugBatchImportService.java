@@ -4,7 +4,9 @@ import cn.iocoder.yudao.framework.common.pojo.PageResult;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.*;
 import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDO;
 import cn.iocoder.yudao.module.drug.enums.RetryTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJob;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * 药品数据批量导入服务
@@ -50,9 +52,12 @@ public interface DrugBatchImportService {
     
     /**
      * 取消正在进行的任务
+     * <p>
+     * 执行中的任务在下一个工作单元之前停止，并清理本次已导入的数据；在等待超时内停止时返回取消耗时
      * @param taskId 任务ID
+     * @return 取消结果
      */
-    void cancelTask(Long taskId);
+    ImportCancelResultVO cancelTask(Long taskId);
     
     /**
      * 分页查询导入任务列表
@@ -75,4 +80,32 @@ public interface DrugBatchImportService {
      * @return 任务日志信息
      */
     TaskLogVO getTaskLogs(Long taskId, String logLevel);
-}
\ No newline at end of file
+
+    /**
+     * 获取导入调度队列状态
+     * @return 运行数、排队数及各租户的队列情况
+     */
+    ImportQueueStatusVO getQueueStatus();
+
+    /**
+     * 获取任务在调度队列中的位置
+     * @param taskId 任务ID
+     * @return 排队位置
+     */
+    ImportQueuePositionVO getQueuePosition(Long taskId);
+
+    /**
+     * 订阅任务进度的 SSE 事件流
+     * @param taskId      任务ID
+     * @param lastEventId 断线重连时客户端收到的最后一个事件编号，首次连接为空
+     * @return SSE 连接
+     */
+    SseEmitter streamTaskProgress(Long taskId, Long lastEventId);
+
+    /**
+     * 领取集群投递的表级导入作业：拿到表级租约后交给表级线程池执行并立即返回，结果写入 Redis 由协调节点汇总
+     * @param job 表作业
+     * @return 是否领取成功，作业已过期、已有结果或正由其他节点执行时返回 false
+     */
+    boolean acceptTableJob(ImportTableJob job);
+}
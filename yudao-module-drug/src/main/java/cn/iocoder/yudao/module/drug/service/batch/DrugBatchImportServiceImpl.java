@@ -1,28 +1,57 @@
 package cn.iocoder.yudao.module.drug.service.batch;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.system.SystemUtil;
 import cn.iocoder.yudao.framework.common.biz.system.user.AdminUserApi;
 import cn.iocoder.yudao.framework.common.pojo.PageResult;
+import cn.iocoder.yudao.framework.common.util.collection.CollectionUtils;
+import cn.iocoder.yudao.framework.common.util.json.JsonUtils;
 import cn.iocoder.yudao.framework.security.core.util.SecurityFrameworkUtils;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.*;
 import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDO;
 import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDetailDO;
 import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskDetailMapper;
 import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskMapper;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportCancelRedisDAO;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportTableJobRedisDAO;
 import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskProgressRedisDAO;
 import cn.iocoder.yudao.module.drug.enums.DetailStatusEnum;
+import cn.iocoder.yudao.module.drug.enums.ImportLoadModeEnum;
 import cn.iocoder.yudao.module.drug.enums.RetryTypeEnum;
 import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
 import cn.iocoder.yudao.module.drug.enums.TaskStatusEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJob;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJobDispatcher;
+import cn.iocoder.yudao.module.drug.service.batch.distributed.ImportTableJobResult;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ChunkParallelWriter;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportCheckpoint;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.StreamingImportPipeline;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import cn.iocoder.yudao.module.drug.service.batch.snapshot.TaskDetailSnapshotCache;
+import cn.iocoder.yudao.module.drug.service.batch.progress.ImportProgressEventBus;
+import cn.iocoder.yudao.module.drug.service.batch.progress.ImportProgressPublisher;
+import cn.iocoder.yudao.module.drug.service.batch.qc.QcRuleEvaluator;
+import cn.iocoder.yudao.module.drug.service.batch.scheduler.ImportCancellationRegistry;
+import cn.iocoder.yudao.module.drug.service.batch.scheduler.ImportMemoryGovernor;
+import cn.iocoder.yudao.module.drug.service.batch.scheduler.ImportTaskScheduler;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -37,6 +66,9 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
@@ -116,6 +148,12 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      */
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024L;
 
+    /**
+     * 本节点标识，作为表作业租约的持有者，格式与 Redis Stream 消费者名一致（IP@进程号）
+     */
+    private static final String NODE_ID = String.format("%s@%d",
+            SystemUtil.getHostInfo().getAddress(), SystemUtil.getCurrentPID());
+
     // ==================== 依赖注入 ====================
 
     @Resource
@@ -131,14 +169,43 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
     @Resource
     private DrugDataImportService dataImportService;
     @Resource
-    private DrugQualityControlService qualityControlService;
+    private ImportErrorRowService importErrorRowService;
+    @Resource
+    private TaskDetailSnapshotCache taskDetailSnapshotCache;
     @Resource
-    @Qualifier("applicationTaskExecutor")
-    private AsyncTaskExecutor asyncTaskExecutor;
+    private DrugQualityControlService qualityControlService;
     @Resource
     private TaskProgressRedisDAO taskProgressRedisDAO;
     @Resource
     private AdminUserApi adminUserApi;
+    @Resource
+    private StreamingImportPipeline streamingImportPipeline;
+    @Resource
+    private ChunkParallelWriter chunkParallelWriter;
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    @Qualifier("drugImportTableExecutor")
+    private AsyncTaskExecutor tableImportExecutor;
+    @Resource
+    private ImportTaskScheduler importTaskScheduler;
+    @Resource
+    private ImportMemoryGovernor importMemoryGovernor;
+    @Resource
+    private ImportProgressPublisher progressPublisher;
+    @Resource
+    private ImportProgressEventBus progressEventBus;
+    @Resource
+    private ImportTableJobRedisDAO tableJobRedisDAO;
+    @Resource
+    private ObjectProvider<ImportTableJobDispatcher> tableJobDispatcher;
+    @Resource
+    @Qualifier("drugImportProgressScheduler")
+    private TaskScheduler progressScheduler;
+    @Resource
+    private ImportCancellationRegistry cancellationRegistry;
+    @Resource
+    private ImportCancelRedisDAO cancelRedisDAO;
 
     // ==================== 核心业务接口实现 ====================
 
@@ -160,23 +227,18 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
 
         // 第一阶段：快速验证和准备
         validateBasicFileProperties(file);
+        ImportLoadModeEnum loadMode = resolveLoadMode(params.getLoadMode());
+        importTaskScheduler.checkAdmission();
 
         // 第二阶段：立即持久化关键信息
         String taskNo = taskProgressRedisDAO.generateTaskNo();
         String savedFilePath = saveUploadedFileImmediately(file, taskNo);
 
         // 第三阶段：创建任务记录
-        ImportTaskDO task = createTaskRecord(file, params, taskNo, savedFilePath);
+        ImportTaskDO task = createTaskRecord(file, params, loadMode, taskNo, savedFilePath);
 
-        // 第四阶段：启动异步处理流程
-        CompletableFuture.runAsync(() -> {
-            try {
-                executeCompleteImportProcess(task, savedFilePath);
-            } catch (Exception e) {
-                log.error("导入任务异步执行失败: taskId={}, taskNo={}", task.getId(), task.getTaskNo(), e);
-                handleTaskError(task.getId(), "导入过程异常: " + e.getMessage());
-            }
-        }, asyncTaskExecutor);
+        // 第四阶段：提交到导入调度队列，事务提交后按公平轮转执行
+        submitCompleteImportProcess(task, savedFilePath);
 
         // 第五阶段：构建响应结果
         ImportTaskCreateResult result = ImportTaskCreateResult.builder()
@@ -205,10 +267,19 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      * 2. Redis中的实时进度信息
      * 3. 计算得出的统计和分析信息
      * 4. 动态生成的操作选项和建议
+     * <p>
+     * 拼装结果按任务缓存为快照，见 {@link TaskDetailSnapshotCache}
      */
     @Override
     public ImportTaskDetailVO getTaskDetail(Long taskId) {
-        log.info("查询任务详情: taskId={}", taskId);
+        if (taskDetailSnapshotCache.isEnabled()) {
+            return taskDetailSnapshotCache.get(taskId, this::buildTaskDetail);
+        }
+        return buildTaskDetail(taskId);
+    }
+
+    private ImportTaskDetailVO buildTaskDetail(Long taskId) {
+        log.info("拼装任务详情: taskId={}", taskId);
 
         // 第一步：获取基础数据
         // 从数据库获取任务的持久化信息，这是数据的基础底座
@@ -227,9 +298,9 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
 
         // 第三步：获取实时进度信息
         // 从Redis获取最新的进度状态，这些信息反映了当前的处理进展
-        TaskProgressInfo progressInfo = taskProgressRedisDAO.getTaskProgress(taskId);
-        Map<String, TaskDetailProgressInfo> detailProgressMap =
-                taskProgressRedisDAO.getAllTaskDetailProgress(taskId);
+        TaskProgressRedisDAO.ProgressSnapshot snapshot = taskProgressRedisDAO.getProgressSnapshot(taskId);
+        TaskProgressInfo progressInfo = snapshot.task();
+        Map<String, TaskDetailProgressInfo> detailProgressMap = snapshot.details();
 
         // 第四步：构建分层的详情对象
         // 使用建造者模式逐步构建完整的详情视图
@@ -275,9 +346,9 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         );
 
         // 获取实时进度信息
-        TaskProgressInfo progressInfo = taskProgressRedisDAO.getTaskProgress(taskId);
-        Map<String, TaskDetailProgressInfo> detailProgressMap =
-                taskProgressRedisDAO.getAllTaskDetailProgress(taskId);
+        TaskProgressRedisDAO.ProgressSnapshot snapshot = taskProgressRedisDAO.getProgressSnapshot(taskId);
+        TaskProgressInfo progressInfo = snapshot.task();
+        Map<String, TaskDetailProgressInfo> detailProgressMap = snapshot.details();
 
         // 构建轻量级的进度响应
         return ImportProgressVO.builder()
@@ -339,6 +410,12 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         try {
             log.info("获取任务锁成功，开始执行重试逻辑: taskId={}, userId={}", taskId, userId);
 
+            // 排队期间节点重启、还没开始执行的任务没有明细，按首次导入重新提交
+            if (TaskStatusEnum.PENDING.getStatus().equals(task.getStatus())
+                    && selectTaskDetails(taskId).isEmpty()) {
+                return resubmitPendingTask(task);
+            }
+
             // 第三步：根据重试类型执行相应的重试策略
             return switch (retryType) {
                 case ALL -> retryAllTables(task);
@@ -366,9 +443,13 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      * 4. 状态如何安全地转换
      */
     @Override
-    public void cancelTask(Long taskId) {
+    public ImportCancelResultVO cancelTask(Long taskId) {
         log.info("开始取消任务: taskId={}", taskId);
 
+        ImportTaskDO task = taskMapper.selectById(taskId);
+        if (task == null) {
+            throw exception(TASK_NOT_FOUND);
+        }
         Long userId = SecurityFrameworkUtils.getLoginUserId();
 
         // 获取任务锁，确保取消操作的原子性
@@ -376,19 +457,71 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
             throw exception(IMPORT_TASK_LOCKED);
         }
 
+        boolean running;
         try {
+            // 还在排队的任务直接出队，不会再被执行
+            boolean dequeued = importTaskScheduler.cancel(taskId);
+            running = !dequeued && canCancelTask(task);
+
+            // 先写取消标记，执行中的解析、写库、质控在下一个工作单元之前停止
+            cancellationRegistry.requestCancel(taskId);
+
             // 更新数据库状态
             updateTaskStatus(taskId, TaskStatusEnum.CANCELLED);
 
-            // 清理Redis缓存，释放内存资源
+            // 清理Redis缓存，释放内存资源；先丢弃未刷新的进度，避免被之后的刷新写回
+            progressPublisher.discard(taskId);
             taskProgressRedisDAO.deleteTaskProgress(taskId);
-            taskProgressRedisDAO.deleteAllTaskDetailProgress(taskId);
 
-            log.info("任务取消成功: taskId={}, userId={}", taskId, userId);
+            log.info("任务取消已发起: taskId={}, userId={}, running={}", taskId, userId, running);
 
         } finally {
             taskProgressRedisDAO.unlockTask(taskId, userId);
         }
+
+        if (!running) {
+            // 没有执行中的工作，不需要等待清理
+            tableJobRedisDAO.delete(taskId);
+            cancelRedisDAO.markStopped(taskId);
+        }
+        return awaitTaskStopped(taskId, running);
+    }
+
+    /**
+     * 等待执行中的工作停止并完成清理，超时后返回当前状态，清理在后台继续
+     */
+    private ImportCancelResultVO awaitTaskStopped(Long taskId, boolean running) {
+        long deadline = System.nanoTime() + importProperties.getCancel().getWaitTimeout().toNanos();
+        ImportCancelRedisDAO.CancelState state = cancelRedisDAO.getCancelState(taskId);
+        while (state != null && state.stopTime() == null && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            state = cancelRedisDAO.getCancelState(taskId);
+        }
+        if (state == null) {
+            // 取消状态已被清理（例如过期），按已停止处理
+            return ImportCancelResultVO.builder().taskId(taskId).running(running).stopped(true)
+                    .elapsedMillis(0L).purgedRows(0L).message("任务已取消").build();
+        }
+        boolean stopped = state.stopTime() != null;
+        long elapsedMillis = (stopped ? state.stopTime() : System.currentTimeMillis()) - state.requestTime();
+        String message = !running ? "任务未在执行，已取消"
+                : stopped ? String.format("任务已停止，已清理%d条已导入数据", state.purgedRows())
+                : "取消已生效，执行中的工作仍在退出，已导入的数据将在停止后清理";
+        log.info("任务取消完成: taskId={}, running={}, stopped={}, 耗时={}ms, 清理行数={}",
+                taskId, running, stopped, elapsedMillis, state.purgedRows());
+        return ImportCancelResultVO.builder()
+                .taskId(taskId)
+                .running(running)
+                .stopped(stopped)
+                .elapsedMillis(elapsedMillis)
+                .purgedRows(state.purgedRows())
+                .message(message)
+                .build();
     }
 
     /**
@@ -454,6 +587,15 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                     }
                 }
             });
+            // 数据库中的进度只在阶段切换时更新，整页任务的实时进度通过一次 Redis 管道读取
+            Map<Long, TaskProgressInfo> progressMap = taskProgressRedisDAO.getTaskProgressBatch(
+                    CollectionUtils.convertList(pageResult.getList(), ImportTaskDO::getId));
+            pageResult.getList().forEach(task -> {
+                TaskProgressInfo progressInfo = progressMap.get(task.getId());
+                if (progressInfo != null) {
+                    task.setProgressPercent(progressInfo.getProgress());
+                }
+            });
         }
         return pageResult;
     }
@@ -468,7 +610,11 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         Long taskId = task.getId();
         String taskNo = task.getTaskNo();
 
+        ImportCancellationRegistry.CancellationToken token = cancellationRegistry.register(taskId);
+        progressPublisher.open(taskId);
         try {
+            // 排队期间可能已被取消
+            token.throwIfCancelled();
             log.info("开始执行完整导入流程: taskId={}, taskNo={}", taskId, taskNo);
 
             // 第一阶段：文件解压和结构验证
@@ -491,13 +637,16 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
             log.info("阶段2: 开始数据解析和导入 - taskId={}", taskId);
             updateTaskStatus(taskId, TaskStatusEnum.IMPORTING);
 
-            ImportProcessResult importResult = processAllTablesInOrder(taskId, extractResult.getFileInfos());
+            ImportLoadModeEnum loadMode = ObjectUtil.defaultIfNull(
+                    ImportLoadModeEnum.getByCode(task.getLoadMode()), ImportLoadModeEnum.INSERT);
+            ImportProcessResult importResult = processAllTablesInOrder(taskId, extractResult.getFileInfos(), loadMode);
             updateTaskProgress(taskId, 70,
                     String.format("数据导入完成，成功%d条，失败%d条",
                             importResult.getTotalSuccess(), importResult.getTotalFailed()),
                     "IMPORTING");
 
             // 第三阶段：质量控制检查
+            token.throwIfCancelled();
             log.info("阶段3: 开始质量控制检查 - taskId={}", taskId);
             updateTaskStatus(taskId, TaskStatusEnum.QC_CHECKING);
             updateTaskProgress(taskId, 80, "正在执行质量控制检查...", "QC_CHECKING");
@@ -506,6 +655,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
             updateTaskProgress(taskId, 95, "质量控制检查完成", "QC_CHECKING");
 
             // 第四阶段：确定最终状态和更新统计
+            token.throwIfCancelled();
             log.info("阶段4: 确定最终状态 - taskId={}", taskId);
             TaskStatusEnum finalStatus = determineFinalStatus(importResult.hasError(), qcResult);
             updateTaskFinalStatus(taskId, finalStatus, importResult);
@@ -516,57 +666,336 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                     importResult.getTotalSuccess(), importResult.getTotalFailed());
 
         } catch (Exception e) {
-            log.error("导入流程执行异常: taskId={}", taskId, e);
-            handleTaskError(taskId, e.getMessage());
-            updateTaskProgress(taskId, 0, "任务执行失败: " + e.getMessage(), "FAILED");
+            if (token.isCancelled()) {
+                handleTaskCancelled(taskId, token);
+            } else {
+                log.error("导入流程执行异常: taskId={}", taskId, e);
+                handleTaskError(taskId, e.getMessage());
+                updateTaskProgress(taskId, 0, "任务执行失败: " + e.getMessage(), "FAILED");
+            }
+        } finally {
+            token.close();
+            qualityControlService.releaseTaskResources(taskId);
+            // 最终进度强制刷新，终态不会停留在合并缓冲中
+            progressPublisher.complete(taskId);
         }
     }
 
     /**
      * 按序处理所有表的数据 - 依赖关系管理
      * <p>
-     * 设计思想：拓扑排序 + 并行优化
-     * 考虑到数据表之间的依赖关系，采用以下策略：
-     * 1. 按预定义顺序串行处理有依赖关系的表
-     * 2. 对无依赖关系的表可以并行处理
-     * 3. 出现错误时支持部分回滚
-     */
-    private ImportProcessResult processAllTablesInOrder(Long taskId, Map<TableTypeEnum, FileInfo> fileInfos) {
+     * 设计思想：按优先级分层的 DAG 调度
+     * 1. 按 {@link FileExtractService#getProcessingPriority} 把表分层，优先级相同的表之间没有依赖
+     * 2. 层与层之间是屏障：上一层全部结束后才开始下一层（机构 -> 目录 -> 入库/出库/使用）
+     * 3. 同一层的表提交到表级导入线程池并行处理，总耗时约为各层中最慢的表之和
+     * 4. 单表失败只记录错误，不影响同层和后续层的其他表
+     * 5. 开启集群执行时，同一层的表作业投递到 Redis Stream 由任意节点执行，本节点只负责分层和汇总
+     */
+    private ImportProcessResult processAllTablesInOrder(Long taskId, Map<TableTypeEnum, FileInfo> fileInfos,
+                                                        ImportLoadModeEnum loadMode) {
         ImportProcessResult result = new ImportProcessResult();
-        int processedTables = 0;
         int totalTables = IMPORT_ORDER.size();
+        AtomicInteger processedTables = new AtomicInteger();
+
+        // IMPORT_ORDER 本身有序，TreeMap 保证按优先级从小到大执行
+        Map<Integer, List<TableTypeEnum>> tiers = IMPORT_ORDER.stream()
+                .collect(Collectors.groupingBy(FileExtractService::getProcessingPriority,
+                        TreeMap::new, Collectors.toList()));
+
+        // 集群执行：内存配额由各执行节点按表申请
+        ImportTableJobDispatcher dispatcher = tableJobDispatcher.getIfAvailable();
+        if (dispatcher != null && importProperties.getDistributed().getEnabled()) {
+            processTiersDistributed(taskId, fileInfos, loadMode, dispatcher, tiers, result, processedTables, totalTables);
+            return result;
+        }
 
-        for (TableTypeEnum tableType : IMPORT_ORDER) {
-            FileInfo fileInfo = fileInfos.get(tableType);
-            if (fileInfo == null) {
-                log.warn("未找到对应文件，跳过处理: taskId={}, tableType={}", taskId, tableType);
-                processedTables++;
-                continue;
+        // 按预估的峰值内存申请配额，放不下时在这里排队等待
+        ImportMemoryGovernor.MemoryPlan memoryPlan = importMemoryGovernor.plan(fileInfos, loadMode);
+        if (memoryPlan.peakBytes() > 0) {
+            updateTaskProgress(taskId, 20, String.format("正在申请导入内存配额（约%dMB）...",
+                    memoryPlan.peakBytes() / 1024 / 1024), "IMPORTING");
+        }
+        try (ImportMemoryGovernor.Reservation ignored = importMemoryGovernor.acquire(taskId, memoryPlan.peakBytes())) {
+            processTiers(taskId, fileInfos, loadMode, memoryPlan, tiers, result, processedTables, totalTables);
+        }
+        return result;
+    }
+
+    private void processTiers(Long taskId, Map<TableTypeEnum, FileInfo> fileInfos, ImportLoadModeEnum loadMode,
+                              ImportMemoryGovernor.MemoryPlan memoryPlan, Map<Integer, List<TableTypeEnum>> tiers,
+                              ImportProcessResult result, AtomicInteger processedTables, int totalTables) {
+        for (Map.Entry<Integer, List<TableTypeEnum>> tier : tiers.entrySet()) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(tier.getValue().size());
+            for (TableTypeEnum tableType : tier.getValue()) {
+                FileInfo fileInfo = fileInfos.get(tableType);
+                if (fileInfo == null) {
+                    log.warn("未找到对应文件，跳过处理: taskId={}, tableType={}", taskId, tableType);
+                    processedTables.incrementAndGet();
+                    continue;
+                }
+                boolean streaming = memoryPlan.isStreaming(tableType);
+                futures.add(CompletableFuture.runAsync(() -> processTableInTier(taskId, tableType, fileInfo,
+                        loadMode, streaming, result, processedTables, totalTables), tableImportExecutor));
+            }
+
+            log.info("开始处理优先级{}的表: taskId={}, tables={}", tier.getKey(), taskId, tier.getValue());
+            // 层屏障：本层所有表处理完（无论成功失败）才进入下一层
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            cancellationRegistry.throwIfCancelled(taskId);
+        }
+    }
+
+    /**
+     * 集群执行：逐层投递表作业，等本层全部表作业都有结果后再进入下一层
+     */
+    private void processTiersDistributed(Long taskId, Map<TableTypeEnum, FileInfo> fileInfos, ImportLoadModeEnum loadMode,
+                                         ImportTableJobDispatcher dispatcher, Map<Integer, List<TableTypeEnum>> tiers,
+                                         ImportProcessResult result, AtomicInteger processedTables, int totalTables) {
+        // 每次导入（含重试）使用新的批次编号，旧批次遗留在 Stream 中的作业会被执行节点丢弃
+        String runId = IdUtil.fastSimpleUUID();
+        tableJobRedisDAO.startRun(taskId, runId);
+        for (Map.Entry<Integer, List<TableTypeEnum>> tier : tiers.entrySet()) {
+            Map<TableTypeEnum, ImportTableJob> pendingJobs = new EnumMap<>(TableTypeEnum.class);
+            for (TableTypeEnum tableType : tier.getValue()) {
+                FileInfo fileInfo = fileInfos.get(tableType);
+                if (fileInfo == null) {
+                    log.warn("未找到对应文件，跳过处理: taskId={}, tableType={}", taskId, tableType);
+                    processedTables.incrementAndGet();
+                    continue;
+                }
+                ImportTableJob job = ImportTableJob.builder().runId(runId).taskId(taskId).tableType(tableType)
+                        .fileInfo(fileInfo).loadMode(loadMode.getCode()).build();
+                dispatcher.dispatch(job);
+                pendingJobs.put(tableType, job);
             }
 
+            log.info("已投递优先级{}的表作业: taskId={}, tables={}", tier.getKey(), taskId, pendingJobs.keySet());
+            updateTaskProgress(taskId, 20 + (processedTables.get() * 50 / totalTables),
+                    String.format("已投递%d个表作业，等待集群节点执行...", pendingJobs.size()), "IMPORTING");
+            // 层屏障：本层所有表作业都有结果（无论成功失败）才进入下一层
+            awaitTableJobs(taskId, pendingJobs, dispatcher, result, processedTables, totalTables);
+        }
+    }
+
+    /**
+     * 轮询等待表作业结果，超时未完成的表记为失败
+     * <p>
+     * 执行节点领取作业后就 ack 消息，节点宕机后消息不会被重投；
+     * 作业没有结果且超过一个租约时长无人持有租约时，由这里重新投递
+     */
+    private void awaitTableJobs(Long taskId, Map<TableTypeEnum, ImportTableJob> pendingJobs,
+                                ImportTableJobDispatcher dispatcher, ImportProcessResult result,
+                                AtomicInteger processedTables, int totalTables) {
+        DrugImportProperties.Distributed config = importProperties.getDistributed();
+        long deadline = System.nanoTime() + config.getJobTimeout().toNanos();
+        long leaseNanos = config.getLeaseTime().toNanos();
+        Set<TableTypeEnum> pendingTables = EnumSet.copyOf(pendingJobs.keySet());
+        // 最近一次确认作业被投递或被持有的时间
+        Map<TableTypeEnum, Long> lastAliveTimes = new EnumMap<>(TableTypeEnum.class);
+        pendingTables.forEach(tableType -> lastAliveTimes.put(tableType, System.nanoTime()));
+        while (!pendingTables.isEmpty()) {
+            cancellationRegistry.throwIfCancelled(taskId);
+            Map<String, ImportTableJobResult> jobResults = tableJobRedisDAO.getResults(taskId);
+            for (Iterator<TableTypeEnum> iterator = pendingTables.iterator(); iterator.hasNext(); ) {
+                TableTypeEnum tableType = iterator.next();
+                ImportTableJobResult jobResult = jobResults.get(tableType.name());
+                if (jobResult == null) {
+                    long now = System.nanoTime();
+                    if (taskProgressRedisDAO.isTaskLocked(taskId, tableType.name())) {
+                        lastAliveTimes.put(tableType, now);
+                    } else if (now - lastAliveTimes.get(tableType) >= leaseNanos) {
+                        log.warn("表作业无节点持有租约，重新投递: taskId={}, tableType={}", taskId, tableType);
+                        dispatcher.dispatch(pendingJobs.get(tableType));
+                        lastAliveTimes.put(tableType, now);
+                    }
+                    continue;
+                }
+                iterator.remove();
+                if (Boolean.TRUE.equals(jobResult.getSuccess())) {
+                    result.addTableResult(ImportResult.builder()
+                            .tableType(jobResult.getTableType())
+                            .hasError(jobResult.getHasError())
+                            .successCount(jobResult.getSuccessCount())
+                            .failedCount(jobResult.getFailedCount())
+                            .build());
+                } else {
+                    result.addError(tableType, jobResult.getErrorMessage());
+                }
+                int finished = processedTables.incrementAndGet();
+                log.info("表作业完成: taskId={}, tableType={}, node={}, 成功={}, 失败={}", taskId, tableType,
+                        jobResult.getNode(), jobResult.getSuccessCount(), jobResult.getFailedCount());
+                updateTaskProgress(taskId, 20 + (finished * 50 / totalTables),
+                        String.format("%s数据处理结束，已完成%d/%d个表", tableType.getDescription(), finished, totalTables),
+                        "IMPORTING");
+            }
+            if (pendingTables.isEmpty()) {
+                return;
+            }
+            if (System.nanoTime() >= deadline) {
+                pendingTables.forEach(tableType -> {
+                    log.error("表作业等待超时: taskId={}, tableType={}", taskId, tableType);
+                    result.addError(tableType, "表作业执行超时");
+                    updateDetailStatus(taskId, tableType, DetailStatusEnum.FAILED, "表作业执行超时");
+                    processedTables.incrementAndGet();
+                });
+                return;
+            }
             try {
-                // 计算并更新当前阶段进度
-                int currentProgress = 20 + (processedTables * 50 / totalTables);
-                updateTaskProgress(taskId, currentProgress,
-                        String.format("正在处理%s数据...", tableType.getDescription()), "IMPORTING");
+                Thread.sleep(config.getPollInterval().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待表作业结果被中断", e);
+            }
+        }
+    }
 
-                // 处理单个表的完整流程
-                ImportResult tableResult = processSingleTableData(taskId, tableType, fileInfo);
-                result.addTableResult(tableResult);
+    /**
+     * 领取集群投递的表作业
+     * <p>
+     * 1. 批次编号与任务当前批次不一致（任务已取消或已重新开始）、或结果已存在（重复投递）时直接丢弃
+     * 2. 通过表级租约保证同一时刻只有一个节点执行；租约被其他节点持有时丢弃，由持有者负责
+     * 3. 拿到租约后交给表级线程池执行并立即返回，消息随即 ack，长时间执行的作业不会被 pending 重投；
+     *    执行期间定期续租，节点宕机后租约过期，由协调节点重新投递，流式导入从断点继续
+     * 4. 续租失败说明租约已被其他节点接管，本节点作废该表的执行权并尽快停止，不写结果、不清理批次数据
+     */
+    @Override
+    public boolean acceptTableJob(ImportTableJob job) {
+        Long taskId = job.getTaskId();
+        TableTypeEnum tableType = job.getTableType();
+        if (!Objects.equals(job.getRunId(), tableJobRedisDAO.getCurrentRun(taskId))) {
+            log.info("表作业已过期，丢弃: taskId={}, tableType={}, runId={}", taskId, tableType, job.getRunId());
+            return false;
+        }
+        ImportTableJobResult existing = tableJobRedisDAO.getResult(taskId, tableType.name());
+        if (existing != null) {
+            log.info("表作业已完成，忽略重复投递: taskId={}, tableType={}, node={}", taskId, tableType, existing.getNode());
+            return false;
+        }
 
-                log.info("表处理完成: taskId={}, tableType={}, 成功={}, 失败={}",
-                        taskId, tableType, tableResult.getSuccessCount(), tableResult.getFailedCount());
+        Duration leaseTime = importProperties.getDistributed().getLeaseTime();
+        if (!taskProgressRedisDAO.tryLockTask(taskId, tableType.name(), NODE_ID, leaseTime)) {
+            log.info("表作业正在其他节点执行，忽略: taskId={}, tableType={}", taskId, tableType);
+            return false;
+        }
+        // 拿到租约前上一个持有者可能刚好完成
+        if (tableJobRedisDAO.getResult(taskId, tableType.name()) != null) {
+            taskProgressRedisDAO.unlockTask(taskId, tableType.name(), NODE_ID);
+            return false;
+        }
+        ImportCancellationRegistry.CancellationToken token = cancellationRegistry.register(taskId);
+        progressPublisher.open(taskId);
+        ScheduledFuture<?> renewal = progressScheduler.scheduleAtFixedRate(() -> {
+            if (token.isLeaseRevoked(tableType)) {
+                return;
+            }
+            if (!taskProgressRedisDAO.renewTaskLock(taskId, tableType.name(), NODE_ID, leaseTime)) {
+                log.warn("表作业租约续期失败，停止执行: taskId={}, tableType={}", taskId, tableType);
+                cancellationRegistry.revokeLease(taskId, tableType);
+            }
+        }, leaseTime.dividedBy(3));
+        try {
+            tableImportExecutor.execute(() -> executeTableJob(job, token, renewal));
+        } catch (RuntimeException e) {
+            renewal.cancel(false);
+            taskProgressRedisDAO.unlockTask(taskId, tableType.name(), NODE_ID);
+            token.close();
+            throw e;
+        }
+        return true;
+    }
 
-            } catch (Exception e) {
-                log.error("表处理失败: taskId={}, tableType={}", taskId, tableType, e);
-                result.addError(tableType, e.getMessage());
-                updateDetailStatus(taskId, tableType, DetailStatusEnum.FAILED, e.getMessage());
+    private void executeTableJob(ImportTableJob job, ImportCancellationRegistry.CancellationToken token,
+                                 ScheduledFuture<?> renewal) {
+        Long taskId = job.getTaskId();
+        TableTypeEnum tableType = job.getTableType();
+        try (token) {
+            if (token.isCancelled()) {
+                log.info("任务已取消，丢弃表作业: taskId={}, tableType={}", taskId, tableType);
+                return;
+            }
+            ImportTableJobResult jobResult = runTableJob(job, token);
+            if (token.isLeaseRevoked(tableType)) {
+                // 新的持有者会从断点继续并写入结果
+                return;
             }
+            tableJobRedisDAO.setResult(taskId, jobResult);
+        } catch (Exception e) {
+            log.error("表作业执行异常: taskId={}, tableType={}", taskId, tableType, e);
+        } finally {
+            renewal.cancel(false);
+            progressPublisher.flush(taskId);
+            taskProgressRedisDAO.unlockTask(taskId, tableType.name(), NODE_ID);
+        }
+    }
 
-            processedTables++;
+    private ImportTableJobResult runTableJob(ImportTableJob job, ImportCancellationRegistry.CancellationToken token) {
+        Long taskId = job.getTaskId();
+        TableTypeEnum tableType = job.getTableType();
+        ImportLoadModeEnum loadMode = ObjectUtil.defaultIfNull(
+                ImportLoadModeEnum.getByCode(job.getLoadMode()), ImportLoadModeEnum.INSERT);
+        ImportTableJobResult.ImportTableJobResultBuilder builder = ImportTableJobResult.builder()
+                .tableType(tableType.name()).node(NODE_ID);
+        // 内存计划和配额在执行节点上按单表制定，各节点的堆大小可以不同
+        Map<TableTypeEnum, FileInfo> fileInfos = Map.of(tableType, job.getFileInfo());
+        ImportMemoryGovernor.MemoryPlan memoryPlan = importMemoryGovernor.plan(fileInfos, loadMode);
+        try (ImportMemoryGovernor.Reservation ignored = importMemoryGovernor.acquire(taskId, memoryPlan.peakBytes())) {
+            ImportResult tableResult = processSingleTableData(taskId, tableType, job.getFileInfo(), loadMode,
+                    memoryPlan.isStreaming(tableType));
+            builder.success(true).hasError(tableResult.getHasError()).importBatchNo(tableResult.getImportBatchNo())
+                    .successCount(tableResult.getSuccessCount()).failedCount(tableResult.getFailedCount());
+        } catch (Exception e) {
+            if (token.isLeaseRevoked(tableType)) {
+                // 导入批次由新的持有者沿用，这里不能清理
+                log.info("表作业租约已失效，停止执行: taskId={}, tableType={}", taskId, tableType);
+                return builder.success(false).hasError(true).successCount(0).failedCount(0)
+                        .errorMessage("表作业租约已失效").finishTime(LocalDateTime.now()).build();
+            }
+            if (token.isCancelled()) {
+                // 协调节点可能已经结束清理，本节点写入的批次由本节点清理
+                log.info("表作业已取消: taskId={}, tableType={}", taskId, tableType);
+                purgeImportBatches(taskId, token.getImportBatches());
+                return builder.success(false).hasError(true).successCount(0).failedCount(0)
+                        .errorMessage("任务已取消").finishTime(LocalDateTime.now()).build();
+            }
+            log.error("表作业执行失败: taskId={}, tableType={}", taskId, tableType, e);
+            updateDetailStatus(taskId, tableType, DetailStatusEnum.FAILED, e.getMessage());
+            builder.success(false).hasError(true).successCount(0).failedCount(0).errorMessage(e.getMessage());
         }
+        return builder.finishTime(LocalDateTime.now()).build();
+    }
 
-        return result;
+    /**
+     * 在表级线程池中处理一张表，结果汇总到线程安全的 {@link ImportProcessResult}
+     */
+    private void processTableInTier(Long taskId, TableTypeEnum tableType, FileInfo fileInfo, ImportLoadModeEnum loadMode,
+                                    boolean streaming, ImportProcessResult result, AtomicInteger processedTables,
+                                    int totalTables) {
+        try {
+            cancellationRegistry.throwIfCancelled(taskId);
+            updateTaskProgress(taskId, 20 + (processedTables.get() * 50 / totalTables),
+                    String.format("正在处理%s数据...", tableType.getDescription()), "IMPORTING");
+
+            // 处理单个表的完整流程
+            ImportResult tableResult = processSingleTableData(taskId, tableType, fileInfo, loadMode, streaming);
+            result.addTableResult(tableResult);
+
+            log.info("表处理完成: taskId={}, tableType={}, 成功={}, 失败={}",
+                    taskId, tableType, tableResult.getSuccessCount(), tableResult.getFailedCount());
+        } catch (Exception e) {
+            if (cancellationRegistry.isCancelled(taskId)) {
+                // 取消由层屏障之后统一处理
+                log.info("表处理已取消: taskId={}, tableType={}", taskId, tableType);
+                return;
+            }
+            log.error("表处理失败: taskId={}, tableType={}", taskId, tableType, e);
+            result.addError(tableType, e.getMessage());
+            updateDetailStatus(taskId, tableType, DetailStatusEnum.FAILED, e.getMessage());
+        } finally {
+            int finished = processedTables.incrementAndGet();
+            updateTaskProgress(taskId, 20 + (finished * 50 / totalTables),
+                    String.format("%s数据处理结束，已完成%d/%d个表", tableType.getDescription(), finished, totalTables),
+                    "IMPORTING");
+        }
     }
 
     /**
@@ -576,12 +1005,55 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      * 1. Extract: 从Excel文件中提取原始数据
      * 2. Transform: 数据清洗、验证、转换
      * 3. Load: 批量加载到目标数据库表
+     *
+     * @param streaming 是否走流式管道，由内存计划决定
      */
-    private ImportResult processSingleTableData(Long taskId, TableTypeEnum tableType, FileInfo fileInfo) {
+    private ImportResult processSingleTableData(Long taskId, TableTypeEnum tableType, FileInfo fileInfo,
+                                                ImportLoadModeEnum loadMode, boolean streaming) {
         log.info("开始处理单表数据: taskId={}, tableType={}, fileName={}",
                 taskId, tableType, fileInfo.getFileName());
 
-        // 第一步：解析阶段 - Extract
+        // 质控规则在导入前编译一次，导入流中逐行执行；入库、出库、使用表同时校验引用的药品在药品目录中存在
+        QcRuleEvaluator qcEvaluator = qualityControlService.prepareTableQualityControl(taskId, tableType);
+
+        try {
+            // 第一、二步：解析和导入阶段 - Extract & Transform & Load
+            ImportResult importResult = streaming
+                    ? streamImportTableData(taskId, tableType, fileInfo, loadMode, qcEvaluator)
+                    : parseAndImportTableData(taskId, tableType, fileInfo, qcEvaluator);
+            updateDetailProgress(taskId, tableType, 70,
+                    String.format("导入完成，成功%d条，失败%d条",
+                            importResult.getSuccessCount(), importResult.getFailedCount()));
+            // 药品目录导入完成后发布本任务的目录索引，供之后的层级做引用校验
+            qualityControlService.publishCatalogIndex(taskId, qcEvaluator, importResult.getSuccessCount());
+
+            // 第三步：质控阶段 - Validate
+            cancellationRegistry.throwIfCancelled(taskId, tableType);
+            updateDetailStatus(taskId, tableType, DetailStatusEnum.QC_CHECKING, null);
+
+            QualityControlResult qcResult = qualityControlService.executeTableQualityControl(taskId, tableType, qcEvaluator);
+            updateDetailProgress(taskId, tableType, 100,
+                    String.format("质控完成，通过%d条，失败%d条",
+                            qcResult.getPassedCount(), qcResult.getFailedCount()));
+
+            // 第四步：确定最终状态
+            DetailStatusEnum finalStatus = determineDetailFinalStatus(importResult, qcResult);
+            updateDetailFinalStatus(taskId, tableType, finalStatus, importResult, qcResult);
+
+            return importResult;
+        } finally {
+            // 暂存和溢写文件在质控汇总后即可释放，导入失败时也要清理
+            qualityControlService.releaseTableQualityControl(qcEvaluator);
+        }
+    }
+
+    /**
+     * 整表解析后分批导入
+     * <p>
+     * 先把整个Sheet解析到内存再切片入库，适合小文件；大文件请使用流式管道
+     */
+    private ImportResult parseAndImportTableData(Long taskId, TableTypeEnum tableType, FileInfo fileInfo,
+                                                 QcRuleEvaluator qcEvaluator) {
         updateDetailStatus(taskId, tableType, DetailStatusEnum.PARSING, null);
         updateDetailProgress(taskId, tableType, 10, "正在解析Excel文件...");
 
@@ -593,27 +1065,78 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         updateDetailProgress(taskId, tableType, 30,
                 String.format("解析完成，共%d条数据", parseResult.getDataRows()));
 
-        // 第二步：导入阶段 - Transform & Load
         updateDetailStatus(taskId, tableType, DetailStatusEnum.IMPORTING, null);
+        return batchImportData(taskId, tableType, parseResult.getDataList(), qcEvaluator);
+    }
 
-        ImportResult importResult = batchImportData(taskId, tableType, parseResult.getDataList());
-        updateDetailProgress(taskId, tableType, 70,
-                String.format("导入完成，成功%d条，失败%d条",
-                        importResult.getSuccessCount(), importResult.getFailedCount()));
-
-        // 第三步：质控阶段 - Validate
-        updateDetailStatus(taskId, tableType, DetailStatusEnum.QC_CHECKING, null);
-
-        QualityControlResult qcResult = qualityControlService.executeTableQualityControl(taskId, tableType);
-        updateDetailProgress(taskId, tableType, 100,
-                String.format("质控完成，通过%d条，失败%d条",
-                        qcResult.getPassedCount(), qcResult.getFailedCount()));
-
-        // 第四步：确定最终状态
-        DetailStatusEnum finalStatus = determineDetailFinalStatus(importResult, qcResult);
-        updateDetailFinalStatus(taskId, tableType, finalStatus, importResult, qcResult);
+    /**
+     * 流式导入 - 边解析边入库
+     * <p>
+     * 解析线程和入库线程通过有界队列衔接，解析与导入同时进行，
+     * 因此解析状态在开始导入时即标记完成，进度按已完成分块的行数 / 预估行数计算。
+     * 每个分块提交后都会把断点写回任务明细，重试时从断点之后继续导入
+     */
+    private ImportResult streamImportTableData(Long taskId, TableTypeEnum tableType, FileInfo fileInfo,
+                                               ImportLoadModeEnum loadMode, QcRuleEvaluator qcEvaluator) {
+        updateDetailStatus(taskId, tableType, DetailStatusEnum.PARSING, null);
+        updateDetailProgress(taskId, tableType, 10, "正在流式解析Excel文件...");
+        updateDetailStatus(taskId, tableType, DetailStatusEnum.IMPORTING, null);
 
-        return importResult;
+        long estimatedRows = fileInfo.getEstimatedRowCount() != null ? fileInfo.getEstimatedRowCount() : 0;
+        ImportCheckpoint checkpoint = loadCheckpoint(taskId, tableType);
+        // Redis 中的行数计数从断点处的累计值开始，之后每个分块只累加增量
+        long[] reportedCounts = {
+                checkpoint != null && checkpoint.getSuccessRows() != null ? checkpoint.getSuccessRows() : 0,
+                checkpoint != null && checkpoint.getFailedRows() != null ? checkpoint.getFailedRows() : 0};
+        progressPublisher.resetDetailCounters(taskId, tableType.name(), reportedCounts[0], reportedCounts[1]);
+        String importBatchNo = checkpoint != null ? checkpoint.getImportBatchNo() : generateImportBatchNo(taskId, tableType);
+        cancellationRegistry.recordImportBatch(taskId, tableType, importBatchNo);
+        if (checkpoint == null) {
+            // 重新导入整张表，之前执行留下的错误行作废；续传时保留断点之前的错误行
+            importErrorRowService.deleteErrors(taskId, tableType);
+        }
+        int baseChunkNo = checkpoint != null ? checkpoint.getChunkNo() : 0;
+        if (checkpoint != null) {
+            log.info("从断点继续导入: taskId={}, tableType={}, 断点行号={}, 已提交分块={}",
+                    taskId, tableType, checkpoint.getRowIndex(), checkpoint.getChunkNo());
+            // 并行写入时断点之后的分块可能已经提交，先清掉这部分数据和错误行，避免续传后重复
+            dataImportService.purgeImportBatchAfterRow(taskId, tableType, importBatchNo, checkpoint.getRowIndex());
+            importErrorRowService.deleteErrorsAfterRow(taskId, tableType, checkpoint.getRowIndex());
+        }
+        return streamingImportPipeline.execute(taskId, tableType, fileInfo, importBatchNo, loadMode, checkpoint,
+                qcEvaluator, (completedChunks, completedRows, result, committed) -> {
+                    if (committed != null) {
+                        saveCheckpoint(taskId, tableType, ImportCheckpoint.builder()
+                                .rowIndex(committed.lastRowIndex())
+                                .chunkNo(baseChunkNo + committed.chunks())
+                                .importBatchNo(importBatchNo)
+                                .successRows((long) committed.successRows())
+                                .failedRows((long) committed.failedRows())
+                                .build());
+                    }
+                    synchronized (reportedCounts) {
+                        long successDelta = result.getSuccessCount() - reportedCounts[0];
+                        long failedDelta = result.getFailedCount() - reportedCounts[1];
+                        reportedCounts[0] += successDelta;
+                        reportedCounts[1] += failedDelta;
+                        progressPublisher.addDetailCounters(taskId, tableType.name(),
+                                successDelta + failedDelta, successDelta, failedDelta);
+                    }
+                    long doneRows = result.getTotalCount();
+                    int progress = estimatedRows > 0
+                            ? 30 + (int) (Math.min(doneRows, estimatedRows) * 40 / estimatedRows)
+                            : 30;
+                    updateDetailProgress(taskId, tableType, progress,
+                            String.format("正在导入数据 %d/%d，已完成%d个分块，成功%d条，失败%d条",
+                                    doneRows, estimatedRows, baseChunkNo + completedChunks,
+                                    result.getSuccessCount(), result.getFailedCount()),
+                            detail -> {
+                                detail.setTotalRecords((int) estimatedRows);
+                                detail.setProcessedRecords((int) doneRows);
+                                detail.setSuccessRecords(result.getSuccessCount());
+                                detail.setFailedRecords(result.getFailedCount());
+                            });
+                });
     }
 
     /**
@@ -621,78 +1144,77 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      * <p>
      * 批处理策略：
      * 1. 控制内存使用：避免一次性加载大量数据
-     * 2. 优化数据库性能：批量操作比逐条操作效率高
+     * 2. 优化数据库性能：批量操作比逐条操作效率高，多个分块并行写入
      * 3. 事务边界控制：单批失败不影响其他批次
-     * 4. 进度可视化：让用户了解处理进展
+     * 4. 进度可视化：按已完成的分块汇报进展
      */
-    private ImportResult batchImportData(Long taskId, TableTypeEnum tableType, List<?> dataList) {
+    private ImportResult batchImportData(Long taskId, TableTypeEnum tableType, List<?> dataList,
+                                         QcRuleEvaluator qcEvaluator) {
         int totalRows = dataList.size();
-        int successCount = 0;
-        int failedCount = 0;
-        List<ImportResult.ImportError> errors = new ArrayList<>();
+        int totalChunks = (totalRows + BATCH_SIZE - 1) / BATCH_SIZE;
+        String importBatchNo = generateImportBatchNo(taskId, tableType);
+        cancellationRegistry.recordImportBatch(taskId, tableType, importBatchNo);
+        importErrorRowService.deleteErrors(taskId, tableType);
+        LocalDateTime startTime = LocalDateTime.now();
+        ImportResult result = ImportResult.builder()
+                .tableType(tableType.name())
+                .importBatchNo(importBatchNo)
+                .startTime(startTime)
+                .totalCount(0)
+                .successCount(0)
+                .failedCount(0)
+                .importErrors(new ArrayList<>())
+                .build();
 
         log.info("开始分批导入数据: taskId={}, tableType={}, 总记录数={}, 批大小={}",
                 taskId, tableType, totalRows, BATCH_SIZE);
 
-        // 分批处理数据
-        for (int startIndex = 0; startIndex < totalRows; startIndex += BATCH_SIZE) {
-            int endIndex = Math.min(startIndex + BATCH_SIZE, totalRows);
-            List<?> batch = dataList.subList(startIndex, endIndex);
-
-            try {
-                // 执行单批次导入
-                ImportResult batchResult = dataImportService.importBatch(taskId, tableType, batch);
-                successCount += batchResult.getSuccessCount();
-                failedCount += batchResult.getFailedCount();
-
-                // 收集错误信息
-                if (batchResult.getImportErrors() != null) {
-                    errors.addAll(batchResult.getImportErrors());
+        TableSchema schema = TableSchema.of(tableType);
+        List<ImportRow> rows = dataImportService.toImportRows(tableType, dataList);
+        ChunkParallelWriter.Session session = chunkParallelWriter.open(taskId, tableType, importBatchNo,
+                ImportLoadModeEnum.INSERT, result, (completedChunks, completedRows, current, committed) -> {
+                    int progress = 30 + (int) (completedRows * 40 / totalRows);
+                    updateDetailProgress(taskId, tableType, progress,
+                            String.format("正在导入数据 %d/%d (%.1f%%)，已完成%d/%d个分块",
+                                    completedRows, totalRows, (completedRows * 100.0 / totalRows),
+                                    completedChunks, totalChunks));
+                });
+        try {
+            for (int startIndex = 0; startIndex < totalRows; startIndex += BATCH_SIZE) {
+                cancellationRegistry.throwIfCancelled(taskId, tableType);
+                List<ImportRow> chunk = rows.subList(startIndex, Math.min(startIndex + BATCH_SIZE, totalRows));
+                // 与流式导入相同：先做必填校验，再逐行执行质控规则，不通过的行不写库
+                for (ImportRow row : chunk) {
+                    String error = schema.validateRow(row);
+                    if (error == null) {
+                        error = qcEvaluator.evaluate(row);
+                    }
+                    if (error != null) {
+                        row.setParseError(error);
+                    }
                 }
-
-                // 更新进度
-                int progress = 30 + (endIndex * 40 / totalRows);
-                updateDetailProgress(taskId, tableType, progress,
-                        String.format("正在导入数据 %d/%d (%.1f%%)",
-                                endIndex, totalRows, (endIndex * 100.0 / totalRows)));
-
-                log.debug("批次导入完成: 范围={}-{}, 成功={}, 失败={}",
-                        startIndex, endIndex, batchResult.getSuccessCount(), batchResult.getFailedCount());
-
-            } catch (Exception e) {
-                log.error("批次导入失败: taskId={}, tableType={}, 范围={}-{}",
-                        taskId, tableType, startIndex, endIndex, e);
-                failedCount += batch.size();
-
-                // 记录批次级别的错误
-                errors.add(ImportResult.ImportError.builder()
-                        .batchIndex(startIndex / BATCH_SIZE)
-                        .errorType("BATCH_ERROR")
-                        .errorMessage("批次导入失败: " + e.getMessage())
-                        .errorDetail(String.format("影响范围: %d-%d", startIndex, endIndex))
-                        .build());
+                session.submit(chunk);
             }
+            session.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            session.cancel();
+            throw exception(IMPORT_BATCH_FAILED);
+        } catch (RuntimeException e) {
+            session.cancel();
+            throw e;
         }
 
         // 构建最终的导入结果
-        return ImportResult.builder()
-                .success(failedCount == 0)
-                .hasError(failedCount > 0)
-                .message(String.format("导入完成: 成功%d条，失败%d条", successCount, failedCount))
-                .tableType(tableType.name())
-                .importBatchNo(generateImportBatchNo(taskId, tableType))
-                .totalCount(successCount + failedCount)
-                .successCount(successCount)
-                .failedCount(failedCount)
-                .startTime(LocalDateTime.now())
-                .endTime(LocalDateTime.now())
-                .processingTimeMs(0L) // 这里可以加入实际的计时逻辑
-                .importErrors(errors)
-                .build();
+        LocalDateTime endTime = LocalDateTime.now();
+        result.setSuccess(result.getFailedCount() == 0);
+        result.setHasError(result.getFailedCount() > 0);
+        result.setMessage(String.format("导入完成: 成功%d条，失败%d条", result.getSuccessCount(), result.getFailedCount()));
+        result.setEndTime(endTime);
+        result.setProcessingTimeMs(Duration.between(startTime, endTime).toMillis());
+        return result;
     }
 
-    // ==================== VO构建方法集合 ====================
-
     /**
      * 构建任务基本信息VO
      * <p>
@@ -891,6 +1413,20 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         }
     }
 
+    /**
+     * 解析数据写入模式，未指定时使用批量INSERT
+     */
+    private ImportLoadModeEnum resolveLoadMode(String code) {
+        if (!StringUtils.hasText(code)) {
+            return ImportLoadModeEnum.INSERT;
+        }
+        ImportLoadModeEnum loadMode = ImportLoadModeEnum.getByCode(code);
+        if (loadMode == null) {
+            throw exception(IMPORT_LOAD_MODE_UNSUPPORTED, code);
+        }
+        return loadMode;
+    }
+
     /**
      * 立即保存上传文件
      */
@@ -916,7 +1452,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      * 创建任务记录
      */
     private ImportTaskDO createTaskRecord(MultipartFile file, ImportTaskCreateParams params,
-                                          String taskNo, String filePath) {
+                                          ImportLoadModeEnum loadMode, String taskNo, String filePath) {
         ImportTaskDO task = ImportTaskDO.builder()
                 .taskNo(taskNo)
                 .taskName(params.getTaskName())
@@ -925,6 +1461,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                 .fileSize(file.getSize())
                 .dataSource(params.getDataSource())
                 .description(params.getDescription())
+                .loadMode(loadMode.getCode())
                 // 文件统计初始化
                 .totalFiles(0)
                 .successFiles(0)
@@ -947,7 +1484,9 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
     }
 
     /**
-     * 更新任务进度到Redis
+     * 更新任务进度
+     * <p>
+     * 进度交给 {@link ImportProgressPublisher} 合并后定时写入 Redis，阶段切换时立即写入
      */
     private void updateTaskProgress(Long taskId, int progress, String message, String currentStage) {
         TaskProgressInfo progressInfo = TaskProgressInfo.builder()
@@ -959,7 +1498,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                 .updateTime(LocalDateTime.now())
                 .build();
 
-        taskProgressRedisDAO.setTaskProgress(progressInfo);
+        progressPublisher.publishTask(progressInfo);
         log.debug("任务进度已更新: taskId={}, progress={}%, message={}", taskId, progress, message);
     }
 
@@ -1019,6 +1558,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         }
 
         taskMapper.updateById(updateTask);
+        taskDetailSnapshotCache.invalidate(taskId);
         log.debug("任务状态已更新: taskId={}, status={}", taskId, status.getDescription());
     }
 
@@ -1224,6 +1764,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         }
 
         taskDetailMapper.updateById(detail);
+        taskDetailSnapshotCache.invalidate(taskId);
         log.debug("明细状态更新完成: detailId={}, status={}", detail.getId(), status.getDescription());
     }
 
@@ -1246,13 +1787,60 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         }
     }
 
+    /**
+     * 读取表级导入断点，没有断点时返回 null
+     */
+    private ImportCheckpoint loadCheckpoint(Long taskId, TableTypeEnum tableType) {
+        ImportTaskDetailDO detail = taskDetailMapper.selectOne(new LambdaQueryWrapper<ImportTaskDetailDO>()
+                .eq(ImportTaskDetailDO::getTaskId, taskId)
+                .eq(ImportTaskDetailDO::getTableType, tableType.getType()));
+        if (detail == null || detail.getCheckpointRowIndex() == null || !StringUtils.hasText(detail.getImportBatchNo())) {
+            return null;
+        }
+        return ImportCheckpoint.builder()
+                .rowIndex(detail.getCheckpointRowIndex())
+                .chunkNo(ObjectUtil.defaultIfNull(detail.getCheckpointChunkNo(), 0))
+                .importBatchNo(detail.getImportBatchNo())
+                .successRows(ObjectUtil.defaultIfNull(detail.getSuccessRows(), 0L))
+                .failedRows(ObjectUtil.defaultIfNull(detail.getFailedRows(), 0L))
+                .build();
+    }
+
+    /**
+     * 保存表级导入断点
+     * <p>
+     * 每个分块提交后调用一次，与分块写库相比开销可以忽略；
+     * 成功/失败行数与断点一起写入，保证续传后的统计是连续的
+     */
+    private void saveCheckpoint(Long taskId, TableTypeEnum tableType, ImportCheckpoint checkpoint) {
+        taskDetailMapper.update(new LambdaUpdateWrapper<ImportTaskDetailDO>()
+                .eq(ImportTaskDetailDO::getTaskId, taskId)
+                .eq(ImportTaskDetailDO::getTableType, tableType.getType())
+                .set(ImportTaskDetailDO::getCheckpointRowIndex, checkpoint.getRowIndex())
+                .set(ImportTaskDetailDO::getCheckpointChunkNo, checkpoint.getChunkNo())
+                .set(ImportTaskDetailDO::getImportBatchNo, checkpoint.getImportBatchNo())
+                .set(ImportTaskDetailDO::getSuccessRows, checkpoint.getSuccessRows())
+                .set(ImportTaskDetailDO::getFailedRows, checkpoint.getFailedRows()));
+    }
+
     /**
      * 更新明细进度
      * <p>
      * 这个方法专门负责更新Redis中的实时进度信息
-     * 设计上与数据库状态更新分离，确保高频的进度更新不会对数据库造成压力
+     * 设计上与数据库状态更新分离，确保高频的进度更新不会对数据库造成压力；
+     * 分块级别的高频更新由 {@link ImportProgressPublisher} 合并后批量写入
      */
     private void updateDetailProgress(Long taskId, TableTypeEnum tableType, int progress, String message) {
+        updateDetailProgress(taskId, tableType, progress, message, null);
+    }
+
+    /**
+     * 更新明细进度，并附带行数计数
+     *
+     * @param counters 填充行数计数，可以为空
+     */
+    private void updateDetailProgress(Long taskId, TableTypeEnum tableType, int progress, String message,
+                                      Consumer<TaskDetailProgressInfo> counters) {
         TaskDetailProgressInfo detailProgress = TaskDetailProgressInfo.builder()
                 .taskId(taskId)
                 .tableType(tableType.name())
@@ -1262,7 +1850,10 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                 .updateTime(LocalDateTime.now())
                 .build();
 
-        taskProgressRedisDAO.setTaskDetailProgress(detailProgress);
+        if (counters != null) {
+            counters.accept(detailProgress);
+        }
+        progressPublisher.publishDetail(detailProgress);
         log.debug("明细进度已更新: taskId={}, tableType={}, progress={}%",
                 taskId, tableType, progress);
     }
@@ -1308,6 +1899,9 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
             detail.setSuccessRows(importResult.getSuccessCount().longValue());
             detail.setFailedRows(importResult.getFailedCount().longValue());
             detail.setTotalRows(importResult.getTotalCount().longValue());
+            // 只保存错误行样例，完整的错误行在错误行表中分页查询
+            detail.setErrorRowsDetail(CollUtil.isEmpty(importResult.getImportErrors()) ? null
+                    : JsonUtils.toJsonString(importResult.getImportErrors()));
 
             // 更新质控统计（如果质控服务已实现）
             if (qcResult != null) {
@@ -1367,6 +1961,7 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                 .build();
 
         taskMapper.updateById(updateTask);
+        taskDetailSnapshotCache.invalidate(taskId);
         log.debug("主任务统计已更新: taskId={}, 成功文件={}, 失败文件={}",
                 taskId, successFiles, failedFiles);
     }
@@ -1428,11 +2023,61 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                 .build();
 
         taskMapper.updateById(updateTask);
+        taskDetailSnapshotCache.invalidate(taskId);
         log.info("任务最终状态已更新: taskId={}, status={}, 成功记录={}, 失败记录={}",
                 taskId, finalStatus.getDescription(),
                 importResult.getTotalSuccess(), importResult.getTotalFailed());
     }
 
+    /**
+     * 任务被取消后的收尾：清理本次执行已导入的数据，恢复取消状态并记录停止时间
+     * <p>
+     * 执行中的线程可能在取消之后又写回了状态或进度，这里统一以取消为准
+     */
+    private void handleTaskCancelled(Long taskId, ImportCancellationRegistry.CancellationToken token) {
+        log.info("任务已取消，开始清理已导入数据: taskId={}", taskId);
+        long purgedRows = 0;
+        try {
+            Map<TableTypeEnum, String> importBatches = token.getImportBatches();
+            // 集群执行时，已完成的表作业在其他节点写入
+            tableJobRedisDAO.getResults(taskId).forEach((tableType, jobResult) -> {
+                if (StringUtils.hasText(jobResult.getImportBatchNo())) {
+                    importBatches.putIfAbsent(TableTypeEnum.valueOf(tableType), jobResult.getImportBatchNo());
+                }
+            });
+            purgedRows = purgeImportBatches(taskId, importBatches);
+            tableJobRedisDAO.delete(taskId);
+        } catch (Exception e) {
+            log.error("清理已取消任务的数据失败: taskId={}", taskId, e);
+        }
+        updateTaskStatus(taskId, TaskStatusEnum.CANCELLED);
+        progressPublisher.discard(taskId);
+        taskProgressRedisDAO.deleteTaskProgress(taskId);
+        cancelRedisDAO.markStopped(taskId);
+        log.info("任务已停止: taskId={}, 清理行数={}", taskId, purgedRows);
+    }
+
+    /**
+     * 删除导入批次已写入的数据，并清除对应表的断点（数据已删除，不能再从断点续传）
+     *
+     * @return 删除的行数
+     */
+    private long purgeImportBatches(Long taskId, Map<TableTypeEnum, String> importBatches) {
+        long purgedRows = 0;
+        for (Map.Entry<TableTypeEnum, String> entry : importBatches.entrySet()) {
+            purgedRows += dataImportService.purgeImportBatch(taskId, entry.getKey(), entry.getValue());
+            importErrorRowService.deleteErrors(taskId, entry.getKey());
+            taskDetailMapper.update(new LambdaUpdateWrapper<ImportTaskDetailDO>()
+                    .eq(ImportTaskDetailDO::getTaskId, taskId)
+                    .eq(ImportTaskDetailDO::getTableType, entry.getKey().getType())
+                    .set(ImportTaskDetailDO::getCheckpointRowIndex, null)
+                    .set(ImportTaskDetailDO::getCheckpointChunkNo, null)
+                    .set(ImportTaskDetailDO::getImportBatchNo, null));
+        }
+        cancelRedisDAO.addPurgedRows(taskId, purgedRows);
+        return purgedRows;
+    }
+
     /**
      * 处理任务错误
      * <p>
@@ -1453,10 +2098,11 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
                     .build();
 
             taskMapper.updateById(updateTask);
+            taskDetailSnapshotCache.invalidate(taskId);
 
-            // 清理Redis缓存，释放内存资源
+            // 清理Redis缓存，释放内存资源；先丢弃未刷新的进度，避免被之后的刷新写回
+            progressPublisher.discard(taskId);
             taskProgressRedisDAO.deleteTaskProgress(taskId);
-            taskProgressRedisDAO.deleteAllTaskDetailProgress(taskId);
 
             log.info("任务错误处理完成: taskId={}", taskId);
 
@@ -1747,6 +2393,10 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
      */
     private boolean canRetryTask(ImportTaskDO task) {
         TaskStatusEnum status = TaskStatusEnum.getByType(task.getStatus());
+        if (status == TaskStatusEnum.PENDING) {
+            // 调度队列在内存中，持有它的节点重启后任务会一直停留在待处理
+            return !importTaskScheduler.isQueued(task.getId());
+        }
         return status == TaskStatusEnum.FAILED || status == TaskStatusEnum.PARTIAL_SUCCESS;
     }
 
@@ -1832,6 +2482,41 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
         return detail.getSuccessRows().doubleValue() / elapsedSeconds;
     }
 
+    /**
+     * 获取导入调度队列状态
+     */
+    @Override
+    public ImportQueueStatusVO getQueueStatus() {
+        ImportQueueStatusVO status = importTaskScheduler.getQueueStatus();
+        status.setMemory(importMemoryGovernor.getStatus());
+        return status;
+    }
+
+    /**
+     * 获取任务在调度队列中的位置
+     */
+    @Override
+    public ImportQueuePositionVO getQueuePosition(Long taskId) {
+        if (taskMapper.selectById(taskId) == null) {
+            throw exception(TASK_NOT_FOUND);
+        }
+        return importTaskScheduler.getQueuePosition(taskId);
+    }
+
+    /**
+     * 订阅任务进度的 SSE 事件流
+     */
+    @Override
+    public SseEmitter streamTaskProgress(Long taskId, Long lastEventId) {
+        ImportTaskDO task = taskMapper.selectById(taskId);
+        if (task == null) {
+            throw exception(TASK_NOT_FOUND);
+        }
+        TaskStatusEnum status = TaskStatusEnum.getByType(task.getStatus());
+        boolean finished = status != null && (status.isFinalStatus() || status == TaskStatusEnum.CANCELLED);
+        return progressEventBus.subscribe(taskId, lastEventId, finished);
+    }
+
     /**
      * 获取任务执行日志
      * <p>
@@ -2089,68 +2774,181 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
     /**
      * 全部重试
      * <p>
-     * TODO: 实现完整的全部重试逻辑
+     * 所有表都重新走一遍，每张表从自己的断点继续，已提交的数据不会重复导入
      */
     private ImportRetryResult retryAllTables(ImportTaskDO task) {
         log.info("执行全部重试: taskId={}", task.getId());
-
-        // TODO: 实现重试逻辑
-        return ImportRetryResult.builder()
-                .taskId(task.getId())
-                .taskNo(task.getTaskNo())
-                .success(true)
-                .message("全部重试已启动")
-                .retryType("ALL")
-                .retryScope(List.of("ALL_TABLES"))
-                .retryStartTime(LocalDateTime.now())
-                .retryBatchNo("RETRY_" + System.currentTimeMillis())
-                .build();
+        return startRetry(task, RetryTypeEnum.ALL, selectTaskDetails(task.getId()));
     }
 
-// ==================== 重试相关方法占位符 ====================
-
     /**
      * 仅失败部分重试
      * <p>
-     * TODO: 实现失败部分重试逻辑
+     * 只重试未完全成功的表（失败、部分成功、或中途中断的表）
      */
     private ImportRetryResult retryFailedTables(ImportTaskDO task) {
         log.info("执行失败部分重试: taskId={}", task.getId());
+        List<ImportTaskDetailDO> details = selectTaskDetails(task.getId()).stream()
+                .filter(detail -> !DetailStatusEnum.SUCCESS.getStatus().equals(detail.getStatus()))
+                .collect(Collectors.toList());
+        return startRetry(task, RetryTypeEnum.FAILED, details);
+    }
+
+    /**
+     * 指定表类型重试
+     */
+    private ImportRetryResult retrySpecificTable(ImportTaskDO task, String fileType) {
+        log.info("执行指定类型重试: taskId={}, fileType={}", task.getId(), fileType);
+        TableTypeEnum tableType = Arrays.stream(TableTypeEnum.values())
+                .filter(type -> type.name().equals(fileType))
+                .findFirst()
+                .orElseThrow(() -> exception(IMPORT_TABLE_NOT_FOUND, fileType));
+        List<ImportTaskDetailDO> details = selectTaskDetails(task.getId()).stream()
+                .filter(detail -> tableType.getType().equals(detail.getTableType()))
+                .collect(Collectors.toList());
+        return startRetry(task, RetryTypeEnum.FILE_TYPE, details);
+    }
 
-        // TODO: 实现重试逻辑
+    /**
+     * 重新提交尚未开始执行的待处理任务
+     */
+    private ImportRetryResult resubmitPendingTask(ImportTaskDO task) {
+        log.info("待处理任务已无节点负责，重新提交: taskId={}", task.getId());
+        submitCompleteImportProcess(task, task.getFilePath());
         return ImportRetryResult.builder()
                 .taskId(task.getId())
                 .taskNo(task.getTaskNo())
                 .success(true)
-                .message("失败部分重试已启动")
-                .retryType("FAILED")
-                .retryScope(List.of())
+                .message("任务尚未开始执行，已重新提交到导入队列")
+                .retryType(RetryTypeEnum.ALL.getCode())
+                .retryScope(IMPORT_ORDER.stream().map(TableTypeEnum::name).collect(Collectors.toList()))
                 .retryStartTime(LocalDateTime.now())
-                .retryBatchNo("RETRY_FAILED_" + System.currentTimeMillis())
                 .build();
     }
 
+    private void submitCompleteImportProcess(ImportTaskDO task, String filePath) {
+        importTaskScheduler.submit(task.getId(), () -> {
+            try {
+                executeCompleteImportProcess(task, filePath);
+            } catch (Exception e) {
+                log.error("导入任务异步执行失败: taskId={}, taskNo={}", task.getId(), task.getTaskNo(), e);
+                handleTaskError(task.getId(), "导入过程异常: " + e.getMessage());
+            }
+        });
+    }
+
+    private List<ImportTaskDetailDO> selectTaskDetails(Long taskId) {
+        return taskDetailMapper.selectList(new LambdaQueryWrapper<ImportTaskDetailDO>()
+                .eq(ImportTaskDetailDO::getTaskId, taskId));
+    }
+
     /**
-     * 指定表类型重试
+     * 启动重试
      * <p>
-     * TODO: 实现指定表重试逻辑
+     * 校验并累加重试次数后，在后台重新解压原始压缩包，只处理需要重试的表。
+     * 每张表通过明细上记录的断点跳过已提交的行，因此节点重启后重试同样只导入剩余部分
      */
-    private ImportRetryResult retrySpecificTable(ImportTaskDO task, String fileType) {
-        log.info("执行指定类型重试: taskId={}, fileType={}", task.getId(), fileType);
+    private ImportRetryResult startRetry(ImportTaskDO task, RetryTypeEnum retryType, List<ImportTaskDetailDO> details) {
+        if (details.isEmpty()) {
+            throw exception(IMPORT_RETRY_NOT_SUPPORTED);
+        }
+        for (ImportTaskDetailDO detail : details) {
+            int retryCount = ObjectUtil.defaultIfNull(detail.getRetryCount(), 0);
+            if (retryCount >= ObjectUtil.defaultIfNull(detail.getMaxRetryCount(), 3)) {
+                throw exception(TASK_RETRY_LIMIT_EXCEEDED);
+            }
+        }
+
+        Set<TableTypeEnum> retryTables = EnumSet.noneOf(TableTypeEnum.class);
+        for (ImportTaskDetailDO detail : details) {
+            retryTables.add(TableTypeEnum.getByType(detail.getTableType()));
+            taskDetailMapper.updateById(ImportTaskDetailDO.builder()
+                    .id(detail.getId())
+                    .status(DetailStatusEnum.PENDING.getStatus())
+                    .retryCount(ObjectUtil.defaultIfNull(detail.getRetryCount(), 0) + 1)
+                    .build());
+        }
+        updateTaskStatus(task.getId(), TaskStatusEnum.PENDING);
+
+        String retryBatchNo = "RETRY_" + retryType.getCode() + "_" + System.currentTimeMillis();
+        importTaskScheduler.submit(task.getId(), () -> executeRetryImportProcess(task, retryTables));
 
-        // TODO: 实现重试逻辑
         return ImportRetryResult.builder()
                 .taskId(task.getId())
                 .taskNo(task.getTaskNo())
                 .success(true)
-                .message("指定类型重试已启动")
-                .retryType("FILE_TYPE")
-                .retryScope(List.of(fileType))
+                .message(String.format("%s已启动，共%d个表，将从断点继续导入", retryType.getDisplayName(), retryTables.size()))
+                .retryType(retryType.getCode())
+                .retryScope(retryTables.stream().map(TableTypeEnum::name).collect(Collectors.toList()))
                 .retryStartTime(LocalDateTime.now())
-                .retryBatchNo("RETRY_" + fileType + "_" + System.currentTimeMillis())
+                .retryBatchNo(retryBatchNo)
                 .build();
     }
 
+    /**
+     * 执行重试流程
+     * <p>
+     * 与首次导入相同的四个阶段，区别是只处理指定的表，且最终统计从全部明细重新汇总
+     */
+    private void executeRetryImportProcess(ImportTaskDO task, Set<TableTypeEnum> retryTables) {
+        Long taskId = task.getId();
+        ImportCancellationRegistry.CancellationToken token = cancellationRegistry.register(taskId);
+        progressPublisher.open(taskId);
+        try {
+            token.throwIfCancelled();
+            log.info("开始执行重试流程: taskId={}, tables={}", taskId, retryTables);
+            updateTaskStatus(taskId, TaskStatusEnum.EXTRACTING);
+            updateTaskProgress(taskId, 10, "正在重新解压文件...", "EXTRACTING");
+
+            FileExtractResult extractResult = fileExtractService.extractAndValidateFromPath(taskId, task.getFilePath());
+            if (!extractResult.getSuccess()) {
+                throw exception(ZIP_EXTRACT_FAILED, extractResult.getErrorMessage());
+            }
+            Map<TableTypeEnum, FileInfo> fileInfos = new EnumMap<>(TableTypeEnum.class);
+            extractResult.getFileInfos().forEach((tableType, fileInfo) -> {
+                if (retryTables.contains(tableType)) {
+                    fileInfos.put(tableType, fileInfo);
+                }
+            });
+
+            updateTaskStatus(taskId, TaskStatusEnum.IMPORTING);
+            ImportLoadModeEnum loadMode = ObjectUtil.defaultIfNull(
+                    ImportLoadModeEnum.getByCode(task.getLoadMode()), ImportLoadModeEnum.INSERT);
+            ImportProcessResult importResult = processAllTablesInOrder(taskId, fileInfos, loadMode);
+
+            token.throwIfCancelled();
+            updateTaskStatus(taskId, TaskStatusEnum.QC_CHECKING);
+            updateTaskProgress(taskId, 80, "正在执行质量控制检查...", "QC_CHECKING");
+            QualityControlResult qcResult = qualityControlService.executeOverallQualityControl(taskId);
+
+            // 未参与本次重试的表也可能不是成功状态，最终状态以全部明细为准
+            boolean hasError = importResult.hasError() || selectTaskDetails(taskId).stream()
+                    .anyMatch(detail -> !DetailStatusEnum.SUCCESS.getStatus().equals(detail.getStatus()));
+            TaskStatusEnum finalStatus = determineFinalStatus(hasError, qcResult);
+            updateMainTaskStatistics(taskId);
+            taskMapper.updateById(ImportTaskDO.builder()
+                    .id(taskId)
+                    .status(finalStatus.getStatus())
+                    .endTime(LocalDateTime.now())
+                    .progressPercent(100)
+                    .build());
+            taskDetailSnapshotCache.invalidate(taskId);
+            updateTaskProgress(taskId, 100, "重试处理完成", finalStatus.name());
+            log.info("重试流程完成: taskId={}, 最终状态={}", taskId, finalStatus.getDescription());
+        } catch (Exception e) {
+            if (token.isCancelled()) {
+                handleTaskCancelled(taskId, token);
+            } else {
+                log.error("重试流程执行异常: taskId={}", taskId, e);
+                handleTaskError(taskId, "重试过程异常: " + e.getMessage());
+            }
+        } finally {
+            token.close();
+            qualityControlService.releaseTaskResources(taskId);
+            progressPublisher.complete(taskId);
+        }
+    }
+
     /**
      * 构建成功的验证结果
      */
@@ -2273,41 +3071,43 @@ public class DrugBatchImportServiceImpl implements DrugBatchImportService {
 
     /**
      * 导入处理结果的内部数据结构
+     * <p>
+     * 同一优先级的表在不同线程中并行处理并写入这里，所以所有方法都需要同步
      */
     private static class ImportProcessResult {
         private int totalSuccess = 0;
         private int totalFailed = 0;
         private boolean hasError = false;
-        private Map<TableTypeEnum, String> errors = new HashMap<>();
+        private final Map<TableTypeEnum, String> errors = new EnumMap<>(TableTypeEnum.class);
 
-        public void addTableResult(ImportResult result) {
+        public synchronized void addTableResult(ImportResult result) {
             this.totalSuccess += result.getSuccessCount();
             this.totalFailed += result.getFailedCount();
-            if (result.getHasError()) {
+            if (Boolean.TRUE.equals(result.getHasError())) {
                 this.hasError = true;
             }
         }
 
-        public void addError(TableTypeEnum tableType, String errorMessage) {
+        public synchronized void addError(TableTypeEnum tableType, String errorMessage) {
             this.hasError = true;
             this.errors.put(tableType, errorMessage);
         }
 
         // Getters
-        public int getTotalSuccess() {
+        public synchronized int getTotalSuccess() {
             return totalSuccess;
         }
 
-        public int getTotalFailed() {
+        public synchronized int getTotalFailed() {
             return totalFailed;
         }
 
-        public boolean hasError() {
+        public synchronized boolean hasError() {
             return hasError;
         }
 
-        public Map<TableTypeEnum, String> getErrors() {
-            return errors;
+        public synchronized Map<TableTypeEnum, String> getErrors() {
+            return new EnumMap<>(errors);
         }
     }
 }
\ No newline at end of file
@@ -2,98 +2,169 @@
 package cn.iocoder.yudao.module.drug.service.batch;
 
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.DrugTableWriteMapper;
+import cn.iocoder.yudao.module.drug.enums.ImportLoadModeEnum;
 import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import cn.iocoder.yudao.module.drug.service.batch.writer.LoadDataInfileWriter;
+import cn.iocoder.yudao.module.drug.service.batch.writer.MultiRowInsertWriter;
+import cn.iocoder.yudao.module.drug.service.batch.writer.TableBatchWriter;
+import cn.iocoder.yudao.module.drug.service.batch.writer.TableWriteResult;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * 药品数据导入服务
- * 设计理念：专注于数据持久化，支持事务管理和批量处理优化
+ * 设计理念：专注于数据持久化，按批次多行写入，失败时精确到行
  */
 @Service
 @Slf4j
 public class DrugDataImportService {
 
+    @Resource
+    private MultiRowInsertWriter multiRowInsertWriter;
+    @Resource
+    private LoadDataInfileWriter loadDataInfileWriter;
+    @Resource
+    private DrugTableWriteMapper tableWriteMapper;
+    @Resource
+    private DrugImportProperties importProperties;
+
     /**
-     * 批量导入数据
-     * 使用事务管理确保数据一致性，支持大批量数据的分批处理
+     * 删除一个导入批次已写入的数据
+     * <p>
+     * 按 {@link DrugImportProperties.Cancel#getPurgeBatchSize()} 分多次删除，每条 DELETE 单独提交，避免长事务和大量锁
+     *
+     * @return 删除的行数
      */
-    @Transactional(rollbackFor = Exception.class)
-    public ImportResult importBatch(Long taskId, TableTypeEnum tableType, List<?> dataList) {
-        LocalDateTime startTime = LocalDateTime.now();
-        String batchNo = generateBatchNo(taskId, tableType);
-
-        try {
-            log.info("开始批量导入数据: taskId={}, tableType={}, count={}",
-                    taskId, tableType, dataList.size());
+    public long purgeImportBatch(Long taskId, TableTypeEnum tableType, String importBatchNo) {
+        int batchSize = importProperties.getCancel().getPurgeBatchSize();
+        long purgedRows = 0;
+        int deleted;
+        do {
+            deleted = tableWriteMapper.deleteByImportBatchNo(tableType.getTableName(), taskId, importBatchNo, batchSize);
+            purgedRows += deleted;
+        } while (deleted >= batchSize);
+        log.info("已清理导入批次数据: taskId={}, tableType={}, importBatchNo={}, 行数={}",
+                taskId, tableType, importBatchNo, purgedRows);
+        return purgedRows;
+    }
 
-            // 获取对应的导入策略
-            ImportStrategy strategy = getImportStrategy(tableType);
+    /**
+     * 删除导入批次中断点之后的行
+     * <p>
+     * 多个分块并行写入时，断点之后的分块可能已经先于断点提交；续传前删除这些行，避免重复写入
+     *
+     * @param checkpointRowIndex 断点的 Excel 行号，行号大于它的行被删除
+     * @return 删除的行数
+     */
+    public long purgeImportBatchAfterRow(Long taskId, TableTypeEnum tableType, String importBatchNo,
+                                         int checkpointRowIndex) {
+        int batchSize = importProperties.getCancel().getPurgeBatchSize();
+        long purgedRows = 0;
+        int deleted;
+        do {
+            deleted = tableWriteMapper.deleteByImportBatchNoAfterRow(tableType.getTableName(), taskId, importBatchNo,
+                    checkpointRowIndex, batchSize);
+            purgedRows += deleted;
+        } while (deleted >= batchSize);
+        if (purgedRows > 0) {
+            log.info("已清理断点之后的数据: taskId={}, tableType={}, importBatchNo={}, 断点行号={}, 行数={}",
+                    taskId, tableType, importBatchNo, checkpointRowIndex, purgedRows);
+        }
+        return purgedRows;
+    }
 
-            // 执行批量导入
-            ImportResult.ImportResultBuilder resultBuilder = ImportResult.builder()
-                    .tableType(tableType.name())
-                    .importBatchNo(batchNo)
-                    .startTime(startTime)
-                    .totalCount(dataList.size());
+    /**
+     * 批量导入数据
+     * 兼容整表解析模式：先把解析结果转换为 {@link ImportRow}，再按批写入
+     */
+    public ImportResult importBatch(Long taskId, TableTypeEnum tableType, List<?> dataList) {
+        return importBatch(taskId, tableType, generateBatchNo(taskId, tableType),
+                toImportRows(tableType, dataList), ImportLoadModeEnum.INSERT);
+    }
 
-            int successCount = 0;
-            int failedCount = 0;
-            List<ImportResult.ImportError> errors = new ArrayList<>();
+    /**
+     * 将整表解析模式产出的数据转换为 {@link ImportRow}，行号按列表下标从 1 开始
+     */
+    public List<ImportRow> toImportRows(TableTypeEnum tableType, List<?> dataList) {
+        TableSchema schema = TableSchema.of(tableType);
+        List<ImportRow> rows = new ArrayList<>(dataList.size());
+        for (int i = 0; i < dataList.size(); i++) {
+            rows.add(toImportRow(schema, dataList.get(i), i + 1));
+        }
+        return rows;
+    }
 
-            for (int i = 0; i < dataList.size(); i++) {
-                try {
-                    Object data = dataList.get(i);
-                    strategy.importSingle(taskId, data);
-                    successCount++;
-                } catch (Exception e) {
-                    failedCount++;
-                    errors.add(ImportResult.ImportError.builder()
-                            .batchIndex(i)
-                            .errorType("IMPORT_ERROR")
-                            .errorMessage(e.getMessage())
-                            .errorDetail(e.toString())
-                            .build());
-                    log.warn("单条数据导入失败: taskId={}, tableType={}, index={}",
-                            taskId, tableType, i, e);
-                }
+    /**
+     * 批量导入数据
+     * INSERT 模式下一个批次只产生一条多行 INSERT，失败时由写入器二分定位坏行；
+     * LOAD_DATA 模式下整批通过 LOAD DATA LOCAL INFILE 装载，不可用或装载产生警告时退回 INSERT。
+     * 其余行正常落库，失败行以 {@link ImportResult.ImportError} 的形式返回。
+     * 与数据无关的写入异常（连接中断、锁超时等）直接抛出，由调用方按整块失败处理
+     */
+    public ImportResult importBatch(Long taskId, TableTypeEnum tableType, String importBatchNo,
+                                    List<ImportRow> rows, ImportLoadModeEnum loadMode) {
+        LocalDateTime startTime = LocalDateTime.now();
+        log.debug("开始批量导入数据: taskId={}, tableType={}, count={}", taskId, tableType, rows.size());
+
+        List<ImportResult.ImportError> errors = new ArrayList<>();
+        // 解析阶段就已失败的行不再写库
+        List<ImportRow> writableRows = new ArrayList<>(rows.size());
+        List<Integer> writableIndexes = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            if (row.hasParseError()) {
+                errors.add(ImportResult.ImportError.builder()
+                        .batchIndex(i)
+                        .rowIndex(row.getRowIndex())
+                        .errorType("VALIDATION_ERROR")
+                        .errorMessage(row.getParseError())
+                        .build());
+                continue;
             }
+            writableRows.add(row);
+            writableIndexes.add(i);
+        }
 
-            LocalDateTime endTime = LocalDateTime.now();
-
-            return resultBuilder
-                    .success(failedCount == 0)
-                    .hasError(failedCount > 0)
-                    .message(String.format("导入完成：成功%d条，失败%d条", successCount, failedCount))
-                    .successCount(successCount)
-                    .failedCount(failedCount)
-                    .endTime(endTime)
-                    .processingTimeMs(java.time.Duration.between(startTime, endTime).toMillis())
-                    .importErrors(errors)
-                    .build();
-
-        } catch (Exception e) {
-            log.error("批量导入异常: taskId={}, tableType={}", taskId, tableType, e);
-            return ImportResult.builder()
-                    .success(false)
-                    .hasError(true)
-                    .message("批量导入失败: " + e.getMessage())
-                    .tableType(tableType.name())
-                    .importBatchNo(batchNo)
-                    .startTime(startTime)
-                    .endTime(LocalDateTime.now())
-                    .totalCount(dataList.size())
-                    .successCount(0)
-                    .failedCount(dataList.size())
-                    .importErrors(new ArrayList<>())
-                    .build();
+        TableBatchWriter writer = loadMode == ImportLoadModeEnum.LOAD_DATA ? loadDataInfileWriter : multiRowInsertWriter;
+        TableWriteResult writeResult = writer.write(taskId, tableType, importBatchNo, writableRows);
+        int writtenCount = writeResult.getWrittenCount();
+        for (ImportResult.ImportError error : writeResult.getErrors()) {
+            // 写入器返回的是 writableRows 中的下标，换算回调用方批次中的下标
+            if (error.getBatchIndex() != null) {
+                error.setBatchIndex(writableIndexes.get(error.getBatchIndex()));
+            }
+            errors.add(error);
         }
+
+        int successCount = writtenCount;
+        int failedCount = rows.size() - successCount;
+        LocalDateTime endTime = LocalDateTime.now();
+        return ImportResult.builder()
+                .success(failedCount == 0)
+                .hasError(failedCount > 0)
+                .message(String.format("导入完成：成功%d条，失败%d条", successCount, failedCount))
+                .tableType(tableType.name())
+                .importBatchNo(importBatchNo)
+                .startTime(startTime)
+                .endTime(endTime)
+                .totalCount(rows.size())
+                .successCount(successCount)
+                .failedCount(failedCount)
+                .processingTimeMs(Duration.between(startTime, endTime).toMillis())
+                .importErrors(errors)
+                .build();
     }
 
     private String generateBatchNo(Long taskId, TableTypeEnum tableType) {
@@ -101,52 +172,43 @@ public class DrugDataImportService {
                 taskId, tableType.name(), UUID.randomUUID().toString().substring(0, 8));
     }
 
-    private ImportStrategy getImportStrategy(TableTypeEnum tableType) {
-        // 工厂模式获取对应的导入策略
-        return switch (tableType) {
-            case HOSPITAL_INFO -> new HospitalInfoImportStrategy();
-            case DRUG_CATALOG -> new DrugCatalogImportStrategy();
-            case DRUG_INBOUND -> new DrugInboundImportStrategy();
-            case DRUG_OUTBOUND -> new DrugOutboundImportStrategy();
-            case DRUG_USAGE -> new DrugUsageImportStrategy();
-        };
-    }
-
-    // 导入策略接口
-    private interface ImportStrategy {
-        void importSingle(Long taskId, Object data);
-    }
-
-    // 具体导入策略实现（示例）
-    private static class HospitalInfoImportStrategy implements ImportStrategy {
-        @Override
-        public void importSingle(Long taskId, Object data) {
-            // 实际导入逻辑，调用对应的Mapper
-        }
-    }
-
-    // 其他策略类似实现...
-    private static class DrugCatalogImportStrategy implements ImportStrategy {
-        @Override
-        public void importSingle(Long taskId, Object data) {
+    /**
+     * 将整表解析模式产出的数据转换为 {@link ImportRow}
+     * <p>
+     * 支持 ImportRow 本身，以及以字段名或 Excel 表头为 key 的 Map
+     */
+    private static ImportRow toImportRow(TableSchema schema, Object data, int rowIndex) {
+        if (data instanceof ImportRow) {
+            return (ImportRow) data;
         }
-    }
-
-    private static class DrugInboundImportStrategy implements ImportStrategy {
-        @Override
-        public void importSingle(Long taskId, Object data) {
+        if (!(data instanceof Map<?, ?> map)) {
+            return new ImportRow(rowIndex, new Object[schema.size()],
+                    "不支持的数据类型: " + (data == null ? "null" : data.getClass().getSimpleName()));
         }
-    }
-
-    private static class DrugOutboundImportStrategy implements ImportStrategy {
-        @Override
-        public void importSingle(Long taskId, Object data) {
+        Object[] values = new Object[schema.size()];
+        String parseError = null;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            int index = schema.indexOfColumn(key);
+            if (index < 0) {
+                index = schema.indexOfHeader(key);
+            }
+            if (index < 0) {
+                continue;
+            }
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                try {
+                    value = schema.getColumn(index).getType().convert((String) value);
+                } catch (IllegalArgumentException e) {
+                    if (parseError == null) {
+                        parseError = schema.getColumn(index).getHeader() + ": " + e.getMessage();
+                    }
+                }
+            }
+            values[index] = value;
         }
+        return new ImportRow(rowIndex, values, parseError);
     }
 
-    private static class DrugUsageImportStrategy implements ImportStrategy {
-        @Override
-        public void importSingle(Long taskId, Object data) {
-        }
-    }
 }
\ No newline at end of file
@@ -1,13 +1,24 @@
 // ==================== 数据解析服务 ====================
 package cn.iocoder.yudao.module.drug.service.batch;
 
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ParseResult;
 import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.RowStreamReadListener;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import com.alibaba.excel.EasyExcel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 药品数据解析服务
@@ -57,6 +68,36 @@ public class DrugDataParseService {
         }
     }
 
+    /**
+     * 流式解析Excel文件
+     * 每读到一行就转换为 {@link ImportRow} 交给 sink，不在内存中保留整表数据。
+     * sink 可以阻塞以实现背压，也可以抛出 ExcelAnalysisStopException 提前结束读取
+     *
+     * @return 读取到的数据行数
+     */
+    public long streamExcelFile(FileInfo fileInfo, TableTypeEnum tableType, Consumer<ImportRow> sink) {
+        log.info("开始流式解析Excel文件: tableType={}, fileName={}", tableType, fileInfo.getFileName());
+        RowStreamReadListener listener = new RowStreamReadListener(TableSchema.of(tableType), sink);
+        // 与文件校验阶段保持一致：前两行是标题和说明，第3行是表头
+        if (!StringUtils.hasText(fileInfo.getEntryName())) {
+            EasyExcel.read(new File(fileInfo.getFilePath()), listener)
+                    .sheet(0)
+                    .headRowNumber(3)
+                    .doRead();
+            return listener.getRowCount();
+        }
+        // 未解压到工作目录的文件，直接从压缩包中读取对应条目
+        try (InputStream in = ArchiveEntryStreams.open(fileInfo)) {
+            EasyExcel.read(in, listener)
+                    .sheet(0)
+                    .headRowNumber(3)
+                    .doRead();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return listener.getRowCount();
+    }
+
     private ParseStrategy getParseStrategy(TableTypeEnum tableType) {
         // 工厂模式获取对应的解析策略
         switch (tableType) {
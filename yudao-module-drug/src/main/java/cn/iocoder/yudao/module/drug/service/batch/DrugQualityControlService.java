@@ -2,105 +2,305 @@
 package cn.iocoder.yudao.module.drug.service.batch;
 
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.QualityControlResult;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDetailDO;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskDetailMapper;
 import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnSource;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnarTable;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.SpilledColumnSource;
+import cn.iocoder.yudao.module.drug.service.batch.qc.CatalogIndex;
+import cn.iocoder.yudao.module.drug.service.batch.qc.CatalogIndexRegistry;
+import cn.iocoder.yudao.module.drug.service.batch.qc.CompiledQcRule;
+import cn.iocoder.yudao.module.drug.service.batch.qc.QcRuleEvaluator;
+import cn.iocoder.yudao.module.drug.service.batch.qc.QcRuleSetCache;
+import cn.iocoder.yudao.module.drug.service.batch.scheduler.ImportCancellationRegistry;
+import cn.iocoder.yudao.module.drug.service.batch.spill.SpillStoreManager;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Random;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 药品质控服务
  * 设计理念：专注于质控规则执行和结果分析，支持规则引擎和质量评估
+ * <p>
+ * 表级质控分两步：导入前通过 {@link #prepareTableQualityControl(Long, TableTypeEnum)} 取得已编译规则的快照，
+ * 导入流中逐行执行全部规则（一遍扫描）；导入结束后由 {@link #executeTableQualityControl} 汇总各规则的计数
+ * <p>
+ * 入库、出库、使用表在同一遍扫描中校验引用的药品在本任务的药品目录中存在，
+ * 目录索引在药品目录导入时构建，见 {@link CatalogIndexRegistry}
+ * <p>
+ * 可以入库的行同时暂存为列式结构，导入结束后在其上执行表级聚合规则，并生成各列的统计概况和按医疗机构的汇总；
+ * 暂存超过内存阈值后溢写到任务工作目录，见 {@link SpillStoreManager}
  */
 @Service
 @Slf4j
 public class DrugQualityControlService {
 
+    /**
+     * 整体质控的通过分数线
+     */
+    private static final double OVERALL_PASS_SCORE = 80;
+    /**
+     * 引用校验在质控报告中的规则编码
+     */
+    private static final String REFERENCE_RULE_CODE = "REF_CATALOG";
+    /**
+     * 按医疗机构汇总时的分组字段
+     */
+    private static final String HOSPITAL_COLUMN = "hospital_code";
+
+    @Resource
+    private ImportCancellationRegistry cancellationRegistry;
+    @Resource
+    private QcRuleSetCache qcRuleSetCache;
+    @Resource
+    private CatalogIndexRegistry catalogIndexRegistry;
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private ImportTaskDetailMapper taskDetailMapper;
+    @Resource
+    private SpillStoreManager spillStoreManager;
+
+    /**
+     * 准备表级质控：取适用于该表的最新规则，返回在导入流中逐行调用的执行器
+     * <p>
+     * 执行器持有当时的规则集，导入过程中规则被修改不影响本次结果，报告中记录所用的规则版本
+     */
+    public QcRuleEvaluator prepareTableQualityControl(Long taskId, TableTypeEnum tableType) {
+        QcRuleEvaluator evaluator = qcRuleSetCache.get(tableType).newEvaluator();
+        DrugImportProperties.Columnar columnar = importProperties.getColumnar();
+        if (Boolean.TRUE.equals(columnar.getEnabled())) {
+            evaluator.stageColumns(columnar.getMaxRows(), columnar.getMaxMemory().toBytes(),
+                    spillStoreManager.isEnabled() ? () -> spillStoreManager.create(taskId, tableType) : null);
+        }
+        if (!catalogIndexRegistry.isEnabled()) {
+            return evaluator;
+        }
+        if (tableType == TableTypeEnum.DRUG_CATALOG) {
+            evaluator.collectCatalog(new CatalogIndex.Builder());
+        } else if (CatalogIndexRegistry.REFERENCING_TABLES.contains(tableType)) {
+            CatalogIndex catalogIndex = catalogIndexRegistry.get(taskId);
+            if (catalogIndex != null) {
+                evaluator.checkReferences(catalogIndex);
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * 发布药品目录导入时收集的目录索引，其他表的执行器不做任何处理
+     *
+     * @param importedRows 药品目录实际入库的行数
+     */
+    public void publishCatalogIndex(Long taskId, QcRuleEvaluator evaluator, Integer importedRows) {
+        if (evaluator.getCatalogBuilder() != null) {
+            catalogIndexRegistry.publish(taskId, evaluator.getCatalogBuilder(), importedRows);
+        }
+    }
+
+    /**
+     * 释放表级质控持有的暂存数据和溢写文件，表导入结束时调用（无论成功与否）
+     */
+    public void releaseTableQualityControl(QcRuleEvaluator evaluator) {
+        evaluator.releaseStaging();
+    }
+
+    /**
+     * 任务结束时释放本任务的目录索引和遗留的溢写文件
+     */
+    public void releaseTaskResources(Long taskId) {
+        catalogIndexRegistry.remove(taskId);
+        spillStoreManager.release(taskId);
+    }
+
     /**
      * 执行表级质控检查
-     * 根据表类型执行对应的质控规则，生成详细的质控报告
+     * 汇总导入流中逐行执行的规则计数，生成详细的质控报告
+     * <p>
+     * 从断点续传时，只统计本次执行中经过质控的行
      */
-    public QualityControlResult executeTableQualityControl(Long taskId, TableTypeEnum tableType) {
+    public QualityControlResult executeTableQualityControl(Long taskId, TableTypeEnum tableType,
+                                                           QcRuleEvaluator evaluator) {
+        // 取消检查放在汇总之前，已取消的任务不再生成报告
+        cancellationRegistry.throwIfCancelled(taskId);
         LocalDateTime startTime = LocalDateTime.now();
+        log.info("开始执行表级质控: taskId={}, tableType={}", taskId, tableType);
 
-        try {
-            log.info("开始执行表级质控: taskId={}, tableType={}", taskId, tableType);
-
-            // 模拟质控检查逻辑
-            Random random = new Random();
-            int totalRules = 5 + random.nextInt(10);
-            int passedRules = totalRules - random.nextInt(3);
-            int failedRules = totalRules - passedRules;
+        long totalRecords = evaluator.getTotalRecords();
+        List<QualityControlResult.QualityControlDetail> ruleResults = new ArrayList<>(evaluator.getRuleCount());
+        int passedRules = 0;
+        boolean errorRuleFailed = false;
+        for (int i = 0; i < evaluator.getRuleCount(); i++) {
+            CompiledQcRule rule = evaluator.getRule(i);
+            long failed = evaluator.getFailedCount(i);
+            long errors = evaluator.getErrorCount(i);
+            double failRate = totalRecords > 0 ? (double) failed / totalRecords : 0;
+            boolean passed = failed == 0 || failRate <= rule.getMaxFailRate();
+            if (passed) {
+                passedRules++;
+            } else if (rule.isError()) {
+                errorRuleFailed = true;
+            }
+            String resultMessage = failed == 0 ? "检查通过"
+                    : String.format("不通过%d条，占比%.2f%%", failed, failRate * 100);
+            if (errors > 0) {
+                resultMessage += String.format("，表达式执行异常%d条", errors);
+            }
+            ruleResults.add(QualityControlResult.QualityControlDetail.builder()
+                    .ruleCode(rule.getRuleCode())
+                    .ruleName(rule.getRuleName())
+                    .ruleType(rule.getRuleType() != null && rule.getRuleType() == CompiledQcRule.RULE_TYPE_PRE
+                            ? "PRE" : "POST")
+                    .passed(passed)
+                    .affectedRecords((int) Math.min(failed, Integer.MAX_VALUE))
+                    .resultMessage(resultMessage)
+                    .suggestion(passed ? "" : rule.getDescription() != null ? rule.getDescription() : rule.getErrorMessage())
+                    .build());
+        }
 
-            long totalRecords = 1000 + random.nextInt(9000);
-            long failedCount = random.nextInt((int) (totalRecords * 0.1));
-            long passedCount = totalRecords - failedCount;
-            long warningCount = random.nextInt((int) (totalRecords * 0.05));
+        int totalRules = evaluator.getRuleCount();
+        if (evaluator.isReferenceChecked()) {
+            long failed = evaluator.getReferenceFailedRecords();
+            boolean passed = failed == 0;
+            totalRules++;
+            if (passed) {
+                passedRules++;
+            } else {
+                errorRuleFailed = true;
+            }
+            ruleResults.add(QualityControlResult.QualityControlDetail.builder()
+                    .ruleCode(REFERENCE_RULE_CODE)
+                    .ruleName("药品目录引用校验")
+                    .ruleType("PRE")
+                    .passed(passed)
+                    .affectedRecords((int) Math.min(failed, Integer.MAX_VALUE))
+                    .resultMessage(passed ? "检查通过" : String.format("%d条引用的药品在药品目录中不存在，未入库", failed))
+                    .suggestion(passed ? "" : "请核对院内药品唯一码、国家药品编码，或先在药品目录中补充对应药品")
+                    .build());
+        }
 
-            // 计算质量得分
-            double score = ((double) passedCount / totalRecords) * 100;
-            String grade = calculateGrade(score);
+        for (int i = 0; i < evaluator.getAggregateRuleCount(); i++) {
+            CompiledQcRule rule = evaluator.getAggregateRule(i);
+            totalRules++;
+            boolean passed;
+            String resultMessage;
+            try {
+                passed = evaluator.evaluateAggregate(i);
+                resultMessage = passed ? "检查通过" : rule.getErrorMessage() != null ? rule.getErrorMessage() : "检查不通过";
+            } catch (RuntimeException e) {
+                // 无法执行的聚合规则不影响导入结果，只在报告中说明
+                log.warn("聚合规则执行异常: taskId={}, ruleCode={}, error={}", taskId, rule.getRuleCode(), e.getMessage());
+                passed = true;
+                resultMessage = "未执行: " + e.getMessage();
+            }
+            if (passed) {
+                passedRules++;
+            } else if (rule.isError()) {
+                errorRuleFailed = true;
+            }
+            ruleResults.add(QualityControlResult.QualityControlDetail.builder()
+                    .ruleCode(rule.getRuleCode())
+                    .ruleName(rule.getRuleName())
+                    .ruleType("AGGREGATE")
+                    .passed(passed)
+                    .affectedRecords(0)
+                    .resultMessage(resultMessage)
+                    .suggestion(passed ? "" : rule.getDescription() != null ? rule.getDescription() : rule.getErrorMessage())
+                    .build());
+        }
 
-            LocalDateTime endTime = LocalDateTime.now();
+        long failedCount = evaluator.getFailedRecords();
+        long passedCount = totalRecords - failedCount;
+        double score = totalRecords > 0 ? (double) passedCount / totalRecords * 100 : 100;
+        Map<String, Object> statisticSummary = new HashMap<>();
+        statisticSummary.put("rejectedRecords", evaluator.getRejectedRecords());
+        statisticSummary.put("skippedRules", evaluator.getRuleSet().getSkippedRules());
+        statisticSummary.put("ruleVersion", evaluator.getRuleSet().getVersion());
+        putColumnarStatistics(statisticSummary, evaluator);
 
-            return QualityControlResult.builder()
-                    .success(failedRules == 0)
-                    .overallGrade(grade)
-                    .overallScore(score)
-                    .qcType("TABLE")
-                    .scope(tableType.name())
-                    .totalRules(totalRules)
-                    .passedRules(passedRules)
-                    .failedRules(failedRules)
-                    .totalRecords(totalRecords)
-                    .passedCount(passedCount)
-                    .failedCount(failedCount)
-                    .warningCount(warningCount)
-                    .startTime(startTime)
-                    .endTime(endTime)
-                    .ruleResults(generateMockRuleResults(totalRules, passedRules))
-                    .statisticSummary(new HashMap<>())
-                    .build();
+        log.info("表级质控完成: taskId={}, tableType={}, 规则数={}, 通过规则={}, 质控行数={}, 不通过行数={}",
+                taskId, tableType, totalRules, passedRules, totalRecords, failedCount);
+        return QualityControlResult.builder()
+                .success(!errorRuleFailed)
+                .overallGrade(calculateGrade(score))
+                .overallScore(score)
+                .qcType("TABLE")
+                .scope(tableType.name())
+                .totalRules(totalRules)
+                .passedRules(passedRules)
+                .failedRules(totalRules - passedRules)
+                .totalRecords(totalRecords)
+                .passedCount(passedCount)
+                .failedCount(failedCount)
+                .warningCount(evaluator.getWarningRecords())
+                .startTime(startTime)
+                .endTime(LocalDateTime.now())
+                .ruleResults(ruleResults)
+                .statisticSummary(statisticSummary)
+                .build();
+    }
 
-        } catch (Exception e) {
-            log.error("质控检查异常: taskId={}, tableType={}", taskId, tableType, e);
-            return QualityControlResult.builder()
-                    .success(false)
-                    .overallGrade("F")
-                    .overallScore(0.0)
-                    .qcType("TABLE")
-                    .scope(tableType.name())
-                    .startTime(startTime)
-                    .endTime(LocalDateTime.now())
-                    .ruleResults(new ArrayList<>())
-                    .statisticSummary(new HashMap<>())
-                    .build();
+    /**
+     * 列式暂存上的统计：各列概况、按医疗机构的行数和数值合计，完成后释放暂存
+     */
+    private void putColumnarStatistics(Map<String, Object> statisticSummary, QcRuleEvaluator evaluator) {
+        if (evaluator.isStagingTruncated()) {
+            statisticSummary.put("columnarTruncated", evaluator.getStagingTruncatedReason());
+        }
+        ColumnSource staging = evaluator.getStaging();
+        if (staging == null) {
+            return;
+        }
+        statisticSummary.put("columnProfiles", staging.profile());
+        if (staging.hasColumn(HOSPITAL_COLUMN)) {
+            statisticSummary.put("hospitalTotals", staging.totalsBy(HOSPITAL_COLUMN));
+        }
+        if (staging instanceof ColumnarTable table) {
+            statisticSummary.put("columnarBytes", table.estimatedBytes());
+        } else if (staging instanceof SpilledColumnSource spilled) {
+            statisticSummary.put("spilledBytes", spilled.getSpilledBytes());
         }
+        evaluator.releaseStaging();
     }
 
     /**
      * 执行整体质控检查
+     * 汇总各表的质控通过、不通过行数
      */
     public QualityControlResult executeOverallQualityControl(Long taskId) {
+        cancellationRegistry.throwIfCancelled(taskId);
         LocalDateTime startTime = LocalDateTime.now();
 
         try {
             log.info("开始执行整体质控: taskId={}", taskId);
 
-            // 模拟整体质控逻辑
-            Random random = new Random();
-            double overallScore = 70 + random.nextDouble() * 30; // 70-100分
+            long passedCount = 0;
+            long failedCount = 0;
+            for (ImportTaskDetailDO detail : taskDetailMapper.selectList(ImportTaskDetailDO::getTaskId, taskId)) {
+                passedCount += detail.getQcPassedRows() != null ? detail.getQcPassedRows() : 0;
+                failedCount += detail.getQcFailedRows() != null ? detail.getQcFailedRows() : 0;
+            }
+            long totalRecords = passedCount + failedCount;
+            double overallScore = totalRecords > 0 ? (double) passedCount / totalRecords * 100 : 100;
             String grade = calculateGrade(overallScore);
 
             return QualityControlResult.builder()
-                    .success(overallScore >= 80)
+                    .success(overallScore >= OVERALL_PASS_SCORE)
                     .overallGrade(grade)
                     .overallScore(overallScore)
                     .qcType("OVERALL")
                     .scope("ALL_TABLES")
+                    .totalRecords(totalRecords)
+                    .passedCount(passedCount)
+                    .failedCount(failedCount)
                     .startTime(startTime)
                     .endTime(LocalDateTime.now())
                     .ruleResults(new ArrayList<>())
@@ -134,23 +334,4 @@ public class DrugQualityControlService {
         return "F";
     }
 
-    private java.util.List<QualityControlResult.QualityControlDetail> generateMockRuleResults(
-            int totalRules, int passedRules) {
-        java.util.List<QualityControlResult.QualityControlDetail> results = new ArrayList<>();
-
-        for (int i = 1; i <= totalRules; i++) {
-            boolean passed = i <= passedRules;
-            results.add(QualityControlResult.QualityControlDetail.builder()
-                    .ruleCode("QC_RULE_" + String.format("%03d", i))
-                    .ruleName("质控规则" + i)
-                    .ruleType("DATA_VALIDATION")
-                    .passed(passed)
-                    .affectedRecords(passed ? 0 : new Random().nextInt(100))
-                    .resultMessage(passed ? "检查通过" : "发现数据异常")
-                    .suggestion(passed ? "" : "建议检查数据格式")
-                    .build());
-        }
-
-        return results;
-    }
-}
\ No newline at end of file
+}
@@ -3,35 +3,51 @@ package cn.iocoder.yudao.module.drug.service.batch;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileExtractResult;
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
 import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.dedup.DuplicateDetector;
+import cn.iocoder.yudao.module.drug.service.batch.dedup.RowFingerprint;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.event.AnalysisEventListener;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
+import jakarta.annotation.Resource;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.FILE_VALIDATE_BUSY;
+
 /**
  * 文件解压和验证服务
  * <p>
@@ -76,6 +92,19 @@ public class FileExtractService {
             TableTypeEnum.DRUG_OUTBOUND, 3,
             TableTypeEnum.DRUG_USAGE, 3
     );
+    /**
+     * 表头所在行（从0开始），之前的两行是标题和说明
+     */
+    private static final int METADATA_HEADER_ROW_INDEX = 2;
+    /**
+     * 每个文件保留的预览行数
+     */
+    private static final int PREVIEW_ROW_LIMIT = 5;
+    /**
+     * 文件排队期间等待结果的时间片，用于及时发现文件已开始校验
+     */
+    private static final long VALIDATION_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
     /**
      * 各表类型的必填字段定义
      * 这个配置将用于数据质量评估
@@ -107,6 +136,12 @@ public class FileExtractService {
             )
     );
 
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    @Qualifier("drugImportValidateExecutor")
+    private AsyncTaskExecutor validateExecutor;
+
     /**
      * 新的主要接口：基于文件路径的解压和验证
      * <p>
@@ -125,14 +160,25 @@ public class FileExtractService {
             // 第一步：验证文件路径和基本属性
             Path sourceFile = validateFilePath(filePath);
 
-            // 第二步：创建工作目录
-            Path workDir = createWorkDirectory(taskId);
+            Map<TableTypeEnum, FileInfo> fileInfoMap;
+            int totalFileCount;
+            if (isDirectReadable(sourceFile)) {
+                // 直接从压缩包读取：不创建工作目录，匹配的条目按表类型并行解析
+                try (ZipFile zipFile = ArchiveEntryStreams.openArchive(sourceFile)) {
+                    fileInfoMap = scanAndValidateArchiveEntriesWithPreview(sourceFile, zipFile);
+                    totalFileCount = (int) zipFile.stream().filter(entry -> !entry.isDirectory()).count();
+                }
+            } else {
+                // 第二步：创建工作目录
+                Path workDir = createWorkDirectory(taskId);
 
-            // 第三步：解压文件
-            Path extractDir = extractArchiveFile(sourceFile, workDir);
+                // 第三步：解压文件
+                Path extractDir = extractArchiveFile(sourceFile, workDir);
 
-            // 第四步：扫描和验证Excel文件
-            Map<TableTypeEnum, FileInfo> fileInfoMap = scanAndValidateExcelFilesWithPreview(extractDir);
+                // 第四步：扫描和验证Excel文件
+                fileInfoMap = scanAndValidateExcelFilesWithPreview(extractDir);
+                totalFileCount = countFilesInDirectory(extractDir);
+            }
 
             // 第五步：构建结果
             LocalDateTime endTime = LocalDateTime.now();
@@ -142,7 +188,7 @@ public class FileExtractService {
                     .success(true)
                     .fileInfos(fileInfoMap)
                     .extractDurationMs(durationMs)
-                    .totalFileCount(countFilesInDirectory(extractDir))
+                    .totalFileCount(totalFileCount)
                     .validFileCount(fileInfoMap.size())
                     .extractStartTime(startTime)
                     .extractEndTime(endTime)
@@ -238,23 +284,20 @@ public class FileExtractService {
      * 3. 内存使用更加可控
      */
     private void extractZipFileFromPath(Path zipFile, Path extractDir) throws IOException {
-        final long MAX_TOTAL_SIZE = 500 * 1024 * 1024L; // 500MB
-        final int MAX_FILE_COUNT = 100;
-
         long totalSize = 0;
         int fileCount = 0;
 
         // 关键改进：直接从文件系统读取，而不是从MultipartFile流
         try (ZipInputStream zipIn = new ZipInputStream(
                 new BufferedInputStream(Files.newInputStream(zipFile)),
-                Charset.forName("GBK"))) {
+                ArchiveEntryStreams.ENTRY_NAME_CHARSET)) {
 
             ZipEntry entry;
             while ((entry = zipIn.getNextEntry()) != null) {
                 fileCount++;
 
-                if (fileCount > MAX_FILE_COUNT) {
-                    throw new IOException("压缩文件包含过多文件，最多支持 " + MAX_FILE_COUNT + " 个文件");
+                if (fileCount > ArchiveEntryStreams.MAX_FILE_COUNT) {
+                    throw new IOException("压缩文件包含过多文件，最多支持 " + ArchiveEntryStreams.MAX_FILE_COUNT + " 个文件");
                 }
 
                 if (entry.isDirectory()) {
@@ -263,7 +306,7 @@ public class FileExtractService {
 
                 // 安全检查：防止路径遍历攻击
                 String entryName = entry.getName();
-                if (entryName.contains("..") || entryName.startsWith("/")) {
+                if (!ArchiveEntryStreams.isSafeEntryName(entryName)) {
                     log.warn("跳过可疑路径的文件: {}", entryName);
                     continue;
                 }
@@ -279,7 +322,7 @@ public class FileExtractService {
                     while ((bytesRead = zipIn.read(buffer)) != -1) {
                         totalSize += bytesRead;
 
-                        if (totalSize > MAX_TOTAL_SIZE) {
+                        if (totalSize > ArchiveEntryStreams.MAX_TOTAL_SIZE) {
                             throw new IOException("解压后文件总大小超过限制");
                         }
 
@@ -301,7 +344,7 @@ public class FileExtractService {
      */
     private Path createWorkDirectory(Long taskId) throws IOException {
         String baseDir = System.getProperty("java.io.tmpdir", "/tmp");
-        Path workDir = Paths.get(baseDir, "drug-import", "task-" + taskId);
+        Path workDir = resolveWorkDirectory(taskId);
 
         // 如果目录已存在，尝试清理（支持任务重试）
         if (Files.exists(workDir)) {
@@ -322,6 +365,16 @@ public class FileExtractService {
         return workDir;
     }
 
+    /**
+     * 任务工作目录的路径，不创建也不清理
+     * <p>
+     * 解压文件和导入过程中的溢写文件都放在该目录下
+     */
+    public Path resolveWorkDirectory(Long taskId) {
+        String baseDir = System.getProperty("java.io.tmpdir", "/tmp");
+        return Paths.get(baseDir, "drug-import", "task-" + taskId);
+    }
+
     /**
      * 递归删除目录 - 加强错误处理
      */
@@ -395,45 +448,218 @@ public class FileExtractService {
      * 扫描并验证Excel文件 - 增强版
      * <p>
      * 这个方法在原有扫描逻辑基础上，增加了深度数据解析功能
-     * 它是向后兼容的，现有调用方式保持不变
+     * 它是向后兼容的，现有调用方式保持不变。文件按路径排序后并行校验，见 {@link #validateConcurrently(List)}
      */
     private Map<TableTypeEnum, FileInfo> scanAndValidateExcelFilesWithPreview(Path extractDir) throws IOException {
-        Map<TableTypeEnum, FileInfo> fileInfoMap = new HashMap<>();
-
-        Files.walk(extractDir)
-                .filter(Files::isRegularFile)
-                .filter(this::isExcelFile)
-                .forEach(filePath -> {
-                    try {
-                        TableTypeEnum tableType = identifyTableType(filePath.getFileName().toString());
-
-                        if (tableType != null) {
-                            // 关键改进：调用增强版的文件信息创建方法
-                            FileInfo fileInfo = validateAndCreateFileInfoWithPreview(filePath, tableType);
-
-                            if (fileInfo.getIsValid()) {
-                                if (fileInfoMap.containsKey(tableType)) {
-                                    log.warn("发现重复的表类型文件: {} 和 {}",
-                                            fileInfoMap.get(tableType).getFileName(),
-                                            fileInfo.getFileName());
-                                } else {
-                                    fileInfoMap.put(tableType, fileInfo);
-                                    log.info("识别到有效文件: {} -> {}, 实际字段数: {}",
-                                            fileInfo.getFileName(), tableType.getDescription(),
-                                            fileInfo.getActualFields() != null ? fileInfo.getActualFields().size() : 0);
-                                }
-                            }
-                        } else {
-                            log.debug("无法识别文件类型: {}", filePath.getFileName());
-                        }
-                    } catch (Exception e) {
-                        log.error("处理文件时出错: {}", filePath, e);
+        List<Path> excelFiles;
+        try (Stream<Path> paths = Files.walk(extractDir)) {
+            excelFiles = paths.filter(Files::isRegularFile)
+                    .filter(this::isExcelFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<ValidationCandidate> candidates = new ArrayList<>();
+        for (Path filePath : excelFiles) {
+            TableTypeEnum tableType = identifyTableType(filePath.getFileName().toString());
+            if (tableType == null) {
+                log.debug("无法识别文件类型: {}", filePath.getFileName());
+                continue;
+            }
+            // 关键改进：调用增强版的文件信息创建方法
+            candidates.add(new ValidationCandidate(tableType, filePath.getFileName().toString(),
+                    () -> validateAndCreateFileInfoWithPreview(filePath, tableType)));
+        }
+        return validateConcurrently(candidates);
+    }
+
+    /**
+     * 是否直接从压缩包读取，目前只支持ZIP格式
+     */
+    private boolean isDirectReadable(Path sourceFile) {
+        return Boolean.TRUE.equals(importProperties.getExtract().getDirectRead())
+                && ".zip".equalsIgnoreCase(getFileExtension(sourceFile.getFileName().toString()));
+    }
+
+    /**
+     * 扫描并验证压缩包中的Excel条目
+     * <p>
+     * 不解压到工作目录：匹配的条目按中央目录顺序在解析线程池中并行解压、解析，
+     * 所有条目共享同一个解压字节计数，超过总大小上限时中止
+     */
+    private Map<TableTypeEnum, FileInfo> scanAndValidateArchiveEntriesWithPreview(Path archiveFile, ZipFile zipFile)
+            throws IOException {
+        AtomicLong totalBytes = new AtomicLong();
+        List<ValidationCandidate> candidates = new ArrayList<>();
+        zipFile.stream()
+                .filter(entry -> !entry.isDirectory())
+                .forEach(entry -> {
+                    String entryName = entry.getName();
+                    if (!ArchiveEntryStreams.isSafeEntryName(entryName)) {
+                        log.warn("跳过可疑路径的文件: {}", entryName);
+                        return;
+                    }
+                    String fileName = ArchiveEntryStreams.simpleName(entryName);
+                    if (!isExcelFile(Paths.get(fileName))) {
+                        return;
+                    }
+                    TableTypeEnum tableType = identifyTableType(fileName);
+                    if (tableType == null) {
+                        log.debug("无法识别文件类型: {}", entryName);
+                        return;
                     }
+                    candidates.add(new ValidationCandidate(tableType, fileName,
+                            () -> validateArchiveEntryWithPreview(archiveFile, zipFile, entry, tableType, totalBytes)));
                 });
 
+        Map<TableTypeEnum, FileInfo> fileInfoMap = validateConcurrently(candidates);
+        if (totalBytes.get() > ArchiveEntryStreams.MAX_TOTAL_SIZE) {
+            throw new IOException("解压后文件总大小超过限制");
+        }
+        log.info("压缩包直接读取完成: 条目数={}, 解压总大小={}KB", zipFile.size(), totalBytes.get() / 1024);
         return fileInfoMap;
     }
 
+    /**
+     * 并行校验候选文件
+     * <p>
+     * 每个文件提交到独立的校验线程池单独校验，调用方线程只负责等待；
+     * 文件从真正开始校验时计时，超过 {@link DrugImportProperties.Extract#getFileTimeout()} 仍未完成的会被中断并记为无效，
+     * 不会拖住整个校验。线程池排满或文件排队超过 {@link DrugImportProperties.Extract#getQueueTimeout()} 时，
+     * 整次校验按线程池繁忙失败，不把正常的文件误判为超时。
+     * 结果按候选顺序合并，同一表类型以第一个有效文件为准，保证结果与并发执行顺序无关
+     */
+    private Map<TableTypeEnum, FileInfo> validateConcurrently(List<ValidationCandidate> candidates) {
+        List<ValidationRun> runs = new ArrayList<>(candidates.size());
+        try {
+            for (ValidationCandidate candidate : candidates) {
+                runs.add(submitValidation(candidate));
+            }
+
+            Map<TableTypeEnum, FileInfo> fileInfoMap = new EnumMap<>(TableTypeEnum.class);
+            for (ValidationRun run : runs) {
+                FileInfo fileInfo = awaitValidation(run);
+                if (!fileInfo.getIsValid()) {
+                    continue;
+                }
+                TableTypeEnum tableType = run.candidate.tableType();
+                if (fileInfoMap.containsKey(tableType)) {
+                    log.warn("发现重复的表类型文件: {} 和 {}",
+                            fileInfoMap.get(tableType).getFileName(),
+                            fileInfo.getFileName());
+                } else {
+                    fileInfoMap.put(tableType, fileInfo);
+                    log.info("识别到有效文件: {} -> {}, 实际字段数: {}",
+                            fileInfo.getFileName(), tableType.getDescription(),
+                            fileInfo.getActualFields() != null ? fileInfo.getActualFields().size() : 0);
+                }
+            }
+            return fileInfoMap;
+        } catch (TaskRejectedException e) {
+            runs.forEach(run -> run.future.cancel(true));
+            log.warn("文件校验线程池已满，拒绝本次校验: 文件数={}", candidates.size());
+            throw exception(FILE_VALIDATE_BUSY);
+        } catch (RuntimeException e) {
+            runs.forEach(run -> run.future.cancel(true));
+            throw e;
+        }
+    }
+
+    private ValidationRun submitValidation(ValidationCandidate candidate) {
+        ValidationRun run = new ValidationRun(candidate, System.nanoTime());
+        run.future = validateExecutor.submit(() -> {
+            run.startTime = System.nanoTime();
+            run.started = true;
+            return candidate.task().call();
+        });
+        return run;
+    }
+
+    /**
+     * 等待单个文件校验完成
+     * <p>
+     * 文件未开始时按排队超时等待，开始后按文件超时等待
+     */
+    private FileInfo awaitValidation(ValidationRun run) {
+        DrugImportProperties.Extract config = importProperties.getExtract();
+        ValidationCandidate candidate = run.candidate;
+        String error;
+        try {
+            while (true) {
+                boolean started = run.started;
+                long remaining = started
+                        ? run.startTime + config.getFileTimeout().toNanos() - System.nanoTime()
+                        : run.submitTime + config.getQueueTimeout().toNanos() - System.nanoTime();
+                if (remaining <= 0 && !started) {
+                    log.warn("文件排队等待校验超时，校验线程繁忙: {}", candidate.fileName());
+                    throw exception(FILE_VALIDATE_BUSY);
+                }
+                if (remaining <= 0) {
+                    run.future.cancel(true);
+                    log.warn("文件校验超时，已中断: {}", candidate.fileName());
+                    error = "文件校验超时";
+                    break;
+                }
+                try {
+                    // 排队期间分段等待，文件开始后改为按文件超时计时
+                    return run.future.get(started ? remaining : Math.min(remaining, VALIDATION_POLL_NANOS),
+                            TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // 继续等待，下一轮重新计算剩余时间
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.future.cancel(true);
+            error = "文件校验被中断";
+        } catch (ExecutionException e) {
+            log.error("处理文件时出错: {}", candidate.fileName(), e.getCause());
+            error = "文件解析异常: " + e.getCause().getMessage();
+        }
+        return FileInfo.builder()
+                .fileName(candidate.fileName())
+                .tableType(candidate.tableType())
+                .isValid(false)
+                .validationError(error)
+                .build();
+    }
+
+    /**
+     * 验证压缩包中的Excel条目并创建FileInfo对象
+     */
+    private FileInfo validateArchiveEntryWithPreview(Path archiveFile, ZipFile zipFile, ZipEntry entry,
+                                                     TableTypeEnum tableType, AtomicLong totalBytes) {
+        String fileName = ArchiveEntryStreams.simpleName(entry.getName());
+        FileInfo.FileInfoBuilder builder = FileInfo.builder()
+                .fileName(fileName)
+                .filePath(archiveFile.toAbsolutePath() + "!/" + entry.getName())
+                .archivePath(archiveFile.toAbsolutePath().toString())
+                .entryName(entry.getName())
+                .tableType(tableType)
+                .processingPriority(PROCESSING_PRIORITIES.get(tableType))
+                .encoding("UTF-8") // 默认编码
+                .fileSize(entry.getSize() >= 0 ? entry.getSize() : null)
+                .lastModified(entry.getLastModifiedTime() != null
+                        ? LocalDateTime.ofInstant(entry.getLastModifiedTime().toInstant(), java.time.ZoneId.systemDefault())
+                        : null);
+
+        try (InputStream in = ArchiveEntryStreams.openEntry(zipFile, entry, totalBytes)) {
+            ExcelParseResult parseResult = parseExcelWithEasyExcel(EasyExcel.read(in), fileName, tableType);
+            return buildFileInfo(builder, parseResult);
+        } catch (IOException e) {
+            return builder
+                    .isValid(false)
+                    .validationError("无法读取文件: " + e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            log.warn("解析压缩包条目时出现异常，返回基本信息: {}", entry.getName(), e);
+            return builder
+                    .isValid(false)
+                    .validationError("文件解析异常: " + e.getMessage())
+                    .build();
+        }
+    }
+
     /**
      * 验证Excel文件并创建FileInfo对象 - 增强版
      * <p>
@@ -460,28 +686,9 @@ public class FileExtractService {
             builder.fileSize(fileSize).lastModified(lastModified);
 
             // 第二步：使用EasyExcel进行深度数据解析
-            ExcelParseResult parseResult = parseExcelWithEasyExcel(filePath, tableType);
-
-            if (parseResult.isSuccess()) {
-                // 数据解析成功，构建包含预览数据的FileInfo
-                return builder
-                        .isValid(true)
-                        .sheetCount(1) // EasyExcel默认读取第一个sheet
-                        .primarySheetName("Sheet1")
-                        .estimatedRowCount(parseResult.getTotalRows())
-                        .validRowCount(parseResult.getValidRows())
-                        .actualFields(parseResult.getHeaders())
-                        .previewData(parseResult.getPreviewData())
-                        .dataQuality(parseResult.getDataQuality())
-                        .qualityInfo(parseResult.getQualityInfo())
-                        .build();
-            } else {
-                // 数据解析失败，但仍返回基本信息（向后兼容）
-                return builder
-                        .isValid(false)
-                        .validationError("数据解析失败: " + parseResult.getErrorMessage())
-                        .build();
-            }
+            ExcelParseResult parseResult = parseExcelWithEasyExcel(
+                    EasyExcel.read(filePath.toFile()), filePath.getFileName().toString(), tableType);
+            return buildFileInfo(builder, parseResult);
 
         } catch (IOException e) {
             return builder
@@ -498,31 +705,64 @@ public class FileExtractService {
         }
     }
 
+    /**
+     * 根据解析结果补全FileInfo
+     */
+    private FileInfo buildFileInfo(FileInfo.FileInfoBuilder builder, ExcelParseResult parseResult) {
+        if (parseResult.isSuccess()) {
+            // 数据解析成功，构建包含预览数据的FileInfo
+            return builder
+                    .isValid(true)
+                    .sheetCount(1) // EasyExcel默认读取第一个sheet
+                    .primarySheetName("Sheet1")
+                    .estimatedRowCount(parseResult.getTotalRows())
+                    .validRowCount(parseResult.getValidRows())
+                    .actualFields(parseResult.getHeaders())
+                    .previewData(parseResult.getPreviewData())
+                    .dataQuality(parseResult.getDataQuality())
+                    .qualityInfo(parseResult.getQualityInfo())
+                    .build();
+        }
+        // 数据解析失败，但仍返回基本信息（向后兼容）
+        return builder
+                .isValid(false)
+                .validationError("数据解析失败: " + parseResult.getErrorMessage())
+                .build();
+    }
+
     /**
      * 使用EasyExcel解析Excel文件 - 修复版
      * <p>
      * 关键修复：
      * 1. 正确设置表头行号为3（第三行才是真正的字段名）
-     * 2. 增加了对前两行元数据的读取和验证
-     * 3. 改进了数据质量评估逻辑
+     * 2. 前两行的标题和说明在同一次读取中获取，不再用POI整本加载
+     * 3. 行数、空值、重复行等质量指标在监听器中逐行累计，不保留任何数据行
      */
-    private ExcelParseResult parseExcelWithEasyExcel(Path filePath, TableTypeEnum tableType) {
-        log.debug("开始使用EasyExcel解析文件: {}", filePath.getFileName());
+    private ExcelParseResult parseExcelWithEasyExcel(ExcelReaderBuilder readerBuilder, String fileName,
+                                                     TableTypeEnum tableType) {
+        log.debug("开始使用EasyExcel解析文件: {}", fileName);
 
         try {
             // 用于收集解析结果的容器
-            ExcelDataCollector collector = new ExcelDataCollector();
+            DrugImportProperties.Dedup dedup = importProperties.getDedup();
+            ExcelDataCollector collector = new ExcelDataCollector(
+                    new DuplicateDetector(dedup.getMode(), dedup.getExactLimit()));
 
             // 使用EasyExcel进行流式读取
             // 关键修复：设置headRowNumber为3，因为第3行才是真正的表头
-            EasyExcel.read(filePath.toFile())
+            readerBuilder
                     .sheet(0)
                     .headRowNumber(3)  // 修复：第3行是表头，而不是第1行
                     .registerReadListener(new AnalysisEventListener<Map<Integer, String>>() {
 
                         @Override
                         public void invokeHeadMap(Map<Integer, String> headMap, AnalysisContext context) {
-                            // 处理表头信息（现在正确读取第3行的字段名）
+                            // 前3行都会回调这里：第1行标题、第2行说明、第3行字段名
+                            int rowIndex = context.readRowHolder().getRowIndex();
+                            if (rowIndex < METADATA_HEADER_ROW_INDEX) {
+                                collector.acceptMetadataRow(rowIndex, headMap.get(0));
+                                return;
+                            }
                             List<String> headers = headMap.values().stream()
                                     .filter(Objects::nonNull)
                                     .map(String::trim)
@@ -539,11 +779,11 @@ public class FileExtractService {
 
                         @Override
                         public void invoke(Map<Integer, String> data, AnalysisContext context) {
-                            // 处理数据行（从第4行开始才是真正的数据）
-                            collector.addDataRow(data);
+                            // 处理数据行（从第4行开始才是真正的数据），只累计指标，不保留行
+                            collector.acceptDataRow(data);
 
                             // 限制预览数据的行数，避免内存问题
-                            if (collector.getPreviewDataCount() < 5) {
+                            if (collector.getPreviewDataCount() < PREVIEW_ROW_LIMIT) {
                                 Map<String, Object> previewRow = convertToPreviewFormat(
                                         collector.getHeaders(), data);
                                 collector.addPreviewData(previewRow);
@@ -557,13 +797,10 @@ public class FileExtractService {
                     })
                     .doRead();
 
-            // 额外读取前两行的元数据信息
-            ExcelMetadata metadata = readExcelMetadata(filePath);
-            collector.setMetadata(metadata);
+            ExcelMetadata metadata = collector.buildMetadata();
 
             // 数据质量评估
-            FileInfo.DataQualityInfo qualityInfo = assessDataQuality(
-                    tableType, collector.getHeaders(), collector.getAllDataRows());
+            FileInfo.DataQualityInfo qualityInfo = assessDataQuality(tableType, collector);
 
             // 构建解析结果
             return ExcelParseResult.builder()
@@ -578,7 +815,7 @@ public class FileExtractService {
                     .build();
 
         } catch (Exception e) {
-            log.error("EasyExcel解析失败: {}", filePath, e);
+            log.error("EasyExcel解析失败: {}", fileName, e);
             return ExcelParseResult.builder()
                     .success(false)
                     .errorMessage("Excel解析失败: " + e.getMessage())
@@ -606,45 +843,6 @@ public class FileExtractService {
                 tableType.getDescription(), requiredFields.size(), actualHeaders.size(), missingFields.size());
     }
 
-    /**
-     * 读取Excel文件的元数据信息
-     * 读取前两行的标题和说明信息
-     */
-    private ExcelMetadata readExcelMetadata(Path filePath) {
-        try (Workbook workbook = WorkbookFactory.create(Files.newInputStream(filePath))) {
-            Sheet sheet = workbook.getSheetAt(0);
-
-            String title = "";
-            String description = "";
-
-            // 读取第一行作为标题
-            if (sheet.getRow(0) != null && sheet.getRow(0).getCell(0) != null) {
-                title = sheet.getRow(0).getCell(0).toString().trim();
-            }
-
-            // 读取第二行作为说明
-            if (sheet.getRow(1) != null && sheet.getRow(1).getCell(0) != null) {
-                description = sheet.getRow(1).getCell(0).toString().trim();
-            }
-
-            return ExcelMetadata.builder()
-                    .title(title)
-                    .description(description)
-                    .headerRowIndex(2) // 第3行是表头（从0开始计数）
-                    .dataStartRowIndex(3) // 第4行开始是数据
-                    .build();
-
-        } catch (Exception e) {
-            log.warn("读取Excel元数据失败: {}", filePath, e);
-            return ExcelMetadata.builder()
-                    .title("未知")
-                    .description("无法读取说明信息")
-                    .headerRowIndex(2)
-                    .dataStartRowIndex(3)
-                    .build();
-        }
-    }
-
     /**
      * 转换为预览格式 - 改进版
      * 正确处理序号列和数据列的映射关系
@@ -665,12 +863,10 @@ public class FileExtractService {
 
     /**
      * 数据质量评估
-     * 基于表类型和实际数据进行多维度质量评估
+     * 基于表类型和解析过程中累计的指标进行多维度质量评估
      */
-    private FileInfo.DataQualityInfo assessDataQuality(TableTypeEnum tableType,
-                                                       List<String> actualFields,
-                                                       List<Map<Integer, String>> allData) {
-
+    private FileInfo.DataQualityInfo assessDataQuality(TableTypeEnum tableType, ExcelDataCollector collector) {
+        List<String> actualFields = collector.getHeaders();
         List<String> requiredFields = REQUIRED_FIELDS_CONFIG.getOrDefault(tableType, Collections.emptyList());
 
         // 计算缺失的必填字段
@@ -678,15 +874,10 @@ public class FileExtractService {
                 .filter(field -> !actualFields.contains(field))
                 .collect(Collectors.toList());
 
-        // 计算空值数量
-        int nullValueCount = allData.stream()
-                .mapToInt(row -> (int) row.values().stream()
-                        .filter(value -> !StringUtils.hasText(value))
-                        .count())
-                .sum();
-
-        // 计算重复行数量
-        int duplicateCount = calculateDuplicateRows(allData);
+        long nullValueCount = collector.getNullValueCount();
+        DuplicateDetector duplicateDetector = collector.getDuplicateDetector();
+        int duplicateCount = (int) Math.min(duplicateDetector.getDuplicateCount(), Integer.MAX_VALUE);
+        int totalRows = collector.getTotalRows();
 
         // 计算完整性评分
         int completenessScore = calculateCompletenessScore(requiredFields.size(), missingRequired.size());
@@ -696,17 +887,19 @@ public class FileExtractService {
         if (!missingRequired.isEmpty()) {
             qualityIssues.add("缺失必填字段: " + String.join(", ", missingRequired));
         }
-        if (allData.size() > 0 && nullValueCount > allData.size() * actualFields.size() * 0.1) {
+        if (totalRows > 0 && nullValueCount > (long) totalRows * actualFields.size() * 0.1) {
             qualityIssues.add(String.format("空值比例过高: %.1f%%",
-                    (double) nullValueCount / (allData.size() * actualFields.size()) * 100));
+                    (double) nullValueCount / ((long) totalRows * actualFields.size()) * 100));
         }
         if (duplicateCount > 0) {
-            qualityIssues.add("存在重复数据: " + duplicateCount + "行");
+            qualityIssues.add(duplicateDetector.isApproximate()
+                    ? "存在重复数据: 约" + duplicateCount + "行"
+                    : "存在重复数据: " + duplicateCount + "行");
         }
 
         return FileInfo.DataQualityInfo.builder()
                 .missingRequiredFields(missingRequired.size())
-                .nullValueCount(nullValueCount)
+                .nullValueCount((int) Math.min(nullValueCount, Integer.MAX_VALUE))
                 .duplicateRowCount(duplicateCount)
                 .completenessScore(completenessScore)
                 .qualityIssues(qualityIssues)
@@ -729,26 +922,6 @@ public class FileExtractService {
         }
     }
 
-    /**
-     * 计算重复行数量
-     */
-    private int calculateDuplicateRows(List<Map<Integer, String>> allData) {
-        Set<String> uniqueRows = new HashSet<>();
-        int duplicates = 0;
-
-        for (Map<Integer, String> row : allData) {
-            String rowString = row.values().stream()
-                    .map(value -> value == null ? "" : value)
-                    .collect(Collectors.joining("|"));
-
-            if (!uniqueRows.add(rowString)) {
-                duplicates++;
-            }
-        }
-
-        return duplicates;
-    }
-
     /**
      * 计算完整性评分
      */
@@ -757,18 +930,64 @@ public class FileExtractService {
         return Math.max(0, (totalRequired - missing) * 100 / totalRequired);
     }
 
+    /**
+     * 获取表类型的处理优先级，数值越小越先处理，相同优先级的表之间没有依赖关系
+     */
+    public static int getProcessingPriority(TableTypeEnum tableType) {
+        return PROCESSING_PRIORITIES.getOrDefault(tableType, Integer.MAX_VALUE);
+    }
+
     /**
      * 数据收集器内部类 - 增强版
+     * <p>
+     * 逐行累计行数、有效行、空值和重复行，只保留表头、预览行和重复行检测器中的64位指纹，
+     * 不保留数据行本身
      */
     private static class ExcelDataCollector {
         private List<String> headers = new ArrayList<>();
-        private List<Map<Integer, String>> allDataRows = new ArrayList<>();
         private List<Map<String, Object>> previewData = new ArrayList<>();
         private List<String> validationWarnings = new ArrayList<>();
-        private ExcelMetadata metadata;
+        private String title = "";
+        private String description = "";
 
-        public void addDataRow(Map<Integer, String> row) {
-            this.allDataRows.add(row);
+        private int totalRows;
+        private int validRows;
+        private long nullValueCount;
+        /**
+         * 按行指纹检测重复行
+         */
+        private final DuplicateDetector duplicateDetector;
+
+        public ExcelDataCollector(DuplicateDetector duplicateDetector) {
+            this.duplicateDetector = duplicateDetector;
+        }
+
+        public void acceptMetadataRow(int rowIndex, String firstCell) {
+            String text = firstCell == null ? "" : firstCell.trim();
+            if (rowIndex == 0) {
+                this.title = text;
+            } else if (rowIndex == 1) {
+                this.description = text;
+            }
+        }
+
+        public void acceptDataRow(Map<Integer, String> row) {
+            totalRows++;
+            boolean valid = false;
+            for (Map.Entry<Integer, String> entry : row.entrySet()) {
+                String value = entry.getValue();
+                boolean hasText = StringUtils.hasText(value);
+                if (!hasText) {
+                    nullValueCount++;
+                } else if (entry.getKey() > 0) {
+                    // 判断是否为有效行：除了序号列外，至少有一个非空字段
+                    valid = true;
+                }
+            }
+            if (valid) {
+                validRows++;
+            }
+            duplicateDetector.add(RowFingerprint.of(row));
         }
 
         public void addPreviewData(Map<String, Object> previewRow) {
@@ -779,25 +998,33 @@ public class FileExtractService {
             this.validationWarnings.add(warning);
         }
 
+        public ExcelMetadata buildMetadata() {
+            return ExcelMetadata.builder()
+                    .title(title)
+                    .description(description)
+                    .headerRowIndex(METADATA_HEADER_ROW_INDEX) // 第3行是表头（从0开始计数）
+                    .dataStartRowIndex(METADATA_HEADER_ROW_INDEX + 1) // 第4行开始是数据
+                    .build();
+        }
+
         public int getTotalRows() {
-            return allDataRows.size();
+            return totalRows;
         }
 
         public int getValidRows() {
-            return (int) allDataRows.stream()
-                    .filter(this::isValidRow)
-                    .count();
+            return validRows;
         }
 
-        public int getPreviewDataCount() {
-            return previewData.size();
+        public long getNullValueCount() {
+            return nullValueCount;
+        }
+
+        public DuplicateDetector getDuplicateDetector() {
+            return duplicateDetector;
         }
 
-        private boolean isValidRow(Map<Integer, String> row) {
-            // 判断是否为有效行：除了序号列外，至少有一个非空字段
-            return row.entrySet().stream()
-                    .filter(entry -> entry.getKey() > 0) // 跳过序号列
-                    .anyMatch(entry -> StringUtils.hasText(entry.getValue()));
+        public int getPreviewDataCount() {
+            return previewData.size();
         }
 
         // Getters
@@ -809,10 +1036,6 @@ public class FileExtractService {
             this.headers = headers;
         }
 
-        public List<Map<Integer, String>> getAllDataRows() {
-            return allDataRows;
-        }
-
         public List<Map<String, Object>> getPreviewData() {
             return previewData;
         }
@@ -820,14 +1043,33 @@ public class FileExtractService {
         public List<String> getValidationWarnings() {
             return validationWarnings;
         }
+    }
 
-        public ExcelMetadata getMetadata() {
-            return metadata;
-        }
+    /**
+     * 待校验的文件
+     *
+     * @param fileName 文件名，用于日志和超时提示
+     * @param task     校验任务
+     */
+    private record ValidationCandidate(TableTypeEnum tableType, String fileName, Callable<FileInfo> task) {
+    }
 
-        public void setMetadata(ExcelMetadata metadata) {
-            this.metadata = metadata;
+    /**
+     * 已提交的文件校验，记录提交时间和真正开始校验的时间
+     */
+    private static class ValidationRun {
+
+        private final ValidationCandidate candidate;
+        private final long submitTime;
+        private Future<FileInfo> future;
+        private volatile long startTime;
+        private volatile boolean started;
+
+        private ValidationRun(ValidationCandidate candidate, long submitTime) {
+            this.candidate = candidate;
+            this.submitTime = submitTime;
         }
+
     }
 
     /**
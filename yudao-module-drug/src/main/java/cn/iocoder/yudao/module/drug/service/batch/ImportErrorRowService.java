@@ -0,0 +1,149 @@
+package cn.iocoder.yudao.module.drug.service.batch;
+
+import cn.hutool.core.util.StrUtil;
+import cn.iocoder.yudao.framework.common.pojo.PageResult;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportErrorRowPageReqVO;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportErrorRowDO;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportErrorRowMapper;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskMapper;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.TASK_NOT_FOUND;
+
+/**
+ * 导入错误行服务
+ * <p>
+ * 导入失败的行不再全部留在 {@link ImportResult} 中，而是随分块合并分批写入 drug_import_error_row 表，
+ * 内存里只保留前 {@link DrugImportProperties.ErrorRow#getSampleSize()} 条样例；
+ * 医疗机构通过分页接口查看，或按编号游标流式导出为 Excel。
+ * 错误行按表重新导入、清理批次或删除任务时物理删除
+ *
+ * @author hyh
+ */
+@Service
+@Slf4j
+public class ImportErrorRowService {
+
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final int MAX_DETAIL_LENGTH = 2000;
+
+    @Resource
+    private ImportErrorRowMapper errorRowMapper;
+    @Resource
+    private ImportTaskMapper taskMapper;
+    @Resource
+    private DrugImportProperties importProperties;
+
+    /**
+     * 保存一批错误行
+     */
+    public void saveErrors(Long taskId, TableTypeEnum tableType, String importBatchNo,
+                           List<ImportResult.ImportError> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        List<ImportErrorRowDO> rows = new ArrayList<>(errors.size());
+        for (ImportResult.ImportError error : errors) {
+            rows.add(ImportErrorRowDO.builder()
+                    .taskId(taskId)
+                    .tableType(tableType.getType())
+                    .importBatchNo(importBatchNo)
+                    .rowIndex(error.getRowIndex())
+                    .errorType(error.getErrorType())
+                    .errorMessage(StrUtil.maxLength(error.getErrorMessage(), MAX_MESSAGE_LENGTH))
+                    .errorDetail(StrUtil.maxLength(error.getErrorDetail(), MAX_DETAIL_LENGTH))
+                    .build());
+        }
+        errorRowMapper.insertBatch(rows, importProperties.getErrorRow().getInsertBatchSize());
+    }
+
+    /**
+     * 删除一张表的全部错误行，表重新导入或导入数据被清理时调用
+     * <p>
+     * 按 {@link DrugImportProperties.Cancel#getPurgeBatchSize()} 分多次删除
+     *
+     * @return 删除的行数
+     */
+    public long deleteErrors(Long taskId, TableTypeEnum tableType) {
+        int batchSize = importProperties.getCancel().getPurgeBatchSize();
+        long deletedRows = 0;
+        int deleted;
+        do {
+            deleted = errorRowMapper.deleteByTaskIdAndTableType(taskId, tableType.getType(), batchSize);
+            deletedRows += deleted;
+        } while (deleted >= batchSize);
+        if (deletedRows > 0) {
+            log.info("已清理导入错误行: taskId={}, tableType={}, 行数={}", taskId, tableType, deletedRows);
+        }
+        return deletedRows;
+    }
+
+    /**
+     * 删除断点之后的错误行，续传时这些行会重新导入
+     *
+     * @return 删除的行数
+     */
+    public long deleteErrorsAfterRow(Long taskId, TableTypeEnum tableType, int checkpointRowIndex) {
+        int batchSize = importProperties.getCancel().getPurgeBatchSize();
+        long deletedRows = 0;
+        int deleted;
+        do {
+            deleted = errorRowMapper.deleteByTaskIdAndTableTypeAfterRow(taskId, tableType.getType(),
+                    checkpointRowIndex, batchSize);
+            deletedRows += deleted;
+        } while (deleted >= batchSize);
+        return deletedRows;
+    }
+
+    /**
+     * 删除任务所有表的错误行
+     */
+    public void deleteTaskErrors(Long taskId) {
+        for (TableTypeEnum tableType : TableTypeEnum.values()) {
+            deleteErrors(taskId, tableType);
+        }
+    }
+
+    /**
+     * 校验任务存在，与任务详情接口的校验一致
+     */
+    public void validateTaskExists(Long taskId) {
+        if (taskMapper.selectById(taskId) == null) {
+            throw exception(TASK_NOT_FOUND);
+        }
+    }
+
+    public PageResult<ImportErrorRowDO> getErrorRowPage(ImportErrorRowPageReqVO reqVO) {
+        validateTaskExists(reqVO.getTaskId());
+        return errorRowMapper.selectPage(reqVO);
+    }
+
+    /**
+     * 按编号顺序逐页读取错误行，每页交给 consumer 处理后再读下一页，内存中只有一页数据
+     */
+    public void scanErrorRows(ImportErrorRowPageReqVO reqVO, Consumer<List<ImportErrorRowDO>> consumer) {
+        int pageSize = importProperties.getErrorRow().getExportPageSize();
+        long lastId = 0;
+        List<ImportErrorRowDO> page;
+        do {
+            page = errorRowMapper.selectListAfterId(reqVO.getTaskId(), reqVO.getTableType(), reqVO.getErrorType(),
+                    lastId, pageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            consumer.accept(page);
+            lastId = page.get(page.size() - 1).getId();
+        } while (page.size() >= pageSize);
+    }
+
+}
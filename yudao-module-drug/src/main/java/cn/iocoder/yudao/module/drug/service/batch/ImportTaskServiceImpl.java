@@ -7,6 +7,7 @@ import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportTaskPageReqV
 import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportTaskSaveReqVO;
 import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDO;
 import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskMapper;
+import cn.iocoder.yudao.module.drug.service.batch.snapshot.TaskDetailSnapshotCache;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
@@ -27,6 +28,10 @@ public class ImportTaskServiceImpl implements ImportTaskService {
 
     @Resource
     private ImportTaskMapper importTaskMapper;
+    @Resource
+    private TaskDetailSnapshotCache taskDetailSnapshotCache;
+    @Resource
+    private ImportErrorRowService importErrorRowService;
 
     @Override
     public Long createImportTask(ImportTaskSaveReqVO createReqVO) {
@@ -44,6 +49,7 @@ public class ImportTaskServiceImpl implements ImportTaskService {
         // 更新
         ImportTaskDO updateObj = BeanUtils.toBean(updateReqVO, ImportTaskDO.class);
         importTaskMapper.updateById(updateObj);
+        taskDetailSnapshotCache.invalidate(updateObj.getId());
     }
 
     @Override
@@ -52,6 +58,8 @@ public class ImportTaskServiceImpl implements ImportTaskService {
         validateImportTaskExists(id);
         // 删除
         importTaskMapper.deleteById(id);
+        importErrorRowService.deleteTaskErrors(id);
+        taskDetailSnapshotCache.invalidate(id);
     }
 
     @Override
@@ -60,6 +68,8 @@ public class ImportTaskServiceImpl implements ImportTaskService {
         validateImportTaskExists(ids);
         // 删除
         importTaskMapper.deleteByIds(ids);
+        ids.forEach(importErrorRowService::deleteTaskErrors);
+        ids.forEach(taskDetailSnapshotCache::invalidate);
     }
 
     private void validateImportTaskExists(List<Long> ids) {
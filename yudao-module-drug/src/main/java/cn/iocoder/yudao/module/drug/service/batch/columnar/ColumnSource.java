@@ -0,0 +1,138 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列读取一张表的暂存数据
+ * <p>
+ * 数据量不大时是内存中的 {@link ColumnarTable}；超过内存阈值后行被溢写到磁盘，
+ * 由 {@link SpilledColumnSource} 在需要某一列时从磁盘重新读出该列。
+ * 概况和分组汇总都逐列计算，同一时刻只需要少数几列在内存中
+ *
+ * @author hyh
+ */
+public interface ColumnSource {
+
+    /**
+     * 分位数统计的默认档位
+     */
+    double[] PROFILE_QUANTILES = {0.5, 0.9, 0.99};
+
+    TableTypeEnum getTableType();
+
+    int getRowCount();
+
+    /**
+     * 全部字段名（下划线写法），顺序与表结构一致
+     */
+    List<String> getColumnNames();
+
+    boolean hasColumn(String name);
+
+    /**
+     * @param name 字段名，下划线或驼峰写法
+     * @throws IllegalArgumentException 本表没有该字段
+     */
+    ColumnVector column(String name);
+
+    /**
+     * @throws IllegalArgumentException 本表没有该字段，或字段不是数值类型
+     */
+    default NumericColumnVector numericColumn(String name) {
+        ColumnVector column = column(name);
+        if (!(column instanceof NumericColumnVector numeric)) {
+            throw new IllegalArgumentException("字段不是数值类型: " + name);
+        }
+        return numeric;
+    }
+
+    /**
+     * @throws IllegalArgumentException 本表没有该字段，或字段不是字符串类型
+     */
+    default DictionaryColumnVector dictionaryColumn(String name) {
+        ColumnVector column = column(name);
+        if (!(column instanceof DictionaryColumnVector dictionary)) {
+            throw new IllegalArgumentException("分组字段必须是字符串类型: " + name);
+        }
+        return dictionary;
+    }
+
+    /**
+     * 按字符串列分组的数值列合计，下标为分组字段的字典编号，两列任一为空的行不计入
+     */
+    default double[] sumByCode(DictionaryColumnVector key, NumericColumnVector numeric) {
+        double[] sums = new double[key.getDictionarySize()];
+        int rowCount = getRowCount();
+        for (int i = 0; i < rowCount; i++) {
+            if (!key.isNull(i) && !numeric.isNull(i)) {
+                sums[key.getCode(i)] += numeric.getDouble(i);
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * 各列的概况：空值数、空值率、不重复值个数，数值列另有合计、极值、均值、分位数、负数个数
+     */
+    default List<Map<String, Object>> profile() {
+        int rowCount = getRowCount();
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (String name : getColumnNames()) {
+            ColumnVector column = column(name);
+            Map<String, Object> profile = new LinkedHashMap<>();
+            profile.put("column", column.getName());
+            profile.put("nullCount", column.getNullCount());
+            profile.put("nullRate", rowCount > 0 ? (double) column.getNullCount() / rowCount : 0);
+            if (column instanceof NumericColumnVector numeric) {
+                double[] sorted = numeric.sortedValues();
+                profile.put("distinctCount", numeric.distinctCount());
+                profile.put("sum", numeric.sum());
+                profile.put("min", sorted.length > 0 ? sorted[0] : null);
+                profile.put("max", sorted.length > 0 ? sorted[sorted.length - 1] : null);
+                profile.put("avg", numeric.avg());
+                for (double q : PROFILE_QUANTILES) {
+                    profile.put("p" + Math.round(q * 100), NumericColumnVector.quantile(sorted, q));
+                }
+                profile.put("negativeCount", numeric.negativeCount());
+            } else {
+                profile.put("distinctCount", column.distinctCount());
+            }
+            profiles.add(profile);
+        }
+        return profiles;
+    }
+
+    /**
+     * 按字符串列分组汇总：每组的行数和各数值列的合计
+     *
+     * @param keyColumn 分组字段，例如 hospital_code
+     * @return 分组值 -> (rowCount 及 数值字段名 -> 合计)，按分组值首次出现的顺序排列
+     */
+    default Map<String, Map<String, Object>> totalsBy(String keyColumn) {
+        DictionaryColumnVector key = dictionaryColumn(keyColumn);
+        int groups = key.getDictionarySize();
+        int[] counts = key.countByCode();
+        Map<String, double[]> sums = new LinkedHashMap<>();
+        for (String name : getColumnNames()) {
+            if (column(name) instanceof NumericColumnVector numeric) {
+                sums.put(numeric.getName(), sumByCode(key, numeric));
+            }
+        }
+        Map<String, Map<String, Object>> totals = new LinkedHashMap<>();
+        for (int code = 0; code < groups; code++) {
+            Map<String, Object> group = new LinkedHashMap<>();
+            group.put("rowCount", counts[code]);
+            for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+                group.put(entry.getKey(), entry.getValue()[code]);
+            }
+            totals.put(key.decode(code), group);
+        }
+        return totals;
+    }
+
+}
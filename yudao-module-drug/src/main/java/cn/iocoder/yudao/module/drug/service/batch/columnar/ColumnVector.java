@@ -0,0 +1,100 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 列式暂存中的一列
+ * <p>
+ * 取值存放在子类的基本类型数组中，空值用位图标记（每行 1 位），不为每个单元格创建对象。
+ * 数组按 2 倍扩容。非线程安全
+ *
+ * @author hyh
+ */
+public abstract class ColumnVector {
+
+    protected static final int INITIAL_CAPACITY = 1024;
+
+    @Getter
+    private final String name;
+    /**
+     * 空值位图，第 i 行为空时第 i 位为 1
+     */
+    private long[] nullBits = new long[INITIAL_CAPACITY >>> 6];
+    @Getter
+    protected int size;
+    @Getter
+    private int nullCount;
+
+    protected ColumnVector(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 按字段类型创建列：LONG 存 long[]，DECIMAL 存 double[]，STRING 做字典编码
+     */
+    public static ColumnVector create(TableSchema.ColumnDef def) {
+        return switch (def.getType()) {
+            case LONG -> new LongColumnVector(def.getColumn());
+            case DECIMAL -> new DoubleColumnVector(def.getColumn());
+            default -> new DictionaryColumnVector(def.getColumn());
+        };
+    }
+
+    /**
+     * 追加一行的值，null 记为空值
+     *
+     * @param value 已按字段类型转换的值
+     */
+    public void append(Object value) {
+        if (size == capacity()) {
+            grow(capacity() << 1);
+            if (nullBits.length << 6 < capacity()) {
+                nullBits = Arrays.copyOf(nullBits, capacity() >>> 6);
+            }
+        }
+        if (value == null) {
+            nullBits[size >>> 6] |= 1L << size;
+            nullCount++;
+        } else {
+            set(size, value);
+        }
+        size++;
+    }
+
+    public final boolean isNull(int row) {
+        return (nullBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * 第 row 行的值，空值返回 null
+     */
+    public abstract Object get(int row);
+
+    public int getNonNullCount() {
+        return size - nullCount;
+    }
+
+    /**
+     * 不重复的非空值个数
+     */
+    public abstract int distinctCount();
+
+    /**
+     * 估算占用的堆内存字节数
+     */
+    public long estimatedBytes() {
+        return 8L * nullBits.length + valueBytes();
+    }
+
+    protected abstract int capacity();
+
+    protected abstract void grow(int newCapacity);
+
+    protected abstract void set(int row, Object value);
+
+    protected abstract long valueBytes();
+
+}
@@ -0,0 +1,108 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import cn.hutool.core.util.StrUtil;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * 一张表的列式暂存
+ * <p>
+ * 按 {@link TableSchema} 的字段建列：LONG 存 long[]，DECIMAL 存 double[]，STRING 做字典编码，
+ * 每列一个空值位图。与逐行保存 Object[] 或 Map 相比不产生装箱对象，100 万行的入库明细约占几十 MB。
+ * 空值率、重复数、金额分布、按医疗机构汇总等聚合都是对基本类型数组的顺序扫描。
+ * 非线程安全，只能在导入流的消费线程中追加
+ *
+ * @author hyh
+ */
+public class ColumnarTable implements ColumnSource {
+
+    @Getter
+    private final TableTypeEnum tableType;
+    private final ColumnVector[] columns;
+    @Getter
+    private final List<String> columnNames;
+    /**
+     * 字段名 -> 列下标，同时包含下划线和驼峰两种写法
+     */
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    /**
+     * 每行的 Excel 行号
+     */
+    private int[] rowIndexes = new int[ColumnVector.INITIAL_CAPACITY];
+    @Getter
+    private int rowCount;
+
+    public ColumnarTable(TableSchema schema) {
+        this.tableType = schema.getTableType();
+        this.columns = new ColumnVector[schema.size()];
+        List<String> names = new ArrayList<>(schema.size());
+        for (int i = 0; i < schema.size(); i++) {
+            TableSchema.ColumnDef def = schema.getColumn(i);
+            columns[i] = ColumnVector.create(def);
+            names.add(def.getColumn());
+            columnIndex.put(def.getColumn(), i);
+            columnIndex.put(StrUtil.toCamelCase(def.getColumn()), i);
+        }
+        this.columnNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 追加一行
+     *
+     * @param rowIndex Excel 行号
+     * @param values   已按字段类型转换的行值，顺序与表结构一致
+     */
+    public void append(int rowIndex, Object[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].append(i < values.length ? values[i] : null);
+        }
+        if (rowCount == rowIndexes.length) {
+            rowIndexes = Arrays.copyOf(rowIndexes, rowIndexes.length << 1);
+        }
+        rowIndexes[rowCount++] = rowIndex;
+    }
+
+    public int getRowIndex(int row) {
+        return rowIndexes[row];
+    }
+
+    /**
+     * 还原第 row 行的值，小数列按 double 近似，用于转存到磁盘
+     */
+    public Object[] getRow(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+        return values;
+    }
+
+    @Override
+    public ColumnVector column(String name) {
+        Integer index = columnIndex.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("本表没有字段: " + name);
+        }
+        return columns[index];
+    }
+
+    @Override
+    public boolean hasColumn(String name) {
+        return columnIndex.containsKey(name);
+    }
+
+    /**
+     * 估算占用的堆内存字节数
+     */
+    public long estimatedBytes() {
+        long bytes = 4L * rowIndexes.length;
+        for (ColumnVector column : columns) {
+            bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,104 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字典编码的字符串列
+ * <p>
+ * 每个不同的字符串只保存一份，行上只存它在字典中的编号（int[]）。
+ * 编码、名称类字段重复度高，100 万行通常只有几千到几万个不同的值
+ *
+ * @author hyh
+ */
+public class DictionaryColumnVector extends ColumnVector {
+
+    /**
+     * 估算字典内存时每个条目的平均字节数：字符串对象、HashMap 条目和列表引用
+     */
+    private static final int DICTIONARY_ENTRY_BYTES = 120;
+
+    private int[] codes = new int[INITIAL_CAPACITY];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public DictionaryColumnVector(String name) {
+        super(name);
+    }
+
+    /**
+     * 第 row 行在字典中的编号，空值行的返回值没有意义
+     */
+    public int getCode(int row) {
+        return codes[row];
+    }
+
+    @Override
+    public String get(int row) {
+        return isNull(row) ? null : values.get(codes[row]);
+    }
+
+    /**
+     * 字典中编号对应的字符串
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int getDictionarySize() {
+        return values.size();
+    }
+
+    /**
+     * 每个字典编号出现的行数，下标为编号
+     */
+    public int[] countByCode() {
+        int[] counts = new int[values.size()];
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i)) {
+                counts[codes[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public int distinctCount() {
+        return values.size();
+    }
+
+    @Override
+    protected int capacity() {
+        return codes.length;
+    }
+
+    @Override
+    protected void grow(int newCapacity) {
+        codes = Arrays.copyOf(codes, newCapacity);
+    }
+
+    @Override
+    protected void set(int row, Object value) {
+        String text = value.toString();
+        Integer code = dictionary.get(text);
+        if (code == null) {
+            code = values.size();
+            dictionary.put(text, code);
+            values.add(text);
+        }
+        codes[row] = code;
+    }
+
+    @Override
+    protected long valueBytes() {
+        long stringBytes = 0;
+        for (String value : values) {
+            stringBytes += 2L * value.length();
+        }
+        return 4L * codes.length + (long) DICTIONARY_ENTRY_BYTES * values.size() + stringBytes;
+    }
+
+}
@@ -0,0 +1,54 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 小数列，取值存放在 double[] 中
+ * <p>
+ * 金额、价格在入库时保持 BigDecimal 精度，这里只用于统计分布和汇总，按 double 近似
+ *
+ * @author hyh
+ */
+public class DoubleColumnVector extends NumericColumnVector {
+
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    public DoubleColumnVector(String name) {
+        super(name);
+    }
+
+    /**
+     * 第 row 行的值，按 double 近似还原为 BigDecimal
+     */
+    @Override
+    public Object get(int row) {
+        return isNull(row) ? null : BigDecimal.valueOf(values[row]);
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    protected int capacity() {
+        return values.length;
+    }
+
+    @Override
+    protected void grow(int newCapacity) {
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    @Override
+    protected void set(int row, Object value) {
+        values[row] = ((Number) value).doubleValue();
+    }
+
+    @Override
+    protected long valueBytes() {
+        return 8L * values.length;
+    }
+
+}
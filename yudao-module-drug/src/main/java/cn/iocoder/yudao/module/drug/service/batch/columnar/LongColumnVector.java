@@ -0,0 +1,52 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import java.util.Arrays;
+
+/**
+ * 整数列，取值存放在 long[] 中
+ *
+ * @author hyh
+ */
+public class LongColumnVector extends NumericColumnVector {
+
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    public LongColumnVector(String name) {
+        super(name);
+    }
+
+    public long getLong(int row) {
+        return values[row];
+    }
+
+    @Override
+    public Object get(int row) {
+        return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    protected int capacity() {
+        return values.length;
+    }
+
+    @Override
+    protected void grow(int newCapacity) {
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    @Override
+    protected void set(int row, Object value) {
+        values[row] = ((Number) value).longValue();
+    }
+
+    @Override
+    protected long valueBytes() {
+        return 8L * values.length;
+    }
+
+}
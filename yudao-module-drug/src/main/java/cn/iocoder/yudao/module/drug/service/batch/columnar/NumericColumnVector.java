@@ -0,0 +1,122 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import java.util.Arrays;
+
+/**
+ * 数值列，提供求和、极值、分位数等聚合
+ *
+ * @author hyh
+ */
+public abstract class NumericColumnVector extends ColumnVector {
+
+    protected NumericColumnVector(String name) {
+        super(name);
+    }
+
+    /**
+     * 第 row 行的值，空值行的返回值没有意义
+     */
+    public abstract double getDouble(int row);
+
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i)) {
+                sum += getDouble(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return 全为空值时返回 null
+     */
+    public Double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i)) {
+                min = Math.min(min, getDouble(i));
+            }
+        }
+        return getNonNullCount() > 0 ? min : null;
+    }
+
+    /**
+     * @return 全为空值时返回 null
+     */
+    public Double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i)) {
+                max = Math.max(max, getDouble(i));
+            }
+        }
+        return getNonNullCount() > 0 ? max : null;
+    }
+
+    /**
+     * @return 全为空值时返回 null
+     */
+    public Double avg() {
+        return getNonNullCount() > 0 ? sum() / getNonNullCount() : null;
+    }
+
+    /**
+     * 小于 0 的值的个数
+     */
+    public int negativeCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i) && getDouble(i) < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 非空值升序排列后的副本，用于分位数和去重计数
+     */
+    public double[] sortedValues() {
+        double[] values = new double[getNonNullCount()];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isNull(i)) {
+                values[n++] = getDouble(i);
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * 按最近秩法取分位数
+     *
+     * @param q 0 ~ 1
+     * @return 全为空值时返回 null
+     */
+    public Double quantile(double q) {
+        return quantile(sortedValues(), q);
+    }
+
+    static Double quantile(double[] sorted, double q) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        int index = (int) Math.ceil(Math.max(0, Math.min(1, q)) * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    @Override
+    public int distinctCount() {
+        double[] sorted = sortedValues();
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || Double.compare(sorted[i], sorted[i - 1]) != 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+}
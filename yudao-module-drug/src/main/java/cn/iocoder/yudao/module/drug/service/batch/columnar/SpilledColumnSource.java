@@ -0,0 +1,91 @@
+package cn.iocoder.yudao.module.drug.service.batch.columnar;
+
+import cn.hutool.core.util.StrUtil;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import cn.iocoder.yudao.module.drug.service.batch.spill.SpillRowStore;
+
+import java.util.*;
+
+/**
+ * 溢写到磁盘的暂存数据的按列读取
+ * <p>
+ * 需要某一列时顺序扫描一遍溢写存储，只解码该字段，重建出与内存暂存相同的列。
+ * 最近使用的 {@link #CACHED_COLUMNS} 列留在内存中，其余的用完即释放，
+ * 因此堆内存只与单列的大小相关，代价是每列多读一遍磁盘（通常命中页缓存）
+ *
+ * @author hyh
+ */
+public class SpilledColumnSource implements ColumnSource {
+
+    private static final int CACHED_COLUMNS = 2;
+
+    private final TableSchema schema;
+    private final SpillRowStore store;
+    private final List<String> columnNames;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final Map<Integer, ColumnVector> cache = new LinkedHashMap<>(CACHED_COLUMNS + 1, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ColumnVector> eldest) {
+            return size() > CACHED_COLUMNS;
+        }
+
+    };
+
+    public SpilledColumnSource(TableSchema schema, SpillRowStore store) {
+        this.schema = schema;
+        this.store = store;
+        List<String> names = new ArrayList<>(schema.size());
+        for (int i = 0; i < schema.size(); i++) {
+            String column = schema.getColumn(i).getColumn();
+            names.add(column);
+            columnIndex.put(column, i);
+            columnIndex.put(StrUtil.toCamelCase(column), i);
+        }
+        this.columnNames = Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public TableTypeEnum getTableType() {
+        return schema.getTableType();
+    }
+
+    @Override
+    public int getRowCount() {
+        return store.getRowCount();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public boolean hasColumn(String name) {
+        return columnIndex.containsKey(name);
+    }
+
+    @Override
+    public ColumnVector column(String name) {
+        Integer index = columnIndex.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("本表没有字段: " + name);
+        }
+        return cache.computeIfAbsent(index, this::load);
+    }
+
+    public long getSpilledBytes() {
+        return store.getBytes();
+    }
+
+    private ColumnVector load(int index) {
+        ColumnVector vector = ColumnVector.create(schema.getColumn(index));
+        SpillRowStore.Cursor cursor = store.cursor();
+        while (cursor.hasNext()) {
+            vector.append(cursor.nextColumn(index));
+        }
+        return vector;
+    }
+
+}
@@ -0,0 +1,69 @@
+package cn.iocoder.yudao.module.drug.service.batch.dedup;
+
+/**
+ * 基于 long[] 位图的布隆过滤器
+ * <p>
+ * 元素以 64 位指纹（{@link RowFingerprint}）表示，k 个位置由指纹拆出的两个哈希值按
+ * Kirsch-Mitzenmacher 双重哈希生成，不需要再次计算哈希。
+ * 按预计元素数和误判率确定位数与哈希函数个数：存在的元素一定判定为存在，不存在的元素以约 fpp 的概率被误判为存在。
+ * 构建完成后只读访问是线程安全的
+ *
+ * @author hyh
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final long bitSize;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 预计插入的元素数，实际超出时误判率上升
+     * @param fpp                期望的误判率，取值 (0, 1)
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("误判率必须在 (0, 1) 之间: " + fpp);
+        }
+        long n = Math.max(1, expectedInsertions);
+        // m = -n * ln(p) / (ln2)^2，按 64 位对齐；k = m / n * ln2
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (LN2 * LN2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new long[words];
+        this.bitSize = (long) words << 6;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitSize / n * LN2)));
+    }
+
+    public void put(long fingerprint) {
+        long h1 = fingerprint;
+        long h2 = Long.rotateLeft(fingerprint, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * @return false 表示一定不存在；true 表示可能存在
+     */
+    public boolean mightContain(long fingerprint) {
+        long h1 = fingerprint;
+        long h2 = Long.rotateLeft(fingerprint, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 估算占用的堆内存字节数
+     */
+    public long estimatedBytes() {
+        return 16L + 8L * bits.length;
+    }
+
+}
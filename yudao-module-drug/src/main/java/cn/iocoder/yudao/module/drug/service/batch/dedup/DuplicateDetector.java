@@ -0,0 +1,116 @@
+package cn.iocoder.yudao.module.drug.service.batch.dedup;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 重复行检测器
+ * <p>
+ * 以 {@link RowFingerprint} 计算的 64 位指纹为输入：
+ * <ul>
+ *     <li>精确模式：指纹存入 {@link LongOpenHashSet}，能判断每一行是否重复</li>
+ *     <li>近似模式：指纹只写入 {@link HyperLogLog}，内存固定 16KB，
+ *     重复行数 = 总行数 - 估算的不同行数，无法定位具体行</li>
+ *     <li>自动模式：先按精确模式计数，指纹数超过上限后把已有指纹灌入 HyperLogLog 并切换为近似模式</li>
+ * </ul>
+ * 同一个检测器可以连续接收多个文件的行，用于跨文件查重。非线程安全
+ *
+ * @author hyh
+ */
+@Slf4j
+public class DuplicateDetector {
+
+    public enum Mode {
+
+        /**
+         * 精确计数
+         */
+        EXACT,
+        /**
+         * HyperLogLog 近似计数
+         */
+        APPROXIMATE,
+        /**
+         * 超过精确上限后自动降级为近似计数
+         */
+        AUTO
+
+    }
+
+    private final Mode mode;
+    private final int exactLimit;
+
+    private LongOpenHashSet exactSet;
+    private HyperLogLog hyperLogLog;
+
+    private long rowCount;
+    private long exactDuplicates;
+
+    /**
+     * @param mode       检测模式
+     * @param exactLimit 自动模式下精确计数的指纹个数上限，其余模式忽略
+     */
+    public DuplicateDetector(Mode mode, int exactLimit) {
+        this.mode = mode;
+        this.exactLimit = exactLimit;
+        if (mode == Mode.APPROXIMATE) {
+            this.hyperLogLog = new HyperLogLog();
+        } else {
+            this.exactSet = new LongOpenHashSet();
+        }
+    }
+
+    /**
+     * 记录一行
+     *
+     * @param fingerprint 行指纹
+     * @return 能确定该行与之前某行重复时返回 true；近似模式下始终返回 false
+     */
+    public boolean add(long fingerprint) {
+        rowCount++;
+        if (hyperLogLog != null) {
+            hyperLogLog.offer(fingerprint);
+            return false;
+        }
+        if (!exactSet.add(fingerprint)) {
+            exactDuplicates++;
+            return true;
+        }
+        if (mode == Mode.AUTO && exactSet.size() > exactLimit) {
+            degrade();
+        }
+        return false;
+    }
+
+    /**
+     * 已记录的行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 重复行数，近似模式下为估算值
+     */
+    public long getDuplicateCount() {
+        if (hyperLogLog == null) {
+            return exactDuplicates;
+        }
+        return Math.max(0, rowCount - hyperLogLog.cardinality());
+    }
+
+    /**
+     * 当前结果是否为估算值
+     */
+    public boolean isApproximate() {
+        return hyperLogLog != null;
+    }
+
+    private void degrade() {
+        log.info("重复行检测指纹数超过上限{}，切换为近似计数", exactLimit);
+        HyperLogLog estimator = new HyperLogLog();
+        exactSet.forEach(estimator::offer);
+        this.hyperLogLog = estimator;
+        this.exactSet = null;
+    }
+
+}
@@ -0,0 +1,135 @@
+package cn.iocoder.yudao.module.drug.service.batch.dedup;
+
+import java.util.function.LongConsumer;
+
+/**
+ * long 的开放寻址哈希集合
+ * <p>
+ * 元素直接存放在 long[] 中，线性探测，负载因子 0.5，
+ * 每个元素约占 16 字节（HashSet&lt;Long&gt; 约 50 字节以上），且不产生装箱对象。
+ * 0 作为空槽标记，元素 0 单独记录。非线程安全
+ *
+ * @author hyh
+ */
+public class LongOpenHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private int resizeThreshold;
+
+    public LongOpenHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 预计元素个数，用于确定初始容量
+     */
+    public LongOpenHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * 添加元素
+     *
+     * @return 元素原先不存在时返回 true
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(value);
+        while (slots[index] != 0) {
+            if (slots[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size >= resizeThreshold) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int index = indexOf(value);
+        while (slots[index] != 0) {
+            if (slots[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历所有元素，顺序不确定
+     */
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long value : slots) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    public long estimatedBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    private int indexOf(long value) {
+        // 指纹本身已经充分混淆，这里再折叠一次高位以兼容普通 long
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = slots;
+        allocate(newCapacity);
+        for (long value : old) {
+            if (value != 0) {
+                int index = indexOf(value);
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = capacity >>> 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+        if (needed > (1 << 30)) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+}
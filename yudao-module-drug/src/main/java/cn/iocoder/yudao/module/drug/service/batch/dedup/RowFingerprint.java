@@ -0,0 +1,98 @@
+package cn.iocoder.yudao.module.drug.service.batch.dedup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 行指纹计算
+ * <p>
+ * 逐个字符把单元格内容折叠成 64 位哈希（FNV-1a，最后做一次 MurmurHash3 的混淆），
+ * 单元格之间插入分隔标记、null 与空串区分开，整个过程不拼接中间字符串
+ *
+ * @author hyh
+ */
+public final class RowFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /**
+     * 单元格分隔标记，取 Unicode 非字符，正常文本中不会出现
+     */
+    private static final char CELL_SEPARATOR = '\uFFFF';
+    private static final char NULL_MARKER = '\uFFFE';
+
+    private RowFingerprint() {
+    }
+
+    /**
+     * 计算 EasyExcel 原始行（列号 -> 文本）的指纹，按列号的迭代顺序参与计算
+     */
+    public static long of(Map<Integer, String> row) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String value : row.values()) {
+            hash = mixCell(hash, value);
+        }
+        return finish(hash);
+    }
+
+    /**
+     * 计算已转换的行值的指纹，可用于导入、质控阶段的跨文件查重
+     */
+    public static long of(Object[] values) {
+        long hash = FNV_OFFSET_BASIS;
+        for (Object value : values) {
+            hash = mixCell(hash, toText(value));
+        }
+        return finish(hash);
+    }
+
+    /**
+     * 计算单个编码的指纹，用于药品编码等取值的集合查找
+     */
+    public static long of(CharSequence value) {
+        return finish(mixCell(FNV_OFFSET_BASIS, value));
+    }
+
+    private static long mixCell(long hash, CharSequence value) {
+        if (value == null) {
+            hash = mixChar(hash, NULL_MARKER);
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                hash = mixChar(hash, value.charAt(i));
+            }
+        }
+        return mixChar(hash, CELL_SEPARATOR);
+    }
+
+    private static long mixChar(long hash, char c) {
+        hash ^= c & 0xFF;
+        hash *= FNV_PRIME;
+        hash ^= c >>> 8;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static CharSequence toText(Object value) {
+        if (value == null || value instanceof CharSequence) {
+            return (CharSequence) value;
+        }
+        // 1.0 与 1.00 视为同一个值
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        }
+        return value.toString();
+    }
+
+    /**
+     * MurmurHash3 fmix64，让低位也充分扩散，便于开放寻址和 HyperLogLog 取位
+     */
+    static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
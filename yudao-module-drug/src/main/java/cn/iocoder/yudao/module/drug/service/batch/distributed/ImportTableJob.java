@@ -0,0 +1,44 @@
+package cn.iocoder.yudao.module.drug.service.batch.distributed;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 表级导入作业
+ * <p>
+ * 集群执行时由协调节点按表生成，投递给任意节点执行
+ *
+ * @author hyh
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportTableJob {
+
+    /**
+     * 执行批次编号，每次开始导入（含重试）生成一个，用于丢弃旧批次遗留的作业
+     */
+    private String runId;
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+    /**
+     * 表类型
+     */
+    private TableTypeEnum tableType;
+    /**
+     * 表对应的文件，路径位于共享的上传目录中
+     */
+    private FileInfo fileInfo;
+    /**
+     * 写入模式编码
+     */
+    private String loadMode;
+
+}
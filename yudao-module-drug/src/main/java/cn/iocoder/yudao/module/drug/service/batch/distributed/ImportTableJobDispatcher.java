@@ -0,0 +1,20 @@
+package cn.iocoder.yudao.module.drug.service.batch.distributed;
+
+/**
+ * 表级导入作业的投递器
+ * <p>
+ * 开启集群执行（yudao.drug-import.distributed.enabled）时才会注册实现，
+ * 未注册时表作业在本节点的表级线程池中执行
+ *
+ * @author hyh
+ */
+public interface ImportTableJobDispatcher {
+
+    /**
+     * 投递表作业，由集群中任意节点消费执行，结果写入 {@link cn.iocoder.yudao.module.drug.dal.redis.batch.ImportTableJobRedisDAO}
+     *
+     * @param job 表作业
+     */
+    void dispatch(ImportTableJob job);
+
+}
@@ -0,0 +1,58 @@
+package cn.iocoder.yudao.module.drug.service.batch.distributed;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 表级导入作业的执行结果，由执行节点写入 Redis，协调节点汇总
+ *
+ * @author hyh
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportTableJobResult {
+
+    /**
+     * 表类型
+     */
+    private String tableType;
+    /**
+     * 是否执行成功（执行过程没有抛出异常）
+     */
+    private Boolean success;
+    /**
+     * 导入结果中是否有错误
+     */
+    private Boolean hasError;
+    /**
+     * 导入批次号，任务取消时据此清理已写入的数据
+     */
+    private String importBatchNo;
+    /**
+     * 成功行数
+     */
+    private Integer successCount;
+    /**
+     * 失败行数
+     */
+    private Integer failedCount;
+    /**
+     * 执行失败的原因
+     */
+    private String errorMessage;
+    /**
+     * 执行节点
+     */
+    private String node;
+    /**
+     * 完成时间
+     */
+    private LocalDateTime finishTime;
+
+}
@@ -0,0 +1,325 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import cn.iocoder.yudao.module.drug.enums.ImportLoadModeEnum;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.DrugDataImportService;
+import cn.iocoder.yudao.module.drug.service.batch.ImportErrorRowService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分块并行写入器
+ * <p>
+ * 同一张表的行按固定大小切块，由写入线程池中的多个线程同时入库。
+ * 每张表同时在途的分块数受 {@link DrugImportProperties.Chunk#getConcurrency(TableTypeEnum)} 限制，
+ * 既能把大表的写入摊到多个数据库连接上，又不会把连接池占满；
+ * 分块的结果始终按提交顺序合并到 {@link ImportResult}，错误明细的顺序与 Excel 行序一致。
+ * 错误行在合并时写入错误行表，{@link ImportResult#getImportErrors()} 只保留前几条样例。
+ * 分块因写入异常整块失败后，断点停在该分块之前，之后合并的分块不再推进断点，续传时从失败的分块重新导入
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ChunkParallelWriter {
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private DrugDataImportService dataImportService;
+    @Resource
+    private ImportErrorRowService errorRowService;
+    @Resource
+    @Qualifier("drugImportWriteExecutor")
+    private AsyncTaskExecutor writeExecutor;
+
+    /**
+     * 为一张表开启一次分块写入
+     *
+     * @param taskId           任务ID
+     * @param tableType        表类型
+     * @param importBatchNo    导入批次号
+     * @param loadMode         数据写入模式
+     * @param result           汇总结果，分块完成后在调用方线程中累加
+     * @param progressListener 分块完成回调，可为 null
+     */
+    public Session open(Long taskId, TableTypeEnum tableType, String importBatchNo, ImportLoadModeEnum loadMode,
+                        ImportResult result, ProgressListener progressListener) {
+        int concurrency = importProperties.getChunk().getConcurrency(tableType);
+        log.debug("开启分块写入: taskId={}, tableType={}, 并发数={}", taskId, tableType, concurrency);
+        return new Session(taskId, tableType, importBatchNo, loadMode, concurrency,
+                importProperties.getErrorRow().getSampleSize(), result, progressListener);
+    }
+
+    /**
+     * 一张表的分块写入会话，只能在单个线程中使用
+     */
+    public class Session {
+
+        private final Long taskId;
+        private final TableTypeEnum tableType;
+        private final String importBatchNo;
+        private final ImportLoadModeEnum loadMode;
+        private final ImportResult result;
+        private final ProgressListener progressListener;
+        /**
+         * 在途分块的许可，写入完成时释放
+         */
+        private final Semaphore permits;
+        /**
+         * 按提交顺序排列的在途分块
+         */
+        private final Deque<PendingChunk> pending = new ArrayDeque<>();
+        /**
+         * 正在写库的分块数，用于取消时等待已开始的写入结束
+         */
+        private final AtomicInteger runningWrites = new AtomicInteger();
+        private volatile boolean cancelled;
+        /**
+         * 结果中保留的错误行样例数
+         */
+        private final int errorSampleSize;
+        /**
+         * 已合并、尚未写入错误行表的错误行
+         */
+        private final List<ImportResult.ImportError> pendingErrors = new ArrayList<>();
+
+        private int completedChunks;
+        private long completedRows;
+        /**
+         * 是否已有分块因写入异常整块失败
+         */
+        private boolean chunkFailed;
+
+        private Session(Long taskId, TableTypeEnum tableType, String importBatchNo, ImportLoadModeEnum loadMode,
+                        int concurrency, int errorSampleSize, ImportResult result, ProgressListener progressListener) {
+            this.taskId = taskId;
+            this.tableType = tableType;
+            this.importBatchNo = importBatchNo;
+            this.loadMode = loadMode;
+            this.result = result;
+            this.progressListener = progressListener;
+            this.permits = new Semaphore(concurrency);
+            this.errorSampleSize = errorSampleSize;
+        }
+
+        /**
+         * 提交一个分块，在途分块已满时阻塞等待
+         */
+        public void submit(List<ImportRow> chunk) throws InterruptedException {
+            permits.acquire();
+            CompletableFuture<ImportResult> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> write(chunk), writeExecutor);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            future.whenComplete((r, e) -> permits.release());
+            pending.addLast(new PendingChunk(chunk, future));
+            mergeCompleted(false);
+        }
+
+        /**
+         * 合并已经完成的分块，不阻塞
+         */
+        public void mergeCompleted() {
+            mergeCompleted(false);
+        }
+
+        /**
+         * 等待所有分块完成并合并结果
+         */
+        public void finish() {
+            mergeCompleted(true);
+        }
+
+        /**
+         * 放弃尚未开始的分块，并等待已经在写的分块执行完
+         * <p>
+         * 返回后本会话不会再有数据写入，调用方可以安全地清理本批次已写入的数据
+         */
+        public void cancel() {
+            cancelled = true;
+            pending.forEach(chunk -> chunk.future.cancel(false));
+            pending.clear();
+            synchronized (runningWrites) {
+                while (runningWrites.get() > 0) {
+                    try {
+                        runningWrites.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 在写入线程中写入一个分块；先登记再检查取消标记，与 {@link #cancel()} 配合保证取消后不会再开始写入
+         */
+        private ImportResult write(List<ImportRow> chunk) {
+            runningWrites.incrementAndGet();
+            try {
+                if (cancelled) {
+                    throw new CancellationException("分块写入已取消");
+                }
+                return dataImportService.importBatch(taskId, tableType, importBatchNo, chunk, loadMode);
+            } finally {
+                if (runningWrites.decrementAndGet() == 0) {
+                    synchronized (runningWrites) {
+                        runningWrites.notifyAll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 从队首开始按顺序合并已完成的分块
+         *
+         * @param waitAll 是否等待全部分块完成
+         */
+        private void mergeCompleted(boolean waitAll) {
+            while (!pending.isEmpty() && (waitAll || pending.peekFirst().future.isDone())) {
+                PendingChunk chunk = pending.pollFirst();
+                try {
+                    merge(chunk.rows, chunk.future.join());
+                } catch (Exception e) {
+                    mergeFailure(chunk.rows, e);
+                    chunkFailed = true;
+                }
+                // 先把错误行落库再回调进度，断点续传时断点之前的错误行都已保存
+                flushErrors();
+                completedChunks++;
+                completedRows += chunk.rows.size();
+                CommittedPrefix committed = chunkFailed ? null : new CommittedPrefix(completedChunks,
+                        chunk.rows.get(chunk.rows.size() - 1).getRowIndex(),
+                        result.getSuccessCount(), result.getFailedCount());
+                notifyProgress(committed);
+            }
+        }
+
+        private void merge(List<ImportRow> rows, ImportResult chunkResult) {
+            result.setTotalCount(result.getTotalCount() + rows.size());
+            result.setSuccessCount(result.getSuccessCount() + chunkResult.getSuccessCount());
+            result.setFailedCount(result.getFailedCount() + chunkResult.getFailedCount());
+            if (chunkResult.getImportErrors() == null) {
+                return;
+            }
+            for (ImportResult.ImportError error : chunkResult.getImportErrors()) {
+                // 块内下标换算为 Excel 行号，方便用户定位
+                if (error.getRowIndex() == null && error.getBatchIndex() != null
+                        && error.getBatchIndex() < rows.size()) {
+                    error.setRowIndex(rows.get(error.getBatchIndex()).getRowIndex());
+                }
+                collectError(error);
+            }
+        }
+
+        /**
+         * 整块写入失败：每一行都记一条错误，校验失败的行保留原来的错误信息
+         */
+        private void mergeFailure(List<ImportRow> rows, Exception e) {
+            int firstRow = rows.get(0).getRowIndex();
+            int lastRow = rows.get(rows.size() - 1).getRowIndex();
+            log.error("分块导入失败: taskId={}, tableType={}, 行号范围={}-{}", taskId, tableType, firstRow, lastRow, e);
+            result.setTotalCount(result.getTotalCount() + rows.size());
+            result.setFailedCount(result.getFailedCount() + rows.size());
+            String message = "批次导入失败: " + ExceptionUtil.getRootCauseMessage(e);
+            String detail = String.format("影响范围: 第%d-%d行", firstRow, lastRow);
+            for (int i = 0; i < rows.size(); i++) {
+                ImportRow row = rows.get(i);
+                collectError(ImportResult.ImportError.builder()
+                        .batchIndex(i)
+                        .rowIndex(row.getRowIndex())
+                        .errorType(row.hasParseError() ? "VALIDATION_ERROR" : "BATCH_ERROR")
+                        .errorMessage(row.hasParseError() ? row.getParseError() : message)
+                        .errorDetail(row.hasParseError() ? null : detail)
+                        .build());
+            }
+        }
+
+        private void collectError(ImportResult.ImportError error) {
+            if (result.getImportErrors().size() < errorSampleSize) {
+                result.getImportErrors().add(error);
+            }
+            pendingErrors.add(error);
+        }
+
+        /**
+         * 把已合并的错误行写入错误行表；写入失败只记录日志，不影响导入本身
+         */
+        private void flushErrors() {
+            if (pendingErrors.isEmpty()) {
+                return;
+            }
+            try {
+                errorRowService.saveErrors(taskId, tableType, importBatchNo, pendingErrors);
+            } catch (Exception e) {
+                log.error("保存导入错误行失败: taskId={}, tableType={}, 行数={}",
+                        taskId, tableType, pendingErrors.size(), e);
+            } finally {
+                pendingErrors.clear();
+            }
+        }
+
+        private void notifyProgress(CommittedPrefix committed) {
+            if (progressListener == null) {
+                return;
+            }
+            try {
+                progressListener.onChunkCompleted(completedChunks, completedRows, result, committed);
+            } catch (Exception e) {
+                // 进度回调失败不影响导入本身
+                log.warn("进度回调失败: tableType={}", tableType, e);
+            }
+        }
+
+    }
+
+    private record PendingChunk(List<ImportRow> rows, CompletableFuture<ImportResult> future) {
+    }
+
+    /**
+     * 可以作为断点的已提交前缀：从第一个分块到 chunks 个分块都已正常写入（或逐行记录为失败）
+     *
+     * @param chunks       本会话中已提交的分块数
+     * @param lastRowIndex 最后一个已提交分块中最后一行的 Excel 行号
+     * @param successRows  截至该分块的累计成功行数
+     * @param failedRows   截至该分块的累计失败行数
+     */
+    public record CommittedPrefix(int chunks, int lastRowIndex, int successRows, int failedRows) {
+    }
+
+    /**
+     * 分块进度回调
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param completedChunks 已完成的分块数
+         * @param completedRows   已完成分块中的行数（含失败行）
+         * @param result          当前累计的导入结果
+         * @param committed       推进后的断点；已有分块因写入异常整块失败时为 null，断点不再推进
+         */
+        void onChunkCompleted(int completedChunks, long completedRows, ImportResult result, CommittedPrefix committed);
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 表级导入断点
+ * <p>
+ * 分块按提交顺序合并，合并完成的分块之前的所有行都已落库（或已记录为失败），
+ * 因此只需要记住最后一个已提交分块的 Excel 行号，重试时跳过这些行即可。
+ * 并行写入时断点之后的分块可能也已提交，续传前按 import_row_index 清掉断点之后的数据；
+ * 分块因写入异常整块失败后断点不再推进，续传会从该分块重新导入
+ *
+ * @author hyh
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+
+    /**
+     * 最后一个已提交分块的 Excel 行号，行号不大于它的行不再导入
+     */
+    private Integer rowIndex;
+    /**
+     * 已提交的分块数
+     */
+    private Integer chunkNo;
+    /**
+     * 导入批次号，续传时沿用，保证同一张表的数据属于同一批次
+     */
+    private String importBatchNo;
+    /**
+     * 断点之前的成功行数
+     */
+    private Long successRows;
+    /**
+     * 断点之前的失败行数
+     */
+    private Long failedRows;
+
+}
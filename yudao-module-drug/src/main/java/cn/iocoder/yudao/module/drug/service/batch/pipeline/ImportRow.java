@@ -0,0 +1,35 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 管道中流转的一行业务数据
+ * <p>
+ * values 按 {@link TableSchema} 的字段顺序存放已转换好类型的值，
+ * 不再保留原始的 Map 结构，减少每行的对象开销
+ *
+ * @author hyh
+ */
+@Data
+@AllArgsConstructor
+public class ImportRow {
+
+    /**
+     * Excel 行号（从 1 开始，与用户在 Excel 中看到的一致）
+     */
+    private int rowIndex;
+    /**
+     * 字段值
+     */
+    private Object[] values;
+    /**
+     * 解析阶段发现的错误，为空表示该行可以继续质控和入库
+     */
+    private String parseError;
+
+    public boolean hasParseError() {
+        return parseError != null;
+    }
+
+}
@@ -0,0 +1,93 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 流式行读取监听器
+ * <p>
+ * EasyExcel 每读到一行就回调一次，这里把原始的 列号 -> 文本 映射
+ * 按 {@link TableSchema} 转换为 {@link ImportRow} 并立即交给下游，自身不保留任何行
+ *
+ * @author hyh
+ */
+@Slf4j
+public class RowStreamReadListener extends AnalysisEventListener<Map<Integer, String>> {
+
+    private final TableSchema schema;
+    private final Consumer<ImportRow> sink;
+
+    /**
+     * 字段下标 -> Excel 列号，-1 表示文件中没有该列
+     */
+    private int[] columnMapping;
+    private long rowCount;
+
+    public RowStreamReadListener(TableSchema schema, Consumer<ImportRow> sink) {
+        this.schema = schema;
+        this.sink = sink;
+    }
+
+    @Override
+    public void invokeHeadMap(Map<Integer, String> headMap, AnalysisContext context) {
+        int[] mapping = new int[schema.size()];
+        Arrays.fill(mapping, -1);
+        headMap.forEach((columnIndex, header) -> {
+            int fieldIndex = schema.indexOfHeader(header);
+            if (fieldIndex >= 0) {
+                mapping[fieldIndex] = columnIndex;
+            }
+        });
+        this.columnMapping = mapping;
+        log.debug("表头映射完成: tableType={}, mapping={}", schema.getTableType(), Arrays.toString(mapping));
+    }
+
+    @Override
+    public void invoke(Map<Integer, String> data, AnalysisContext context) {
+        if (columnMapping == null || isBlankRow(data)) {
+            return;
+        }
+        int rowIndex = context.readRowHolder().getRowIndex() + 1;
+        Object[] values = new Object[schema.size()];
+        String parseError = null;
+        for (int i = 0; i < values.length; i++) {
+            int columnIndex = columnMapping[i];
+            if (columnIndex < 0) {
+                continue;
+            }
+            TableSchema.ColumnDef column = schema.getColumn(i);
+            try {
+                values[i] = column.getType().convert(data.get(columnIndex));
+            } catch (IllegalArgumentException e) {
+                if (parseError == null) {
+                    parseError = column.getHeader() + ": " + e.getMessage();
+                }
+            }
+        }
+        rowCount++;
+        sink.accept(new ImportRow(rowIndex, values, parseError));
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        log.debug("流式解析完成: tableType={}, rows={}", schema.getTableType(), rowCount);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private boolean isBlankRow(Map<Integer, String> data) {
+        // 第 0 列是序号，不参与判断
+        return data.entrySet().stream()
+                .filter(entry -> entry.getKey() > 0)
+                .noneMatch(entry -> StringUtils.hasText(entry.getValue()));
+    }
+
+}
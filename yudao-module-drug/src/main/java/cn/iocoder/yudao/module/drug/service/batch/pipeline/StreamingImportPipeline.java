@@ -0,0 +1,244 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import cn.iocoder.yudao.module.drug.enums.ImportLoadModeEnum;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.DrugDataParseService;
+import cn.iocoder.yudao.module.drug.service.batch.qc.QcRuleEvaluator;
+import cn.iocoder.yudao.module.drug.service.batch.scheduler.ImportCancellationRegistry;
+import com.alibaba.excel.exception.ExcelAnalysisStopException;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.FILE_READ_ERROR;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.IMPORT_BATCH_FAILED;
+
+/**
+ * 流式导入管道：解析 -> 质控 -> 入库
+ * <p>
+ * 解析线程通过 {@link RowStreamReadListener} 把行放进有界队列，
+ * 调用方线程从队列中取行、做行级校验和质控规则检查、凑满一批后交给 {@link ChunkParallelWriter} 并行写库。
+ * 每行在这里一次执行全部质控规则，质控不再单独扫描整表。
+ * 队列写满时解析线程阻塞，因此无论文件多大，堆中最多只有
+ * 队列容量 + 在途分块的行，{@link ImportResult} 的计数随每个分块递增更新
+ * <p>
+ * 解析线程每读一行、调用方线程每提交一个分块前检查任务是否已取消，取消后两端都尽快退出，
+ * 并等待已开始写库的分块结束。调用方线程异常退出时中断解析线程并清空队列，
+ * 解析线程不会阻塞在写满的队列上一直占用解析线程池
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class StreamingImportPipeline {
+
+    /**
+     * 流结束标记
+     */
+    private static final ImportRow END_OF_STREAM = new ImportRow(-1, new Object[0], null);
+
+    private static final long POLL_TIMEOUT_MS = 500;
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private DrugDataParseService dataParseService;
+    @Resource
+    private ChunkParallelWriter chunkParallelWriter;
+    @Resource
+    private ImportCancellationRegistry cancellationRegistry;
+    @Resource
+    @Qualifier("drugImportParseExecutor")
+    private AsyncTaskExecutor parseExecutor;
+
+    /**
+     * 以流式方式导入单个表
+     *
+     * @param taskId           任务ID
+     * @param tableType        表类型
+     * @param fileInfo         文件信息
+     * @param importBatchNo    导入批次号
+     * @param loadMode         数据写入模式
+     * @param checkpoint       续传断点，为 null 时从头导入；不为 null 时跳过断点之前的行，计数从断点处累加
+     * @param qcEvaluator      质控规则执行器，为 null 时只做行级校验
+     * @param progressListener 每个分块入库后的回调，可为 null
+     * @return 导入结果，计数在执行过程中已逐批更新
+     */
+    public ImportResult execute(Long taskId, TableTypeEnum tableType, FileInfo fileInfo,
+                                String importBatchNo, ImportLoadModeEnum loadMode, ImportCheckpoint checkpoint,
+                                QcRuleEvaluator qcEvaluator, ChunkParallelWriter.ProgressListener progressListener) {
+        TableSchema schema = TableSchema.of(tableType);
+        // LOAD DATA 单次装载的代价与行数关系不大，批次越大越划算
+        int batchSize = loadMode == ImportLoadModeEnum.LOAD_DATA
+                ? importProperties.getLoadData().getBatchSize() : importProperties.getBatchSize();
+        BlockingQueue<ImportRow> queue = new ArrayBlockingQueue<>(importProperties.getStreaming().getQueueCapacity());
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        AtomicReference<Throwable> parseError = new AtomicReference<>();
+
+        int skipUntilRow = 0;
+        int initialSuccess = 0;
+        int initialFailed = 0;
+        if (checkpoint != null && checkpoint.getRowIndex() != null) {
+            skipUntilRow = checkpoint.getRowIndex();
+            initialSuccess = checkpoint.getSuccessRows() != null ? checkpoint.getSuccessRows().intValue() : 0;
+            initialFailed = checkpoint.getFailedRows() != null ? checkpoint.getFailedRows().intValue() : 0;
+        }
+        ImportResult result = ImportResult.builder()
+                .tableType(tableType.name())
+                .importBatchNo(importBatchNo)
+                .startTime(LocalDateTime.now())
+                .totalCount(initialSuccess + initialFailed)
+                .successCount(initialSuccess)
+                .failedCount(initialFailed)
+                .importErrors(new ArrayList<>())
+                .build();
+
+        log.info("开始流式导入: taskId={}, tableType={}, 写入模式={}, 批大小={}, 队列容量={}, 断点行号={}",
+                taskId, tableType, loadMode, batchSize, queue.remainingCapacity(), skipUntilRow);
+
+        // 生产者：解析线程
+        Future<?> parseFuture = parseExecutor.submit(() -> {
+            try {
+                dataParseService.streamExcelFile(fileInfo, tableType, row -> {
+                    if (cancellationRegistry.isCancelled(taskId, tableType)) {
+                        throw new ExcelAnalysisStopException();
+                    }
+                    offer(queue, row, aborted);
+                });
+            } catch (ExcelAnalysisStopException e) {
+                log.debug("流式解析被中止: taskId={}, tableType={}", taskId, tableType);
+            } catch (Throwable e) {
+                parseError.set(e);
+            } finally {
+                offerEnd(queue, aborted);
+            }
+        });
+
+        // 消费者：当前线程负责质控，入库交给分块写入器
+        ChunkParallelWriter.Session session = chunkParallelWriter.open(taskId, tableType, importBatchNo, loadMode,
+                result, progressListener);
+        long skippedRows = 0;
+        try {
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            while (true) {
+                ImportRow row = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (row == null) {
+                    // 解析较慢时顺便合并已完成的分块，让进度及时刷新
+                    cancellationRegistry.throwIfCancelled(taskId, tableType);
+                    session.mergeCompleted();
+                    continue;
+                }
+                if (row == END_OF_STREAM) {
+                    // 解析线程可能因取消而提前结束
+                    cancellationRegistry.throwIfCancelled(taskId, tableType);
+                    break;
+                }
+                if (row.getRowIndex() <= skipUntilRow) {
+                    // 断点之前的行已经提交过，只需读过去
+                    skippedRows++;
+                    continue;
+                }
+                // 校验失败的行也随分块一起按顺序计数，保证断点之前的统计是完整的
+                String error = schema.validateRow(row);
+                if (error == null && qcEvaluator != null) {
+                    // 前置质控不通过的行和解析失败的行一样不写库
+                    error = qcEvaluator.evaluate(row);
+                }
+                if (error != null) {
+                    row.setParseError(error);
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    cancellationRegistry.throwIfCancelled(taskId, tableType);
+                    session.submit(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                session.submit(batch);
+            }
+            session.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(queue, aborted, parseFuture, session);
+            throw exception(IMPORT_BATCH_FAILED);
+        } catch (RuntimeException | Error e) {
+            abort(queue, aborted, parseFuture, session);
+            throw e;
+        }
+
+        if (parseError.get() != null) {
+            log.error("流式解析失败: taskId={}, tableType={}", taskId, tableType, parseError.get());
+            throw exception(FILE_READ_ERROR, parseError.get().getMessage());
+        }
+
+        LocalDateTime endTime = LocalDateTime.now();
+        result.setEndTime(endTime);
+        result.setProcessingTimeMs(Duration.between(result.getStartTime(), endTime).toMillis());
+        result.setSuccess(result.getFailedCount() == 0);
+        result.setHasError(result.getFailedCount() > 0);
+        result.setMessage(String.format("导入完成: 成功%d条，失败%d条", result.getSuccessCount(), result.getFailedCount()));
+        log.info("流式导入完成: taskId={}, tableType={}, 总数={}, 成功={}, 失败={}, 断点跳过={}, 耗时={}ms",
+                taskId, tableType, result.getTotalCount(), result.getSuccessCount(),
+                result.getFailedCount(), skippedRows, result.getProcessingTimeMs());
+        return result;
+    }
+
+    /**
+     * 中止管道：通知并中断解析线程，清空队列让阻塞在投递上的解析线程立即返回，再取消在途分块
+     */
+    private static void abort(BlockingQueue<ImportRow> queue, AtomicBoolean aborted, Future<?> parseFuture,
+                              ChunkParallelWriter.Session session) {
+        aborted.set(true);
+        parseFuture.cancel(true);
+        queue.clear();
+        session.cancel();
+    }
+
+    /**
+     * 阻塞式投递，队列满时等待；消费者中止后停止解析
+     */
+    private static void offer(BlockingQueue<ImportRow> queue, ImportRow row, AtomicBoolean aborted) {
+        try {
+            while (!aborted.get()) {
+                if (queue.offer(row, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+            throw new ExcelAnalysisStopException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelAnalysisStopException();
+        }
+    }
+
+    private static void offerEnd(BlockingQueue<ImportRow> queue, AtomicBoolean aborted) {
+        try {
+            while (!aborted.get()) {
+                if (queue.offer(END_OF_STREAM, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
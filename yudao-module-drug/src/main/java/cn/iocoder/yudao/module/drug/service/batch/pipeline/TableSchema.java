@@ -0,0 +1,282 @@
+package cn.iocoder.yudao.module.drug.service.batch.pipeline;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 业务表结构定义
+ * <p>
+ * 描述 Excel 表头与目标表字段之间的映射关系，以及每个字段的类型和是否必填。
+ * 解析、质控、入库各阶段都以这里的字段顺序作为 {@link ImportRow#getValues()} 的下标
+ *
+ * @author hyh
+ */
+@Getter
+public class TableSchema {
+
+    /**
+     * 每张业务表都会额外写入的任务字段
+     */
+    public static final String COLUMN_TASK_ID = "task_id";
+    public static final String COLUMN_IMPORT_BATCH_NO = "import_batch_no";
+    /**
+     * 行所在的 Excel 行号，断点续传时据此删除断点之后已经写入的行
+     */
+    public static final String COLUMN_IMPORT_ROW_INDEX = "import_row_index";
+
+    private static final Map<TableTypeEnum, TableSchema> SCHEMAS = new EnumMap<>(TableTypeEnum.class);
+
+    static {
+        register(new TableSchema(TableTypeEnum.HOSPITAL_INFO, List.of(
+                ColumnDef.required("数据上报日期", "upload_date", ColumnType.STRING),
+                ColumnDef.required("省级行政区划代码", "province_code", ColumnType.STRING),
+                ColumnDef.required("组织机构代码", "organization_code", ColumnType.STRING),
+                ColumnDef.required("医疗机构代码", "hospital_code", ColumnType.STRING),
+                ColumnDef.required("组织机构名称", "organization_name", ColumnType.STRING),
+                ColumnDef.required("年度药品总收入（元）", "annual_drug_income", ColumnType.DECIMAL),
+                ColumnDef.required("实有床位数", "beds_num", ColumnType.LONG),
+                ColumnDef.optional("执业医师数", "prac_doctor_num", ColumnType.LONG),
+                ColumnDef.optional("执业助理医师数", "ass_doctor_num", ColumnType.LONG),
+                ColumnDef.optional("总诊疗人次数", "visit_count", ColumnType.LONG),
+                ColumnDef.optional("出院人数", "leave_hos_count", ColumnType.LONG)
+        )));
+        register(new TableSchema(TableTypeEnum.DRUG_CATALOG, List.of(
+                ColumnDef.required("数据上报日期", "upload_date", ColumnType.STRING),
+                ColumnDef.required("省级行政区划代码", "province_code", ColumnType.STRING),
+                ColumnDef.required("组织机构代码", "organization_code", ColumnType.STRING),
+                ColumnDef.required("医疗机构代码", "hospital_code", ColumnType.STRING),
+                ColumnDef.required("国家药品编码（YPID）", "ypid", ColumnType.STRING),
+                ColumnDef.required("院内药品唯一码", "hos_drug_id", ColumnType.STRING),
+                ColumnDef.required("通用名", "drug_name", ColumnType.STRING),
+                ColumnDef.required("产品名称", "product_name", ColumnType.STRING),
+                ColumnDef.optional("商品名", "trade_name", ColumnType.STRING),
+                ColumnDef.required("批准文号", "approval_num", ColumnType.STRING),
+                ColumnDef.required("生产企业", "manufacturer", ColumnType.STRING),
+                ColumnDef.optional("剂型", "drug_form", ColumnType.STRING),
+                ColumnDef.optional("规格", "drug_spec", ColumnType.STRING),
+                ColumnDef.required("制剂单位", "dosage_unit", ColumnType.STRING),
+                ColumnDef.required("最小销售包装单位", "pack_unit", ColumnType.STRING),
+                ColumnDef.required("转换系数", "drug_factor", ColumnType.DECIMAL),
+                ColumnDef.optional("是否基药", "base_flag", ColumnType.STRING)
+        )));
+        register(new TableSchema(TableTypeEnum.DRUG_INBOUND, List.of(
+                ColumnDef.required("数据上报日期", "upload_date", ColumnType.STRING),
+                ColumnDef.required("省级行政区划代码", "province_code", ColumnType.STRING),
+                ColumnDef.required("组织机构代码", "organization_code", ColumnType.STRING),
+                ColumnDef.required("医疗机构代码", "hospital_code", ColumnType.STRING),
+                ColumnDef.required("国家药品编码（YPID）", "ypid", ColumnType.STRING),
+                ColumnDef.required("院内药品唯一码", "hos_drug_id", ColumnType.STRING),
+                ColumnDef.required("产品名称", "product_name", ColumnType.STRING),
+                ColumnDef.required("入库总金额（元）", "in_total_price", ColumnType.DECIMAL),
+                ColumnDef.required("入库数量（最小销售包装单位）", "in_pack_quantity", ColumnType.LONG),
+                ColumnDef.required("入库数量（最小制剂单位）", "in_dosage_quantity", ColumnType.LONG),
+                ColumnDef.optional("入库价格（最小销售包装单位）", "in_pack_price", ColumnType.DECIMAL),
+                ColumnDef.optional("入库价格（最小制剂单位）", "in_dosage_price", ColumnType.DECIMAL)
+        )));
+        register(new TableSchema(TableTypeEnum.DRUG_OUTBOUND, List.of(
+                ColumnDef.required("数据上报日期", "upload_date", ColumnType.STRING),
+                ColumnDef.required("省级行政区划代码", "province_code", ColumnType.STRING),
+                ColumnDef.required("组织机构代码", "organization_code", ColumnType.STRING),
+                ColumnDef.required("医疗机构代码", "hospital_code", ColumnType.STRING),
+                ColumnDef.required("国家药品编码（YPID）", "ypid", ColumnType.STRING),
+                ColumnDef.required("院内药品唯一码", "hos_drug_id", ColumnType.STRING),
+                ColumnDef.required("产品名称", "product_name", ColumnType.STRING),
+                ColumnDef.required("出库数量（最小销售包装单位）", "out_pack_quantity", ColumnType.LONG),
+                ColumnDef.required("出库数量（最小制剂单位）", "out_dosage_quantity", ColumnType.LONG)
+        )));
+        register(new TableSchema(TableTypeEnum.DRUG_USAGE, List.of(
+                ColumnDef.required("数据上报日期", "upload_date", ColumnType.STRING),
+                ColumnDef.required("省级行政区划代码", "province_code", ColumnType.STRING),
+                ColumnDef.required("组织机构代码", "organization_code", ColumnType.STRING),
+                ColumnDef.required("医疗机构代码", "hospital_code", ColumnType.STRING),
+                ColumnDef.required("国家药品编码（YPID）", "ypid", ColumnType.STRING),
+                ColumnDef.required("院内药品唯一码", "hos_drug_id", ColumnType.STRING),
+                ColumnDef.required("产品名称", "product_name", ColumnType.STRING),
+                ColumnDef.required("销售总金额（元）", "sell_total_price", ColumnType.DECIMAL),
+                ColumnDef.required("销售数量（最小销售包装单位）", "sell_pack_quantity", ColumnType.LONG),
+                ColumnDef.required("销售数量（最小制剂单位）", "sell_dosage_quantity", ColumnType.LONG),
+                ColumnDef.optional("销售日期", "sell_date", ColumnType.STRING),
+                ColumnDef.optional("科室名称", "department_name", ColumnType.STRING)
+        )));
+    }
+
+    private final TableTypeEnum tableType;
+    private final List<ColumnDef> columns;
+    /**
+     * 归一化后的表头 -> 字段下标
+     */
+    private final Map<String, Integer> headerIndex;
+    /**
+     * 写库时的字段列表：业务字段 + 任务字段
+     */
+    private final List<String> writeColumns;
+
+    private TableSchema(TableTypeEnum tableType, List<ColumnDef> columns) {
+        this.tableType = tableType;
+        this.columns = columns;
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            index.put(normalizeHeader(columns.get(i).getHeader()), i);
+        }
+        this.headerIndex = Collections.unmodifiableMap(index);
+        List<String> write = new ArrayList<>(columns.size() + 3);
+        columns.forEach(column -> write.add(column.getColumn()));
+        write.add(COLUMN_TASK_ID);
+        write.add(COLUMN_IMPORT_BATCH_NO);
+        write.add(COLUMN_IMPORT_ROW_INDEX);
+        this.writeColumns = Collections.unmodifiableList(write);
+    }
+
+    private static void register(TableSchema schema) {
+        SCHEMAS.put(schema.getTableType(), schema);
+    }
+
+    /**
+     * 获取表类型对应的结构定义
+     */
+    public static TableSchema of(TableTypeEnum tableType) {
+        TableSchema schema = SCHEMAS.get(tableType);
+        if (schema == null) {
+            throw new IllegalArgumentException("未定义表结构: " + tableType);
+        }
+        return schema;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public ColumnDef getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * 根据字段名查找下标，找不到返回 -1
+     */
+    public int indexOfColumn(String columnName) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getColumn().equals(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 根据 Excel 表头查找字段下标，找不到返回 -1
+     */
+    public int indexOfHeader(String header) {
+        return header == null ? -1 : headerIndex.getOrDefault(normalizeHeader(header), -1);
+    }
+
+    /**
+     * 行级校验：解析错误和必填字段
+     * <p>
+     * 流式导入和整表解析后分批导入共用，同一份文件在两条路径上的校验结果一致
+     *
+     * @return 错误信息，校验通过返回 null
+     */
+    public String validateRow(ImportRow row) {
+        if (row.hasParseError()) {
+            return row.getParseError();
+        }
+        Object[] values = row.getValues();
+        for (int i = 0; i < values.length && i < columns.size(); i++) {
+            if (values[i] == null && columns.get(i).isRequired()) {
+                return "缺少必填字段: " + columns.get(i).getHeader();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 表头归一化：去空白，全角括号统一为半角，兼容不同版本模板
+     */
+    public static String normalizeHeader(String header) {
+        return header.trim()
+                .replace('（', '(')
+                .replace('）', ')')
+                .replace(" ", "");
+    }
+
+    /**
+     * 字段类型
+     */
+    public enum ColumnType {
+
+        STRING,
+        LONG,
+        DECIMAL;
+
+        /**
+         * 将单元格文本转换为字段值，空文本返回 null
+         *
+         * @throws IllegalArgumentException 文本无法转换为对应类型
+         */
+        public Object convert(String text) {
+            if (text == null) {
+                return null;
+            }
+            String value = text.trim();
+            if (value.isEmpty()) {
+                return null;
+            }
+            switch (this) {
+                case LONG:
+                    try {
+                        return new BigDecimal(value.replace(",", "")).longValueExact();
+                    } catch (ArithmeticException | NumberFormatException e) {
+                        throw new IllegalArgumentException("不是有效的整数: " + value);
+                    }
+                case DECIMAL:
+                    try {
+                        return new BigDecimal(value.replace(",", ""));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("不是有效的数值: " + value);
+                    }
+                default:
+                    return value;
+            }
+        }
+
+    }
+
+    /**
+     * 字段定义
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ColumnDef {
+
+        /**
+         * Excel 表头
+         */
+        private final String header;
+        /**
+         * 目标表字段名
+         */
+        private final String column;
+        /**
+         * 字段类型
+         */
+        private final ColumnType type;
+        /**
+         * 是否必填
+         */
+        private final boolean required;
+
+        static ColumnDef required(String header, String column, ColumnType type) {
+            return new ColumnDef(header, column, type, true);
+        }
+
+        static ColumnDef optional(String header, String column, ColumnType type) {
+            return new ColumnDef(header, column, type, false);
+        }
+
+    }
+
+}
@@ -0,0 +1,366 @@
+package cn.iocoder.yudao.module.drug.service.batch.progress;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskProgressRedisDAO;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.mq.message.batch.ImportProgressBroadcastMessage;
+import cn.iocoder.yudao.module.drug.mq.producer.batch.ImportProgressProducer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 导入进度事件总线（SSE）
+ * <p>
+ * 由 {@link ImportProgressPublisher} 每次刷新后投递，不再定时读取 Redis。事件编号按任务在 Redis 中分配，
+ * 经 Redis Pub/Sub 广播到所有节点（{@link ImportProgressBroadcastMessage}），各节点推送给本节点的 SSE 连接，
+ * 因此任务可以在任意节点执行，客户端也可以连接、重连到任意节点。
+ * 每个任务在内存中保留最近的若干事件和每张表的最新状态：
+ * 客户端带 Last-Event-ID 重连时，只补发之后的事件；超出保留范围或首次连接时推送完整快照
+ * <p>
+ * 事件类型：task（{@link TaskProgressInfo}）、detail（{@link TaskDetailProgressInfo}）、finished（任务结束）。
+ * 只有本节点有（或最近有过）订阅者的任务才保留状态，其他任务的广播直接忽略：
+ * 首次订阅时从 Redis 读取快照作为初始状态，之后由广播增量更新。
+ * 没有订阅者、也没有新事件超过 {@link #IDLE_RETAIN_TIME} 的任务会被清理，不依赖结束事件（Pub/Sub 可能丢消息）。
+ * 订阅时任务已经结束的，推送快照和结束事件后立即关闭连接
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportProgressEventBus implements ImportProgressListener {
+
+    public static final String EVENT_TASK = "task";
+    public static final String EVENT_DETAIL = "detail";
+    public static final String EVENT_FINISHED = "finished";
+
+    /**
+     * 没有订阅者时保留任务状态的时长，从最后一个事件或最后一个订阅者离开时计时；
+     * 便于断开的客户端重连后补发事件（含结束事件）
+     */
+    private static final Duration IDLE_RETAIN_TIME = Duration.ofMinutes(10);
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private TaskProgressRedisDAO taskProgressRedisDAO;
+    @Resource
+    private ImportProgressProducer progressProducer;
+    @Resource
+    @Qualifier("drugImportProgressScheduler")
+    private TaskScheduler progressScheduler;
+
+    private final Map<Long, TaskChannel> channels = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> heartbeatFuture;
+
+    @PostConstruct
+    public void init() {
+        heartbeatFuture = progressScheduler.scheduleWithFixedDelay(this::heartbeat,
+                importProperties.getProgress().getSseHeartbeat());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (heartbeatFuture != null) {
+            heartbeatFuture.cancel(false);
+        }
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::complete));
+    }
+
+    /**
+     * 订阅任务进度
+     *
+     * @param taskId       任务ID
+     * @param lastEventId  客户端收到的最后一个事件编号，首次连接为空
+     * @param taskFinished 任务是否已经结束（含取消）
+     * @return SSE 连接
+     */
+    public SseEmitter subscribe(Long taskId, Long lastEventId, boolean taskFinished) {
+        DrugImportProperties.Progress config = importProperties.getProgress();
+        Subscriber subscriber = new Subscriber(new SseEmitter(config.getSseTimeout().toMillis()));
+        while (true) {
+            TaskChannel channel = channels.computeIfAbsent(taskId, TaskChannel::new);
+            // 补发和加入订阅在同一把锁内完成，保证不会漏发、重发或乱序
+            synchronized (channel) {
+                if (channel.evicted) {
+                    // 刚好被清理，重新创建
+                    continue;
+                }
+                if (!channel.loaded) {
+                    loadSnapshot(channel);
+                }
+                Runnable unsubscribe = () -> {
+                    channel.subscribers.remove(subscriber);
+                    channel.touch();
+                };
+                subscriber.emitter.onCompletion(unsubscribe);
+                subscriber.emitter.onTimeout(unsubscribe);
+                subscriber.emitter.onError(e -> unsubscribe.run());
+                channel.touch();
+
+                List<SseEmitter.SseEventBuilder> initialEvents = channel.replayAfter(lastEventId);
+                if (initialEvents == null) {
+                    initialEvents = channel.snapshot();
+                }
+                initialEvents.forEach(subscriber::send);
+                if (channel.finishedTime != null) {
+                    subscriber.complete();
+                } else if (taskFinished) {
+                    // 结束事件已经广播过（或本节点错过了），直接补一个结束事件
+                    subscriber.send(buildEvent(channel.lastEventId(), EVENT_FINISHED, channel.finishedData()));
+                    subscriber.complete();
+                } else {
+                    channel.subscribers.add(subscriber);
+                }
+            }
+            return subscriber.emitter;
+        }
+    }
+
+    @Override
+    public void onProgressFlushed(List<TaskProgressInfo> tasks, List<TaskDetailProgressInfo> details) {
+        Map<Long, List<ImportProgressBroadcastMessage.Event>> eventsByTask = new LinkedHashMap<>();
+        tasks.forEach(task -> eventsByTask.computeIfAbsent(task.getTaskId(), key -> new ArrayList<>())
+                .add(new ImportProgressBroadcastMessage.Event().setName(EVENT_TASK).setTask(task)));
+        details.forEach(detail -> eventsByTask.computeIfAbsent(detail.getTaskId(), key -> new ArrayList<>())
+                .add(new ImportProgressBroadcastMessage.Event().setName(EVENT_DETAIL).setDetail(detail)));
+        List<ImportProgressBroadcastMessage.Event> events = new ArrayList<>();
+        eventsByTask.forEach((taskId, taskEvents) -> {
+            long lastId = taskProgressRedisDAO.allocateEventIds(taskId, taskEvents.size());
+            long id = lastId - taskEvents.size();
+            for (ImportProgressBroadcastMessage.Event event : taskEvents) {
+                events.add(event.setTaskId(taskId).setId(++id));
+            }
+        });
+        if (!events.isEmpty()) {
+            progressProducer.sendProgressBroadcastMessage(events);
+        }
+    }
+
+    @Override
+    public void onTaskCompleted(Long taskId) {
+        long id = taskProgressRedisDAO.allocateEventIds(taskId, 1);
+        progressProducer.sendProgressBroadcastMessage(List.of(new ImportProgressBroadcastMessage.Event()
+                .setTaskId(taskId).setId(id).setName(EVENT_FINISHED)));
+    }
+
+    /**
+     * 推送广播来的进度事件
+     * <p>
+     * Pub/Sub 消息可能被并发处理，同一任务的事件到达顺序不一定与编号一致：
+     * 缓冲区按编号排序，最新状态只被编号更大的事件覆盖，结束之后到达的事件直接丢弃。
+     * 只更新本节点已有的任务，已包含在初始快照中的事件（编号不大于快照编号）也直接丢弃
+     */
+    public void dispatch(List<ImportProgressBroadcastMessage.Event> events) {
+        int replaySize = importProperties.getProgress().getSseReplaySize();
+        for (ImportProgressBroadcastMessage.Event event : events) {
+            TaskChannel channel = channels.get(event.getTaskId());
+            if (channel == null) {
+                continue;
+            }
+            synchronized (channel) {
+                if (channel.evicted || channel.finishedTime != null) {
+                    continue;
+                }
+                if (event.getId() <= channel.evictedEventId && !EVENT_FINISHED.equals(event.getName())) {
+                    continue;
+                }
+                channel.touch();
+                Object data = switch (event.getName()) {
+                    case EVENT_TASK -> event.getTask();
+                    case EVENT_DETAIL -> event.getDetail();
+                    default -> channel.finishedData();
+                };
+                BufferedEvent buffered = channel.append(event.getId(), event.getName(), data, replaySize);
+                SseEmitter.SseEventBuilder sseEvent = buildEvent(buffered.id(), buffered.name(), buffered.data());
+                if (EVENT_FINISHED.equals(event.getName())) {
+                    channel.finishedTime = System.currentTimeMillis();
+                    channel.subscribers.forEach(subscriber -> {
+                        subscriber.send(sseEvent);
+                        subscriber.complete();
+                    });
+                    channel.subscribers.clear();
+                    continue;
+                }
+                if (data instanceof TaskProgressInfo) {
+                    if (channel.latestTask == null || channel.latestTask.id() < buffered.id()) {
+                        channel.latestTask = buffered;
+                    }
+                } else if (data instanceof TaskDetailProgressInfo detail) {
+                    channel.latestDetails.merge(detail.getTableType(), buffered,
+                            (current, latest) -> current.id() < latest.id() ? latest : current);
+                }
+                channel.subscribers.forEach(subscriber -> subscriber.send(sseEvent));
+            }
+        }
+    }
+
+    /**
+     * 发送心跳注释行，并清理无订阅者且闲置超时的任务（无论是否收到过结束事件）
+     */
+    private void heartbeat() {
+        long evictBefore = System.currentTimeMillis() - IDLE_RETAIN_TIME.toMillis();
+        channels.entrySet().removeIf(entry -> {
+            TaskChannel channel = entry.getValue();
+            channel.subscribers.forEach(subscriber -> subscriber.send(SseEmitter.event().comment("heartbeat")));
+            synchronized (channel) {
+                channel.evicted = channel.subscribers.isEmpty() && channel.lastActiveTime < evictBefore;
+                return channel.evicted;
+            }
+        });
+    }
+
+    /**
+     * 首次订阅时从 Redis 读取快照作为初始状态，之前的事件不在本节点缓冲，只能推送快照
+     */
+    private void loadSnapshot(TaskChannel channel) {
+        long id = taskProgressRedisDAO.getEventSequence(channel.taskId);
+        TaskProgressRedisDAO.ProgressSnapshot snapshot = taskProgressRedisDAO.getProgressSnapshot(channel.taskId);
+        if (snapshot.task() != null) {
+            channel.latestTask = new BufferedEvent(id, EVENT_TASK, snapshot.task());
+        }
+        snapshot.details().forEach((tableType, detail) ->
+                channel.latestDetails.put(tableType, new BufferedEvent(id, EVENT_DETAIL, detail)));
+        channel.evictedEventId = id;
+        channel.loaded = true;
+    }
+
+    private static SseEmitter.SseEventBuilder buildEvent(long id, String name, Object data) {
+        return SseEmitter.event().id(String.valueOf(id)).name(name).data(data, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * 单个任务的事件缓冲和订阅者
+     */
+    private static class TaskChannel {
+
+        private final Long taskId;
+        /**
+         * 按事件编号排序的事件缓冲
+         */
+        private final TreeMap<Long, BufferedEvent> events = new TreeMap<>();
+        /**
+         * 已被挤出缓冲区（或包含在初始快照中）的最大事件编号，Last-Event-ID 小于它时无法补发
+         */
+        private long evictedEventId;
+        /**
+         * 是否已从 Redis 读取初始快照
+         */
+        private boolean loaded;
+        /**
+         * 已从任务表中移除，持有旧引用的订阅需要重新创建
+         */
+        private boolean evicted;
+        /**
+         * 最后一个事件或订阅者变化的时间
+         */
+        private volatile long lastActiveTime = System.currentTimeMillis();
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private BufferedEvent latestTask;
+        private final Map<String, BufferedEvent> latestDetails = new LinkedHashMap<>();
+        private Long finishedTime;
+
+        private TaskChannel(Long taskId) {
+            this.taskId = taskId;
+        }
+
+        private BufferedEvent append(long id, String name, Object data, int capacity) {
+            BufferedEvent event = new BufferedEvent(id, name, data);
+            events.put(id, event);
+            while (events.size() > capacity) {
+                evictedEventId = events.pollFirstEntry().getKey();
+            }
+            return event;
+        }
+
+        private void touch() {
+            lastActiveTime = System.currentTimeMillis();
+        }
+
+        private Map<String, Object> finishedData() {
+            return Map.of("taskId", taskId);
+        }
+
+        private long lastEventId() {
+            return events.isEmpty() ? evictedEventId : events.lastKey();
+        }
+
+        /**
+         * 补发指定编号之后的事件
+         *
+         * @return 编号为空或已超出保留范围时返回 null，需要推送完整快照
+         */
+        private List<SseEmitter.SseEventBuilder> replayAfter(Long lastEventId) {
+            if (lastEventId == null || lastEventId < evictedEventId) {
+                return null;
+            }
+            List<SseEmitter.SseEventBuilder> result = new ArrayList<>();
+            events.tailMap(lastEventId, false).values()
+                    .forEach(event -> result.add(buildEvent(event.id(), event.name(), event.data())));
+            return result;
+        }
+
+        /**
+         * 当前状态的完整快照，事件编号取最后一个事件的编号，重连时从这里继续
+         */
+        private List<SseEmitter.SseEventBuilder> snapshot() {
+            long id = lastEventId();
+            List<SseEmitter.SseEventBuilder> result = new ArrayList<>();
+            if (latestTask != null) {
+                result.add(buildEvent(id, EVENT_TASK, latestTask.data()));
+            }
+            latestDetails.values().forEach(detail -> result.add(buildEvent(id, EVENT_DETAIL, detail.data())));
+            if (finishedTime != null) {
+                result.add(buildEvent(id, EVENT_FINISHED, finishedData()));
+            }
+            return result;
+        }
+
+    }
+
+    private record BufferedEvent(long id, String name, Object data) {
+    }
+
+    /**
+     * SSE 订阅者，同一连接的发送需要串行
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private synchronized void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开，由 onError / onCompletion 回调移除
+                log.debug("SSE 推送失败，连接可能已断开: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+
+        private synchronized void complete() {
+            emitter.complete();
+        }
+
+    }
+
+}
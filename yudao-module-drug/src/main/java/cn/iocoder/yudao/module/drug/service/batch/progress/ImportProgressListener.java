@@ -0,0 +1,34 @@
+package cn.iocoder.yudao.module.drug.service.batch.progress;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
+
+import java.util.List;
+
+/**
+ * 导入进度监听器
+ * <p>
+ * {@link ImportProgressPublisher} 每次刷新后回调，参数只包含本次刷新有变化的任务和表，
+ * 可以直接作为增量推送给前端
+ *
+ * @author hyh
+ */
+public interface ImportProgressListener {
+
+    /**
+     * 进度已刷新
+     *
+     * @param tasks   有变化的任务进度
+     * @param details 有变化的明细进度
+     */
+    void onProgressFlushed(List<TaskProgressInfo> tasks, List<TaskDetailProgressInfo> details);
+
+    /**
+     * 任务结束，最终进度已刷新
+     *
+     * @param taskId 任务ID
+     */
+    default void onTaskCompleted(Long taskId) {
+    }
+
+}
@@ -0,0 +1,349 @@
+package cn.iocoder.yudao.module.drug.service.batch.progress;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDO;
+import cn.iocoder.yudao.module.drug.dal.dataobject.batch.ImportTaskDetailDO;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskDetailMapper;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskMapper;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskProgressRedisDAO;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 导入进度发布器
+ * <p>
+ * 导入过程中每个分块、每个阶段都会上报进度，并行导入时直接写 Redis 会产生大量往返。
+ * 这里按任务在内存中合并进度，只保留每个任务、每张表的最新值，
+ * 定时把有变化的任务通过一次 Redis 管道批量写入（写后回写，读到的进度最多落后一个刷新间隔）
+ * <p>
+ * 数据库中的进度百分比只在阶段切换时写入：任务的 currentStage 变化、明细的进度状态变化
+ * （等待 -> 处理中 -> 成功 / 失败）。阶段切换时同时立即刷新 Redis，保证终态不会被合并掉
+ * <p>
+ * 每次刷新后把本次有变化的进度回调给 {@link ImportProgressListener}，用于推送增量
+ * <p>
+ * 任务被丢弃后会留下标记，之后的上报和刷新都会忽略该任务，直到任务重新开始执行时调用 {@link #open(Long)}
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportProgressPublisher {
+
+    /**
+     * 已刷新且超过该时长没有更新的任务会从内存中移除
+     */
+    private static final Duration IDLE_EVICT_TIME = Duration.ofMinutes(10);
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private TaskProgressRedisDAO taskProgressRedisDAO;
+    @Resource
+    private ImportTaskMapper taskMapper;
+    @Resource
+    private ImportTaskDetailMapper taskDetailMapper;
+    @Resource
+    @Qualifier("drugImportProgressScheduler")
+    private TaskScheduler progressScheduler;
+    @Resource
+    private ObjectProvider<ImportProgressListener> progressListeners;
+
+    private final Map<Long, TaskProgressState> states = new ConcurrentHashMap<>();
+    /**
+     * 已丢弃的任务，value 为丢弃时间
+     */
+    private final Map<Long, Long> discardedTasks = new ConcurrentHashMap<>();
+    /**
+     * 刷新锁，保证快照的写入顺序与生成顺序一致，旧快照不会覆盖新快照
+     */
+    private final Object flushLock = new Object();
+
+    private ScheduledFuture<?> flushFuture;
+
+    @PostConstruct
+    public void init() {
+        flushFuture = progressScheduler.scheduleWithFixedDelay(this::flushAll,
+                importProperties.getProgress().getFlushInterval());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        flushAll();
+    }
+
+    /**
+     * 上报任务进度
+     * <p>
+     * 当前阶段变化时立即写入数据库和 Redis，否则等待下一次定时刷新
+     */
+    public void publishTask(TaskProgressInfo progressInfo) {
+        Long taskId = progressInfo.getTaskId();
+        TaskProgressState state = getOrCreateState(taskId);
+        if (state == null) {
+            return;
+        }
+        boolean stageChanged;
+        synchronized (state) {
+            state.task = progressInfo;
+            state.touch();
+            stageChanged = !Objects.equals(progressInfo.getCurrentStage(), state.persistedStage);
+            if (stageChanged) {
+                state.persistedStage = progressInfo.getCurrentStage();
+            }
+        }
+        if (stageChanged) {
+            taskMapper.update(new LambdaUpdateWrapper<ImportTaskDO>()
+                    .eq(ImportTaskDO::getId, taskId)
+                    .set(ImportTaskDO::getProgressPercent, progressInfo.getProgress()));
+            flush(taskId);
+        }
+    }
+
+    /**
+     * 上报明细进度
+     * <p>
+     * 明细的进度状态变化时立即写入数据库和 Redis，否则等待下一次定时刷新
+     */
+    public void publishDetail(TaskDetailProgressInfo detailProgress) {
+        Long taskId = detailProgress.getTaskId();
+        String tableType = detailProgress.getTableType();
+        TaskProgressState state = getOrCreateState(taskId);
+        if (state == null) {
+            return;
+        }
+        boolean statusChanged;
+        synchronized (state) {
+            state.details.put(tableType, detailProgress);
+            state.touch();
+            statusChanged = !Objects.equals(detailProgress.getStatus(), state.persistedDetailStatus.get(tableType));
+            if (statusChanged) {
+                state.persistedDetailStatus.put(tableType, detailProgress.getStatus());
+            }
+        }
+        if (statusChanged) {
+            taskDetailMapper.update(new LambdaUpdateWrapper<ImportTaskDetailDO>()
+                    .eq(ImportTaskDetailDO::getTaskId, taskId)
+                    .eq(ImportTaskDetailDO::getTableType, TableTypeEnum.valueOf(tableType).getType())
+                    .set(ImportTaskDetailDO::getProgressPercent, detailProgress.getProgress()));
+            flush(taskId);
+        }
+    }
+
+    /**
+     * 累加表的行数计数，刷新时以 HINCRBY 写入 Redis
+     *
+     * @param processed 新处理的行数
+     * @param success   新成功的行数
+     * @param failed    新失败的行数
+     */
+    public void addDetailCounters(Long taskId, String tableType, long processed, long success, long failed) {
+        TaskProgressState state = getOrCreateState(taskId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.counters.computeIfAbsent(tableType, key -> new long[3]);
+            long[] counter = state.counters.get(tableType);
+            counter[0] += processed;
+            counter[1] += success;
+            counter[2] += failed;
+            state.touch();
+        }
+    }
+
+    /**
+     * 设定表的行数计数起点，丢弃尚未写入的增量
+     * <p>
+     * 在表开始导入时调用，续传时起点为断点处的累计行数
+     */
+    public void resetDetailCounters(Long taskId, String tableType, long success, long failed) {
+        synchronized (flushLock) {
+            TaskProgressState state = getOrCreateState(taskId);
+            if (state == null) {
+                return;
+            }
+            synchronized (state) {
+                state.counters.remove(tableType);
+            }
+            taskProgressRedisDAO.resetDetailCounters(taskId, tableType, success, failed);
+        }
+    }
+
+    /**
+     * 立即刷新任务尚未写入的进度
+     */
+    public void flush(Long taskId) {
+        synchronized (flushLock) {
+            // 与 discard 互斥：丢弃之后这里拿不到状态，不会再写回
+            TaskProgressState state = states.get(taskId);
+            if (state == null) {
+                return;
+            }
+            List<TaskProgressInfo> tasks = new ArrayList<>(1);
+            List<TaskDetailProgressInfo> details = new ArrayList<>();
+            List<TaskProgressRedisDAO.DetailCounterDelta> counters = new ArrayList<>();
+            state.drainTo(taskId, tasks, details, counters);
+            write(tasks, details, counters);
+        }
+    }
+
+    /**
+     * 任务结束：强制刷新最终进度，并释放内存中的合并状态
+     */
+    public void complete(Long taskId) {
+        flush(taskId);
+        states.remove(taskId);
+        progressListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onTaskCompleted(taskId);
+            } catch (Exception e) {
+                log.error("导入进度监听器处理任务结束失败: taskId={}, listener={}", taskId, listener.getClass(), e);
+            }
+        });
+    }
+
+    /**
+     * 任务开始执行：清除之前丢弃留下的标记，重新接收进度上报
+     */
+    public void open(Long taskId) {
+        discardedTasks.remove(taskId);
+    }
+
+    /**
+     * 丢弃任务尚未写入的进度，用于删除 Redis 进度之前，避免被之后的刷新重新写回
+     * <p>
+     * 先写丢弃标记再移除状态：正在上报的线程拿到的是已移除的旧状态，不会再被刷新；
+     * 之后的上报在创建状态时看到标记直接忽略，不会重新创建状态
+     */
+    public void discard(Long taskId) {
+        synchronized (flushLock) {
+            discardedTasks.put(taskId, System.currentTimeMillis());
+            states.remove(taskId);
+        }
+    }
+
+    /**
+     * 获取任务的合并状态，不存在时创建；任务已被丢弃时返回 null
+     */
+    private TaskProgressState getOrCreateState(Long taskId) {
+        return states.compute(taskId, (key, state) -> {
+            if (state != null) {
+                return state;
+            }
+            return discardedTasks.containsKey(key) ? null : new TaskProgressState();
+        });
+    }
+
+    /**
+     * 刷新所有有变化的任务，所有任务的进度合并成一次 Redis 管道写入
+     */
+    private void flushAll() {
+        try {
+            synchronized (flushLock) {
+                List<TaskProgressInfo> tasks = new ArrayList<>();
+                List<TaskDetailProgressInfo> details = new ArrayList<>();
+                List<TaskProgressRedisDAO.DetailCounterDelta> counters = new ArrayList<>();
+                long evictBefore = System.currentTimeMillis() - IDLE_EVICT_TIME.toMillis();
+                states.entrySet().removeIf(entry -> {
+                    TaskProgressState state = entry.getValue();
+                    state.drainTo(entry.getKey(), tasks, details, counters);
+                    return state.isIdleSince(evictBefore);
+                });
+                write(tasks, details, counters);
+                // 丢弃标记只需要挡住丢弃时仍在执行的上报，超过空闲时长后移除
+                discardedTasks.values().removeIf(discardTime -> discardTime < evictBefore);
+            }
+        } catch (Exception e) {
+            log.error("刷新导入进度失败", e);
+        }
+    }
+
+    private void write(List<TaskProgressInfo> tasks, List<TaskDetailProgressInfo> details,
+                       List<TaskProgressRedisDAO.DetailCounterDelta> counters) {
+        if (tasks.isEmpty() && details.isEmpty() && counters.isEmpty()) {
+            return;
+        }
+        taskProgressRedisDAO.setProgressBatch(tasks, details, counters);
+        log.debug("导入进度已刷新: 任务数={}, 明细数={}, 计数数={}", tasks.size(), details.size(), counters.size());
+        if (tasks.isEmpty() && details.isEmpty()) {
+            return;
+        }
+        // 监听器失败不影响进度写入
+        progressListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onProgressFlushed(tasks, details);
+            } catch (Exception e) {
+                log.error("导入进度监听器处理失败: listener={}", listener.getClass(), e);
+            }
+        });
+    }
+
+    /**
+     * 单个任务的合并状态
+     */
+    private static class TaskProgressState {
+
+        /**
+         * 最新的任务进度，已刷新后置空
+         */
+        private TaskProgressInfo task;
+        /**
+         * 尚未刷新的明细进度，key 为表类型
+         */
+        private final Map<String, TaskDetailProgressInfo> details = new LinkedHashMap<>();
+        /**
+         * 尚未刷新的行数计数增量，key 为表类型，value 为 处理 / 成功 / 失败
+         */
+        private final Map<String, long[]> counters = new LinkedHashMap<>();
+        /**
+         * 最后一次写入数据库的阶段
+         */
+        private String persistedStage;
+        /**
+         * 各表最后一次写入数据库的进度状态
+         */
+        private final Map<String, String> persistedDetailStatus = new HashMap<>();
+        private long lastUpdateTime = System.currentTimeMillis();
+
+        private void touch() {
+            lastUpdateTime = System.currentTimeMillis();
+        }
+
+        private synchronized void drainTo(Long taskId, List<TaskProgressInfo> tasks, List<TaskDetailProgressInfo> details,
+                                          List<TaskProgressRedisDAO.DetailCounterDelta> counters) {
+            if (task != null) {
+                tasks.add(task);
+                task = null;
+            }
+            details.addAll(this.details.values());
+            this.details.clear();
+            this.counters.forEach((tableType, counter) -> counters.add(new TaskProgressRedisDAO.DetailCounterDelta(
+                    taskId, tableType, counter[0], counter[1], counter[2])));
+            this.counters.clear();
+        }
+
+        private synchronized boolean isIdleSince(long time) {
+            return task == null && details.isEmpty() && counters.isEmpty() && lastUpdateTime < time;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.service.batch.dedup.BloomFilter;
+import cn.iocoder.yudao.module.drug.service.batch.dedup.LongOpenHashSet;
+import cn.iocoder.yudao.module.drug.service.batch.dedup.RowFingerprint;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 一次导入任务的药品目录索引，用于入库、出库、使用表的引用校验
+ * <p>
+ * 本任务目录中的院内药品唯一码和国家药品编码以 64 位指纹存放在 {@link LongOpenHashSet} 中，精确判断；
+ * 同一医疗机构往期任务的目录编码放入一个 {@link BloomFilter}，只占少量内存，
+ * 以约 fpp 的概率把不存在的编码误判为存在（放过，不会误拦）。
+ * 构建完成后只读，可以被多个导入线程同时使用
+ *
+ * @author hyh
+ */
+public class CatalogIndex {
+
+    public static final String COLUMN_HOSPITAL_CODE = "hospital_code";
+    public static final String COLUMN_HOS_DRUG_ID = "hos_drug_id";
+    public static final String COLUMN_YPID = "ypid";
+
+    /**
+     * 国家药品编码放入布隆过滤器时与该常量异或，与同名的院内药品唯一码区分开
+     */
+    private static final long YPID_SALT = 0x9e3779b97f4a7c15L;
+
+    private final LongOpenHashSet hosDrugIds;
+    private final LongOpenHashSet ypids;
+    @Getter
+    private final Set<String> hospitalCodes;
+    /**
+     * 往期药品目录，没有往期数据时为 null
+     */
+    private final BloomFilter previousPeriods;
+    /**
+     * 本任务目录的行数
+     */
+    @Getter
+    private final long rowCount;
+    /**
+     * 往期药品目录的行数
+     */
+    @Getter
+    private final long previousRowCount;
+
+    /**
+     * 最后一次被使用的时间，用于释放闲置的索引
+     */
+    @Getter
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    private CatalogIndex(Builder builder) {
+        this.hosDrugIds = builder.hosDrugIds;
+        this.ypids = builder.ypids;
+        this.hospitalCodes = Collections.unmodifiableSet(builder.hospitalCodes);
+        this.previousPeriods = builder.previousPeriods;
+        this.rowCount = builder.rowCount;
+        this.previousRowCount = builder.previousRowCount;
+    }
+
+    public boolean containsHosDrugId(String hosDrugId) {
+        long fingerprint = RowFingerprint.of(hosDrugId);
+        return hosDrugIds.contains(fingerprint)
+                || (previousPeriods != null && previousPeriods.mightContain(fingerprint));
+    }
+
+    public boolean containsYpid(String ypid) {
+        long fingerprint = RowFingerprint.of(ypid);
+        return ypids.contains(fingerprint)
+                || (previousPeriods != null && previousPeriods.mightContain(fingerprint ^ YPID_SALT));
+    }
+
+    void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 估算占用的堆内存字节数
+     */
+    public long estimatedBytes() {
+        return hosDrugIds.estimatedBytes() + ypids.estimatedBytes()
+                + (previousPeriods != null ? previousPeriods.estimatedBytes() : 0);
+    }
+
+    /**
+     * 索引构建器，导入药品目录时逐行调用 {@link #add}。非线程安全
+     */
+    public static class Builder {
+
+        private final LongOpenHashSet hosDrugIds = new LongOpenHashSet();
+        private final LongOpenHashSet ypids = new LongOpenHashSet();
+        private final Set<String> hospitalCodes = new HashSet<>();
+        private BloomFilter previousPeriods;
+        @Getter
+        private long rowCount;
+        private long previousRowCount;
+
+        public void add(Object hosDrugId, Object ypid, Object hospitalCode) {
+            rowCount++;
+            if (hosDrugId != null) {
+                hosDrugIds.add(RowFingerprint.of(hosDrugId.toString()));
+            }
+            if (ypid != null) {
+                ypids.add(RowFingerprint.of(ypid.toString()));
+            }
+            if (hospitalCode != null) {
+                hospitalCodes.add(hospitalCode.toString());
+            }
+        }
+
+        public Set<String> getHospitalCodes() {
+            return Collections.unmodifiableSet(hospitalCodes);
+        }
+
+        /**
+         * 开始收集往期药品目录
+         *
+         * @param expectedRows 往期目录的行数，每行放入两个编码
+         * @param fpp          布隆过滤器的误判率
+         */
+        public void initPreviousPeriods(long expectedRows, double fpp) {
+            previousPeriods = new BloomFilter(expectedRows * 2, fpp);
+        }
+
+        public void addPrevious(Object hosDrugId, Object ypid) {
+            previousRowCount++;
+            if (hosDrugId != null) {
+                previousPeriods.put(RowFingerprint.of(hosDrugId.toString()));
+            }
+            if (ypid != null) {
+                previousPeriods.put(RowFingerprint.of(ypid.toString()) ^ YPID_SALT);
+            }
+        }
+
+        public CatalogIndex build() {
+            return new CatalogIndex(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.DrugTableWriteMapper;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import static cn.iocoder.yudao.module.drug.service.batch.qc.CatalogIndex.*;
+
+/**
+ * 各导入任务的药品目录索引
+ * <p>
+ * 药品目录导入时边导入边构建索引，导入结束后由 {@link #publish} 发布；
+ * 入库、出库、使用表导入时通过 {@link #get} 取得索引，在内存中校验引用的药品是否存在。
+ * 以下情况从数据库重新加载本任务的目录：
+ * <ul>
+ *     <li>表作业分发到其他节点执行，本节点没有构建过索引</li>
+ *     <li>药品目录从断点续传或有写入失败的批次，边导入边构建的索引与已入库的数据不一致</li>
+ *     <li>重试任务只重新导入了部分表</li>
+ * </ul>
+ * 同一任务的多张表同时获取时只加载一次：每个任务缓存一个加载中的 Future，
+ * 加载在调用线程中进行，不占用 Map 的锁，其他任务的获取不受影响。
+ * 任务结束时移除索引，其他节点上的索引闲置超过 idleTimeout 后释放
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class CatalogIndexRegistry {
+
+    /**
+     * 引用药品目录的表
+     */
+    public static final Set<TableTypeEnum> REFERENCING_TABLES = Collections.unmodifiableSet(
+            EnumSet.of(TableTypeEnum.DRUG_INBOUND, TableTypeEnum.DRUG_OUTBOUND, TableTypeEnum.DRUG_USAGE));
+
+    private static final String CATALOG_TABLE = TableTypeEnum.DRUG_CATALOG.getTableName();
+    private static final Duration EVICT_INTERVAL = Duration.ofMinutes(1);
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private DrugTableWriteMapper tableWriteMapper;
+    @Resource
+    @Qualifier("drugImportProgressScheduler")
+    private TaskScheduler progressScheduler;
+
+    private final Map<Long, CompletableFuture<CatalogIndex>> indexes = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> evictFuture;
+
+    @PostConstruct
+    public void init() {
+        evictFuture = progressScheduler.scheduleWithFixedDelay(this::evictIdle, EVICT_INTERVAL);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (evictFuture != null) {
+            evictFuture.cancel(false);
+        }
+        indexes.clear();
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(importProperties.getReference().getEnabled());
+    }
+
+    /**
+     * 发布药品目录导入时构建的索引
+     *
+     * @param importedRows 药品目录实际入库的行数，与构建的行数不一致时改为从数据库加载
+     */
+    public void publish(Long taskId, CatalogIndex.Builder builder, Integer importedRows) {
+        if (importedRows == null || builder.getRowCount() != importedRows) {
+            indexes.remove(taskId);
+            log.info("药品目录索引与入库数据不一致，改为从数据库加载: taskId={}, 构建行数={}, 入库行数={}",
+                    taskId, builder.getRowCount(), importedRows);
+            return;
+        }
+        indexes.put(taskId, CompletableFuture.completedFuture(build(taskId, builder)));
+    }
+
+    /**
+     * 获取任务的药品目录索引，本节点没有时从数据库加载
+     *
+     * @return 本任务没有导入药品目录时返回 null
+     */
+    public CatalogIndex get(Long taskId) {
+        CompletableFuture<CatalogIndex> future = indexes.get(taskId);
+        if (future == null) {
+            CompletableFuture<CatalogIndex> loading = new CompletableFuture<>();
+            future = indexes.putIfAbsent(taskId, loading);
+            if (future == null) {
+                future = loading;
+                loadInto(taskId, loading);
+            }
+        }
+        CatalogIndex index;
+        try {
+            index = future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        if (index != null) {
+            index.touch();
+        }
+        return index;
+    }
+
+    public void remove(Long taskId) {
+        indexes.remove(taskId);
+    }
+
+    /**
+     * 在当前线程加载索引；没有目录数据或加载失败时不缓存，下次获取重新加载
+     */
+    private void loadInto(Long taskId, CompletableFuture<CatalogIndex> future) {
+        try {
+            CatalogIndex index = load(taskId);
+            if (index == null) {
+                indexes.remove(taskId, future);
+            }
+            future.complete(index);
+        } catch (RuntimeException | Error e) {
+            // 等待中的线程同样收到异常，不会一直阻塞
+            indexes.remove(taskId, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private CatalogIndex load(Long taskId) {
+        CatalogIndex.Builder builder = new CatalogIndex.Builder();
+        tableWriteMapper.selectCatalogCodes(CATALOG_TABLE, taskId, null, null, context -> {
+            Map<String, Object> row = context.getResultObject();
+            builder.add(row.get(COLUMN_HOS_DRUG_ID), row.get(COLUMN_YPID), row.get(COLUMN_HOSPITAL_CODE));
+        });
+        if (builder.getRowCount() == 0) {
+            log.warn("任务没有药品目录数据，跳过引用校验: taskId={}", taskId);
+            return null;
+        }
+        return build(taskId, builder);
+    }
+
+    /**
+     * 补充同一医疗机构往期任务的目录后生成索引
+     */
+    private CatalogIndex build(Long taskId, CatalogIndex.Builder builder) {
+        Set<String> hospitalCodes = builder.getHospitalCodes();
+        if (!hospitalCodes.isEmpty()) {
+            long previousRows = tableWriteMapper.countCatalogCodes(CATALOG_TABLE, null, hospitalCodes, taskId);
+            if (previousRows > 0) {
+                builder.initPreviousPeriods(previousRows, importProperties.getReference().getBloomFpp());
+                tableWriteMapper.selectCatalogCodes(CATALOG_TABLE, null, hospitalCodes, taskId, context -> {
+                    Map<String, Object> row = context.getResultObject();
+                    builder.addPrevious(row.get(COLUMN_HOS_DRUG_ID), row.get(COLUMN_YPID));
+                });
+            }
+        }
+        CatalogIndex index = builder.build();
+        log.info("药品目录索引已生成: taskId={}, 本期行数={}, 往期行数={}, 医疗机构={}, 约占内存={}KB",
+                taskId, index.getRowCount(), index.getPreviousRowCount(), index.getHospitalCodes(),
+                index.estimatedBytes() / 1024);
+        return index;
+    }
+
+    private void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - importProperties.getReference().getIdleTimeout().toMillis();
+        indexes.entrySet().removeIf(entry -> {
+            // 加载中的索引不释放
+            CatalogIndex index = entry.getValue().getNow(null);
+            boolean idle = index != null && index.getLastAccessTime() < expireBefore;
+            if (idle) {
+                log.info("释放闲置的药品目录索引: taskId={}", entry.getKey());
+            }
+            return idle;
+        });
+    }
+
+}
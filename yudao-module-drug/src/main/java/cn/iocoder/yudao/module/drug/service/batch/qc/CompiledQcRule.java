@@ -0,0 +1,77 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.expression.Expression;
+
+/**
+ * 编译后的质控规则
+ * <p>
+ * 表达式在编译阶段解析一次，执行若干次后由 SpEL 编译为字节码（无法编译的表达式保持解释执行的语法树），
+ * 之后每行只做一次调用。实例不可变，可以被多个导入线程共享
+ * <p>
+ * 规则分类为 GLOBAL 的是表级聚合规则，不逐行执行，导入结束后对整张表的列式暂存执行一次，见 {@link QcAggregateView}
+ *
+ * @author hyh
+ */
+@Getter
+@AllArgsConstructor
+public class CompiledQcRule {
+
+    /**
+     * 规则类型：前置质控
+     */
+    public static final int RULE_TYPE_PRE = 1;
+    /**
+     * 错误级别：错误
+     */
+    public static final int ERROR_LEVEL_ERROR = 1;
+    /**
+     * 规则分类：全局，即表级聚合规则
+     */
+    public static final String RULE_CATEGORY_GLOBAL = "GLOBAL";
+
+    private final Long ruleId;
+    private final String ruleCode;
+    private final String ruleName;
+    private final Integer ruleType;
+    /**
+     * 是否表级聚合规则
+     */
+    private final boolean aggregate;
+    private final String fieldName;
+    /**
+     * fieldName 在表结构中的下标，未指定字段时为 -1
+     */
+    private final int fieldIndex;
+    private final Integer errorLevel;
+    private final String errorMessage;
+    private final String description;
+    /**
+     * 规则允许的最大失败比例（0-1），超过时规则判定为不通过
+     */
+    private final double maxFailRate;
+    private final Expression expression;
+
+    /**
+     * 是否错误级别；否则为警告
+     */
+    public boolean isError() {
+        return errorLevel == null || errorLevel == ERROR_LEVEL_ERROR;
+    }
+
+    /**
+     * 是否拦截入库：前置质控的错误级别规则不通过时，该行不写入业务表
+     */
+    public boolean isBlocking() {
+        return !aggregate && isError() && ruleType != null && ruleType == RULE_TYPE_PRE;
+    }
+
+    /**
+     * 行不通过时的错误信息
+     */
+    public String formatRowError() {
+        return "[" + ruleCode + "] " + (errorMessage != null ? errorMessage : ruleName + "未通过");
+    }
+
+}
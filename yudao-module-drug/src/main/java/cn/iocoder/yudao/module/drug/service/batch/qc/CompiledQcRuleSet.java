@@ -0,0 +1,57 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一张表的已编译规则集合
+ * <p>
+ * 规则按优先级排列。规则集不可变，同一张表的多次导入可以共用；
+ * 每次导入通过 {@link #newEvaluator()} 获取独立的执行器和计数器，导入过程中规则被修改也不影响已开始的导入
+ *
+ * @author hyh
+ */
+@Getter
+public class CompiledQcRuleSet {
+
+    private final TableTypeEnum tableType;
+    /**
+     * 编译时的规则版本号
+     */
+    private final long version;
+    /**
+     * 逐行执行的规则
+     */
+    private final List<CompiledQcRule> rules;
+    /**
+     * 表级聚合规则
+     */
+    private final List<CompiledQcRule> aggregateRules;
+    /**
+     * 字段名 -> 字段下标，同时包含下划线和驼峰两种写法
+     */
+    private final Map<String, Integer> fieldIndex;
+    /**
+     * 编译失败或不适用于本表而被跳过的规则：规则编码 -> 原因
+     */
+    private final Map<String, String> skippedRules;
+
+    public CompiledQcRuleSet(TableTypeEnum tableType, long version, List<CompiledQcRule> rules,
+                             List<CompiledQcRule> aggregateRules, Map<String, Integer> fieldIndex,
+                             Map<String, String> skippedRules) {
+        this.tableType = tableType;
+        this.version = version;
+        this.rules = List.copyOf(rules);
+        this.aggregateRules = List.copyOf(aggregateRules);
+        this.fieldIndex = Map.copyOf(fieldIndex);
+        this.skippedRules = Map.copyOf(skippedRules);
+    }
+
+    public QcRuleEvaluator newEvaluator() {
+        return new QcRuleEvaluator(this);
+    }
+
+}
@@ -0,0 +1,178 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnSource;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnVector;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.DictionaryColumnVector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 表级聚合规则的求值对象
+ * <p>
+ * 聚合规则的表达式以本对象为根，调用下列函数，返回 true 表示通过。
+ * 字段参数省略时使用规则配置的 fieldName，例如：
+ * <ul>
+ *     <li>{@code nullRate() <= 0.05}：检查字段的空值率不超过 5%</li>
+ *     <li>{@code duplicateCount('hos_drug_id') == 0}：院内药品唯一码不重复</li>
+ *     <li>{@code negativeCount('in_total_price') == 0 && quantile('in_pack_price', 0.99) < 100000}</li>
+ *     <li>{@code sumByHospital('in_total_price').?[value < 0].isEmpty()}：每个医疗机构的入库总金额不为负</li>
+ * </ul>
+ * 分组函数按字典编码的分组列逐行累加到以字典编号为下标的数组，返回 分组值 -> 统计值，按分组值首次出现的顺序排列。
+ * 统计只覆盖通过前置质控、写入业务表的行
+ *
+ * @author hyh
+ */
+public class QcAggregateView {
+
+    /**
+     * 医疗机构分组字段
+     */
+    private static final String HOSPITAL_COLUMN = "hospital_code";
+
+    private final ColumnSource table;
+    private final String fieldName;
+
+    QcAggregateView(ColumnSource table, String fieldName) {
+        this.table = table;
+        this.fieldName = fieldName;
+    }
+
+    public int rowCount() {
+        return table.getRowCount();
+    }
+
+    public int nullCount() {
+        return nullCount(field());
+    }
+
+    public int nullCount(String column) {
+        return table.column(column).getNullCount();
+    }
+
+    public double nullRate() {
+        return nullRate(field());
+    }
+
+    public double nullRate(String column) {
+        return table.getRowCount() > 0 ? (double) nullCount(column) / table.getRowCount() : 0;
+    }
+
+    public int distinctCount() {
+        return distinctCount(field());
+    }
+
+    public int distinctCount(String column) {
+        return table.column(column).distinctCount();
+    }
+
+    /**
+     * 与前面的行重复的非空值个数
+     */
+    public int duplicateCount() {
+        return duplicateCount(field());
+    }
+
+    public int duplicateCount(String column) {
+        ColumnVector vector = table.column(column);
+        return vector.getNonNullCount() - vector.distinctCount();
+    }
+
+    public double sum() {
+        return sum(field());
+    }
+
+    public double sum(String column) {
+        return table.numericColumn(column).sum();
+    }
+
+    public Double min() {
+        return min(field());
+    }
+
+    public Double min(String column) {
+        return table.numericColumn(column).min();
+    }
+
+    public Double max() {
+        return max(field());
+    }
+
+    public Double max(String column) {
+        return table.numericColumn(column).max();
+    }
+
+    public Double avg() {
+        return avg(field());
+    }
+
+    public Double avg(String column) {
+        return table.numericColumn(column).avg();
+    }
+
+    public Double quantile(double q) {
+        return quantile(field(), q);
+    }
+
+    public Double quantile(String column, double q) {
+        return table.numericColumn(column).quantile(q);
+    }
+
+    public int negativeCount() {
+        return negativeCount(field());
+    }
+
+    public int negativeCount(String column) {
+        return table.numericColumn(column).negativeCount();
+    }
+
+    /**
+     * 按分组字段统计行数，分组字段为空的行不计入
+     */
+    public Map<String, Integer> countBy(String keyColumn) {
+        DictionaryColumnVector key = table.dictionaryColumn(keyColumn);
+        int[] counts = key.countByCode();
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            result.put(key.decode(code), counts[code]);
+        }
+        return result;
+    }
+
+    public Map<String, Double> sumBy(String keyColumn) {
+        return sumBy(keyColumn, field());
+    }
+
+    /**
+     * 按分组字段合计数值字段，分组字段或数值字段为空的行不计入
+     */
+    public Map<String, Double> sumBy(String keyColumn, String column) {
+        DictionaryColumnVector key = table.dictionaryColumn(keyColumn);
+        double[] sums = table.sumByCode(key, table.numericColumn(column));
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < sums.length; code++) {
+            result.put(key.decode(code), sums[code]);
+        }
+        return result;
+    }
+
+    public Map<String, Integer> countByHospital() {
+        return countBy(HOSPITAL_COLUMN);
+    }
+
+    public Map<String, Double> sumByHospital() {
+        return sumBy(HOSPITAL_COLUMN);
+    }
+
+    public Map<String, Double> sumByHospital(String column) {
+        return sumBy(HOSPITAL_COLUMN, column);
+    }
+
+    private String field() {
+        if (fieldName == null) {
+            throw new IllegalArgumentException("规则未配置检查字段，函数需要指定字段名");
+        }
+        return fieldName;
+    }
+
+}
@@ -0,0 +1,62 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 质控表达式的根对象：把一行的 values 数组包装成只读 Map
+ * <p>
+ * 表达式通过字段名（下划线或驼峰均可）读取字段值，{@value #VALUE_KEY} 指向规则 fieldName 对应的字段。
+ * 同一个视图在逐行、逐规则之间复用，只切换底层数组和当前字段，不为每行创建 Map。非线程安全
+ *
+ * @author hyh
+ */
+class QcRowView extends AbstractMap<String, Object> {
+
+    /**
+     * 当前规则检查字段的别名
+     */
+    static final String VALUE_KEY = "value";
+
+    private final Map<String, Integer> fieldIndex;
+
+    private Object[] values;
+    private int currentField = -1;
+
+    QcRowView(Map<String, Integer> fieldIndex) {
+        this.fieldIndex = fieldIndex;
+    }
+
+    void bind(Object[] values) {
+        this.values = values;
+    }
+
+    void bindField(int currentField) {
+        this.currentField = currentField;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (VALUE_KEY.equals(key)) {
+            return currentField >= 0 ? values[currentField] : null;
+        }
+        Integer index = fieldIndex.get(key);
+        return index != null ? values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return VALUE_KEY.equals(key) || fieldIndex.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        // 只用于调试输出，不在求值路径上
+        Set<Entry<String, Object>> entries = new LinkedHashSet<>();
+        fieldIndex.forEach((name, index) -> entries.add(new SimpleImmutableEntry<>(name, values[index])));
+        return entries;
+    }
+
+}
@@ -0,0 +1,134 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.hutool.core.util.StrUtil;
+import cn.iocoder.yudao.framework.common.util.json.JsonUtils;
+import cn.iocoder.yudao.module.drug.dal.dataobject.rule.QcRuleDO;
+import cn.iocoder.yudao.module.drug.dal.mysql.rule.QcRuleMapper;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 质控规则引擎：把 {@link QcRuleDO#getRuleExpression()} 编译为可执行的规则
+ * <p>
+ * 表达式为返回布尔值的 SpEL，true 表示该行通过。表达式中可以直接引用本表的字段名（下划线或驼峰），
+ * 规则配置了 fieldName 时，可以用 {@code value} 指代该字段，例如：
+ * <ul>
+ *     <li>{@code value != null && value > 0}</li>
+ *     <li>{@code in_pack_quantity == null || in_total_price >= 0}</li>
+ * </ul>
+ * 阈值配置 thresholdValue 支持 {@code {"maxFailRate": 0.01}}，表示失败行占比不超过 1% 时规则仍判定为通过
+ * <p>
+ * 规则分类为 GLOBAL 的是表级聚合规则，表达式调用 {@link QcAggregateView} 的统计函数，例如 {@code nullRate() <= 0.05}
+ * <p>
+ * 解析器使用 {@link SpelCompilerMode#MIXED}：表达式执行若干次后编译为字节码，
+ * 无法编译的部分（例如 BigDecimal 与整数混合比较）保持解释执行
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class QcRuleEngine {
+
+    private static final String THRESHOLD_MAX_FAIL_RATE = "maxFailRate";
+
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, QcRuleEngine.class.getClassLoader()));
+
+    @Resource
+    private QcRuleMapper qcRuleMapper;
+
+    /**
+     * 查询并编译适用于指定表的已启用规则
+     *
+     * @param version 规则版本号，查询之前读取
+     */
+    public CompiledQcRuleSet compile(TableTypeEnum tableType, long version) {
+        return compile(tableType, version, qcRuleMapper.selectEnabledListByTableType(tableType.getType()));
+    }
+
+    /**
+     * 编译规则，表达式语法错误或检查字段不在本表中的规则会被跳过
+     *
+     * @param rules 已按优先级排序的规则
+     */
+    public CompiledQcRuleSet compile(TableTypeEnum tableType, long version, List<QcRuleDO> rules) {
+        Map<String, Integer> fieldIndex = buildFieldIndex(TableSchema.of(tableType));
+        List<CompiledQcRule> compiledRules = new ArrayList<>(rules.size());
+        List<CompiledQcRule> aggregateRules = new ArrayList<>();
+        Map<String, String> skippedRules = new LinkedHashMap<>();
+        for (QcRuleDO rule : rules) {
+            if (!StringUtils.hasText(rule.getRuleExpression())) {
+                skippedRules.put(rule.getRuleCode(), "未配置规则表达式");
+                continue;
+            }
+            int ruleFieldIndex = -1;
+            if (StringUtils.hasText(rule.getFieldName())) {
+                Integer index = fieldIndex.get(rule.getFieldName().trim());
+                if (index == null) {
+                    // 适用全部表的规则可能只针对部分表的字段
+                    skippedRules.put(rule.getRuleCode(), "本表没有字段: " + rule.getFieldName());
+                    continue;
+                }
+                ruleFieldIndex = index;
+            }
+            Expression expression;
+            try {
+                expression = parser.parseExpression(rule.getRuleExpression());
+            } catch (ParseException e) {
+                log.warn("质控规则表达式语法错误: ruleCode={}, expression={}, error={}",
+                        rule.getRuleCode(), rule.getRuleExpression(), e.getMessage());
+                skippedRules.put(rule.getRuleCode(), "表达式语法错误: " + e.getMessage());
+                continue;
+            }
+            boolean aggregate = CompiledQcRule.RULE_CATEGORY_GLOBAL.equalsIgnoreCase(rule.getRuleCategory());
+            CompiledQcRule compiledRule = new CompiledQcRule(rule.getId(), rule.getRuleCode(), rule.getRuleName(),
+                    rule.getRuleType(), aggregate, rule.getFieldName(), ruleFieldIndex, rule.getErrorLevel(),
+                    rule.getErrorMessage(), rule.getDescription(), parseMaxFailRate(rule), expression);
+            (aggregate ? aggregateRules : compiledRules).add(compiledRule);
+        }
+        log.info("质控规则编译完成: tableType={}, 版本={}, 行级规则数={}, 聚合规则数={}, 跳过={}",
+                tableType, version, compiledRules.size(), aggregateRules.size(), skippedRules.keySet());
+        return new CompiledQcRuleSet(tableType, version, compiledRules, aggregateRules, fieldIndex, skippedRules);
+    }
+
+    private static Map<String, Integer> buildFieldIndex(TableSchema schema) {
+        Map<String, Integer> fieldIndex = new HashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            String column = schema.getColumn(i).getColumn();
+            fieldIndex.put(column, i);
+            fieldIndex.put(StrUtil.toCamelCase(column), i);
+        }
+        return fieldIndex;
+    }
+
+    /**
+     * 解析阈值配置中的最大失败比例，未配置或格式错误时为 0（任何一行不通过即判定规则不通过）
+     */
+    private static double parseMaxFailRate(QcRuleDO rule) {
+        String threshold = rule.getThresholdValue();
+        if (!StringUtils.hasText(threshold)) {
+            return 0;
+        }
+        try {
+            JsonNode node = JsonUtils.parseTree(threshold);
+            JsonNode rate = node.isNumber() ? node : node.get(THRESHOLD_MAX_FAIL_RATE);
+            return rate != null && rate.isNumber() ? Math.max(0, rate.asDouble()) : 0;
+        } catch (RuntimeException e) {
+            log.warn("质控规则阈值配置格式错误: ruleCode={}, thresholdValue={}", rule.getRuleCode(), threshold);
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,353 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnSource;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.ColumnarTable;
+import cn.iocoder.yudao.module.drug.service.batch.columnar.SpilledColumnSource;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import cn.iocoder.yudao.module.drug.service.batch.spill.SpillRowStore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * 单次导入的规则执行器
+ * <p>
+ * 在导入流中逐行调用 {@link #evaluate(ImportRow)}，一行依次执行全部规则，
+ * 每条规则的失败行数累加到各自的计数器，整张表只扫描一遍。
+ * 表达式求值使用 {@link SimpleEvaluationContext}，只能读取行字段和调用实例方法，不能引用类型或创建对象。
+ * <p>
+ * 入库、出库、使用表还可以挂载本任务的 {@link CatalogIndex}，校验行引用的药品在药品目录中存在，不存在的行拦截入库；
+ * 药品目录表则挂载 {@link CatalogIndex.Builder}，把通过质控的行收集到索引中。
+ * 开启列式暂存后，可以入库的行同时追加到 {@link ColumnarTable}，导入结束后在其上执行表级聚合规则和统计；
+ * 暂存超过内存阈值时转存到磁盘的 {@link SpillRowStore}，统计时按列重新读出。
+ * 非线程安全，只能在导入流的消费线程中使用
+ *
+ * @author hyh
+ */
+@Slf4j
+public class QcRuleEvaluator {
+
+    @Getter
+    private final CompiledQcRuleSet ruleSet;
+    private final CompiledQcRule[] rules;
+    private final QcRowView rowView;
+    private final EvaluationContext context;
+    private final CompiledQcRule[] aggregateRules;
+    private final EvaluationContext aggregateContext;
+
+    /**
+     * 每条规则不通过的行数
+     */
+    private final long[] failedCounts;
+    /**
+     * 每条规则求值异常的行数，异常行不计入不通过
+     */
+    private final long[] errorCounts;
+
+    /**
+     * 引用校验使用的药品目录索引，为 null 时不校验
+     */
+    private CatalogIndex catalogIndex;
+    /**
+     * 收集药品目录索引的构建器，只用于药品目录表
+     */
+    @Getter
+    private CatalogIndex.Builder catalogBuilder;
+    private final int hospitalCodeIndex;
+    private final int hosDrugIdIndex;
+    private final int ypidIndex;
+    /**
+     * 引用的药品在药品目录中不存在的行数
+     */
+    @Getter
+    private long referenceFailedRecords;
+
+    /**
+     * 可以入库的行的列式暂存，未开启、已转存到磁盘或已放弃时为 null
+     */
+    private ColumnarTable staging;
+    /**
+     * 超过内存阈值后转存到磁盘的暂存
+     */
+    private SpillRowStore spill;
+    private SpilledColumnSource spilledSource;
+    private int stagingMaxRows;
+    private long stagingMaxBytes;
+    /**
+     * 创建溢写存储，未开启溢写时为 null
+     */
+    private Supplier<SpillRowStore> spillFactory;
+    /**
+     * 是否放弃了暂存，放弃后聚合规则不再执行
+     */
+    @Getter
+    private boolean stagingTruncated;
+    @Getter
+    private String stagingTruncatedReason;
+
+    /**
+     * 参与质控的行数
+     */
+    @Getter
+    private long totalRecords;
+    /**
+     * 至少一条错误级别规则不通过的行数
+     */
+    @Getter
+    private long failedRecords;
+    /**
+     * 只有警告级别规则不通过的行数
+     */
+    @Getter
+    private long warningRecords;
+    /**
+     * 被前置质控拦截、未写入业务表的行数
+     */
+    @Getter
+    private long rejectedRecords;
+
+    QcRuleEvaluator(CompiledQcRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+        this.rules = ruleSet.getRules().toArray(new CompiledQcRule[0]);
+        this.rowView = new QcRowView(ruleSet.getFieldIndex());
+        this.context = SimpleEvaluationContext.forPropertyAccessors(new MapAccessor())
+                .withInstanceMethods().build();
+        this.aggregateRules = ruleSet.getAggregateRules().toArray(new CompiledQcRule[0]);
+        this.aggregateContext = SimpleEvaluationContext.forReadOnlyDataBinding().withInstanceMethods().build();
+        this.failedCounts = new long[rules.length];
+        this.errorCounts = new long[rules.length];
+        this.hospitalCodeIndex = ruleSet.getFieldIndex().getOrDefault(CatalogIndex.COLUMN_HOSPITAL_CODE, -1);
+        this.hosDrugIdIndex = ruleSet.getFieldIndex().getOrDefault(CatalogIndex.COLUMN_HOS_DRUG_ID, -1);
+        this.ypidIndex = ruleSet.getFieldIndex().getOrDefault(CatalogIndex.COLUMN_YPID, -1);
+    }
+
+    /**
+     * 校验每行引用的院内药品唯一码、国家药品编码在药品目录中存在
+     */
+    public void checkReferences(CatalogIndex catalogIndex) {
+        this.catalogIndex = catalogIndex;
+    }
+
+    /**
+     * 把可以入库的行收集到药品目录索引中
+     */
+    public void collectCatalog(CatalogIndex.Builder catalogBuilder) {
+        this.catalogBuilder = catalogBuilder;
+    }
+
+    public boolean isReferenceChecked() {
+        return catalogIndex != null;
+    }
+
+    /**
+     * 开启列式暂存
+     *
+     * @param maxRows      内存中暂存的最大行数
+     * @param maxBytes     内存中暂存的最大字节数
+     * @param spillFactory 超过任一阈值后创建溢写存储，为 null 时放弃暂存，聚合规则不再执行
+     */
+    public void stageColumns(int maxRows, long maxBytes, Supplier<SpillRowStore> spillFactory) {
+        this.staging = new ColumnarTable(TableSchema.of(ruleSet.getTableType()));
+        this.stagingMaxRows = maxRows;
+        this.stagingMaxBytes = maxBytes;
+        this.spillFactory = spillFactory;
+    }
+
+    /**
+     * 暂存的数据，未开启或已放弃暂存时为 null
+     */
+    public ColumnSource getStaging() {
+        if (staging != null) {
+            return staging;
+        }
+        if (spill != null && spilledSource == null) {
+            spilledSource = new SpilledColumnSource(TableSchema.of(ruleSet.getTableType()), spill);
+        }
+        return spilledSource;
+    }
+
+    /**
+     * 释放列式暂存并删除溢写文件，表级质控汇总完成或导入失败后调用
+     */
+    public void releaseStaging() {
+        staging = null;
+        spilledSource = null;
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    /**
+     * 对一行执行全部规则
+     *
+     * @param row 已通过解析校验的行
+     * @return 第一条拦截入库的规则的错误信息，可以入库时返回 null
+     */
+    public String evaluate(ImportRow row) {
+        Object[] values = row.getValues();
+        totalRecords++;
+        String rejection = catalogIndex != null ? checkReference(values) : null;
+        boolean failed = rejection != null;
+        boolean warned = false;
+        rowView.bind(values);
+        for (int i = 0; i < rules.length; i++) {
+            CompiledQcRule rule = rules[i];
+            rowView.bindField(rule.getFieldIndex());
+            Boolean passed;
+            try {
+                passed = rule.getExpression().getValue(context, rowView, Boolean.class);
+            } catch (RuntimeException e) {
+                if (errorCounts[i]++ == 0) {
+                    log.warn("质控规则执行异常，仅记录首次: ruleCode={}, rowIndex={}, error={}",
+                            rule.getRuleCode(), row.getRowIndex(), e.getMessage());
+                }
+                continue;
+            }
+            if (Boolean.TRUE.equals(passed)) {
+                continue;
+            }
+            failedCounts[i]++;
+            if (!rule.isError()) {
+                warned = true;
+                continue;
+            }
+            failed = true;
+            if (rejection == null && rule.isBlocking()) {
+                rejection = rule.formatRowError();
+            }
+        }
+        if (failed) {
+            failedRecords++;
+        } else if (warned) {
+            warningRecords++;
+        }
+        if (rejection != null) {
+            rejectedRecords++;
+            return rejection;
+        }
+        if (catalogBuilder != null) {
+            catalogBuilder.add(valueAt(values, hosDrugIdIndex), valueAt(values, ypidIndex),
+                    valueAt(values, hospitalCodeIndex));
+        }
+        if (staging != null || spill != null) {
+            stage(row.getRowIndex(), values);
+        }
+        return null;
+    }
+
+    private void stage(int rowIndex, Object[] values) {
+        if (spill != null) {
+            if (!spill.append(rowIndex, values)) {
+                abandonStaging("溢写文件超过上限");
+            }
+            return;
+        }
+        staging.append(rowIndex, values);
+        int rows = staging.getRowCount();
+        // 估算内存要遍历字典，每 4096 行检查一次
+        if (rows >= stagingMaxRows || ((rows & 4095) == 0 && staging.estimatedBytes() >= stagingMaxBytes)) {
+            spillStaging();
+        }
+    }
+
+    /**
+     * 把内存中的暂存转存到磁盘，之后的行直接写入溢写存储
+     */
+    private void spillStaging() {
+        if (spillFactory == null) {
+            abandonStaging("数据量超过列式暂存的内存阈值");
+            return;
+        }
+        long memoryBytes = staging.estimatedBytes();
+        try {
+            spill = spillFactory.get();
+            for (int i = 0; i < staging.getRowCount(); i++) {
+                if (!spill.append(staging.getRowIndex(i), staging.getRow(i))) {
+                    abandonStaging("溢写文件超过上限");
+                    return;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            log.warn("创建溢写存储失败: tableType={}, error={}", ruleSet.getTableType(), e.getMessage());
+            abandonStaging("创建溢写文件失败");
+            return;
+        }
+        log.info("列式暂存超过内存阈值，转存到磁盘: tableType={}, 行数={}, 约占内存={}MB, 溢写={}MB",
+                ruleSet.getTableType(), staging.getRowCount(), memoryBytes / 1024 / 1024, spill.getBytes() / 1024 / 1024);
+        staging = null;
+    }
+
+    private void abandonStaging(String reason) {
+        log.warn("放弃列式暂存，跳过聚合规则: tableType={}, reason={}", ruleSet.getTableType(), reason);
+        releaseStaging();
+        stagingTruncated = true;
+        stagingTruncatedReason = reason;
+    }
+
+    private String checkReference(Object[] values) {
+        Object hosDrugId = valueAt(values, hosDrugIdIndex);
+        if (hosDrugId != null && !catalogIndex.containsHosDrugId(hosDrugId.toString())) {
+            referenceFailedRecords++;
+            return "院内药品唯一码在药品目录中不存在: " + hosDrugId;
+        }
+        Object ypid = valueAt(values, ypidIndex);
+        if (ypid != null && !catalogIndex.containsYpid(ypid.toString())) {
+            referenceFailedRecords++;
+            return "国家药品编码在药品目录中不存在: " + ypid;
+        }
+        return null;
+    }
+
+    private static Object valueAt(Object[] values, int index) {
+        return index >= 0 && index < values.length ? values[index] : null;
+    }
+
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    public CompiledQcRule getRule(int index) {
+        return rules[index];
+    }
+
+    public long getFailedCount(int index) {
+        return failedCounts[index];
+    }
+
+    public long getErrorCount(int index) {
+        return errorCounts[index];
+    }
+
+    public int getAggregateRuleCount() {
+        return aggregateRules.length;
+    }
+
+    public CompiledQcRule getAggregateRule(int index) {
+        return aggregateRules[index];
+    }
+
+    /**
+     * 在列式暂存上执行一条表级聚合规则
+     *
+     * @return 是否通过
+     * @throws IllegalStateException 未开启暂存或暂存已被放弃
+     * @throws RuntimeException      表达式执行异常，例如引用了不存在的字段
+     */
+    public boolean evaluateAggregate(int index) {
+        ColumnSource source = getStaging();
+        if (source == null) {
+            throw new IllegalStateException(stagingTruncated ? stagingTruncatedReason : "未开启列式暂存");
+        }
+        CompiledQcRule rule = aggregateRules[index];
+        QcAggregateView view = new QcAggregateView(source, rule.getFieldName());
+        return Boolean.TRUE.equals(rule.getExpression().getValue(aggregateContext, view, Boolean.class));
+    }
+
+}
@@ -0,0 +1,59 @@
+package cn.iocoder.yudao.module.drug.service.batch.qc;
+
+import cn.iocoder.yudao.module.drug.dal.redis.rule.QcRuleVersionRedisDAO;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已编译质控规则的本地缓存
+ * <p>
+ * 每张表缓存一份 {@link CompiledQcRuleSet}，以 Redis 中的规则版本号标记。
+ * 规则变更时递增版本号并广播刷新消息，各节点收到后移除本地缓存；
+ * 获取时还会比对一次 Redis 中的版本号，错过广播的节点也不会使用过期的规则。
+ * 已开始的导入持有自己的规则集，不受之后的变更影响
+ * <p>
+ * 质控规则（drug_qc_rule）不区分租户，因此按表类型缓存，不按租户重复编译
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class QcRuleSetCache {
+
+    @Resource
+    private QcRuleEngine qcRuleEngine;
+    @Resource
+    private QcRuleVersionRedisDAO qcRuleVersionRedisDAO;
+
+    private final Map<TableTypeEnum, CompiledQcRuleSet> ruleSets = new ConcurrentHashMap<>();
+
+    /**
+     * 获取表的最新规则集，本地缓存过期时重新查询并编译
+     */
+    public CompiledQcRuleSet get(TableTypeEnum tableType) {
+        // 先读版本号再查规则：规则变更先写库再递增版本号，读到的规则不会比版本号旧
+        long version = qcRuleVersionRedisDAO.getVersion(tableType.getType());
+        CompiledQcRuleSet ruleSet = ruleSets.get(tableType);
+        if (ruleSet != null && ruleSet.getVersion() == version) {
+            return ruleSet;
+        }
+        // 同一张表并发获取时只编译一次
+        return ruleSets.compute(tableType, (key, current) ->
+                current != null && current.getVersion() == version ? current : qcRuleEngine.compile(tableType, version));
+    }
+
+    /**
+     * 移除表的本地缓存
+     */
+    public void invalidate(Collection<TableTypeEnum> tableTypes) {
+        tableTypes.forEach(ruleSets::remove);
+        log.info("质控规则缓存已失效: tableTypes={}", tableTypes);
+    }
+
+}
@@ -0,0 +1,223 @@
+package cn.iocoder.yudao.module.drug.service.batch.scheduler;
+
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportCancelRedisDAO;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.IMPORT_TASK_CANCELLED;
+
+/**
+ * 导入任务取消令牌
+ * <p>
+ * 任务开始执行时登记令牌，解析、分块写入、质控等环节在每个工作单元之间检查令牌，
+ * 发现取消后抛出 {@link cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants#IMPORT_TASK_CANCELLED} 尽快退出。
+ * 取消标记写在 Redis 中，其他节点执行的表作业按 {@link DrugImportProperties.Cancel#getCheckInterval()} 节流检查；
+ * 本节点发起的取消直接置位令牌，立即生效
+ * <p>
+ * 令牌同时记录本次执行写入的导入批次号，取消后据此清理已导入的数据。
+ * 表作业租约续期失败时只作废该表（{@link #revokeLease}），本节点同一任务的其他表不受影响
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportCancellationRegistry {
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private ImportCancelRedisDAO cancelRedisDAO;
+
+    /**
+     * 本节点执行中的任务令牌；同一任务的多张表可能在本节点并行执行，共用一个令牌并按引用计数释放
+     */
+    private final Map<Long, CancellationToken> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * 登记任务的取消令牌
+     *
+     * @param taskId 任务ID
+     * @return 取消令牌，执行结束后必须关闭
+     */
+    public CancellationToken register(Long taskId) {
+        return tokens.compute(taskId, (key, token) -> {
+            if (token == null) {
+                token = new CancellationToken(taskId);
+            }
+            token.references++;
+            return token;
+        });
+    }
+
+    /**
+     * 发起取消：写入 Redis 取消标记，本节点的令牌立即置位
+     *
+     * @return 发起取消的时间戳（毫秒）
+     */
+    public long requestCancel(Long taskId) {
+        long requestTime = cancelRedisDAO.requestCancel(taskId);
+        CancellationToken token = tokens.get(taskId);
+        if (token != null) {
+            token.cancelled = true;
+        }
+        return requestTime;
+    }
+
+    /**
+     * 任务是否已取消，本节点没有执行该任务时返回 false
+     */
+    public boolean isCancelled(Long taskId) {
+        CancellationToken token = tokens.get(taskId);
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * 任务已取消时抛出异常，本节点没有执行该任务时直接返回
+     */
+    public void throwIfCancelled(Long taskId) {
+        CancellationToken token = tokens.get(taskId);
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+
+    /**
+     * 作废本节点对表作业的执行权：租约已被其他节点接管，本节点应尽快停止写入该表
+     */
+    public void revokeLease(Long taskId, TableTypeEnum tableType) {
+        CancellationToken token = tokens.get(taskId);
+        if (token != null) {
+            token.revokedTables.add(tableType);
+        }
+    }
+
+    /**
+     * 任务已取消或该表的租约已作废时返回 true，本节点没有执行该任务时返回 false
+     */
+    public boolean isCancelled(Long taskId, TableTypeEnum tableType) {
+        CancellationToken token = tokens.get(taskId);
+        return token != null && (token.isLeaseRevoked(tableType) || token.isCancelled());
+    }
+
+    /**
+     * 任务已取消或该表的租约已作废时抛出异常，本节点没有执行该任务时直接返回
+     */
+    public void throwIfCancelled(Long taskId, TableTypeEnum tableType) {
+        if (isCancelled(taskId, tableType)) {
+            throw exception(IMPORT_TASK_CANCELLED);
+        }
+    }
+
+    /**
+     * 记录表本次写入的导入批次号
+     */
+    public void recordImportBatch(Long taskId, TableTypeEnum tableType, String importBatchNo) {
+        CancellationToken token = tokens.get(taskId);
+        if (token != null) {
+            token.importBatches.put(tableType, importBatchNo);
+        }
+    }
+
+    private void release(CancellationToken token) {
+        tokens.computeIfPresent(token.getTaskId(), (key, current) -> {
+            if (current != token) {
+                return current;
+            }
+            return --current.references > 0 ? current : null;
+        });
+    }
+
+    /**
+     * 取消令牌
+     */
+    public class CancellationToken implements AutoCloseable {
+
+        @Getter
+        private final Long taskId;
+        /**
+         * 引用计数，只在 {@link #tokens} 的 compute 中修改
+         */
+        private int references;
+        private volatile boolean cancelled;
+        /**
+         * 下一次允许检查 Redis 的时间（System.nanoTime）
+         */
+        private final AtomicLong nextCheckTime = new AtomicLong(System.nanoTime());
+        private final Map<TableTypeEnum, String> importBatches = new ConcurrentHashMap<>();
+        /**
+         * 租约已作废的表
+         */
+        private final Set<TableTypeEnum> revokedTables = ConcurrentHashMap.newKeySet();
+
+        private CancellationToken(Long taskId) {
+            this.taskId = taskId;
+        }
+
+        /**
+         * 任务是否已取消
+         * <p>
+         * 距上次检查超过检查间隔时才访问 Redis，多个线程同时检查时只有一个线程访问
+         */
+        public boolean isCancelled() {
+            if (cancelled) {
+                return true;
+            }
+            long now = System.nanoTime();
+            long next = nextCheckTime.get();
+            if (now - next >= 0 && nextCheckTime.compareAndSet(next,
+                    now + importProperties.getCancel().getCheckInterval().toNanos())) {
+                try {
+                    if (cancelRedisDAO.isCancelRequested(taskId)) {
+                        log.info("检测到任务取消标记: taskId={}", taskId);
+                        cancelled = true;
+                    }
+                } catch (Exception e) {
+                    // Redis 暂时不可用时继续执行，下一个检查周期再试
+                    log.warn("检查任务取消标记失败: taskId={}", taskId, e);
+                }
+            }
+            return cancelled;
+        }
+
+        /**
+         * 任务已取消时抛出异常
+         */
+        public void throwIfCancelled() {
+            if (isCancelled()) {
+                throw exception(IMPORT_TASK_CANCELLED);
+            }
+        }
+
+        /**
+         * 表的租约是否已作废
+         */
+        public boolean isLeaseRevoked(TableTypeEnum tableType) {
+            return revokedTables.contains(tableType);
+        }
+
+        /**
+         * 本次执行写入的导入批次号
+         */
+        public Map<TableTypeEnum, String> getImportBatches() {
+            return new EnumMap<>(importBatches);
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,296 @@
+package cn.iocoder.yudao.module.drug.service.batch.scheduler;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.FileInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportMemoryStatusVO;
+import cn.iocoder.yudao.module.drug.enums.ImportLoadModeEnum;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.FileExtractService;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import jakarta.annotation.Resource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.IMPORT_MEMORY_UNAVAILABLE;
+
+/**
+ * 导入内存配额
+ * <p>
+ * 调度器只限制同时运行的任务数，但几个大文件同时整表解析仍可能把堆撑爆。
+ * 导入阶段开始前，根据文件的预估行数和表结构估算任务的工作集大小，向配额申请预留，
+ * 放不下时按申请顺序等待，先申请的任务优先，大任务不会被小任务一直插队
+ * <p>
+ * 整表解析时工作集与行数成正比；流式管道只保留队列和在途分块，与文件大小无关。
+ * 未开启流式管道时，整表解析的预估超过总配额的表会自动改走流式管道
+ * <p>
+ * 配额、已预留、等待数和申请等待时间由 {@link ImportMemoryMetrics} 注册为监控指标
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportMemoryGovernor {
+
+    private static final long MB = 1024 * 1024;
+
+    @Resource
+    private DrugImportProperties importProperties;
+
+    /**
+     * 预留和等待中的申请，按申请顺序排列，已获得配额的在前。
+     * 集群执行时同一任务的多张表可能在同一节点上各自申请，因此不按任务ID去重
+     */
+    private final Set<Reservation> reservations = new LinkedHashSet<>();
+    /**
+     * 已获得配额的字节数
+     */
+    private long reservedBytes;
+    /**
+     * 已完成（获得或放弃）的申请次数，及其累计等待时间
+     */
+    private long acquireCount;
+    private long acquireWaitNanos;
+
+    /**
+     * 为任务制定内存计划：决定每张表走流式管道还是整表解析，并估算任务的峰值占用
+     * <p>
+     * 同一优先级的表并行导入，因此峰值取各层预估之和的最大值
+     *
+     * @param fileInfos 本次要导入的表
+     * @param loadMode  写入模式，决定单个分块的行数
+     */
+    public MemoryPlan plan(Map<TableTypeEnum, FileInfo> fileInfos, ImportLoadModeEnum loadMode) {
+        long budget = getBudgetBytes();
+        boolean streamingEnabled = importProperties.getStreaming().getEnabled();
+        boolean memoryEnabled = importProperties.getMemory().getEnabled();
+        Map<TableTypeEnum, Boolean> streaming = new EnumMap<>(TableTypeEnum.class);
+        Map<Integer, Long> tierBytes = new TreeMap<>();
+        fileInfos.forEach((tableType, fileInfo) -> {
+            long fullBytes = estimateFullParseBytes(tableType, fileInfo);
+            boolean useStreaming = streamingEnabled;
+            if (!useStreaming && memoryEnabled && fullBytes > budget) {
+                log.warn("整表解析预估超过内存配额，改走流式管道: tableType={}, 预估={}MB, 配额={}MB",
+                        tableType, fullBytes / MB, budget / MB);
+                useStreaming = true;
+            }
+            long bytes = useStreaming ? estimateStreamingBytes(tableType, fileInfo, loadMode) : fullBytes;
+            streaming.put(tableType, useStreaming);
+            tierBytes.merge(FileExtractService.getProcessingPriority(tableType), bytes, Long::sum);
+        });
+        long peakBytes = tierBytes.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        return new MemoryPlan(streaming, Math.min(peakBytes, budget));
+    }
+
+    /**
+     * 申请预留内存，配额不足时阻塞等待
+     * <p>
+     * 申请按先后顺序获得配额：排在前面的申请没拿到之前，后面的申请即使放得下也继续等待
+     *
+     * @param taskId 任务ID
+     * @param bytes  申请的字节数，超过总配额时按总配额计算（即独占运行）
+     * @return 预留凭证，导入结束后必须关闭以归还配额
+     */
+    public Reservation acquire(Long taskId, long bytes) {
+        if (!importProperties.getMemory().getEnabled() || bytes <= 0) {
+            return new Reservation(taskId, 0);
+        }
+        long budget = getBudgetBytes();
+        Reservation reservation = new Reservation(taskId, Math.min(bytes, budget));
+        long startTime = System.nanoTime();
+        long deadline = startTime + importProperties.getMemory().getWaitTimeout().toNanos();
+        synchronized (this) {
+            reservations.add(reservation);
+            try {
+                while (!canGrant(reservation, budget)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw exception(IMPORT_MEMORY_UNAVAILABLE, reservation.getBytes() / MB, "等待超时");
+                    }
+                    log.info("内存配额不足，任务等待中: taskId={}, 申请={}MB, 已预留={}MB, 配额={}MB",
+                            taskId, reservation.getBytes() / MB, reservedBytes / MB, budget / MB);
+                    wait(Math.max(1, remaining / 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reservations.remove(reservation);
+                notifyAll();
+                throw exception(IMPORT_MEMORY_UNAVAILABLE, reservation.getBytes() / MB, "等待被中断");
+            } catch (RuntimeException e) {
+                reservations.remove(reservation);
+                notifyAll();
+                throw e;
+            } finally {
+                acquireCount++;
+                acquireWaitNanos += System.nanoTime() - startTime;
+            }
+            reservation.granted = true;
+            reservedBytes += reservation.getBytes();
+            log.info("内存配额已预留: taskId={}, 预留={}MB, 已预留={}MB, 配额={}MB",
+                    taskId, reservation.getBytes() / MB, reservedBytes / MB, budget / MB);
+        }
+        return reservation;
+    }
+
+    /**
+     * 获取配额状态
+     */
+    public synchronized ImportMemoryStatusVO getStatus() {
+        Runtime runtime = Runtime.getRuntime();
+        List<ImportMemoryStatusVO.Reservation> items = new ArrayList<>(reservations.size());
+        int waitingCount = 0;
+        for (Reservation reservation : reservations) {
+            if (!reservation.isGranted()) {
+                waitingCount++;
+            }
+            items.add(ImportMemoryStatusVO.Reservation.builder()
+                    .taskId(reservation.getTaskId())
+                    .bytes(reservation.getBytes())
+                    .granted(reservation.isGranted())
+                    .requestTime(reservation.getRequestTime())
+                    .build());
+        }
+        return ImportMemoryStatusVO.builder()
+                .enabled(importProperties.getMemory().getEnabled())
+                .budgetBytes(getBudgetBytes())
+                .reservedBytes(reservedBytes)
+                .heapUsedBytes(runtime.totalMemory() - runtime.freeMemory())
+                .waitingCount(waitingCount)
+                .reservations(items)
+                .build();
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public synchronized int getWaitingCount() {
+        int waitingCount = 0;
+        for (Reservation reservation : reservations) {
+            if (!reservation.isGranted()) {
+                waitingCount++;
+            }
+        }
+        return waitingCount;
+    }
+
+    public synchronized long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * 已完成的申请累计等待的纳秒数
+     */
+    public synchronized long getAcquireWaitNanos() {
+        return acquireWaitNanos;
+    }
+
+    /**
+     * 获取导入可使用的堆内存总量
+     */
+    public long getBudgetBytes() {
+        DrugImportProperties.Memory config = importProperties.getMemory();
+        if (config.getHeapBudget() != null) {
+            return config.getHeapBudget().toBytes();
+        }
+        return (long) (Runtime.getRuntime().maxMemory() * config.getHeapRatio());
+    }
+
+    /**
+     * 整表解析的预估占用：解析出的原始行与转换后的数据对象同时存在
+     */
+    private long estimateFullParseBytes(TableTypeEnum tableType, FileInfo fileInfo) {
+        return estimateRowCount(fileInfo) * estimateRowBytes(tableType) * 2;
+    }
+
+    /**
+     * 流式管道的预估占用：解析与入库之间的队列，加上每个在途分块和正在组装的分块
+     */
+    private long estimateStreamingBytes(TableTypeEnum tableType, FileInfo fileInfo, ImportLoadModeEnum loadMode) {
+        int chunkRows = loadMode == ImportLoadModeEnum.LOAD_DATA
+                ? importProperties.getLoadData().getBatchSize() : importProperties.getBatchSize();
+        long bufferedRows = importProperties.getStreaming().getQueueCapacity()
+                + (long) chunkRows * (importProperties.getChunk().getConcurrency(tableType) + 1);
+        return Math.min(estimateRowCount(fileInfo), bufferedRows) * estimateRowBytes(tableType);
+    }
+
+    private long estimateRowBytes(TableTypeEnum tableType) {
+        DrugImportProperties.Memory config = importProperties.getMemory();
+        return config.getRowOverhead() + (long) TableSchema.of(tableType).size() * config.getBytesPerCell();
+    }
+
+    /**
+     * 预估行数缺失时（例如校验阶段未统计），按压缩后的文件大小粗估，每行至少按 50 字节计
+     */
+    private static long estimateRowCount(FileInfo fileInfo) {
+        if (fileInfo.getEstimatedRowCount() != null && fileInfo.getEstimatedRowCount() > 0) {
+            return fileInfo.getEstimatedRowCount();
+        }
+        return fileInfo.getFileSize() != null ? fileInfo.getFileSize() / 50 : 0;
+    }
+
+    private boolean canGrant(Reservation reservation, long budget) {
+        for (Reservation other : reservations) {
+            if (other == reservation) {
+                return reservedBytes + reservation.getBytes() <= budget;
+            }
+            if (!other.isGranted()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void release(Reservation reservation) {
+        if (reservations.remove(reservation) && reservation.isGranted()) {
+            reservedBytes -= reservation.getBytes();
+            log.info("内存配额已归还: taskId={}, 归还={}MB, 已预留={}MB",
+                    reservation.getTaskId(), reservation.getBytes() / MB, reservedBytes / MB);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 内存计划
+     *
+     * @param streaming 各表是否走流式管道
+     * @param peakBytes 任务的预估峰值占用
+     */
+    public record MemoryPlan(Map<TableTypeEnum, Boolean> streaming, long peakBytes) {
+
+        public boolean isStreaming(TableTypeEnum tableType) {
+            return streaming.getOrDefault(tableType, Boolean.TRUE);
+        }
+
+    }
+
+    /**
+     * 内存预留凭证
+     */
+    @Getter
+    public class Reservation implements AutoCloseable {
+
+        private final Long taskId;
+        private final long bytes;
+        private final LocalDateTime requestTime = LocalDateTime.now();
+        private volatile boolean granted;
+
+        private Reservation(Long taskId, long bytes) {
+            this.taskId = taskId;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (bytes > 0) {
+                release(this);
+            }
+        }
+
+    }
+
+}
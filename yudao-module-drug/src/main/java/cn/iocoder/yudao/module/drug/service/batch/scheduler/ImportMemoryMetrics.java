@@ -0,0 +1,51 @@
+package cn.iocoder.yudao.module.drug.service.batch.scheduler;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入内存配额的监控指标
+ * <p>
+ * 由 Spring Boot Actuator 绑定到应用的 MeterRegistry，可以通过 /actuator/prometheus 采集：
+ * <ul>
+ *     <li>drug.import.memory.budget：导入可使用的堆内存配额</li>
+ *     <li>drug.import.memory.reserved：已预留的字节数</li>
+ *     <li>drug.import.memory.waiting：等待配额的申请数</li>
+ *     <li>drug.import.memory.acquire.wait：申请配额的等待时间（次数和累计时长）</li>
+ * </ul>
+ *
+ * @author hyh
+ */
+@Component
+public class ImportMemoryMetrics implements MeterBinder {
+
+    @Resource
+    private ImportMemoryGovernor memoryGovernor;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("drug.import.memory.budget", memoryGovernor, ImportMemoryGovernor::getBudgetBytes)
+                .description("导入可使用的堆内存配额")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("drug.import.memory.reserved", memoryGovernor, ImportMemoryGovernor::getReservedBytes)
+                .description("已预留的导入内存")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("drug.import.memory.waiting", memoryGovernor, ImportMemoryGovernor::getWaitingCount)
+                .description("等待内存配额的申请数")
+                .register(registry);
+        FunctionTimer.builder("drug.import.memory.acquire.wait", memoryGovernor,
+                        ImportMemoryGovernor::getAcquireCount, ImportMemoryGovernor::getAcquireWaitNanos,
+                        TimeUnit.NANOSECONDS)
+                .description("申请导入内存配额的等待时间")
+                .register(registry);
+    }
+
+}
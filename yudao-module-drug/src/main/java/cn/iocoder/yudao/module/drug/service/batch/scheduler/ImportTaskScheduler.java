@@ -0,0 +1,362 @@
+package cn.iocoder.yudao.module.drug.service.batch.scheduler;
+
+import cn.hutool.system.SystemUtil;
+import cn.iocoder.yudao.framework.security.core.LoginUser;
+import cn.iocoder.yudao.framework.security.core.util.SecurityFrameworkUtils;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportQueuePositionVO;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportQueueStatusVO;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportTaskQueueRedisDAO;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import com.alibaba.ttl.TtlRunnable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
+import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.IMPORT_QUEUE_FULL;
+
+/**
+ * 导入任务调度器
+ * <p>
+ * 导入任务不再直接丢进应用公共的异步线程池，而是先进入本调度器的队列，
+ * 由独立的 drugImportTaskExecutor 执行，同时运行的任务数受全局上限和单租户上限约束。
+ * 出队顺序按 租户 -> 上传人 两层轮转：每次从下一个租户中取下一个上传人的最早任务，
+ * 因此某个机构一次上传再多的文件，也只会占用它自己的那一份轮次
+ * <p>
+ * 任务在数据库中保持"待处理"状态直到被调度执行；队列本身在内存中，排队和运行中的任务在 Redis 中
+ * 留有标记并定期续期。节点重启后标记过期，仍处于待处理的任务可以通过重试重新入队（导入会从断点继续）
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportTaskScheduler {
+
+    /**
+     * 未登录（如系统内部触发）时使用的租户、上传人编号
+     */
+    private static final Long UNKNOWN_ID = 0L;
+    /**
+     * 队列标记的有效期，每三分之一有效期续期一次
+     */
+    private static final Duration QUEUED_MARK_TIMEOUT = Duration.ofMinutes(2);
+    /**
+     * 本节点标识，格式与表作业租约的持有者一致（IP@进程号）
+     */
+    private static final String NODE_ID = String.format("%s@%d",
+            SystemUtil.getHostInfo().getAddress(), SystemUtil.getCurrentPID());
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    @Qualifier("drugImportTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+    @Resource
+    @Qualifier("drugImportProgressScheduler")
+    private TaskScheduler progressScheduler;
+    @Resource
+    private ImportTaskQueueRedisDAO queueRedisDAO;
+
+    /**
+     * 租户 -> 上传人 -> 排队任务，两层都按插入顺序轮转
+     */
+    private final LinkedHashMap<Long, LinkedHashMap<Long, Deque<QueuedTask>>> queues = new LinkedHashMap<>();
+    /**
+     * 排队中的任务，key 为任务ID
+     */
+    private final Map<Long, QueuedTask> queuedTasks = new HashMap<>();
+    /**
+     * 正在运行的任务，key 为任务ID
+     */
+    private final Map<Long, QueuedTask> runningTasks = new HashMap<>();
+    /**
+     * 各租户正在运行的任务数
+     */
+    private final Map<Long, Integer> runningPerTenant = new HashMap<>();
+
+    private ScheduledFuture<?> renewFuture;
+
+    @PostConstruct
+    public void init() {
+        renewFuture = progressScheduler.scheduleWithFixedDelay(this::renewQueuedMarks, QUEUED_MARK_TIMEOUT.dividedBy(3));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewFuture != null) {
+            renewFuture.cancel(false);
+        }
+    }
+
+    /**
+     * 检查队列是否还能接收新任务，在保存上传文件之前调用，避免队列已满时白白落盘
+     */
+    public void checkAdmission() {
+        int maxQueuedTasks = importProperties.getScheduler().getMaxQueuedTasks();
+        synchronized (this) {
+            if (queuedTasks.size() >= maxQueuedTasks) {
+                throw exception(IMPORT_QUEUE_FULL, maxQueuedTasks);
+            }
+        }
+    }
+
+    /**
+     * 提交导入任务
+     * <p>
+     * 租户和上传人取自当前登录用户；执行时还原提交时的上下文（租户、登录用户等）。
+     * 如果当前处于事务中，等事务提交后再入队，保证执行线程能查到任务记录
+     *
+     * @param taskId 任务ID
+     * @param work   任务内容
+     */
+    public void submit(Long taskId, Runnable work) {
+        checkAdmission();
+        LoginUser loginUser = SecurityFrameworkUtils.getLoginUser();
+        Long tenantId = loginUser != null && loginUser.getTenantId() != null ? loginUser.getTenantId() : UNKNOWN_ID;
+        Long ownerId = loginUser != null && loginUser.getId() != null ? loginUser.getId() : UNKNOWN_ID;
+        QueuedTask task = new QueuedTask(taskId, tenantId, ownerId, TtlRunnable.get(work));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(task);
+                }
+            });
+        } else {
+            enqueue(task);
+        }
+    }
+
+    /**
+     * 从队列中移除尚未开始的任务
+     *
+     * @return 任务仍在排队并已移除时返回 true；已开始运行或不在队列中返回 false
+     */
+    public synchronized boolean cancel(Long taskId) {
+        QueuedTask task = queuedTasks.remove(taskId);
+        if (task == null) {
+            return false;
+        }
+        LinkedHashMap<Long, Deque<QueuedTask>> owners = queues.get(task.tenantId());
+        Deque<QueuedTask> deque = owners.get(task.ownerId());
+        deque.remove(task);
+        if (deque.isEmpty()) {
+            owners.remove(task.ownerId());
+        }
+        if (owners.isEmpty()) {
+            queues.remove(task.tenantId());
+        }
+        removeQueuedMark(taskId);
+        log.info("排队中的导入任务已移除: taskId={}", taskId);
+        return true;
+    }
+
+    /**
+     * 任务是否在某个节点的队列中（排队或运行）
+     * <p>
+     * 先查本节点，再查 Redis 中的标记；为 false 时待处理的任务已无人负责，可以重新提交
+     */
+    public boolean isQueued(Long taskId) {
+        synchronized (this) {
+            if (queuedTasks.containsKey(taskId) || runningTasks.containsKey(taskId)) {
+                return true;
+            }
+        }
+        return queueRedisDAO.isQueued(taskId);
+    }
+
+    /**
+     * 获取队列状态
+     */
+    public synchronized ImportQueueStatusVO getQueueStatus() {
+        Set<Long> tenantIds = new LinkedHashSet<>(queues.keySet());
+        tenantIds.addAll(runningPerTenant.keySet());
+        List<ImportQueueStatusVO.TenantQueue> tenants = new ArrayList<>(tenantIds.size());
+        for (Long tenantId : tenantIds) {
+            Map<Long, Deque<QueuedTask>> owners = queues.getOrDefault(tenantId, new LinkedHashMap<>());
+            tenants.add(ImportQueueStatusVO.TenantQueue.builder()
+                    .tenantId(tenantId)
+                    .runningCount(runningPerTenant.getOrDefault(tenantId, 0))
+                    .queuedCount(owners.values().stream().mapToInt(Deque::size).sum())
+                    .ownerCount(owners.size())
+                    .build());
+        }
+        DrugImportProperties.Scheduler config = importProperties.getScheduler();
+        return ImportQueueStatusVO.builder()
+                .maxRunningTasks(config.getMaxRunningTasks())
+                .maxRunningPerTenant(config.getMaxRunningPerTenant())
+                .runningCount(runningTasks.size())
+                .queuedCount(queuedTasks.size())
+                .tenants(tenants)
+                .build();
+    }
+
+    /**
+     * 获取任务的排队位置
+     * <p>
+     * 在队列副本上按轮转规则模拟出队得到位置；单租户上限会让实际顺序随运行情况变化，因此这是估算值
+     */
+    public synchronized ImportQueuePositionVO getQueuePosition(Long taskId) {
+        ImportQueuePositionVO.ImportQueuePositionVOBuilder builder = ImportQueuePositionVO.builder()
+                .taskId(taskId)
+                .queuedCount(queuedTasks.size());
+        if (runningTasks.containsKey(taskId)) {
+            return builder.state(ImportQueuePositionVO.STATE_RUNNING).build();
+        }
+        if (!queuedTasks.containsKey(taskId)) {
+            return builder.state(ImportQueuePositionVO.STATE_NOT_QUEUED).build();
+        }
+
+        LinkedHashMap<Long, LinkedHashMap<Long, Deque<QueuedTask>>> copy = new LinkedHashMap<>();
+        queues.forEach((tenantId, owners) -> {
+            LinkedHashMap<Long, Deque<QueuedTask>> ownersCopy = new LinkedHashMap<>();
+            owners.forEach((ownerId, deque) -> ownersCopy.put(ownerId, new ArrayDeque<>(deque)));
+            copy.put(tenantId, ownersCopy);
+        });
+        int position = 0;
+        QueuedTask next;
+        while ((next = pollNext(copy, Collections.emptyMap(), 0)) != null) {
+            position++;
+            if (next.taskId().equals(taskId)) {
+                break;
+            }
+        }
+        return builder.state(ImportQueuePositionVO.STATE_QUEUED).position(position).build();
+    }
+
+    private void enqueue(QueuedTask task) {
+        try {
+            queueRedisDAO.markQueued(task.taskId(), NODE_ID, QUEUED_MARK_TIMEOUT);
+        } catch (Exception e) {
+            // 标记只用于判断任务是否无人负责，写入失败不影响入队，下一次续期时补上
+            log.warn("写入导入任务队列标记失败: taskId={}", task.taskId(), e);
+        }
+        synchronized (this) {
+            queues.computeIfAbsent(task.tenantId(), key -> new LinkedHashMap<>())
+                    .computeIfAbsent(task.ownerId(), key -> new ArrayDeque<>())
+                    .addLast(task);
+            queuedTasks.put(task.taskId(), task);
+            log.info("导入任务已入队: taskId={}, tenantId={}, ownerId={}, 排队数={}, 运行数={}",
+                    task.taskId(), task.tenantId(), task.ownerId(), queuedTasks.size(), runningTasks.size());
+        }
+        dispatch();
+    }
+
+    /**
+     * 在运行数未达上限时按轮转顺序启动排队任务
+     */
+    private void dispatch() {
+        DrugImportProperties.Scheduler config = importProperties.getScheduler();
+        List<QueuedTask> toStart = new ArrayList<>();
+        synchronized (this) {
+            while (runningTasks.size() < config.getMaxRunningTasks()) {
+                QueuedTask next = pollNext(queues, runningPerTenant, config.getMaxRunningPerTenant());
+                if (next == null) {
+                    break;
+                }
+                queuedTasks.remove(next.taskId());
+                runningTasks.put(next.taskId(), next);
+                runningPerTenant.merge(next.tenantId(), 1, Integer::sum);
+                toStart.add(next);
+            }
+        }
+        toStart.forEach(this::start);
+    }
+
+    private void start(QueuedTask task) {
+        log.info("导入任务开始执行: taskId={}, tenantId={}", task.taskId(), task.tenantId());
+        try {
+            taskExecutor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            log.error("导入任务提交到线程池失败: taskId={}", task.taskId(), e);
+            finish(task);
+        }
+    }
+
+    private void run(QueuedTask task) {
+        try {
+            task.work().run();
+        } catch (Throwable e) {
+            log.error("导入任务执行异常: taskId={}", task.taskId(), e);
+        } finally {
+            finish(task);
+        }
+    }
+
+    private void finish(QueuedTask task) {
+        synchronized (this) {
+            runningTasks.remove(task.taskId());
+            runningPerTenant.computeIfPresent(task.tenantId(), (key, count) -> count > 1 ? count - 1 : null);
+        }
+        removeQueuedMark(task.taskId());
+        dispatch();
+    }
+
+    private void removeQueuedMark(Long taskId) {
+        try {
+            queueRedisDAO.removeQueued(taskId);
+        } catch (Exception e) {
+            log.warn("移除导入任务队列标记失败，等待过期: taskId={}", taskId, e);
+        }
+    }
+
+    /**
+     * 续期本节点排队和运行中任务的标记
+     */
+    private void renewQueuedMarks() {
+        List<Long> taskIds;
+        synchronized (this) {
+            taskIds = new ArrayList<>(queuedTasks.keySet());
+            taskIds.addAll(runningTasks.keySet());
+        }
+        try {
+            queueRedisDAO.renewQueued(taskIds, NODE_ID, QUEUED_MARK_TIMEOUT);
+        } catch (Exception e) {
+            log.warn("续期导入任务队列标记失败: 任务数={}", taskIds.size(), e);
+        }
+    }
+
+    /**
+     * 按 租户 -> 上传人 两层轮转取出下一个任务，取出后把对应的租户、上传人移到队尾
+     *
+     * @param perTenantLimit 单租户运行数上限，0 表示不限制
+     * @return 没有可运行的任务时返回 null
+     */
+    private static QueuedTask pollNext(LinkedHashMap<Long, LinkedHashMap<Long, Deque<QueuedTask>>> queues,
+                                       Map<Long, Integer> runningPerTenant, int perTenantLimit) {
+        for (Long tenantId : queues.keySet()) {
+            if (perTenantLimit > 0 && runningPerTenant.getOrDefault(tenantId, 0) >= perTenantLimit) {
+                continue;
+            }
+            LinkedHashMap<Long, Deque<QueuedTask>> owners = queues.remove(tenantId);
+            Long ownerId = owners.keySet().iterator().next();
+            Deque<QueuedTask> deque = owners.remove(ownerId);
+            QueuedTask task = deque.pollFirst();
+            if (!deque.isEmpty()) {
+                owners.put(ownerId, deque);
+            }
+            if (!owners.isEmpty()) {
+                queues.put(tenantId, owners);
+            }
+            return task;
+        }
+        return null;
+    }
+
+    private record QueuedTask(Long taskId, Long tenantId, Long ownerId, Runnable work) {
+    }
+
+}
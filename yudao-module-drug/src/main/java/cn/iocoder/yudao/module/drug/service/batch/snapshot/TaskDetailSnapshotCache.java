@@ -0,0 +1,133 @@
+package cn.iocoder.yudao.module.drug.service.batch.snapshot;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportTaskDetailVO;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskDetailSnapshotRedisDAO;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskDetailSnapshotRedisDAO.TaskDetailSnapshot;
+import cn.iocoder.yudao.module.drug.enums.TaskStatusEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * 导入任务详情的快照缓存
+ * <p>
+ * 任务详情由多次查询拼装而成，这里按任务缓存拼装结果，分两级：
+ * <ul>
+ *     <li>Redis：各节点共享，已结束任务的快照保留 terminalTtl，进行中任务的快照只保留 runningTtl</li>
+ *     <li>本地：最多 localMaxSize 个任务，命中时不需要传输和反序列化快照</li>
+ * </ul>
+ * 任务或明细的状态变化（事务提交）后由 {@link #invalidate} 递增 Redis 中的版本号，每次读取都比对一次版本号，
+ * 版本不一致的快照（包括其他节点本地缓存的）不再使用。进行中任务的进度在两次状态变化之间
+ * 最多延迟 runningTtl。返回的详情对象会被多个请求共享，调用方不能修改
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class TaskDetailSnapshotCache {
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private TaskDetailSnapshotRedisDAO snapshotRedisDAO;
+
+    private Cache<Long, TaskDetailSnapshot> localSnapshots;
+
+    @PostConstruct
+    public void init() {
+        DrugImportProperties.DetailSnapshot config = importProperties.getDetailSnapshot();
+        // 按写入时间过期，不长于 Redis 中版本号的有效期，版本号过期后本地不会残留旧版本的快照
+        localSnapshots = CacheBuilder.newBuilder()
+                .maximumSize(config.getLocalMaxSize())
+                .expireAfterWrite(config.getTerminalTtl())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(importProperties.getDetailSnapshot().getEnabled());
+    }
+
+    /**
+     * 获取任务详情，快照失效时调用 builder 重新拼装
+     */
+    public ImportTaskDetailVO get(Long taskId, Function<Long, ImportTaskDetailVO> builder) {
+        long version = snapshotRedisDAO.getVersion(taskId);
+        TaskDetailSnapshot local = localSnapshots.getIfPresent(taskId);
+        if (isUsable(local, version)) {
+            return local.getDetail();
+        }
+        if (local != null) {
+            localSnapshots.invalidate(taskId);
+        }
+        try {
+            // 同一任务并发读取时只有一个线程拼装
+            return localSnapshots.get(taskId, () -> load(taskId, version, builder)).getDetail();
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 任务或明细的状态变化后调用，作废所有节点上的快照
+     * <p>
+     * 在事务中调用时推迟到提交之后执行，否则提交前的并发读取会按新版本号缓存旧数据
+     */
+    public void invalidate(Long taskId) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(taskId);
+                }
+            });
+        } else {
+            doInvalidate(taskId);
+        }
+    }
+
+    private void doInvalidate(Long taskId) {
+        snapshotRedisDAO.invalidate(taskId, importProperties.getDetailSnapshot().getTerminalTtl());
+        localSnapshots.invalidate(taskId);
+    }
+
+    private TaskDetailSnapshot load(Long taskId, long version, Function<Long, ImportTaskDetailVO> builder) {
+        TaskDetailSnapshot shared = snapshotRedisDAO.getSnapshot(taskId);
+        if (isUsable(shared, version)) {
+            return shared;
+        }
+        // 先读版本号再拼装：拼装期间状态发生变化时，快照带的是旧版本号，下次读取会被丢弃
+        ImportTaskDetailVO detail = builder.apply(taskId);
+        TaskStatusEnum status = detail.getTaskInfo() != null
+                ? TaskStatusEnum.getByType(detail.getTaskInfo().getStatus()) : null;
+        boolean terminal = status != null && (status.isFinalStatus() || status == TaskStatusEnum.CANCELLED);
+        DrugImportProperties.DetailSnapshot config = importProperties.getDetailSnapshot();
+        Duration ttl = terminal ? config.getTerminalTtl() : config.getRunningTtl();
+        TaskDetailSnapshot snapshot = new TaskDetailSnapshot(version, terminal,
+                System.currentTimeMillis() + ttl.toMillis(), detail);
+        snapshotRedisDAO.setSnapshot(taskId, snapshot, ttl);
+        log.debug("任务详情快照已生成: taskId={}, version={}, terminal={}", taskId, version, terminal);
+        return snapshot;
+    }
+
+    private static boolean isUsable(TaskDetailSnapshot snapshot, long version) {
+        return snapshot != null && snapshot.getVersion() == version
+                && (snapshot.isTerminal() || snapshot.getExpireTime() > System.currentTimeMillis());
+    }
+
+}
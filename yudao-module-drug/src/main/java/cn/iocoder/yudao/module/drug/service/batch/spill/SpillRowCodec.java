@@ -0,0 +1,207 @@
+package cn.iocoder.yudao.module.drug.service.batch.spill;
+
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 溢写行的二进制编码
+ * <p>
+ * 按 {@link TableSchema} 的字段类型编码，不写字段名和类型标记：
+ * <pre>
+ * 行号(varint) | 空值位图(每列 1 位) | 各非空字段
+ *   LONG    zigzag varlong
+ *   DECIMAL scale(zigzag varint) + 非标度值(能放进 long 时为 0 + zigzag varlong，否则为 1 + 长度 + 补码字节)
+ *   STRING  UTF-8 字节数(varint) + 字节
+ * </pre>
+ * 整数和金额通常只占 1~5 个字节。编解码器无状态，可以共用
+ *
+ * @author hyh
+ */
+public class SpillRowCodec {
+
+    private final TableSchema.ColumnType[] types;
+    private final int bitmapBytes;
+
+    public SpillRowCodec(TableSchema schema) {
+        this.types = new TableSchema.ColumnType[schema.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = schema.getColumn(i).getType();
+        }
+        this.bitmapBytes = (types.length + 7) >>> 3;
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /**
+     * 把一行编码到 out 的当前位置
+     *
+     * @throws java.nio.BufferOverflowException out 剩余空间不足，调用方扩容后重试
+     */
+    public void encode(int rowIndex, Object[] values, ByteBuffer out) {
+        putVarLong(out, rowIndex);
+        int bitmapPosition = out.position();
+        for (int i = 0; i < bitmapBytes; i++) {
+            out.put((byte) 0);
+        }
+        for (int i = 0; i < types.length; i++) {
+            Object value = i < values.length ? values[i] : null;
+            if (value == null) {
+                int index = bitmapPosition + (i >>> 3);
+                out.put(index, (byte) (out.get(index) | (1 << (i & 7))));
+                continue;
+            }
+            switch (types[i]) {
+                case LONG -> putVarLong(out, zigzag(((Number) value).longValue()));
+                case DECIMAL -> putDecimal(out, value instanceof BigDecimal decimal
+                        ? decimal : new BigDecimal(value.toString()));
+                default -> {
+                    byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                    putVarLong(out, bytes.length);
+                    out.put(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从 in 的当前位置解码一行
+     *
+     * @param values 输出的字段值，长度不小于字段数
+     * @return 行号
+     */
+    public int decode(ByteBuffer in, Object[] values) {
+        int rowIndex = (int) getVarLong(in);
+        int bitmapPosition = in.position();
+        in.position(bitmapPosition + bitmapBytes);
+        for (int i = 0; i < types.length; i++) {
+            if ((in.get(bitmapPosition + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                values[i] = null;
+                continue;
+            }
+            values[i] = switch (types[i]) {
+                case LONG -> unzigzag(getVarLong(in));
+                case DECIMAL -> getDecimal(in);
+                default -> {
+                    yield getString(in);
+                }
+            };
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 只解码一个字段，跳过其余字段的对象创建，用于按列读取
+     */
+    public Object decodeColumn(ByteBuffer in, int column) {
+        getVarLong(in);
+        int bitmapPosition = in.position();
+        in.position(bitmapPosition + bitmapBytes);
+        for (int i = 0; i <= column; i++) {
+            if ((in.get(bitmapPosition + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                if (i == column) {
+                    return null;
+                }
+                continue;
+            }
+            switch (types[i]) {
+                case LONG -> {
+                    long value = getVarLong(in);
+                    if (i == column) {
+                        return unzigzag(value);
+                    }
+                }
+                case DECIMAL -> {
+                    if (i == column) {
+                        return getDecimal(in);
+                    }
+                    skipDecimal(in);
+                }
+                default -> {
+                    if (i == column) {
+                        return getString(in);
+                    }
+                    int length = (int) getVarLong(in);
+                    in.position(in.position() + length);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 映射文件的缓冲区不是堆数组，先复制出字节再解码
+     */
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) getVarLong(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putDecimal(ByteBuffer out, BigDecimal value) {
+        putVarLong(out, zigzag(value.scale()));
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            out.put((byte) 0);
+            putVarLong(out, zigzag(unscaled.longValue()));
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            out.put((byte) 1);
+            putVarLong(out, bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer in) {
+        int scale = (int) unzigzag(getVarLong(in));
+        if (in.get() == 0) {
+            return BigDecimal.valueOf(unzigzag(getVarLong(in)), scale);
+        }
+        byte[] bytes = new byte[(int) getVarLong(in)];
+        in.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private static void skipDecimal(ByteBuffer in) {
+        getVarLong(in);
+        if (in.get() == 0) {
+            getVarLong(in);
+        } else {
+            int length = (int) getVarLong(in);
+            in.position(in.position() + length);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+package cn.iocoder.yudao.module.drug.service.batch.spill;
+
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 溢写到磁盘的行存储
+ * <p>
+ * 行按 {@link SpillRowCodec} 编码后追加到内存映射的段文件中（每条记录为 长度 + 内容），
+ * 一个段写满后新建下一个段。堆内只保留每行的位置（8 字节），行数据由操作系统页缓存管理，不占堆内存。
+ * 支持按写入顺序遍历（{@link #cursor()}）和按序号随机读取（{@link #get(int)}）。
+ * 非线程安全，关闭后解除段文件的映射并删除段文件；关闭后不能再读取，包括关闭前取得的游标
+ *
+ * @author hyh
+ */
+@Slf4j
+public class SpillRowStore implements Closeable {
+
+    private static final int INITIAL_SCRATCH_BYTES = 4096;
+    /**
+     * 行位置的编码：高位为段序号，低 40 位为段内偏移
+     */
+    private static final int SEGMENT_SHIFT = 40;
+    private static final long POSITION_MASK = (1L << SEGMENT_SHIFT) - 1;
+    /**
+     * 解除映射的方法（Unsafe.invokeCleaner），不可用时为 null，映射在缓冲区被回收时才释放
+     */
+    private static final MethodHandle UNMAPPER = lookupUnmapper();
+
+    private final Path directory;
+    private final String name;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final SpillRowCodec codec;
+    private final Runnable onClose;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private long[] offsets = new long[1024];
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+    @Getter
+    private int rowCount;
+    /**
+     * 已写入段文件的字节数
+     */
+    @Getter
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * @param directory    段文件所在目录，需已存在
+     * @param name         段文件名前缀，同一目录下不能重复
+     * @param segmentBytes 单个段文件的大小
+     * @param maxBytes     写入字节数的上限
+     * @param onClose      关闭后的回调
+     */
+    SpillRowStore(Path directory, String name, TableSchema schema, int segmentBytes, long maxBytes,
+                  Runnable onClose) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.codec = new SpillRowCodec(schema);
+        this.onClose = onClose;
+    }
+
+    /**
+     * 追加一行
+     *
+     * @return 超过写入上限时返回 false，该行未写入
+     * @throws UncheckedIOException 创建段文件失败
+     */
+    public boolean append(int rowIndex, Object[] values) {
+        int length = encode(rowIndex, values);
+        int recordBytes = Integer.BYTES + length;
+        if (bytes + recordBytes > maxBytes) {
+            return false;
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < recordBytes) {
+            segment = openSegment(Math.max(segmentBytes, recordBytes));
+        }
+        int position = segment.written;
+        segment.buffer.putInt(position, length);
+        segment.buffer.put(position + Integer.BYTES, scratch, 0, length);
+        segment.written += recordBytes;
+        if (rowCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length << 1);
+        }
+        offsets[rowCount++] = ((long) (segments.size() - 1) << SEGMENT_SHIFT) | position;
+        bytes += recordBytes;
+        return true;
+    }
+
+    /**
+     * 按写入序号读取一行
+     *
+     * @param row 写入序号，从 0 开始
+     */
+    public ImportRow get(int row) {
+        checkOpen();
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("溢写行序号越界: " + row + ", 行数: " + rowCount);
+        }
+        ByteBuffer in = locate(row);
+        Object[] values = new Object[codec.getColumnCount()];
+        int rowIndex = codec.decode(in, values);
+        return new ImportRow(rowIndex, values, null);
+    }
+
+    /**
+     * 按写入顺序遍历的游标，遍历期间不能继续追加
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 堆内占用的字节数（行位置和编码缓冲区）
+     */
+    public long estimatedHeapBytes() {
+        return 8L * offsets.length + scratch.capacity();
+    }
+
+    /**
+     * 关闭并解除段文件的映射，只能由读写本存储的线程调用
+     */
+    @Override
+    public void close() {
+        close(true);
+    }
+
+    /**
+     * 由其他线程关闭遗留的存储：可能仍有线程在读取，解除映射后再访问会导致进程崩溃，
+     * 因此只删除段文件，映射在缓冲区被回收时释放
+     */
+    void abandon() {
+        close(false);
+    }
+
+    private void close(boolean unmap) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 先解除映射再删除：否则映射要等缓冲区被回收才释放，期间磁盘空间和虚拟地址都不会归还
+        for (Segment segment : segments) {
+            if (unmap) {
+                unmap(segment);
+            }
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                log.warn("删除溢写文件失败: file={}, error={}", segment.file, e.getMessage());
+            }
+        }
+        segments.clear();
+        offsets = new long[0];
+        rowCount = 0;
+        onClose.run();
+    }
+
+    private int encode(int rowIndex, Object[] values) {
+        while (true) {
+            scratch.clear();
+            try {
+                codec.encode(rowIndex, values, scratch);
+                return scratch.position();
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() << 1);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("溢写存储已关闭: " + name);
+        }
+    }
+
+    private void unmap(Segment segment) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.invokeExact(segment.buffer);
+        } catch (Throwable e) {
+            log.warn("解除溢写文件映射失败: file={}, error={}", segment.file, e.getMessage());
+        }
+    }
+
+    private static MethodHandle lookupUnmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+                    MethodType.methodType(void.class, ByteBuffer.class));
+            return handle.bindTo(field.get(null)).asType(MethodType.methodType(void.class, MappedByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法显式解除溢写文件映射，映射将在缓冲区被回收时释放: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Segment openSegment(int size) {
+        checkOpen();
+        Path file = directory.resolve(name + "-" + segments.size() + ".seg");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 关闭通道不影响已建立的映射
+            Segment segment = new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.add(segment);
+            log.debug("创建溢写段文件: file={}, size={}KB", file, size / 1024);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建溢写文件失败: " + file, e);
+        }
+    }
+
+    /**
+     * 定位到第 row 行的内容
+     */
+    private ByteBuffer locate(int row) {
+        long offset = offsets[row];
+        ByteBuffer in = segments.get((int) (offset >>> SEGMENT_SHIFT)).buffer.duplicate();
+        in.position((int) (offset & POSITION_MASK) + Integer.BYTES);
+        return in;
+    }
+
+    /**
+     * 顺序游标
+     */
+    public class Cursor {
+
+        private int row;
+        private int segmentIndex = -1;
+        private ByteBuffer in;
+
+        public boolean hasNext() {
+            return row < rowCount;
+        }
+
+        public ImportRow next() {
+            ByteBuffer buffer = advance();
+            Object[] values = new Object[codec.getColumnCount()];
+            int rowIndex = codec.decode(buffer, values);
+            return new ImportRow(rowIndex, values, null);
+        }
+
+        /**
+         * 读取下一行的一个字段，不解码其余字段
+         */
+        public Object nextColumn(int column) {
+            return codec.decodeColumn(advance(), column);
+        }
+
+        private ByteBuffer advance() {
+            // 映射解除后再访问会导致进程崩溃
+            checkOpen();
+            if (row >= rowCount) {
+                throw new NoSuchElementException();
+            }
+            long offset = offsets[row++];
+            int index = (int) (offset >>> SEGMENT_SHIFT);
+            if (index != segmentIndex) {
+                segmentIndex = index;
+                in = segments.get(index).buffer.duplicate();
+            }
+            in.position((int) (offset & POSITION_MASK) + Integer.BYTES);
+            return in;
+        }
+
+    }
+
+    private static class Segment {
+
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int written;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - written;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package cn.iocoder.yudao.module.drug.service.batch.spill;
+
+import cn.hutool.core.io.FileUtil;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.framework.batch.config.DrugImportProperties;
+import cn.iocoder.yudao.module.drug.service.batch.FileExtractService;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 溢写存储的创建与清理
+ * <p>
+ * 段文件放在任务工作目录（{@link FileExtractService#resolveWorkDirectory}）的 spill 子目录下。
+ * 使用方用完后关闭各自的存储；任务结束时 {@link #release} 关闭该任务遗留的存储并删除整个 spill 目录
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class SpillStoreManager {
+
+    private static final String SPILL_DIRECTORY = "spill";
+
+    @Resource
+    private DrugImportProperties importProperties;
+    @Resource
+    private FileExtractService fileExtractService;
+
+    private final Map<Long, Set<SpillRowStore>> stores = new ConcurrentHashMap<>();
+    private final AtomicLong storeSequence = new AtomicLong();
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(importProperties.getSpill().getEnabled());
+    }
+
+    /**
+     * 为任务的一张表创建溢写存储
+     *
+     * @throws UncheckedIOException 创建目录失败
+     */
+    public SpillRowStore create(Long taskId, TableTypeEnum tableType) {
+        DrugImportProperties.Spill config = importProperties.getSpill();
+        Path directory = getSpillDirectory(taskId);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建溢写目录失败: " + directory, e);
+        }
+        Set<SpillRowStore> taskStores = stores.computeIfAbsent(taskId, key -> ConcurrentHashMap.newKeySet());
+        String name = tableType.getTableName() + "-" + storeSequence.incrementAndGet();
+        SpillRowStore[] holder = new SpillRowStore[1];
+        holder[0] = new SpillRowStore(directory, name, TableSchema.of(tableType),
+                (int) Math.min(config.getSegmentSize().toBytes(), Integer.MAX_VALUE - 8),
+                config.getMaxDiskSize().toBytes(), () -> taskStores.remove(holder[0]));
+        taskStores.add(holder[0]);
+        log.info("创建溢写存储: taskId={}, tableType={}, directory={}", taskId, tableType, directory);
+        return holder[0];
+    }
+
+    /**
+     * 关闭任务遗留的溢写存储并删除溢写目录
+     */
+    public void release(Long taskId) {
+        Set<SpillRowStore> taskStores = stores.remove(taskId);
+        if (taskStores != null) {
+            new ArrayList<>(taskStores).forEach(SpillRowStore::abandon);
+        }
+        Path directory = getSpillDirectory(taskId);
+        if (Files.exists(directory)) {
+            FileUtil.del(directory);
+            log.info("溢写目录已清理: taskId={}, directory={}", taskId, directory);
+        }
+    }
+
+    private Path getSpillDirectory(Long taskId) {
+        return fileExtractService.resolveWorkDirectory(taskId).resolve(SPILL_DIRECTORY);
+    }
+
+}
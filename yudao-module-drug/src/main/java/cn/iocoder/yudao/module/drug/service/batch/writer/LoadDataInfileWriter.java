@@ -0,0 +1,192 @@
+package cn.iocoder.yudao.module.drug.service.batch.writer;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import com.mysql.cj.jdbc.JdbcStatement;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LOAD DATA LOCAL INFILE 批量装载写入器
+ * <p>
+ * 把一批行编码成制表符分隔的文本，通过 MySQL 驱动的 setLocalInfileInputStream 直接从内存装载，
+ * 不落临时文件。需要服务端 local_infile=ON 且 JDBC URL 带 allowLoadLocalInfile=true，
+ * 任一条件不满足（或不是 MySQL 驱动）时记住该状态，之后的批次直接退回 {@link MultiRowInsertWriter}
+ * <p>
+ * 注意：LOCAL 模式下重复键的行会被跳过，非法值会被静默转换（截断、置零）后写入，都只产生警告而不报错。
+ * 因此每个批次在单独的事务中装载，装载后检查警告数：有警告时回滚整批，改用多行 INSERT 重写，
+ * 由 INSERT 的严格模式报错并二分定位到具体的坏行，不会把被转换过的值留在库里
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class LoadDataInfileWriter implements TableBatchWriter {
+
+    /**
+     * 服务端禁止 LOAD DATA LOCAL
+     */
+    private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+    /**
+     * 客户端或服务端关闭了 local_infile
+     */
+    private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
+
+    private static final byte FIELD_SEPARATOR = '\t';
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final byte[] NULL_VALUE = "\\N".getBytes(StandardCharsets.UTF_8);
+
+    @Resource
+    private DataSource dataSource;
+    @Resource
+    private MultiRowInsertWriter multiRowInsertWriter;
+
+    /**
+     * 是否已确认当前环境不支持 LOAD DATA LOCAL
+     */
+    private final AtomicBoolean localInfileUnavailable = new AtomicBoolean(false);
+
+    @Override
+    public TableWriteResult write(Long taskId, TableTypeEnum tableType, String importBatchNo, List<ImportRow> rows) {
+        if (rows.isEmpty()) {
+            return new TableWriteResult(0, Collections.emptyList());
+        }
+        if (localInfileUnavailable.get()) {
+            return multiRowInsertWriter.write(taskId, tableType, importBatchNo, rows);
+        }
+
+        TableSchema schema = TableSchema.of(tableType);
+        String sql = buildLoadSql(tableType.getTableName(), schema.getWriteColumns());
+        byte[] content = encodeRows(rows, taskId, importBatchNo);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.getAutoCommit()) {
+                // 调用方已开启事务，无法单独回滚本批次
+                return multiRowInsertWriter.write(taskId, tableType, importBatchNo, rows);
+            }
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                if (!statement.isWrapperFor(JdbcStatement.class)) {
+                    markUnavailable("当前数据源不是 MySQL 驱动");
+                    return multiRowInsertWriter.write(taskId, tableType, importBatchNo, rows);
+                }
+                statement.unwrap(JdbcStatement.class)
+                        .setLocalInfileInputStream(new ByteArrayInputStream(content));
+                int loaded = statement.executeUpdate(sql);
+                int warnings = countWarnings(statement);
+                if (warnings > 0 || loaded != rows.size()) {
+                    connection.rollback();
+                    log.info("LOAD DATA 装载存在警告，本批次回滚后退回批量INSERT: taskId={}, tableType={}, 总数={}, 装载={}, 警告={}",
+                            taskId, tableType, rows.size(), loaded, warnings);
+                    return multiRowInsertWriter.write(taskId, tableType, importBatchNo, rows);
+                }
+                connection.commit();
+                return new TableWriteResult(loaded, Collections.emptyList());
+            } catch (SQLException e) {
+                connection.rollback();
+                if (isLocalInfileUnavailable(e)) {
+                    markUnavailable(e.getMessage());
+                } else {
+                    log.warn("LOAD DATA 装载失败，本批次退回批量INSERT: taskId={}, tableType={}, rows={}",
+                            taskId, tableType, rows.size(), e);
+                }
+                return multiRowInsertWriter.write(taskId, tableType, importBatchNo, rows);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("LOAD DATA 事务控制失败: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 上一条语句产生的警告数
+     */
+    private static int countWarnings(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT @@warning_count")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private void markUnavailable(String reason) {
+        if (localInfileUnavailable.compareAndSet(false, true)) {
+            log.warn("当前数据库不支持 LOAD DATA LOCAL INFILE，后续批次退回批量INSERT: {}", reason);
+        }
+    }
+
+    private static boolean isLocalInfileUnavailable(SQLException e) {
+        if (e.getErrorCode() == ER_NOT_ALLOWED_COMMAND || e.getErrorCode() == ER_CLIENT_LOCAL_FILES_DISABLED) {
+            return true;
+        }
+        // 驱动侧 allowLoadLocalInfile=false 时由驱动直接拒绝，没有服务端错误码
+        String message = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
+        return message.contains("local data") || message.contains("local infile");
+    }
+
+    private static String buildLoadSql(String tableName, List<String> columns) {
+        return "LOAD DATA LOCAL INFILE 'drug-import.tsv' INTO TABLE " + tableName
+                + " CHARACTER SET utf8mb4"
+                + " FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'"
+                + " LINES TERMINATED BY '\\n'"
+                + " (" + String.join(", ", columns) + ")";
+    }
+
+    /**
+     * 按 LOAD DATA 默认的转义规则编码：null 写作 \N，反斜杠、制表符、换行需要转义
+     */
+    private static byte[] encodeRows(List<ImportRow> rows, Long taskId, String importBatchNo) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 256);
+        for (ImportRow row : rows) {
+            Object[] values = MultiRowInsertWriter.buildValues(row, taskId, importBatchNo);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(FIELD_SEPARATOR);
+                }
+                writeValue(out, values[i]);
+            }
+            out.write(LINE_SEPARATOR);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            out.writeBytes(NULL_VALUE);
+            return;
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '\t' -> escaped.append("\\t");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\0' -> escaped.append("\\0");
+                default -> escaped.append(c);
+            }
+        }
+        out.writeBytes(escaped.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,137 @@
+package cn.iocoder.yudao.module.drug.service.batch.writer;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.DrugTableWriteMapper;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.TableSchema;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多行 INSERT 批量写入器
+ * <p>
+ * 一个批次拼成一条 INSERT ... VALUES (...),(...)，一次往返写入整批数据。
+ * 整批失败时二分重试：成功的一半直接落库，失败的一半继续拆分，
+ * 直到定位到具体的坏行，因此一行脏数据最多带来 log2(批大小) 次额外的语句。
+ * 只有数据或约束错误才拆分；连接中断、锁等待超时、死锁等与数据无关的异常直接抛出，
+ * 由调用方按整块失败处理，不会被当成逐行的数据错误
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class MultiRowInsertWriter implements TableBatchWriter {
+
+    /**
+     * 单条语句的占位符上限，MySQL 预编译语句最多支持 65535 个参数
+     */
+    private static final int MAX_PARAMETERS_PER_STATEMENT = 60000;
+
+    @Resource
+    private DrugTableWriteMapper tableWriteMapper;
+
+    /**
+     * 写入一批数据
+     * <p>
+     * 每条语句单独提交，某一行失败不会回滚同批的其他行
+     */
+    @Override
+    public TableWriteResult write(Long taskId, TableTypeEnum tableType, String importBatchNo, List<ImportRow> rows) {
+        if (rows.isEmpty()) {
+            return new TableWriteResult(0, Collections.emptyList());
+        }
+        TableSchema schema = TableSchema.of(tableType);
+        List<String> columns = schema.getWriteColumns();
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            values.add(buildValues(row, taskId, importBatchNo));
+        }
+
+        List<ImportResult.ImportError> errors = new ArrayList<>();
+        int rowsPerStatement = Math.max(1, MAX_PARAMETERS_PER_STATEMENT / columns.size());
+        for (int from = 0; from < values.size(); from += rowsPerStatement) {
+            int to = Math.min(from + rowsPerStatement, values.size());
+            insertOrBisect(tableType, columns, rows, values, from, to, errors);
+        }
+        if (!errors.isEmpty()) {
+            log.warn("批量写入存在失败行: taskId={}, tableType={}, 总数={}, 失败={}",
+                    taskId, tableType, rows.size(), errors.size());
+        }
+        return new TableWriteResult(rows.size() - errors.size(), errors);
+    }
+
+    /**
+     * 写入 [from, to) 区间，失败时二分定位坏行
+     */
+    private void insertOrBisect(TableTypeEnum tableType, List<String> columns, List<ImportRow> rows,
+                                List<Object[]> values, int from, int to, List<ImportResult.ImportError> errors) {
+        try {
+            tableWriteMapper.insertBatch(tableType.getTableName(), columns, values.subList(from, to));
+        } catch (RuntimeException e) {
+            if (!isDataError(e)) {
+                throw e;
+            }
+            if (to - from == 1) {
+                ImportRow row = rows.get(from);
+                errors.add(ImportResult.ImportError.builder()
+                        .batchIndex(from)
+                        .rowIndex(row.getRowIndex())
+                        .errorType("IMPORT_ERROR")
+                        .errorMessage(ExceptionUtil.getRootCauseMessage(e))
+                        .errorDetail(e.toString())
+                        .build());
+                return;
+            }
+            log.debug("批量写入失败，二分重试: tableType={}, 范围=[{}, {})", tableType, from, to);
+            int middle = (from + to) >>> 1;
+            insertOrBisect(tableType, columns, rows, values, from, middle, errors);
+            insertOrBisect(tableType, columns, rows, values, middle, to, errors);
+        }
+    }
+
+    /**
+     * 是否为行数据本身导致的错误：完整性约束冲突，或 SQLState 为 22（数据异常）、23（约束冲突）
+     */
+    static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException
+                    || cause instanceof SQLDataException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && (sqlException.getSQLState().startsWith("22") || sqlException.getSQLState().startsWith("23"))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 行值后追加任务字段，顺序与 {@link TableSchema#getWriteColumns()} 一致
+     */
+    static Object[] buildValues(ImportRow row, Long taskId, String importBatchNo) {
+        Object[] source = row.getValues();
+        Object[] values = new Object[source.length + 3];
+        System.arraycopy(source, 0, values, 0, source.length);
+        values[source.length] = taskId;
+        values[source.length + 1] = importBatchNo;
+        values[source.length + 2] = row.getRowIndex();
+        return values;
+    }
+
+}
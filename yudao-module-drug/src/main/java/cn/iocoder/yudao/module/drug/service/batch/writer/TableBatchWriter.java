@@ -0,0 +1,26 @@
+package cn.iocoder.yudao.module.drug.service.batch.writer;
+
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.service.batch.pipeline.ImportRow;
+
+import java.util.List;
+
+/**
+ * 业务表批量写入器
+ *
+ * @author hyh
+ */
+public interface TableBatchWriter {
+
+    /**
+     * 写入一批数据
+     *
+     * @param taskId        任务ID
+     * @param tableType     表类型
+     * @param importBatchNo 导入批次号
+     * @param rows          待写入的行
+     * @return 写入结果，错误中的 batchIndex 为行在 rows 中的下标
+     */
+    TableWriteResult write(Long taskId, TableTypeEnum tableType, String importBatchNo, List<ImportRow> rows);
+
+}
@@ -0,0 +1,29 @@
+package cn.iocoder.yudao.module.drug.service.batch.writer;
+
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.ImportResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量写入结果
+ *
+ * @author hyh
+ */
+@Data
+@AllArgsConstructor
+public class TableWriteResult {
+
+    /**
+     * 实际写入的行数
+     */
+    private int writtenCount;
+    /**
+     * 写入失败的行
+     * <p>
+     * 每个坏行一条；LOAD DATA 有警告时整批改用多行 INSERT 重写，同样定位到每一个坏行
+     */
+    private List<ImportResult.ImportError> errors;
+
+}
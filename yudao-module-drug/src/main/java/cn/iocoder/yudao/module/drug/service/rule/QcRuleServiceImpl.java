@@ -7,17 +7,24 @@ import cn.iocoder.yudao.module.drug.controller.admin.rule.vo.QcRulePageReqVO;
 import cn.iocoder.yudao.module.drug.controller.admin.rule.vo.QcRuleSaveReqVO;
 import cn.iocoder.yudao.module.drug.dal.dataobject.rule.QcRuleDO;
 import cn.iocoder.yudao.module.drug.dal.mysql.rule.QcRuleMapper;
+import cn.iocoder.yudao.module.drug.dal.redis.rule.QcRuleVersionRedisDAO;
+import cn.iocoder.yudao.module.drug.enums.TableTypeEnum;
+import cn.iocoder.yudao.module.drug.mq.producer.rule.QcRuleProducer;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.annotation.Validated;
 
-import java.util.List;
+import java.util.*;
 
 import static cn.iocoder.yudao.framework.common.exception.util.ServiceExceptionUtil.exception;
 import static cn.iocoder.yudao.module.drug.enums.DrugErrorCodeConstants.QC_RULE_NOT_FOUND;
 
 /**
  * 质控规则 Service 实现类
+ * <p>
+ * 规则变更后递增对应表的规则版本号，并广播刷新消息，各节点已编译的规则随之失效
  *
  * @author hyh
  */
@@ -27,12 +34,17 @@ public class QcRuleServiceImpl implements QcRuleService {
 
     @Resource
     private QcRuleMapper qcRuleMapper;
+    @Resource
+    private QcRuleVersionRedisDAO qcRuleVersionRedisDAO;
+    @Resource
+    private QcRuleProducer qcRuleProducer;
 
     @Override
     public Long createQcRule(QcRuleSaveReqVO createReqVO) {
         // 插入
         QcRuleDO qcRule = BeanUtils.toBean(createReqVO, QcRuleDO.class);
         qcRuleMapper.insert(qcRule);
+        refreshCompiledRules(Collections.singletonList(qcRule.getTableType()));
         // 返回
         return qcRule.getId();
     }
@@ -40,39 +52,78 @@ public class QcRuleServiceImpl implements QcRuleService {
     @Override
     public void updateQcRule(QcRuleSaveReqVO updateReqVO) {
         // 校验存在
-        validateQcRuleExists(updateReqVO.getId());
+        QcRuleDO oldRule = validateQcRuleExists(updateReqVO.getId());
         // 更新
         QcRuleDO updateObj = BeanUtils.toBean(updateReqVO, QcRuleDO.class);
         qcRuleMapper.updateById(updateObj);
+        // 适用表可能被修改，新旧两张表的规则都需要刷新
+        refreshCompiledRules(Arrays.asList(oldRule.getTableType(), updateObj.getTableType()));
     }
 
     @Override
     public void deleteQcRule(Long id) {
         // 校验存在
-        validateQcRuleExists(id);
+        QcRuleDO rule = validateQcRuleExists(id);
         // 删除
         qcRuleMapper.deleteById(id);
+        refreshCompiledRules(Collections.singletonList(rule.getTableType()));
     }
 
     @Override
         public void deleteQcRuleListByIds(List<Long> ids) {
         // 校验存在
-        validateQcRuleExists(ids);
+        List<QcRuleDO> rules = validateQcRuleExists(ids);
         // 删除
         qcRuleMapper.deleteByIds(ids);
+        refreshCompiledRules(rules.stream().map(QcRuleDO::getTableType).toList());
         }
 
-    private void validateQcRuleExists(List<Long> ids) {
+    private List<QcRuleDO> validateQcRuleExists(List<Long> ids) {
         List<QcRuleDO> list = qcRuleMapper.selectByIds(ids);
         if (CollUtil.isEmpty(list) || list.size() != ids.size()) {
             throw exception(QC_RULE_NOT_FOUND);
         }
+        return list;
     }
 
-    private void validateQcRuleExists(Long id) {
-        if (qcRuleMapper.selectById(id) == null) {
+    private QcRuleDO validateQcRuleExists(Long id) {
+        QcRuleDO rule = qcRuleMapper.selectById(id);
+        if (rule == null) {
             throw exception(QC_RULE_NOT_FOUND);
         }
+        return rule;
+    }
+
+    /**
+     * 递增受影响表的规则版本号并广播刷新消息
+     * <p>
+     * 适用表为空的规则适用于全部表。处于事务中时等事务提交后再刷新，避免其他节点读到未提交前的规则
+     *
+     * @param tableTypes 受影响的表类型，可以包含 null
+     */
+    private void refreshCompiledRules(Collection<Integer> tableTypes) {
+        Set<Integer> affectedTypes = new HashSet<>();
+        for (Integer tableType : tableTypes) {
+            if (tableType == null) {
+                Arrays.stream(TableTypeEnum.values()).forEach(type -> affectedTypes.add(type.getType()));
+            } else {
+                affectedTypes.add(tableType);
+            }
+        }
+        Runnable refresh = () -> {
+            qcRuleVersionRedisDAO.incrementVersions(affectedTypes);
+            qcRuleProducer.sendQcRuleRefreshMessage(affectedTypes);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh.run();
+                }
+            });
+        } else {
+            refresh.run();
+        }
     }
 
     @Override
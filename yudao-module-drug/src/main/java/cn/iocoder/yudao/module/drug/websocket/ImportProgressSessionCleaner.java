@@ -0,0 +1,91 @@
+package cn.iocoder.yudao.module.drug.websocket;
+
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportProgressSubscriberRedisDAO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话断开时清除导入进度订阅
+ * <p>
+ * 会话订阅过的任务记在会话属性中；框架的 WebSocketHandler 没有断开回调的扩展点，
+ * 这里对它再装饰一层，断开时把这些任务的订阅关系从 Redis 中删除，避免失效的会话一直留到任务结束
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportProgressSessionCleaner implements BeanPostProcessor {
+
+    private static final String ATTRIBUTE_TASK_IDS = "DRUG_IMPORT_PROGRESS_TASK_IDS";
+
+    /**
+     * BeanPostProcessor 初始化较早，延迟获取 DAO
+     */
+    @Resource
+    private ObjectProvider<ImportProgressSubscriberRedisDAO> subscriberRedisDAO;
+
+    /**
+     * 记录会话订阅的任务
+     */
+    @SuppressWarnings("unchecked")
+    static void track(WebSocketSession session, Long taskId) {
+        ((Set<Long>) session.getAttributes().computeIfAbsent(ATTRIBUTE_TASK_IDS,
+                key -> ConcurrentHashMap.newKeySet())).add(taskId);
+    }
+
+    /**
+     * 会话取消订阅时调用
+     */
+    @SuppressWarnings("unchecked")
+    static void untrack(WebSocketSession session, Long taskId) {
+        Set<Long> taskIds = (Set<Long>) session.getAttributes().get(ATTRIBUTE_TASK_IDS);
+        if (taskIds != null) {
+            taskIds.remove(taskId);
+        }
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof WebSocketHandler handler) || !"webSocketHandler".equals(beanName)) {
+            return bean;
+        }
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    removeSubscriptions(session);
+                }
+            }
+
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeSubscriptions(WebSocketSession session) {
+        Set<Long> taskIds = (Set<Long>) session.getAttributes().get(ATTRIBUTE_TASK_IDS);
+        if (taskIds == null || taskIds.isEmpty()) {
+            return;
+        }
+        try {
+            taskIds.forEach(taskId -> subscriberRedisDAO.getObject().removeSubscriber(taskId, session.getId()));
+            log.debug("会话断开，已清除导入进度订阅: sessionId={}, taskIds={}", session.getId(), taskIds);
+        } catch (Exception e) {
+            // 清除失败时订阅关系随任务结束清除，或在 Redis 中过期
+            log.warn("清除导入进度订阅失败: sessionId={}, taskIds={}", session.getId(), taskIds, e);
+        }
+    }
+
+}
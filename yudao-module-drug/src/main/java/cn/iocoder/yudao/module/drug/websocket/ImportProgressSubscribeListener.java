@@ -0,0 +1,79 @@
+package cn.iocoder.yudao.module.drug.websocket;
+
+import cn.iocoder.yudao.framework.common.biz.system.permission.PermissionCommonApi;
+import cn.iocoder.yudao.framework.common.enums.UserTypeEnum;
+import cn.iocoder.yudao.framework.security.core.LoginUser;
+import cn.iocoder.yudao.framework.websocket.core.listener.WebSocketMessageListener;
+import cn.iocoder.yudao.framework.websocket.core.sender.WebSocketMessageSender;
+import cn.iocoder.yudao.framework.websocket.core.util.WebSocketFrameworkUtils;
+import cn.iocoder.yudao.module.drug.dal.mysql.batch.ImportTaskMapper;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportProgressSubscriberRedisDAO;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.TaskProgressRedisDAO;
+import cn.iocoder.yudao.module.drug.websocket.message.ImportProgressEventMessage;
+import cn.iocoder.yudao.module.drug.websocket.message.ImportProgressSubscribeMessage;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Objects;
+
+/**
+ * 订阅导入任务进度
+ * <p>
+ * 订阅成功后立即推送一次完整快照，之后只推送增量，替代前端轮询进度接口。
+ * 与任务详情接口相同，只有具备导入任务查询权限的管理员才能订阅
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportProgressSubscribeListener implements WebSocketMessageListener<ImportProgressSubscribeMessage> {
+
+    /**
+     * 与任务详情接口的权限一致
+     */
+    private static final String QUERY_PERMISSION = "drug:batch-import:query";
+
+    @Resource
+    private ImportTaskMapper taskMapper;
+    @Resource
+    private TaskProgressRedisDAO taskProgressRedisDAO;
+    @Resource
+    private ImportProgressSubscriberRedisDAO subscriberRedisDAO;
+    @Resource
+    private WebSocketMessageSender webSocketMessageSender;
+    @Resource
+    private PermissionCommonApi permissionApi;
+
+    @Override
+    public void onMessage(WebSocketSession session, ImportProgressSubscribeMessage message) {
+        Long taskId = message.getTaskId();
+        LoginUser loginUser = WebSocketFrameworkUtils.getLoginUser(session);
+        if (loginUser == null || !Objects.equals(loginUser.getUserType(), UserTypeEnum.ADMIN.getValue())
+                || !permissionApi.hasAnyPermissions(loginUser.getId(), QUERY_PERMISSION)) {
+            log.warn("无权订阅导入进度: sessionId={}, userId={}, taskId={}", session.getId(),
+                    loginUser != null ? loginUser.getId() : null, taskId);
+            return;
+        }
+        if (taskId == null || taskMapper.selectById(taskId) == null) {
+            log.warn("订阅的导入任务不存在: sessionId={}, taskId={}", session.getId(), taskId);
+            return;
+        }
+        subscriberRedisDAO.addSubscriber(taskId, session.getId());
+        ImportProgressSessionCleaner.track(session, taskId);
+
+        TaskProgressRedisDAO.ProgressSnapshot progress = taskProgressRedisDAO.getProgressSnapshot(taskId);
+        ImportProgressEventMessage snapshot = ImportProgressWebSocketPusher
+                .buildEvent(taskId, progress.task(), progress.details().values())
+                .setSnapshot(true);
+        webSocketMessageSender.sendObject(session.getId(), ImportProgressWebSocketPusher.MESSAGE_TYPE, snapshot);
+        log.debug("已订阅导入进度: sessionId={}, taskId={}", session.getId(), taskId);
+    }
+
+    @Override
+    public String getType() {
+        return "drug-import-progress-subscribe";
+    }
+
+}
@@ -0,0 +1,36 @@
+package cn.iocoder.yudao.module.drug.websocket;
+
+import cn.iocoder.yudao.framework.websocket.core.listener.WebSocketMessageListener;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportProgressSubscriberRedisDAO;
+import cn.iocoder.yudao.module.drug.websocket.message.ImportProgressSubscribeMessage;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * 取消订阅导入任务进度
+ * <p>
+ * 会话断开时不需要显式取消，由 {@link ImportProgressSessionCleaner} 清除
+ *
+ * @author hyh
+ */
+@Component
+public class ImportProgressUnsubscribeListener implements WebSocketMessageListener<ImportProgressSubscribeMessage> {
+
+    @Resource
+    private ImportProgressSubscriberRedisDAO subscriberRedisDAO;
+
+    @Override
+    public void onMessage(WebSocketSession session, ImportProgressSubscribeMessage message) {
+        if (message.getTaskId() != null) {
+            subscriberRedisDAO.removeSubscriber(message.getTaskId(), session.getId());
+            ImportProgressSessionCleaner.untrack(session, message.getTaskId());
+        }
+    }
+
+    @Override
+    public String getType() {
+        return "drug-import-progress-unsubscribe";
+    }
+
+}
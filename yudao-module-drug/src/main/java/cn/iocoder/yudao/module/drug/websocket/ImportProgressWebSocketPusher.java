@@ -0,0 +1,100 @@
+package cn.iocoder.yudao.module.drug.websocket;
+
+import cn.iocoder.yudao.framework.websocket.core.sender.WebSocketMessageSender;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskDetailProgressInfo;
+import cn.iocoder.yudao.module.drug.controller.admin.batch.vo.TaskProgressInfo;
+import cn.iocoder.yudao.module.drug.dal.redis.batch.ImportProgressSubscriberRedisDAO;
+import cn.iocoder.yudao.module.drug.service.batch.progress.ImportProgressListener;
+import cn.iocoder.yudao.module.drug.websocket.message.ImportProgressEventMessage;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 通过 WebSocket 推送导入进度
+ * <p>
+ * 每次进度刷新后，把有变化的任务、表组装成增量事件，推送给订阅了该任务的会话。
+ * 会话编号取自 Redis 中的订阅关系，经 {@link WebSocketMessageSender} 发送，
+ * 发送器类型为 redis 等时会广播到所有节点，由会话所在的节点投递
+ *
+ * @author hyh
+ */
+@Component
+@Slf4j
+public class ImportProgressWebSocketPusher implements ImportProgressListener {
+
+    /**
+     * 推送给客户端的消息类型
+     */
+    public static final String MESSAGE_TYPE = "drug-import-progress";
+
+    @Resource
+    private WebSocketMessageSender webSocketMessageSender;
+    @Resource
+    private ImportProgressSubscriberRedisDAO subscriberRedisDAO;
+
+    @Override
+    public void onProgressFlushed(List<TaskProgressInfo> tasks, List<TaskDetailProgressInfo> details) {
+        Map<Long, TaskProgressInfo> taskMap = new LinkedHashMap<>();
+        tasks.forEach(task -> taskMap.put(task.getTaskId(), task));
+        Map<Long, List<TaskDetailProgressInfo>> detailMap = new LinkedHashMap<>();
+        details.forEach(detail -> detailMap.computeIfAbsent(detail.getTaskId(), key -> new ArrayList<>()).add(detail));
+
+        Set<Long> taskIds = new LinkedHashSet<>(taskMap.keySet());
+        taskIds.addAll(detailMap.keySet());
+        for (Long taskId : taskIds) {
+            Set<String> sessionIds = subscriberRedisDAO.getSubscribers(taskId);
+            if (sessionIds.isEmpty()) {
+                continue;
+            }
+            ImportProgressEventMessage event = buildEvent(taskId, taskMap.get(taskId),
+                    detailMap.getOrDefault(taskId, Collections.emptyList()));
+            sessionIds.forEach(sessionId -> webSocketMessageSender.sendObject(sessionId, MESSAGE_TYPE, event));
+        }
+    }
+
+    @Override
+    public void onTaskCompleted(Long taskId) {
+        Set<String> sessionIds = subscriberRedisDAO.getSubscribers(taskId);
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        ImportProgressEventMessage event = new ImportProgressEventMessage().setTaskId(taskId).setFinished(true);
+        sessionIds.forEach(sessionId -> webSocketMessageSender.sendObject(sessionId, MESSAGE_TYPE, event));
+        subscriberRedisDAO.deleteSubscribers(taskId);
+        log.debug("导入任务结束，已通知并清除订阅: taskId={}, 会话数={}", taskId, sessionIds.size());
+    }
+
+    /**
+     * 组装进度事件
+     *
+     * @param task    任务进度，没有变化时为空
+     * @param details 有变化的明细进度
+     */
+    static ImportProgressEventMessage buildEvent(Long taskId, TaskProgressInfo task,
+                                                 Collection<TaskDetailProgressInfo> details) {
+        ImportProgressEventMessage event = new ImportProgressEventMessage().setTaskId(taskId);
+        if (task != null) {
+            event.setStage(task.getCurrentStage())
+                    .setProgress(task.getProgress())
+                    .setMessage(task.getMessage());
+        }
+        if (!details.isEmpty()) {
+            List<ImportProgressEventMessage.TableProgress> tables = new ArrayList<>(details.size());
+            details.forEach(detail -> tables.add(new ImportProgressEventMessage.TableProgress()
+                    .setTableType(detail.getTableType())
+                    .setProgress(detail.getProgress())
+                    .setStatus(detail.getStatus())
+                    .setMessage(detail.getMessage())
+                    .setTotalRecords(detail.getTotalRecords())
+                    .setProcessedRecords(detail.getProcessedRecords())
+                    .setSuccessRecords(detail.getSuccessRecords())
+                    .setFailedRecords(detail.getFailedRecords())));
+            event.setTables(tables);
+        }
+        return event;
+    }
+
+}
@@ -0,0 +1,91 @@
+package cn.iocoder.yudao.module.drug.websocket.message;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 导入进度事件：server -> client 消息
+ * <p>
+ * 只携带本次刷新有变化的字段，没有变化的任务级字段为空、不参与序列化；
+ * 客户端按 taskId 与上一次的状态合并。订阅成功时推送一次完整快照
+ *
+ * @author hyh
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportProgressEventMessage {
+
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+    /**
+     * 是否为完整快照，增量事件为空
+     */
+    private Boolean snapshot;
+    /**
+     * 当前阶段
+     */
+    private String stage;
+    /**
+     * 任务进度百分比
+     */
+    private Integer progress;
+    /**
+     * 进度说明
+     */
+    private String message;
+    /**
+     * 有变化的表
+     */
+    private List<TableProgress> tables;
+    /**
+     * 任务是否已结束，结束后服务端不再推送，订阅关系自动清除
+     */
+    private Boolean finished;
+
+    @Data
+    @Accessors(chain = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TableProgress {
+
+        /**
+         * 表类型
+         */
+        private String tableType;
+        /**
+         * 表进度百分比
+         */
+        private Integer progress;
+        /**
+         * 进度状态：WAITING / PROCESSING / SUCCESS / FAILED
+         */
+        private String status;
+        /**
+         * 进度说明
+         */
+        private String message;
+        /**
+         * 预估总行数
+         */
+        private Integer totalRecords;
+        /**
+         * 已处理行数
+         */
+        private Integer processedRecords;
+        /**
+         * 成功行数
+         */
+        private Integer successRecords;
+        /**
+         * 失败行数
+         */
+        private Integer failedRecords;
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package cn.iocoder.yudao.module.drug.websocket.message;
+
+import lombok.Data;
+
+/**
+ * 导入进度订阅：client -> server 消息
+ * <p>
+ * 订阅和取消订阅使用同一个消息体，通过消息类型区分
+ *
+ * @author hyh
+ */
+@Data
+public class ImportProgressSubscribeMessage {
+
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+
+}